@@ -17,7 +17,8 @@ public class RouteConfig {
         return builder.routes()
                 // Microservicio de Solicitudes (puerto 8083)
                 // Maneja solicitudes, clientes y contenedores
-                .route("ms-solicitudes", spec -> spec.path("/api/v1/solicitudes/**")
+                // /api/v1/solicitudes:import no es subruta de /api/v1/solicitudes/**: se lista aparte
+                .route("ms-solicitudes", spec -> spec.path("/api/v1/solicitudes/**", "/api/v1/solicitudes:import")
                         .uri("http://ms-solicitudes:8083"))
                 .route("ms-clientes", spec -> spec.path("/api/v1/clientes/**")
                         .uri("http://ms-solicitudes:8083"))
@@ -49,6 +50,8 @@ public class RouteConfig {
                         .uri("http://ms-rutas-transportistas:8082"))
                 .route("ms-rutas-camiones", spec -> spec.path("/api/v1/camiones/**")
                         .uri("http://ms-rutas-transportistas:8082"))
+                .route("ms-rutas-kpis", spec -> spec.path("/api/v1/kpis/**")
+                        .uri("http://ms-rutas-transportistas:8082"))
 
                 // Proxy para Swagger/OpenAPI de los microservicios (no exponer puertos)
                 // Accede desde el gateway en /docs/{servicio}/... y reescribe la ruta hacia el servicio interno
@@ -62,6 +65,18 @@ public class RouteConfig {
                         .filters(f -> f.rewritePath("/docs/rutas/(?<rem>.*)", "/${rem}"))
                         .uri("http://ms-rutas-transportistas:8082"))
 
+                // Métricas de Prometheus de cada microservicio (solo ADMIN, ver SecurityConfig)
+                // /metricas/{servicio} -> /actuator/prometheus del servicio interno
+                .route("metricas-solicitudes", spec -> spec.path("/metricas/solicitudes")
+                        .filters(f -> f.setPath("/actuator/prometheus"))
+                        .uri("http://ms-solicitudes:8083"))
+                .route("metricas-calculos", spec -> spec.path("/metricas/gestion")
+                        .filters(f -> f.setPath("/actuator/prometheus"))
+                        .uri("http://ms-gestion-calculos:8081"))
+                .route("metricas-rutas", spec -> spec.path("/metricas/rutas")
+                        .filters(f -> f.setPath("/actuator/prometheus"))
+                        .uri("http://ms-rutas-transportistas:8082"))
+
                 .build();
     }
 
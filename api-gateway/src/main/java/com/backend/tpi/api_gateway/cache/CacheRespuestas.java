@@ -0,0 +1,198 @@
+package com.backend.tpi.api_gateway.cache;
+
+import com.backend.tpi.api_gateway.config.CacheRespuestasConfig;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Respuestas GET guardadas por el gateway, agrupadas en las familias de app.cache.familias
+ * - LRU acotada por memoria (app.cache.max-mb); al pasarse se descartan las menos usadas
+ * - Cada entrada vence según el ttl de su familia
+ * - Cada familia tiene un número de generación que sube con cada invalidación: una respuesta
+ *   pedida antes de una escritura no se guarda si llega después de ella
+ */
+@Component
+public class CacheRespuestas {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheRespuestas.class);
+
+    private static final String CACHE = "gateway.respuestas";
+
+    // Estimación de lo que ocupa una entrada además del cuerpo (clave, cabeceras, objetos)
+    private static final int SOBRECARGA_ENTRADA = 512;
+
+    public record Entrada(String familia, HttpHeaders cabeceras, byte[] cuerpo, String etag,
+                          long creadaEnMillis, long expiraEnNanos) {
+        long bytes() {
+            return cuerpo.length + SOBRECARGA_ENTRADA;
+        }
+    }
+
+    private record Familia(String nombre, List<PathPattern> lectura, List<PathPattern> escritura, long ttlNanos) {}
+
+    @Autowired
+    private CacheRespuestasConfig config;
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    private final List<Familia> familias = new ArrayList<>();
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+
+    // Orden de acceso: la primera entrada es la usada hace más tiempo
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    @PostConstruct
+    public void iniciar() {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        config.getFamilias().forEach((nombre, f) -> {
+            List<PathPattern> lectura = f.getRutas().stream().map(String::trim).map(parser::parse).toList();
+            List<PathPattern> escritura = new ArrayList<>(lectura);
+            f.getInvalidadoPor().stream().map(String::trim).map(parser::parse).forEach(escritura::add);
+            familias.add(new Familia(nombre, lectura, escritura, f.getTtl().toNanos()));
+            generaciones.put(nombre, new AtomicLong());
+        });
+        registroMetricas.gauge("cache.size", Map.of("cache", CACHE), () -> tamanio());
+        registroMetricas.gauge("cache.bytes", Map.of("cache", CACHE), () -> bytesUsados());
+        if (config.isHabilitado() && !familias.isEmpty()) {
+            logger.info("Caché de respuestas del gateway: familias {} (máximo {} MB)", config.getFamilias().keySet(), config.getMaxMb());
+        }
+    }
+
+    public boolean habilitada() {
+        return config.isHabilitado() && !familias.isEmpty();
+    }
+
+    /**
+     * Familia cuyas lecturas incluyen el path, o null si el path no se cachea
+     */
+    public String familiaLectura(PathContainer path) {
+        for (Familia familia : familias) {
+            for (PathPattern patron : familia.lectura()) {
+                if (patron.matches(path)) return familia.nombre();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Familias que una escritura sobre el path deja desactualizadas
+     */
+    public List<String> familiasInvalidadas(PathContainer path) {
+        List<String> resultado = new ArrayList<>(1);
+        for (Familia familia : familias) {
+            for (PathPattern patron : familia.escritura()) {
+                if (patron.matches(path)) {
+                    resultado.add(familia.nombre());
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    public long maxBytesPorRespuesta() {
+        return config.getMaxKbPorRespuesta() * 1024L;
+    }
+
+    public long generacion(String familia) {
+        return generaciones.get(familia).get();
+    }
+
+    public long ttlNanos(String familia) {
+        for (Familia f : familias) {
+            if (f.nombre().equals(familia)) return f.ttlNanos();
+        }
+        return 0;
+    }
+
+    /**
+     * Entrada vigente para la clave, o null (las vencidas se eliminan al encontrarlas)
+     */
+    public Entrada obtener(String clave) {
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada == null) return null;
+            if (entrada.expiraEnNanos() - System.nanoTime() <= 0) {
+                entradas.remove(clave);
+                bytes -= entrada.bytes();
+                return null;
+            }
+            return entrada;
+        }
+    }
+
+    /**
+     * Guarda una respuesta si su familia no se invalidó desde que se leyó la generación
+     * @param generacion Generación de la familia al empezar la request
+     */
+    public void guardar(String clave, Entrada entrada, long generacion) {
+        if (entrada.cuerpo().length > maxBytesPorRespuesta()) return;
+        long maximo = config.getMaxMb() * 1024L * 1024L;
+        int descartadas = 0;
+        synchronized (entradas) {
+            if (generacion(entrada.familia()) != generacion) return;
+            Entrada anterior = entradas.put(clave, entrada);
+            if (anterior != null) bytes -= anterior.bytes();
+            bytes += entrada.bytes();
+            Iterator<Entrada> it = entradas.values().iterator();
+            while (bytes > maximo && it.hasNext()) {
+                Entrada vieja = it.next();
+                it.remove();
+                bytes -= vieja.bytes();
+                descartadas++;
+            }
+        }
+        if (descartadas > 0) registroMetricas.incrementar("cache.evictions", Map.of("cache", CACHE), descartadas);
+    }
+
+    /**
+     * Descarta todas las respuestas de la familia e impide guardar las que están en curso
+     */
+    public void invalidar(String familia) {
+        int eliminadas = 0;
+        synchronized (entradas) {
+            generaciones.get(familia).incrementAndGet();
+            Iterator<Entrada> it = entradas.values().iterator();
+            while (it.hasNext()) {
+                Entrada entrada = it.next();
+                if (entrada.familia().equals(familia)) {
+                    it.remove();
+                    bytes -= entrada.bytes();
+                    eliminadas++;
+                }
+            }
+        }
+        registroMetricas.incrementar("cache.invalidaciones", Map.of("cache", CACHE, "familia", familia));
+        if (eliminadas > 0) logger.debug("Caché de respuestas: familia {} invalidada ({} entradas)", familia, eliminadas);
+    }
+
+    private int tamanio() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    private long bytesUsados() {
+        synchronized (entradas) {
+            return bytes;
+        }
+    }
+}
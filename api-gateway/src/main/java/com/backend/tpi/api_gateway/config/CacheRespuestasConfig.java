@@ -0,0 +1,38 @@
+package com.backend.tpi.api_gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuración de la caché de respuestas GET del gateway (app.cache)
+ * Cada familia agrupa rutas de lectura que se cachean juntas y se invalidan juntas.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.cache")
+@Data
+public class CacheRespuestasConfig {
+
+    private boolean habilitado = true;
+
+    // Memoria total de las respuestas guardadas y tamaño máximo de cada una
+    private int maxMb = 32;
+    private int maxKbPorRespuesta = 512;
+
+    private Map<String, Familia> familias = new LinkedHashMap<>();
+
+    @Data
+    public static class Familia {
+        // Patrones de path cuyas respuestas GET se cachean
+        private List<String> rutas = new ArrayList<>();
+        // Otros patrones cuyas escrituras también invalidan la familia (además de las propias rutas)
+        private List<String> invalidadoPor = new ArrayList<>();
+        private Duration ttl = Duration.ofMinutes(1);
+    }
+}
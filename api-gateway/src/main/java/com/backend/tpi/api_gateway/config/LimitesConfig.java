@@ -0,0 +1,56 @@
+package com.backend.tpi.api_gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuración de la protección del gateway ante exceso de requests (app.limites)
+ * - Clases de cliente: cada usuario cae en la primera clase que tenga alguno de sus roles
+ *   (una clase sin roles recibe a todos los demás, incluidos los anónimos)
+ * - Cada clase tiene su cubeta de tokens por usuario y su parte del límite de concurrencia
+ *   de cada microservicio: las clases con menos cuota son las primeras en ser rechazadas
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.limites")
+@Data
+public class LimitesConfig {
+
+    private boolean habilitado = true;
+
+    private Map<String, Clase> clases = new LinkedHashMap<>();
+
+    // Tokens que cuesta una request según su path (las que no figuran cuestan 1)
+    private Map<String, Integer> costos = new LinkedHashMap<>();
+
+    private Concurrencia concurrencia = new Concurrencia();
+
+    @Data
+    public static class Clase {
+        private List<String> roles = new ArrayList<>();
+        // Tokens que recupera cada usuario por segundo y máximo acumulable (ráfaga)
+        private double porSegundo = 10;
+        private int rafaga = 20;
+        // Fracción del límite de concurrencia de cada microservicio que puede ocupar la clase
+        private double cuotaConcurrencia = 1.0;
+    }
+
+    @Data
+    public static class Concurrencia {
+        private boolean habilitado = true;
+        // Requests simultáneas por microservicio: valor inicial y rango en el que se ajusta
+        private int inicial = 20;
+        private int minimo = 4;
+        private int maximo = 200;
+        // Cuánto puede crecer la latencia reciente respecto de la habitual antes de bajar el límite
+        private double tolerancia = 2.0;
+        // Paths que no ocupan lugar ni ajustan el límite: streams y operaciones largas, cuya duración
+        // no dice nada de la saturación del microservicio
+        private List<String> excluidas = new ArrayList<>();
+    }
+}
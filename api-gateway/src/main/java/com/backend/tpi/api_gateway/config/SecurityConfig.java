@@ -1,22 +1,72 @@
 package com.backend.tpi.api_gateway.config;
 
+import com.backend.tpi.api_gateway.seguridad.DecodificadorJwtCacheado;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import com.backend.tpi.common.seguridad.JwksPrecargado;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
 import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
 import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Configuration
 @EnableWebFluxSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    // Claves de Keycloak descargadas al arrancar y renovadas en segundo plano
+    @Bean(destroyMethod = "cerrar")
+    JwksPrecargado jwksPrecargado(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                  @Value("${app.jwt.jwks-refresco:5m}") Duration refresco) {
+        return new JwksPrecargado(jwkSetUri, refresco);
+    }
+
+    // Reemplaza al ReactiveJwtDecoder por defecto de Spring Boot: los tokens ya verificados no se vuelven a verificar
+    @Bean
+    DecodificadorJwtCacheado jwtDecoder(JwksPrecargado jwks,
+                                        @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}") String emisor,
+                                        @Value("${app.jwt.max-tokens:10000}") int maxTokens,
+                                        @Value("${app.jwt.confianza.secreto:}") String secreto,
+                                        RegistroMetricas registroMetricas) {
+        return new DecodificadorJwtCacheado(jwks, emisor, maxTokens, secreto, registroMetricas);
+    }
+
+    // Roles de Keycloak (realm_access.roles) como autoridades ROLE_*, igual que en los microservicios
+    private static Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter() {
+        return jwt -> {
+            Map<String, Object> realmAccess = jwt.getClaim("realm_access");
+            List<String> roles = Collections.emptyList();
+            if (realmAccess != null && realmAccess.get("roles") instanceof List) {
+                roles = (List<String>) realmAccess.get("roles");
+            }
+            List<GrantedAuthority> authorities = roles.stream()
+                    .map(r -> String.format("ROLE_%s", r.toUpperCase()))
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toList());
+            return new JwtAuthenticationToken(jwt, authorities);
+        };
+    }
+
     @Bean
     @Order(1)
     public SecurityWebFilterChain publicSecurityWebFilterChain(ServerHttpSecurity http) {
@@ -44,9 +94,12 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeExchange(exchanges -> exchanges
+                        // métricas de todos los servicios: solo administradores
+                        .pathMatchers("/metricas/**", "/actuator/prometheus").hasRole("ADMIN")
                         .anyExchange().authenticated()
                 )
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> {}));
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt ->
+                        jwt.jwtAuthenticationConverter(new ReactiveJwtAuthenticationConverterAdapter(jwtAuthenticationConverter()))));
 
         return http.build();
     }
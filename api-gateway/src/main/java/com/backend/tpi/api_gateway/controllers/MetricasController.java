@@ -0,0 +1,22 @@
+package com.backend.tpi.api_gateway.controllers;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Métricas propias del gateway para Prometheus (las de cada servicio se leen en /metricas/{servicio})
+ * Usa la misma ruta que Spring Boot Actuator para que el scrape no cambie si se incorpora.
+ */
+@RestController
+public class MetricasController {
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    @GetMapping(value = "/actuator/prometheus", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String prometheus() {
+        return registroMetricas.exportarPrometheus();
+    }
+}
@@ -1,30 +1,69 @@
 package com.backend.tpi.api_gateway.filters;
 
+import com.backend.tpi.common.trazas.Rastreador;
+import com.backend.tpi.common.trazas.Span;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Global filter that ensures the Authorization header is forwarded to downstream
  * services. When the gateway validates the JWT, some configurations remove the
  * original header; this filter reinjects it from the reactive SecurityContext
  * (if present) before proxying the request.
+ * It also opens the gateway span of the request and forwards its W3C traceparent,
+ * so every microservice call made for this request joins the same trace.
  */
 @Component
 public class AuthorizationForwardFilter implements GlobalFilter, Ordered {
 
+    @Autowired
+    private Rastreador rastreador;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String nombre = "http " + request.getMethod().name().toLowerCase() + " " + (route != null ? route.getId() : request.getPath().value());
+        Span span = rastreador.iniciar(nombre, Span.Tipo.SERVER, null, request.getHeaders().getFirst(Rastreador.TRACEPARENT));
+        if (span == null) {
+            return forwardAuthorization(exchange, chain);
+        }
+
+        // Downstream services continue the trace as children of the gateway span
+        ServerHttpRequest traced = request.mutate()
+                .headers(headers -> headers.set(Rastreador.TRACEPARENT, span.traceparent()))
+                .build();
+        span.etiqueta("method", request.getMethod().name());
+        span.etiqueta("route", route != null ? route.getId() : null);
+        span.etiqueta("http.url", request.getPath().value());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        return forwardAuthorization(exchange.mutate().request(traced).build(), chain)
+                .doOnError(failure::set)
+                .doFinally(signal -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    span.etiqueta("status", signal == SignalType.CANCEL ? "CANCELADO" : status != null ? String.valueOf(status.value()) : null);
+                    rastreador.finalizar(span, failure.get());
+                });
+    }
+
+    private Mono<Void> forwardAuthorization(ServerWebExchange exchange, GatewayFilterChain chain) {
         List<String> authHeaders = exchange.getRequest().getHeaders().getOrEmpty(HttpHeaders.AUTHORIZATION);
         // If Authorization header already present, forward as-is
         if (authHeaders != null && !authHeaders.isEmpty()) {
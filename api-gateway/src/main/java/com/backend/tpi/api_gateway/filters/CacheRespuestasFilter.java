@@ -0,0 +1,235 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.backend.tpi.api_gateway.cache.CacheRespuestas;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Caché de respuestas GET para las rutas de lectura de app.cache.familias (depósitos, tarifas, camiones)
+ * - La clave es la ruta, el path con su query y los roles del usuario: dos usuarios con los mismos roles
+ *   comparten la respuesta, uno con otros roles no ve la de ellos
+ * - Las respuestas llevan ETag; con If-None-Match coincidente se responde 304 sin cuerpo
+ * - Un POST/PUT/PATCH/DELETE sobre la familia la invalida al empezar y al terminar
+ * - Solo se guardan respuestas 200 sin Set-Cookie. El Cache-Control de los microservicios no se tiene en
+ *   cuenta (Spring Security pone no-store en todas); al cliente se le responde private, no-cache para que
+ *   guarde la respuesta y la revalide con el ETag
+ * - Cache-Control: no-cache en la request fuerza ir al microservicio (y renueva la entrada)
+ * Va después de AuthorizationForwardFilter, así las respuestas desde caché también quedan en la traza.
+ */
+@Component
+public class CacheRespuestasFilter implements GlobalFilter, Ordered {
+
+    public static final String CABECERA_CACHE = "X-Cache";
+
+    private static final List<String> CABECERAS_NO_GUARDADAS = List.of(HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.SET_COOKIE, HttpHeaders.DATE, HttpHeaders.CONNECTION,
+            HttpHeaders.ETAG, HttpHeaders.AGE, HttpHeaders.CACHE_CONTROL, HttpHeaders.PRAGMA, HttpHeaders.EXPIRES,
+            CABECERA_CACHE);
+
+    private static final String CACHE_CONTROL_CLIENTE = "private, no-cache";
+
+    @Autowired
+    private CacheRespuestas cache;
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!cache.habilitada()) return chain.filter(exchange);
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer path = request.getPath().pathWithinApplication();
+        HttpMethod metodo = request.getMethod();
+
+        if (metodo == HttpMethod.POST || metodo == HttpMethod.PUT || metodo == HttpMethod.PATCH || metodo == HttpMethod.DELETE) {
+            List<String> invalidadas = cache.familiasInvalidadas(path);
+            if (invalidadas.isEmpty()) return chain.filter(exchange);
+            invalidadas.forEach(cache::invalidar);
+            return chain.filter(exchange).doFinally(senal -> invalidadas.forEach(cache::invalidar));
+        }
+        if (metodo != HttpMethod.GET) return chain.filter(exchange);
+        String familia = cache.familiaLectura(path);
+        if (familia == null || directiva(request.getHeaders(), "no-store")) return chain.filter(exchange);
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(ctx -> roles(ctx.getAuthentication()))
+                .defaultIfEmpty("anonimo")
+                .flatMap(roles -> {
+                    Route ruta = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+                    String clave = (ruta != null ? ruta.getId() : "") + " " + request.getURI().getRawPath()
+                            + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "")
+                            + " " + roles;
+                    boolean revalidar = directiva(request.getHeaders(), "no-cache")
+                            || "no-cache".equalsIgnoreCase(request.getHeaders().getFirst(HttpHeaders.PRAGMA));
+                    CacheRespuestas.Entrada entrada = revalidar ? null : cache.obtener(clave);
+                    registroMetricas.registrarCache("gateway." + familia, entrada != null, 1);
+                    if (entrada != null) return responderDesdeCache(exchange, entrada);
+
+                    long generacion = cache.generacion(familia);
+                    ServerHttpResponse guardando = new GuardarRespuesta(exchange, clave, familia, generacion);
+                    return chain.filter(exchange.mutate().response(guardando).build());
+                });
+    }
+
+    private Mono<Void> responderDesdeCache(ServerWebExchange exchange, CacheRespuestas.Entrada entrada) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders cabeceras = response.getHeaders();
+        cabeceras.putAll(entrada.cabeceras());
+        cabeceras.setETag(entrada.etag());
+        cabeceras.set(HttpHeaders.AGE, String.valueOf((System.currentTimeMillis() - entrada.creadaEnMillis()) / 1000));
+        cabeceras.set(CABECERA_CACHE, "HIT");
+        cabeceras.setCacheControl(CACHE_CONTROL_CLIENTE);
+        if (coincideEtag(exchange.getRequest().getHeaders(), entrada.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        cabeceras.setContentLength(entrada.cuerpo().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(entrada.cuerpo())));
+    }
+
+    /**
+     * Respuesta del microservicio: junta el cuerpo, le calcula el ETag y la guarda si se puede cachear
+     */
+    private class GuardarRespuesta extends ServerHttpResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final String clave;
+        private final String familia;
+        private final long generacion;
+
+        GuardarRespuesta(ServerWebExchange exchange, String clave, String familia, long generacion) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.clave = clave;
+            this.familia = familia;
+            this.generacion = generacion;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!cacheable(getHeaders())) return super.writeWith(body);
+            return DataBufferUtils.join(Flux.from(body)).flatMap(buffer -> {
+                byte[] cuerpo = new byte[buffer.readableByteCount()];
+                buffer.read(cuerpo);
+                DataBufferUtils.release(buffer);
+
+                HttpHeaders cabeceras = getHeaders();
+                String etag = cabeceras.getETag() != null ? cabeceras.getETag() : etag(cuerpo);
+                HttpHeaders guardadas = new HttpHeaders();
+                cabeceras.forEach((nombre, valores) -> {
+                    if (CABECERAS_NO_GUARDADAS.stream().noneMatch(nombre::equalsIgnoreCase)) guardadas.put(nombre, valores);
+                });
+                cache.guardar(clave, new CacheRespuestas.Entrada(familia, HttpHeaders.readOnlyHttpHeaders(guardadas), cuerpo, etag,
+                        System.currentTimeMillis(), System.nanoTime() + cache.ttlNanos(familia)), generacion);
+
+                cabeceras.setETag(etag);
+                cabeceras.set(CABECERA_CACHE, "MISS");
+                cabeceras.setCacheControl(CACHE_CONTROL_CLIENTE);
+                cabeceras.remove(HttpHeaders.PRAGMA);
+                cabeceras.remove(HttpHeaders.EXPIRES);
+                cabeceras.remove(HttpHeaders.TRANSFER_ENCODING);
+                if (coincideEtag(exchange.getRequest().getHeaders(), etag)) {
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    cabeceras.remove(HttpHeaders.CONTENT_LENGTH);
+                    return super.writeWith(Flux.empty());
+                }
+                cabeceras.setContentLength(cuerpo.length);
+                return super.writeWith(Mono.just(bufferFactory().wrap(cuerpo)));
+            });
+        }
+
+        private boolean cacheable(HttpHeaders cabeceras) {
+            if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value()) return false;
+            if (cabeceras.containsKey(HttpHeaders.SET_COOKIE)) return false;
+            // Sin Content-Length se junta el cuerpo igual; guardar() descarta las que superan el máximo
+            long largo = cabeceras.getContentLength();
+            return largo < 0 || largo <= cache.maxBytesPorRespuesta();
+        }
+    }
+
+    /**
+     * Roles de Keycloak del token ordenados (la autenticación del gateway no los convierte en authorities)
+     */
+    @SuppressWarnings("unchecked")
+    static String roles(Authentication autenticacion) {
+        if (autenticacion instanceof JwtAuthenticationToken jwt) {
+            Map<String, Object> realmAccess = jwt.getToken().getClaim("realm_access");
+            if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+                return String.join(",", new TreeSet<>((Collection<String>) roles));
+            }
+            return "";
+        }
+        return autenticacion != null && autenticacion.isAuthenticated() ? autenticacion.getName() : "anonimo";
+    }
+
+    private static boolean directiva(HttpHeaders cabeceras, String directiva) {
+        String cacheControl = cabeceras.getCacheControl();
+        if (cacheControl == null) return false;
+        for (String parte : cacheControl.split(",")) {
+            if (parte.trim().equalsIgnoreCase(directiva)) return true;
+        }
+        return false;
+    }
+
+    private static boolean coincideEtag(HttpHeaders request, String etag) {
+        List<String> candidatos;
+        try {
+            candidatos = request.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        for (String candidato : candidatos) {
+            String valor = candidato.trim();
+            if (valor.equals("*")) return true;
+            if (valor.startsWith("W/")) valor = valor.substring(2);
+            if (valor.equals(etag.startsWith("W/") ? etag.substring(2) : etag)) return true;
+        }
+        return false;
+    }
+
+    private static String etag(byte[] cuerpo) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(cuerpo);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Después de AuthorizationForwardFilter (span de la request) y antes del ruteo a los microservicios
+        return Ordered.HIGHEST_PRECEDENCE + 20;
+    }
+}
@@ -0,0 +1,238 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import jakarta.annotation.PostConstruct;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrupa GETs idénticos simultáneos (single-flight): el primero va al microservicio y los que llegan
+ * mientras está en curso reciben una copia de su respuesta en lugar de repetir la request
+ * - Son idénticos si coinciden path, query, Accept, Accept-Encoding, usuario (sub del token) y roles:
+ *   varios endpoints filtran por el usuario del token, así que nunca se comparte entre usuarios distintos
+ * - No guarda nada: terminada la respuesta, el siguiente GET vuelve a ir al microservicio
+ *   (guardar respuestas es cosa de CacheRespuestasFilter, que va antes)
+ * - La respuesta se copia mientras se envía al primer cliente, sin demorarlo. Si supera
+ *   app.coalescencia.max-kb, es un stream, trae Set-Cookie o el primero falla o se corta,
+ *   los que esperaban hacen cada uno su propia request
+ */
+@Component
+public class CoalescenciaFilter implements GlobalFilter, Ordered {
+
+    private static final List<String> CABECERAS_NO_COPIADAS = List.of(HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.DATE, HttpHeaders.CONNECTION);
+
+    @Value("${app.coalescencia.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${app.coalescencia.rutas:/api/v1/**}")
+    private String[] rutas;
+
+    @Value("${app.coalescencia.max-kb:1024}")
+    private int maxKb;
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    private List<PathPattern> patrones;
+
+    private final Map<String, Vuelo> enCurso = new ConcurrentHashMap<>();
+
+    private record Respuesta(HttpStatusCode status, HttpHeaders cabeceras, byte[] cuerpo) {}
+
+    /**
+     * Request en curso hacia el microservicio y copia de su respuesta para los que esperan
+     */
+    private static class Vuelo {
+        final Sinks.One<Respuesta> resultado = Sinks.one();
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream();
+        HttpStatusCode status;
+        HttpHeaders cabeceras;
+        volatile boolean descartado;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        patrones = Arrays.stream(rutas).map(String::trim).map(PathPatternParser.defaultInstance::parse).toList();
+        registroMetricas.gauge("gateway.coalescencia.en.curso", Map.of(), () -> enCurso.size());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!habilitado || request.getMethod() != HttpMethod.GET) return chain.filter(exchange);
+        PathContainer path = request.getPath().pathWithinApplication();
+        if (patrones.stream().noneMatch(p -> p.matches(path))) return chain.filter(exchange);
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(ctx -> identidad(ctx.getAuthentication()))
+                .defaultIfEmpty("anonimo")
+                .flatMap(identidad -> {
+                    HttpHeaders cabeceras = request.getHeaders();
+                    String clave = request.getURI().getRawPath()
+                            + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "")
+                            + " " + cabeceras.getFirst(HttpHeaders.ACCEPT)
+                            + " " + cabeceras.getFirst(HttpHeaders.ACCEPT_ENCODING)
+                            + " " + identidad;
+                    Vuelo vuelo = new Vuelo();
+                    Vuelo existente = enCurso.putIfAbsent(clave, vuelo);
+                    if (existente != null) return esperar(exchange, chain, existente);
+
+                    CopiarRespuesta copiando = new CopiarRespuesta(exchange.getResponse(), vuelo, maxKb * 1024L);
+                    return chain.filter(exchange.mutate().response(copiando).build())
+                            .doFinally(senal -> terminar(clave, vuelo, senal, copiando));
+                });
+    }
+
+    /**
+     * Espera la respuesta de la request en curso; si no se puede compartir hace la propia
+     */
+    private Mono<Void> esperar(ServerWebExchange exchange, GatewayFilterChain chain, Vuelo vuelo) {
+        return vuelo.resultado.asMono()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(respuesta -> {
+                    registrar(exchange, respuesta.isPresent() ? "compartida" : "repetida");
+                    return respuesta.isPresent() ? responder(exchange, respuesta.get()) : chain.filter(exchange);
+                });
+    }
+
+    /**
+     * Usuario y roles del token: dos usuarios con los mismos roles pueden recibir respuestas distintas
+     */
+    static String identidad(Authentication autenticacion) {
+        String roles = CacheRespuestasFilter.roles(autenticacion);
+        if (autenticacion instanceof JwtAuthenticationToken jwt && jwt.getToken().getSubject() != null) {
+            return jwt.getToken().getSubject() + " " + roles;
+        }
+        return roles;
+    }
+
+    private void terminar(String clave, Vuelo vuelo, SignalType senal, ServerHttpResponse response) {
+        // Primero se libera la clave: quien llegue desde ahora hace una request nueva
+        enCurso.remove(clave, vuelo);
+        if (senal != SignalType.ON_COMPLETE || vuelo.descartado) {
+            vuelo.resultado.tryEmitEmpty();
+            return;
+        }
+        // Sin cuerpo (por ejemplo 204 o 304) no se llamó a writeWith
+        HttpStatusCode status = vuelo.status != null ? vuelo.status : response.getStatusCode();
+        HttpHeaders cabeceras = vuelo.cabeceras != null ? vuelo.cabeceras : copiar(response.getHeaders());
+        if (status == null || cabeceras == null) {
+            vuelo.resultado.tryEmitEmpty();
+            return;
+        }
+        vuelo.resultado.tryEmitValue(new Respuesta(status, cabeceras, vuelo.cuerpo.toByteArray()));
+    }
+
+    private Mono<Void> responder(ServerWebExchange exchange, Respuesta respuesta) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(respuesta.status());
+        response.getHeaders().putAll(respuesta.cabeceras());
+        if (respuesta.cuerpo().length == 0) return response.setComplete();
+        response.getHeaders().setContentLength(respuesta.cuerpo().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(respuesta.cuerpo())));
+    }
+
+    private void registrar(ServerWebExchange exchange, String resultado) {
+        Route ruta = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        registroMetricas.incrementar("gateway.coalescencia", Map.of(
+                "route", ruta != null ? ruta.getId() : "ninguna",
+                "resultado", resultado));
+    }
+
+    /**
+     * Cabeceras para repetir en las respuestas compartidas, o null si la respuesta no se puede compartir
+     */
+    private static HttpHeaders copiar(HttpHeaders origen) {
+        if (origen.containsKey(HttpHeaders.SET_COOKIE)) return null;
+        HttpHeaders copia = new HttpHeaders();
+        origen.forEach((nombre, valores) -> {
+            if (CABECERAS_NO_COPIADAS.stream().noneMatch(nombre::equalsIgnoreCase)) copia.put(nombre, List.copyOf(valores));
+        });
+        return copia;
+    }
+
+    /**
+     * Respuesta del microservicio: se envía tal cual al primer cliente y se copia para los que esperan
+     */
+    private static class CopiarRespuesta extends ServerHttpResponseDecorator {
+
+        private final Vuelo vuelo;
+        private final long maximo;
+
+        CopiarRespuesta(ServerHttpResponse delegate, Vuelo vuelo, long maximo) {
+            super(delegate);
+            this.vuelo = vuelo;
+            this.maximo = maximo;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            vuelo.status = getStatusCode();
+            vuelo.cabeceras = copiar(getHeaders());
+            if (vuelo.cabeceras == null) vuelo.descartado = true;
+            return super.writeWith(Flux.from(body).doOnNext(this::copiarCuerpo));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // Respuestas en streaming (eventos, NDJSON): cada cliente recibe la suya
+            vuelo.descartado = true;
+            return super.writeAndFlushWith(body);
+        }
+
+        private void copiarCuerpo(DataBuffer buffer) {
+            if (vuelo.descartado) return;
+            int cantidad = buffer.readableByteCount();
+            if (vuelo.cuerpo.size() + cantidad > maximo) {
+                vuelo.descartado = true;
+                vuelo.cuerpo = null;
+                return;
+            }
+            byte[] bytes = new byte[cantidad];
+            int posicion = buffer.readPosition();
+            buffer.read(bytes);
+            buffer.readPosition(posicion);
+            vuelo.cuerpo.write(bytes, 0, cantidad);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Después de CacheRespuestasFilter: solo se agrupan las lecturas que no salieron de la caché
+        return Ordered.HIGHEST_PRECEDENCE + 30;
+    }
+}
@@ -0,0 +1,109 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.backend.tpi.api_gateway.config.LimitesConfig;
+import com.backend.tpi.api_gateway.limites.LimiteConcurrencia;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acota las requests simultáneas hacia cada microservicio con un límite que se ajusta a su latencia
+ * (ver LimiteConcurrencia). Al llegar al límite se responde 503 con Retry-After en lugar de encolar:
+ * la latencia de las que pasan se mantiene y el microservicio (y su base o OSRM) no se satura.
+ * Cada clase de cliente usa solo su cuota del límite, así los clientes se rechazan antes que los
+ * operadores. Va después de la caché y de la agrupación: lo que se responde desde el gateway no
+ * ocupa lugar. Las rutas de app.limites.concurrencia.excluidas (exportaciones, importaciones) no
+ * pasan por el límite: una sola exportación de varios minutos lo llevaría al mínimo.
+ */
+@Component
+public class ConcurrenciaAdaptativaFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private LimitesConfig config;
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    private final Map<String, LimiteConcurrencia> limites = new ConcurrentHashMap<>();
+
+    private List<PathPattern> excluidas;
+
+    @PostConstruct
+    public void iniciar() {
+        excluidas = config.getConcurrencia().getExcluidas().stream()
+                .map(String::trim)
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route ruta = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!config.isHabilitado() || !config.getConcurrencia().isHabilitado() || ruta == null) return chain.filter(exchange);
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        if (excluidas.stream().anyMatch(p -> p.matches(path))) return chain.filter(exchange);
+
+        String clase = exchange.getAttribute(LimiteRequestsFilter.ATRIBUTO_CLASE);
+        LimitesConfig.Clase configClase = clase != null ? config.getClases().get(clase) : null;
+        double cuota = configClase != null ? configClase.getCuotaConcurrencia() : 1.0;
+
+        LimiteConcurrencia limite = limite(ruta);
+        if (!limite.adquirir(cuota)) {
+            LimiteRequestsFilter.rechazado(registroMetricas, exchange, clase, "concurrencia");
+            return LimiteRequestsFilter.rechazar(exchange, HttpStatus.SERVICE_UNAVAILABLE, 1000,
+                    "Servicio saturado: reintente más tarde");
+        }
+        long inicio = System.nanoTime();
+        return chain.filter(exchange).doFinally(senal -> {
+            if (senal == SignalType.CANCEL) {
+                // El cliente cortó: la duración no dice nada del microservicio
+                limite.descartar();
+                return;
+            }
+            limite.liberar(System.nanoTime() - inicio, senal == SignalType.ON_ERROR || sobrecarga(exchange.getResponse().getStatusCode()));
+        });
+    }
+
+    /**
+     * Límite del microservicio de la ruta (varias rutas pueden ir al mismo)
+     */
+    private LimiteConcurrencia limite(Route ruta) {
+        String servicio = ruta.getUri().getHost() + (ruta.getUri().getPort() > 0 ? ":" + ruta.getUri().getPort() : "");
+        LimiteConcurrencia limite = limites.get(servicio);
+        if (limite != null) return limite;
+        return limites.computeIfAbsent(servicio, s -> {
+            LimiteConcurrencia nuevo = new LimiteConcurrencia(config.getConcurrencia());
+            registroMetricas.gauge("gateway.concurrencia.limite", Map.of("servicio", s), nuevo::limite);
+            registroMetricas.gauge("gateway.concurrencia.en.curso", Map.of("servicio", s), nuevo::enCurso);
+            return nuevo;
+        });
+    }
+
+    private static boolean sobrecarga(HttpStatusCode status) {
+        return status != null && (status.value() == 502 || status.value() == 503 || status.value() == 504);
+    }
+
+    @Override
+    public int getOrder() {
+        // Después de CoalescenciaFilter y antes del ruteo hacia el microservicio
+        return Ordered.HIGHEST_PRECEDENCE + 40;
+    }
+}
@@ -0,0 +1,56 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.backend.tpi.api_gateway.seguridad.DecodificadorJwtCacheado;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Modo de confianza interna (app.jwt.confianza.secreto): agrega X-Jwt-Verificado a las requests
+ * cuyo token ya verificó el gateway, así los microservicios no repiten la verificación de la firma.
+ * La cabecera que traiga el cliente siempre se descarta: solo la puede poner el gateway.
+ */
+@Component
+public class ConfianzaInternaFilter implements GlobalFilter, Ordered {
+
+    @Autowired
+    private DecodificadorJwtCacheado decodificador;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        boolean traida = request.getHeaders().containsKey(DecodificadorJwtCacheado.CABECERA_CONFIANZA);
+        if (!decodificador.confianzaHabilitada() && !traida) return chain.filter(exchange);
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(ctx -> Optional.ofNullable(ctx.getAuthentication()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(autenticacion -> {
+                    String firma = autenticacion
+                            .filter(a -> a instanceof JwtAuthenticationToken)
+                            .map(a -> decodificador.firma(((JwtAuthenticationToken) a).getToken().getTokenValue()))
+                            .orElse(null);
+                    if (firma == null && !traida) return chain.filter(exchange);
+                    ServerHttpRequest conFirma = request.mutate().headers(cabeceras -> {
+                        cabeceras.remove(DecodificadorJwtCacheado.CABECERA_CONFIANZA);
+                        if (firma != null) cabeceras.set(DecodificadorJwtCacheado.CABECERA_CONFIANZA, firma);
+                    }).build();
+                    return chain.filter(exchange.mutate().request(conFirma).build());
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // Antes de AuthorizationForwardFilter, que arma la request hacia el microservicio
+        return Ordered.HIGHEST_PRECEDENCE + 6;
+    }
+}
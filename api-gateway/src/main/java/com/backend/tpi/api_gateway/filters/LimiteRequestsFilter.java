@@ -0,0 +1,155 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.backend.tpi.api_gateway.config.LimitesConfig;
+import com.backend.tpi.api_gateway.limites.AlmacenCubetas;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Limita las requests de cada cliente con una cubeta de tokens (app.limites)
+ * - El cliente es el subject del JWT, o la IP si la request es anónima (alta de clientes y solicitudes)
+ * - La clase del cliente (operador, transportista, cliente, anónimo) define cuántos tokens recupera
+ *   por segundo y cuántos puede acumular; las rutas caras de app.limites.costos gastan más de uno
+ * - Sin tokens se responde 429 con Retry-After, sin llegar al microservicio
+ * Deja la clase en el exchange para que ConcurrenciaAdaptativaFilter aplique su cuota.
+ * Va primero entre los filtros del gateway: una ráfaga rechazada no abre spans ni consulta la caché.
+ */
+@Component
+public class LimiteRequestsFilter implements GlobalFilter, Ordered {
+
+    public static final String ATRIBUTO_CLASE = LimiteRequestsFilter.class.getName() + ".clase";
+
+    @Autowired
+    private LimitesConfig config;
+
+    @Autowired
+    private AlmacenCubetas almacen;
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    private final Map<PathPattern, Integer> costos = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void iniciar() {
+        config.getCostos().forEach((ruta, costo) -> costos.put(PathPatternParser.defaultInstance.parse(ruta.trim()), costo));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!config.isHabilitado() || config.getClases().isEmpty()) return chain.filter(exchange);
+
+        return ReactiveSecurityContextHolder.getContext()
+                .map(ctx -> Optional.ofNullable(ctx.getAuthentication()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(autenticacion -> {
+                    Authentication auth = autenticacion.orElse(null);
+                    Map.Entry<String, LimitesConfig.Clase> clase = clase(auth);
+                    if (clase == null) return chain.filter(exchange);
+                    exchange.getAttributes().put(ATRIBUTO_CLASE, clase.getKey());
+
+                    String clave = clase.getKey() + ":" + cliente(exchange, auth);
+                    AlmacenCubetas.Consumo consumo = almacen.consumir(clave, clase.getValue().getPorSegundo(),
+                            clase.getValue().getRafaga(), costo(exchange.getRequest().getPath().pathWithinApplication()));
+                    if (!consumo.permitido()) {
+                        rechazado(registroMetricas, exchange, clase.getKey(), "cuota");
+                        return rechazar(exchange, HttpStatus.TOO_MANY_REQUESTS, consumo.esperaMillis(),
+                                "Demasiadas requests: reintente más tarde");
+                    }
+                    exchange.getResponse().getHeaders().set("X-RateLimit-Remaining", String.valueOf(consumo.restantes()));
+                    return chain.filter(exchange);
+                });
+    }
+
+    /**
+     * Primera clase con alguno de los roles del usuario, o la primera sin roles; null si no hay ninguna
+     */
+    private Map.Entry<String, LimitesConfig.Clase> clase(Authentication autenticacion) {
+        Collection<?> roles = List.of();
+        if (autenticacion instanceof JwtAuthenticationToken jwt) {
+            Map<String, Object> realmAccess = jwt.getToken().getClaim("realm_access");
+            if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> r) roles = r;
+        }
+        Map.Entry<String, LimitesConfig.Clase> porDefecto = null;
+        for (Map.Entry<String, LimitesConfig.Clase> e : config.getClases().entrySet()) {
+            List<String> rolesClase = e.getValue().getRoles();
+            if (rolesClase.isEmpty()) {
+                if (porDefecto == null) porDefecto = e;
+            } else if (rolesClase.stream().map(String::trim).anyMatch(roles::contains)) {
+                return e;
+            }
+        }
+        return porDefecto;
+    }
+
+    private static String cliente(ServerWebExchange exchange, Authentication autenticacion) {
+        if (autenticacion instanceof JwtAuthenticationToken jwt && jwt.getToken().getSubject() != null) {
+            return jwt.getToken().getSubject();
+        }
+        InetSocketAddress remota = exchange.getRequest().getRemoteAddress();
+        return remota != null && remota.getAddress() != null ? remota.getAddress().getHostAddress() : "desconocido";
+    }
+
+    private int costo(PathContainer path) {
+        for (Map.Entry<PathPattern, Integer> e : costos.entrySet()) {
+            if (e.getKey().matches(path)) return e.getValue();
+        }
+        return 1;
+    }
+
+    static void rechazado(RegistroMetricas registroMetricas, ServerWebExchange exchange, String clase, String motivo) {
+        Route ruta = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        registroMetricas.incrementar("gateway.limites.rechazos", Map.of(
+                "route", ruta != null ? ruta.getId() : "ninguna",
+                "clase", clase != null ? clase : "ninguna",
+                "motivo", motivo));
+    }
+
+    /**
+     * Responde el rechazo con el mismo formato de error que los microservicios
+     */
+    static Mono<Void> rechazar(ServerWebExchange exchange, HttpStatus status, long esperaMillis, String mensaje) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (esperaMillis + 999) / 1000)));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] cuerpo = ("{\"timestamp\":\"" + Instant.now() + "\",\"message\":\"" + mensaje
+                + "\",\"details\":\"uri=" + exchange.getRequest().getURI().getRawPath() + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        response.getHeaders().setContentLength(cuerpo.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cuerpo)));
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 5;
+    }
+}
@@ -0,0 +1,59 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+
+/**
+ * Mide cada request que atraviesa el gateway (http.server.requests), etiquetado por la ruta de
+ * RouteConfig en lugar de la URL para acotar la cardinalidad.
+ * Va antes de la seguridad para contar también los rechazos (401/403) y las rutas inexistentes.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricasWebFilter implements WebFilter {
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long inicio = System.nanoTime();
+        return chain.filter(exchange).doFinally(senal -> {
+            Route ruta = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            HttpStatusCode estado = exchange.getResponse().getStatusCode();
+            // Cancelado: el cliente cortó la conexión antes de la respuesta
+            String status = senal == SignalType.CANCEL ? "CANCELADO" : (estado != null ? String.valueOf(estado.value()) : "200");
+            Map<String, String> etiquetas = Map.of(
+                    "method", exchange.getRequest().getMethod().name(),
+                    "route", ruta != null ? ruta.getId() : (exchange.getRequest().getPath().value().startsWith("/actuator") ? "actuator" : "ninguna"),
+                    "status", status,
+                    "outcome", outcome(estado, senal));
+            registroMetricas.registrarTiempo("http.server.requests", etiquetas, System.nanoTime() - inicio);
+            if (!"SUCCESS".equals(etiquetas.get("outcome")) && !"REDIRECTION".equals(etiquetas.get("outcome"))) {
+                registroMetricas.incrementar("http.server.requests.errores", etiquetas);
+            }
+        });
+    }
+
+    private static String outcome(HttpStatusCode estado, SignalType senal) {
+        if (senal == SignalType.CANCEL) return "UNKNOWN";
+        if (estado == null || estado.is2xxSuccessful()) return "SUCCESS";
+        if (estado.is3xxRedirection()) return "REDIRECTION";
+        if (estado.is4xxClientError()) return "CLIENT_ERROR";
+        if (estado.is5xxServerError()) return "SERVER_ERROR";
+        return "UNKNOWN";
+    }
+}
@@ -0,0 +1,27 @@
+package com.backend.tpi.api_gateway.limites;
+
+/**
+ * Cubetas de tokens de los clientes del gateway
+ * AlmacenCubetasMemoria las guarda en la instancia: con varias réplicas del gateway cada una
+ * limita por separado. Para compartirlas (por ejemplo en Redis) alcanza con registrar otra
+ * implementación de esta interfaz como @Primary.
+ */
+public interface AlmacenCubetas {
+
+    /**
+     * Resultado de pedir tokens
+     * @param permitido Si había tokens suficientes (en ese caso ya se descontaron)
+     * @param restantes Tokens enteros que quedan en la cubeta
+     * @param esperaMillis Si no se permitió, tiempo hasta juntar los tokens pedidos
+     */
+    record Consumo(boolean permitido, long restantes, long esperaMillis) {}
+
+    /**
+     * Recarga la cubeta de la clave según el tiempo transcurrido y descuenta el costo si alcanza
+     * @param clave Cliente (clase y usuario)
+     * @param porSegundo Tokens que se recuperan por segundo
+     * @param rafaga Capacidad de la cubeta
+     * @param costo Tokens que cuesta la request
+     */
+    Consumo consumir(String clave, double porSegundo, int rafaga, int costo);
+}
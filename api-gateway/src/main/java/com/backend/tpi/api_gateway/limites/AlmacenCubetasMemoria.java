@@ -0,0 +1,70 @@
+package com.backend.tpi.api_gateway.limites;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cubetas de tokens en memoria de esta instancia del gateway
+ * Las cubetas sin uso reciente se descartan de a ratos (una cubeta llena equivale a no tenerla).
+ */
+@Component
+public class AlmacenCubetasMemoria implements AlmacenCubetas {
+
+    private static final long LIMPIEZA_CADA = 10_000;
+    private static final long INACTIVA_NANOS = 10L * 60 * 1_000_000_000L;
+
+    private static class Cubeta {
+        double tokens;
+        long actualizadaEnNanos;
+    }
+
+    private final Map<String, Cubeta> cubetas = new ConcurrentHashMap<>();
+    private final AtomicLong consumos = new AtomicLong();
+    private final LongSupplier reloj;
+
+    public AlmacenCubetasMemoria() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param reloj Fuente de nanosegundos (System.nanoTime salvo en las pruebas)
+     */
+    AlmacenCubetasMemoria(LongSupplier reloj) {
+        this.reloj = reloj;
+    }
+
+    @Override
+    public Consumo consumir(String clave, double porSegundo, int rafaga, int costo) {
+        long ahora = reloj.getAsLong();
+        if (consumos.incrementAndGet() % LIMPIEZA_CADA == 0) limpiar(ahora);
+        Cubeta cubeta = cubetas.computeIfAbsent(clave, c -> {
+            Cubeta nueva = new Cubeta();
+            nueva.tokens = rafaga;
+            nueva.actualizadaEnNanos = ahora;
+            return nueva;
+        });
+        synchronized (cubeta) {
+            double transcurrido = Math.max(0, ahora - cubeta.actualizadaEnNanos) / 1e9;
+            cubeta.tokens = Math.min(rafaga, cubeta.tokens + transcurrido * porSegundo);
+            cubeta.actualizadaEnNanos = ahora;
+            if (cubeta.tokens >= costo) {
+                cubeta.tokens -= costo;
+                return new Consumo(true, (long) cubeta.tokens, 0);
+            }
+            long espera = (long) Math.ceil((costo - cubeta.tokens) / porSegundo * 1000);
+            return new Consumo(false, (long) cubeta.tokens, espera);
+        }
+    }
+
+    private void limpiar(long ahora) {
+        cubetas.values().removeIf(cubeta -> {
+            synchronized (cubeta) {
+                return ahora - cubeta.actualizadaEnNanos > INACTIVA_NANOS;
+            }
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.backend.tpi.api_gateway.limites;
+
+import com.backend.tpi.api_gateway.config.LimitesConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite adaptativo de requests simultáneas hacia un microservicio
+ * Compara la latencia reciente (promedio rápido) con la habitual (promedio lento):
+ * - Mientras la reciente no supere tolerancia × la habitual, el límite sube de a poco
+ * - Si la supera, el límite baja en proporción: el microservicio está encolando
+ * - Un error del microservicio (5xx de sobrecarga, timeout, conexión rechazada) lo baja un 10%
+ * El límite solo sube si se está usando: con poco tráfico no crece sin medida.
+ */
+public class LimiteConcurrencia {
+
+    private static final double ALFA_RAPIDO = 0.1;
+    private static final double ALFA_LENTO = 0.01;
+    private static final double SUAVIZADO = 0.2;
+
+    private final int minimo;
+    private final int maximo;
+    private final double tolerancia;
+
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private volatile double limite;
+    private double latenciaReciente;
+    private double latenciaHabitual;
+
+    public LimiteConcurrencia(LimitesConfig.Concurrencia config) {
+        this.minimo = Math.max(1, config.getMinimo());
+        this.maximo = Math.max(minimo, config.getMaximo());
+        this.tolerancia = config.getTolerancia();
+        this.limite = Math.min(maximo, Math.max(minimo, config.getInicial()));
+    }
+
+    /**
+     * Ocupa un lugar si las requests en curso no llegan a la parte del límite que le toca a la clase
+     * @param cuota Fracción del límite disponible para la clase del cliente (1 = todo)
+     * @return false si hay que rechazar la request; si es true, llamar a liberar al terminar
+     */
+    public boolean adquirir(double cuota) {
+        int permitidas = Math.max(1, (int) (limite * cuota));
+        while (true) {
+            int actuales = enCurso.get();
+            if (actuales >= permitidas) return false;
+            if (enCurso.compareAndSet(actuales, actuales + 1)) return true;
+        }
+    }
+
+    /**
+     * Libera el lugar y ajusta el límite con lo observado
+     * @param nanos Duración de la request
+     * @param sobrecarga Si el microservicio respondió con error de sobrecarga o no respondió
+     */
+    public void liberar(long nanos, boolean sobrecarga) {
+        int actuales = enCurso.getAndDecrement();
+        synchronized (this) {
+            if (sobrecarga) {
+                limite = Math.max(minimo, limite * 0.9);
+                return;
+            }
+            if (latenciaHabitual == 0) {
+                latenciaReciente = nanos;
+                latenciaHabitual = nanos;
+                return;
+            }
+            latenciaReciente += ALFA_RAPIDO * (nanos - latenciaReciente);
+            latenciaHabitual += ALFA_LENTO * (nanos - latenciaHabitual);
+            // Tras una mejora sostenida la latencia habitual acompaña a la reciente
+            if (latenciaHabitual > 2 * latenciaReciente) latenciaHabitual = 2 * latenciaReciente;
+
+            double gradiente = Math.max(0.5, Math.min(1.0, tolerancia * latenciaHabitual / latenciaReciente));
+            // Sin uso no hay información para subir el límite
+            if (gradiente == 1.0 && actuales < limite / 2) return;
+            double nuevo = limite * gradiente + Math.sqrt(limite);
+            limite = Math.min(maximo, Math.max(minimo, limite * (1 - SUAVIZADO) + nuevo * SUAVIZADO));
+        }
+    }
+
+    /**
+     * Libera el lugar sin ajustar el límite (la request no llegó a terminar)
+     */
+    public void descartar() {
+        enCurso.decrementAndGet();
+    }
+
+    public int limite() {
+        return (int) limite;
+    }
+
+    public int enCurso() {
+        return enCurso.get();
+    }
+}
@@ -0,0 +1,126 @@
+package com.backend.tpi.api_gateway.seguridad;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodificador de los JWT de Keycloak que no repite la verificación de un token ya verificado
+ * - Los tokens verificados se guardan (por su hash SHA-256) hasta que vencen, como mucho app.jwt.max-tokens
+ * - La firma se verifica con las claves de JwksPrecargado; la verificación corre fuera de los hilos de
+ *   Netty porque ante una rotación de claves puede tener que descargarlas
+ * - Con app.jwt.confianza.secreto, firma(token) da el valor de X-Jwt-Verificado que el gateway reenvía
+ *   a los microservicios para que no repitan la verificación (ver ConfianzaInternaFilter)
+ */
+public class DecodificadorJwtCacheado implements ReactiveJwtDecoder {
+
+    public static final String CABECERA_CONFIANZA = "X-Jwt-Verificado";
+
+    private static final String CACHE = "jwt.verificados";
+
+    private final NimbusReactiveJwtDecoder verificador;
+    private final int maxTokens;
+    private final SecretKeySpec secreto;
+    private final RegistroMetricas registroMetricas;
+
+    private final Map<String, Jwt> verificados = new ConcurrentHashMap<>();
+
+    /**
+     * @param claves Claves públicas para verificar la firma
+     * @param emisor Issuer esperado (vacío para no validarlo)
+     * @param maxTokens Tokens verificados que se recuerdan como máximo
+     * @param secreto Secreto compartido del modo de confianza interna (vacío para deshabilitarlo)
+     */
+    public DecodificadorJwtCacheado(JWKSource<SecurityContext> claves, String emisor, int maxTokens, String secreto,
+                                    RegistroMetricas registroMetricas) {
+        DefaultJWTProcessor<SecurityContext> procesador = new DefaultJWTProcessor<>();
+        procesador.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, claves));
+        // Los claims los valida Spring con el validador (igual que el decodificador por defecto)
+        procesador.setJWTClaimsSetVerifier((claims, contexto) -> {});
+        this.verificador = new NimbusReactiveJwtDecoder(jwt -> Mono.fromCallable(() -> procesador.process(jwt, null))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof JwtException), e -> new BadJwtException("Token inválido: " + e.getMessage(), e)));
+        this.verificador.setJwtValidator(emisor == null || emisor.isBlank() ? JwtValidators.createDefault() : JwtValidators.createDefaultWithIssuer(emisor));
+        this.maxTokens = maxTokens;
+        this.secreto = secreto == null || secreto.isBlank() ? null
+                : new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.registroMetricas = registroMetricas;
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        String hash = hash(token);
+        Jwt jwt = verificados.get(hash);
+        registroMetricas.registrarCache(CACHE, jwt != null && vigente(jwt), 1);
+        if (jwt != null) {
+            if (vigente(jwt)) return Mono.just(jwt);
+            verificados.remove(hash, jwt);
+        }
+        return verificador.decode(token).doOnNext(verificado -> {
+            registroMetricas.incrementar("jwt.verificaciones", Map.of("modo", "firma"));
+            guardar(hash, verificado);
+        });
+    }
+
+    public boolean confianzaHabilitada() {
+        return secreto != null;
+    }
+
+    /**
+     * Valor de X-Jwt-Verificado para el token, o null si el modo de confianza está deshabilitado
+     */
+    public String firma(String token) {
+        if (secreto == null) return null;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secreto);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(hash(token).getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+
+    private void guardar(String hash, Jwt jwt) {
+        // Sin vencimiento no se guarda: no habría cuándo descartarlo
+        if (jwt.getExpiresAt() == null) return;
+        if (verificados.size() >= maxTokens) {
+            verificados.values().removeIf(j -> !vigente(j));
+            if (verificados.size() >= maxTokens) return;
+        }
+        verificados.put(hash, jwt);
+    }
+
+    private static boolean vigente(Jwt jwt) {
+        return jwt.getExpiresAt() != null && Instant.now().isBefore(jwt.getExpiresAt());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
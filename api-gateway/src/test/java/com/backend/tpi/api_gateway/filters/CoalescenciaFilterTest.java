@@ -0,0 +1,143 @@
+package com.backend.tpi.api_gateway.filters;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Agrupación de GETs simultáneos a través del gateway real, con un microservicio lento de prueba
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CoalescenciaFilterTest {
+
+    private static final RSAKey CLAVE;
+    private static final HttpServer MICROSERVICIO;
+    private static final AtomicInteger LLAMADAS = new AtomicInteger();
+
+    static {
+        try {
+            CLAVE = new RSAKeyGenerator(2048).keyID("prueba").generate();
+            MICROSERVICIO = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            MICROSERVICIO.setExecutor(Executors.newCachedThreadPool());
+            MICROSERVICIO.createContext("/certs", intercambio -> {
+                byte[] cuerpo = new JWKSet(CLAVE.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+                intercambio.getResponseHeaders().add("Content-Type", "application/json");
+                intercambio.sendResponseHeaders(200, cuerpo.length);
+                intercambio.getResponseBody().write(cuerpo);
+                intercambio.close();
+            });
+            MICROSERVICIO.createContext("/api/v1/prueba", intercambio -> {
+                LLAMADAS.incrementAndGet();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] cuerpo = "[]".getBytes(StandardCharsets.UTF_8);
+                intercambio.getResponseHeaders().add("Content-Type", "application/json");
+                intercambio.sendResponseHeaders(200, cuerpo.length);
+                intercambio.getResponseBody().write(cuerpo);
+                intercambio.close();
+            });
+            MICROSERVICIO.start();
+        } catch (JOSEException | IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registro) {
+        String base = "http://localhost:" + MICROSERVICIO.getAddress().getPort();
+        registro.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", () -> base + "/certs");
+        registro.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", () -> "");
+        registro.add("spring.cloud.gateway.routes[0].id", () -> "prueba");
+        registro.add("spring.cloud.gateway.routes[0].uri", () -> base);
+        registro.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/api/v1/prueba/**");
+    }
+
+    @AfterAll
+    static void detener() {
+        MICROSERVICIO.stop(0);
+    }
+
+    @LocalServerPort
+    private int puerto;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void reiniciar() {
+        LLAMADAS.set(0);
+    }
+
+    @Test
+    void mismoUsuarioComparteLaRequest() throws Exception {
+        String token = token("cliente-1", "CLIENTE");
+
+        List<HttpResponse<String>> respuestas = simultaneas(token, token);
+
+        respuestas.forEach(r -> assertEquals(200, r.statusCode()));
+        assertEquals(1, LLAMADAS.get());
+    }
+
+    @Test
+    void usuariosDistintosConLosMismosRolesNoSeAgrupan() throws Exception {
+        List<HttpResponse<String>> respuestas = simultaneas(token("cliente-1", "CLIENTE"), token("cliente-2", "CLIENTE"));
+
+        respuestas.forEach(r -> assertEquals(200, r.statusCode()));
+        assertEquals(2, LLAMADAS.get());
+    }
+
+    private List<HttpResponse<String>> simultaneas(String... tokens) {
+        List<CompletableFuture<HttpResponse<String>>> enviadas = java.util.Arrays.stream(tokens)
+                .map(token -> cliente.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/api/v1/prueba"))
+                        .header("Authorization", "Bearer " + token)
+                        .GET()
+                        .build(), HttpResponse.BodyHandlers.ofString()))
+                .toList();
+        return enviadas.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static String token(String usuario, String rol) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(usuario)
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(300)))
+                .claim("realm_access", Map.of("roles", List.of(rol)))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(CLAVE.getKeyID()).build(), claims);
+        jwt.sign(new RSASSASigner(CLAVE));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,74 @@
+package com.backend.tpi.api_gateway.limites;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlmacenCubetasMemoriaTest {
+
+    private static final long SEGUNDO = 1_000_000_000L;
+
+    private final AtomicLong ahora = new AtomicLong(SEGUNDO);
+    private final AlmacenCubetasMemoria almacen = new AlmacenCubetasMemoria(ahora::get);
+
+    @Test
+    public void cubetaNueva_permiteLaRafagaYLuegoRechaza() {
+        for (int i = 0; i < 5; i++) {
+            AlmacenCubetas.Consumo consumo = almacen.consumir("cliente:a", 1, 5, 1);
+            assertTrue(consumo.permitido());
+            assertEquals(4 - i, consumo.restantes());
+        }
+
+        AlmacenCubetas.Consumo rechazado = almacen.consumir("cliente:a", 1, 5, 1);
+        assertFalse(rechazado.permitido());
+        assertEquals(0, rechazado.restantes());
+    }
+
+    @Test
+    public void recarga_segunElTiempoTranscurridoSinPasarLaRafaga() {
+        for (int i = 0; i < 5; i++) almacen.consumir("cliente:a", 2, 5, 1);
+
+        ahora.addAndGet(SEGUNDO);
+        AlmacenCubetas.Consumo consumo = almacen.consumir("cliente:a", 2, 5, 1);
+        assertTrue(consumo.permitido());
+        assertEquals(1, consumo.restantes());
+
+        ahora.addAndGet(60 * SEGUNDO);
+        assertEquals(4, almacen.consumir("cliente:a", 2, 5, 1).restantes());
+    }
+
+    @Test
+    public void costo_descuentaVariosTokensYNoSeCobraSiSeRechaza() {
+        assertTrue(almacen.consumir("cliente:a", 1, 10, 5).permitido());
+        assertTrue(almacen.consumir("cliente:a", 1, 10, 5).permitido());
+
+        AlmacenCubetas.Consumo rechazado = almacen.consumir("cliente:a", 1, 10, 5);
+        assertFalse(rechazado.permitido());
+
+        ahora.addAndGet(SEGUNDO);
+        AlmacenCubetas.Consumo barato = almacen.consumir("cliente:a", 1, 10, 1);
+        assertTrue(barato.permitido());
+        assertEquals(0, barato.restantes());
+    }
+
+    @Test
+    public void rechazo_informaLaEsperaHastaJuntarElCosto() {
+        almacen.consumir("cliente:a", 4, 10, 10);
+        ahora.addAndGet(SEGUNDO / 2);
+
+        // Quedan 2 tokens: faltan 3 para un costo de 5, a 4 por segundo
+        AlmacenCubetas.Consumo rechazado = almacen.consumir("cliente:a", 4, 10, 5);
+        assertFalse(rechazado.permitido());
+        assertEquals(2, rechazado.restantes());
+        assertEquals(750, rechazado.esperaMillis());
+    }
+
+    @Test
+    public void clavesDistintas_tienenCubetasSeparadas() {
+        assertTrue(almacen.consumir("cliente:a", 1, 1, 1).permitido());
+        assertFalse(almacen.consumir("cliente:a", 1, 1, 1).permitido());
+        assertTrue(almacen.consumir("cliente:b", 1, 1, 1).permitido());
+    }
+}
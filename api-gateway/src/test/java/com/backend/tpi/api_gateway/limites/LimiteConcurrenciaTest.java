@@ -0,0 +1,103 @@
+package com.backend.tpi.api_gateway.limites;
+
+import com.backend.tpi.api_gateway.config.LimitesConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimiteConcurrenciaTest {
+
+    private static final long LATENCIA = 10_000_000L;
+
+    private static LimiteConcurrencia limite(int inicial, int minimo, int maximo) {
+        LimitesConfig.Concurrencia config = new LimitesConfig.Concurrencia();
+        config.setInicial(inicial);
+        config.setMinimo(minimo);
+        config.setMaximo(maximo);
+        config.setTolerancia(2.0);
+        return new LimiteConcurrencia(config);
+    }
+
+    @Test
+    public void adquirir_respetaLaCuotaDeCadaClase() {
+        LimiteConcurrencia limite = limite(10, 1, 100);
+
+        for (int i = 0; i < 5; i++) assertTrue(limite.adquirir(0.5));
+        assertFalse(limite.adquirir(0.5));
+
+        // Una clase con más cuota todavía tiene lugar
+        for (int i = 0; i < 5; i++) assertTrue(limite.adquirir(1.0));
+        assertFalse(limite.adquirir(1.0));
+        assertEquals(10, limite.enCurso());
+    }
+
+    @Test
+    public void adquirir_cuotaMinimaDejaPasarAlMenosUna() {
+        LimiteConcurrencia limite = limite(10, 1, 100);
+
+        assertTrue(limite.adquirir(0.01));
+        assertFalse(limite.adquirir(0.01));
+    }
+
+    @Test
+    public void liberar_conSobrecarga_bajaElLimiteHastaElMinimo() {
+        LimiteConcurrencia limite = limite(10, 8, 100);
+
+        limite.adquirir(1.0);
+        limite.liberar(LATENCIA, true);
+        assertEquals(9, limite.limite());
+        assertEquals(0, limite.enCurso());
+
+        for (int i = 0; i < 10; i++) {
+            limite.adquirir(1.0);
+            limite.liberar(LATENCIA, true);
+        }
+        assertEquals(8, limite.limite());
+    }
+
+    @Test
+    public void liberar_sinUso_noSubeElLimite() {
+        LimiteConcurrencia limite = limite(10, 1, 100);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limite.adquirir(1.0));
+            limite.liberar(LATENCIA, false);
+        }
+        assertEquals(10, limite.limite());
+    }
+
+    @Test
+    public void liberar_conUsoYLatenciaEstable_subeElLimite() {
+        LimiteConcurrencia limite = limite(10, 1, 100);
+
+        for (int ronda = 0; ronda < 10; ronda++) {
+            int ocupadas = 0;
+            while (limite.adquirir(1.0)) ocupadas++;
+            for (int i = 0; i < ocupadas; i++) limite.liberar(LATENCIA, false);
+        }
+        assertTrue(limite.limite() > 10, "límite: " + limite.limite());
+        assertTrue(limite.limite() <= 100);
+    }
+
+    @Test
+    public void liberar_conLatenciaCreciente_bajaElLimite() {
+        LimiteConcurrencia limite = limite(50, 1, 100);
+
+        for (int i = 0; i < 50; i++) limite.adquirir(1.0);
+        limite.liberar(LATENCIA, false);
+        for (int i = 1; i < 50; i++) limite.liberar(LATENCIA * 20, false);
+
+        assertTrue(limite.limite() < 50, "límite: " + limite.limite());
+    }
+
+    @Test
+    public void descartar_liberaSinAjustarElLimite() {
+        LimiteConcurrencia limite = limite(10, 1, 100);
+
+        limite.adquirir(1.0);
+        limite.descartar();
+
+        assertEquals(0, limite.enCurso());
+        assertEquals(10, limite.limite());
+    }
+}
@@ -0,0 +1,56 @@
+package com.backend.tpi.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compara dos resultados JMH en formato JSON y lista las regresiones
+ * Un benchmark regresa si su score empeora más que la tolerancia relativa:
+ * en modo throughput cuando baja, en los modos de tiempo cuando sube.
+ * Los benchmarks que no están en la línea base se ignoran.
+ */
+public final class ComparadorResultados {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ComparadorResultados() {
+    }
+
+    public static List<String> regresiones(Path lineaBase, Path actual, double tolerancia) throws IOException {
+        Map<String, JsonNode> base = indexar(MAPPER.readTree(lineaBase.toFile()));
+        List<String> regresiones = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> e : indexar(MAPPER.readTree(actual.toFile())).entrySet()) {
+            JsonNode anterior = base.get(e.getKey());
+            if (anterior == null) continue;
+            double scoreBase = anterior.path("primaryMetric").path("score").asDouble();
+            double score = e.getValue().path("primaryMetric").path("score").asDouble();
+            String unidad = e.getValue().path("primaryMetric").path("scoreUnit").asText();
+            boolean throughput = "thrpt".equals(e.getValue().path("mode").asText());
+            boolean peor = throughput ? score < scoreBase * (1 - tolerancia) : score > scoreBase * (1 + tolerancia);
+            if (peor) {
+                regresiones.add(String.format(java.util.Locale.ROOT, "REGRESIÓN %s: %.3f -> %.3f %s (%+.1f%%)",
+                        e.getKey(), scoreBase, score, unidad, 100.0 * (score - scoreBase) / scoreBase));
+            }
+        }
+        return regresiones;
+    }
+
+    /**
+     * Clave: nombre del benchmark más sus parámetros
+     */
+    private static Map<String, JsonNode> indexar(JsonNode resultados) {
+        Map<String, JsonNode> porClave = new HashMap<>();
+        for (JsonNode r : resultados) {
+            String clave = r.path("benchmark").asText() + (r.has("params") ? r.get("params").toString() : "");
+            porClave.put(clave, r);
+        }
+        return porClave;
+    }
+}
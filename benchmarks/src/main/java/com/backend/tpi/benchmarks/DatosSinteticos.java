@@ -0,0 +1,56 @@
+package com.backend.tpi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Datos sintéticos reproducibles para los benchmarks (semilla fija)
+ * Las coordenadas caen dentro de Argentina continental, como los depósitos reales.
+ */
+public final class DatosSinteticos {
+
+    public static final long SEMILLA = 42;
+
+    private static final double LAT_MIN = -55.0;
+    private static final double LAT_MAX = -22.0;
+    private static final double LON_MIN = -73.0;
+    private static final double LON_MAX = -53.0;
+
+    private DatosSinteticos() {
+    }
+
+    /**
+     * n pares {latitud, longitud}
+     */
+    public static double[][] coordenadas(int n) {
+        Random random = new Random(SEMILLA);
+        double[][] puntos = new double[n][2];
+        for (int i = 0; i < n; i++) {
+            puntos[i][0] = LAT_MIN + random.nextDouble() * (LAT_MAX - LAT_MIN);
+            puntos[i][1] = LON_MIN + random.nextDouble() * (LON_MAX - LON_MIN);
+        }
+        return puntos;
+    }
+
+    /**
+     * n depósitos con la forma en que llegan de ms-gestion-calculos a DepositoService
+     * (mapas decodificados por Jackson: id entero, coordenadas double)
+     */
+    public static List<Map<String, Object>> depositos(int n) {
+        double[][] puntos = coordenadas(n);
+        List<Map<String, Object>> depositos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> d = new LinkedHashMap<>();
+            d.put("id", i + 1);
+            d.put("nombre", "Depósito " + (i + 1));
+            d.put("latitud", puntos[i][0]);
+            d.put("longitud", puntos[i][1]);
+            d.put("costoEstadiaDiario", 1000.0 + i % 500);
+            depositos.add(d);
+        }
+        return depositos;
+    }
+}
@@ -0,0 +1,52 @@
+package com.backend.tpi.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Punto de entrada del jar de benchmarks
+ * Corre los benchmarks que coinciden con el regex (todos si no se indica), publica los resultados
+ * en JSON y, si se pasa una línea base, termina con código 1 ante regresiones (para cortar el deploy).
+ *
+ * Propiedades:
+ * - benchmarks.resultado: archivo de salida (target/jmh-resultados.json)
+ * - benchmarks.baseline: resultado JSON anterior contra el que comparar (opcional)
+ * - benchmarks.tolerancia: empeoramiento relativo admitido (0.20)
+ * - benchmarks.excluir: regex de benchmarks que no se corren; por defecto los que necesitan
+ *   PostgreSQL (CreacionRutaBenchmark). Vacío para no excluir ninguno
+ */
+public class EjecutorBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        String incluir = args.length > 0 ? args[0] : "com\\.backend\\.tpi\\..*Benchmark";
+        Path resultado = Path.of(System.getProperty("benchmarks.resultado", "target/jmh-resultados.json")).toAbsolutePath();
+        Files.createDirectories(resultado.getParent());
+
+        String excluir = System.getProperty("benchmarks.excluir", "\\.CreacionRutaBenchmark\\.");
+
+        ChainedOptionsBuilder opciones = new OptionsBuilder()
+                .include(incluir)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultado.toString());
+        if (!excluir.isBlank()) opciones.exclude(excluir);
+        new Runner(opciones.build()).run();
+        System.out.println("Resultados publicados en " + resultado);
+
+        String lineaBase = System.getProperty("benchmarks.baseline");
+        if (lineaBase != null) {
+            double tolerancia = Double.parseDouble(System.getProperty("benchmarks.tolerancia", "0.20"));
+            List<String> regresiones = ComparadorResultados.regresiones(Path.of(lineaBase), resultado, tolerancia);
+            if (!regresiones.isEmpty()) {
+                regresiones.forEach(System.err::println);
+                System.exit(1);
+            }
+            System.out.println("Sin regresiones respecto de " + lineaBase);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.backend.tpi.ms_gestion_calculos.services;
+
+import com.backend.tpi.benchmarks.DatosSinteticos;
+import com.backend.tpi.ms_gestion_calculos.dtos.CoordenadaDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Haversine de CalculoService (fallback cuando OSRM no responde), sobre coordenadas ya geocodificadas
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CalculoServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int depositos;
+
+    private CoordenadaDTO origen;
+    private CoordenadaDTO[] destinos;
+
+    @Setup
+    public void preparar() {
+        double[][] puntos = DatosSinteticos.coordenadas(depositos);
+        destinos = new CoordenadaDTO[depositos];
+        for (int i = 0; i < depositos; i++) destinos[i] = new CoordenadaDTO(puntos[i][0], puntos[i][1]);
+        origen = new CoordenadaDTO(-31.4201, -64.1888);
+    }
+
+    @Benchmark
+    public void haversine(Blackhole bh) {
+        for (CoordenadaDTO destino : destinos) {
+            bh.consume(CalculoService.calcularDistanciaHaversine(origen, destino));
+        }
+    }
+}
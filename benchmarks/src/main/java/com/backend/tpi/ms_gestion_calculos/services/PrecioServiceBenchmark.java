@@ -0,0 +1,74 @@
+package com.backend.tpi.ms_gestion_calculos.services;
+
+import com.backend.tpi.benchmarks.DatosSinteticos;
+import com.backend.tpi.ms_gestion_calculos.models.Tarifa;
+import com.backend.tpi.ms_gestion_calculos.models.TarifaVolumenPeso;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de PrecioService.calcularCostoEstimado sin los accesos a datos:
+ * tarifa base + precio por km + búsqueda del rango volumen/peso aplicable
+ * El parámetro es la cantidad de rangos de la tabla volumen/peso; las cargas consultadas
+ * se reparten en toda la tabla, así la búsqueda recorre en promedio la mitad.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrecioServiceBenchmark {
+
+    private static final int CONSULTAS = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int rangos;
+
+    private Tarifa tarifa;
+    private List<TarifaVolumenPeso> tabla;
+    private double[] pesos;
+    private double[] volumenes;
+    private double[] distancias;
+    private int cursor;
+
+    @Setup
+    public void preparar() {
+        tarifa = new Tarifa();
+        tarifa.setCostoBaseGestionFijo(BigDecimal.valueOf(5000));
+        tarifa.setValorLitroCombustible(BigDecimal.valueOf(850));
+        tabla = new ArrayList<>(rangos);
+        for (int i = 0; i < rangos; i++) {
+            TarifaVolumenPeso t = new TarifaVolumenPeso();
+            t.setPesoMin(i * 100.0);
+            t.setPesoMax((i + 1) * 100.0);
+            t.setVolumenMin(i * 1.0);
+            t.setVolumenMax((i + 1) * 1.0);
+            t.setCostoPorKmBase(10.0 + i % 50);
+            tabla.add(t);
+        }
+        Random random = new Random(DatosSinteticos.SEMILLA);
+        pesos = new double[CONSULTAS];
+        volumenes = new double[CONSULTAS];
+        distancias = new double[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            int rango = random.nextInt(rangos);
+            pesos[i] = rango * 100.0 + random.nextDouble() * 100.0;
+            volumenes[i] = rango + random.nextDouble();
+            distancias[i] = 10 + random.nextDouble() * 2000;
+        }
+    }
+
+    @Benchmark
+    public double costoEstimado() {
+        int i = cursor++ & (CONSULTAS - 1);
+        return PrecioService.costoBase(tarifa)
+                + PrecioService.precioPorKm(tarifa) * distancias[i]
+                + PrecioService.cargoVolumenPeso(tabla, pesos[i], volumenes[i]);
+    }
+}
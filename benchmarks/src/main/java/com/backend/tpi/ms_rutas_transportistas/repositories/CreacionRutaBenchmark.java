@@ -0,0 +1,105 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.RutasTransportistasApplication;
+import com.backend.tpi.ms_rutas_transportistas.models.Ruta;
+import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creación de una ruta con 10 tramos contra PostgreSQL: tramo por tramo (una transacción y un
+ * round trip por fila, como antes) contra todos los tramos juntos con batching JDBC
+ * - Levanta el contexto de ms-rutas-transportistas con su configuración: requiere la base levantada
+ * - EjecutorBenchmarks lo excluye por defecto (ver benchmarks.excluir); para correrlo:
+ *   java -Dbenchmarks.excluir= -jar benchmarks/target/benchmarks.jar CreacionRutaBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreacionRutaBenchmark {
+
+    private static final int TRAMOS_POR_RUTA = 10;
+
+    private ConfigurableApplicationContext contexto;
+    private RutaRepository rutaRepository;
+    private TramoRepository tramoRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(RutasTransportistasApplication.class)
+                .properties("server.port=0")
+                .run();
+        rutaRepository = contexto.getBean(RutaRepository.class);
+        tramoRepository = contexto.getBean(TramoRepository.class);
+        transactionTemplate = contexto.getBean(TransactionTemplate.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void limpiar() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Ruta> rutas = rutaRepository.findAll().stream()
+                    .filter(r -> r.getIdSolicitud() != null && r.getIdSolicitud() < 0)
+                    .toList();
+            for (Ruta ruta : rutas) {
+                tramoRepository.deleteAllInBatch(tramoRepository.findByRutaId(ruta.getId()));
+            }
+            rutaRepository.deleteAllInBatch(rutas);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    // Patrón anterior: cada tramo en su propio save (una transacción por fila)
+    @Benchmark
+    public Ruta filaPorFila() {
+        Ruta ruta = rutaRepository.save(nuevaRuta());
+        for (Tramo tramo : nuevosTramos(ruta)) {
+            tramoRepository.save(tramo);
+        }
+        return ruta;
+    }
+
+    // Patrón nuevo: ruta y tramos en una transacción, inserts agrupados por lotes
+    @Benchmark
+    public Ruta porLotes() {
+        return transactionTemplate.execute(status -> {
+            Ruta ruta = rutaRepository.save(nuevaRuta());
+            tramoRepository.saveAll(nuevosTramos(ruta));
+            return ruta;
+        });
+    }
+
+    private static Ruta nuevaRuta() {
+        Ruta ruta = new Ruta();
+        // IDs de solicitud negativos para no chocar con datos reales
+        ruta.setIdSolicitud(-System.nanoTime());
+        return ruta;
+    }
+
+    private static List<Tramo> nuevosTramos(Ruta ruta) {
+        List<Tramo> tramos = new ArrayList<>(TRAMOS_POR_RUTA);
+        for (int i = 1; i <= TRAMOS_POR_RUTA; i++) {
+            Tramo tramo = new Tramo();
+            tramo.setRuta(ruta);
+            tramo.setOrden(i);
+            tramo.setDistancia(100.0 * i);
+            tramo.setDuracionHoras(1.5 * i);
+            tramo.setGeneradoAutomaticamente(true);
+            tramos.add(tramo);
+        }
+        return tramos;
+    }
+}
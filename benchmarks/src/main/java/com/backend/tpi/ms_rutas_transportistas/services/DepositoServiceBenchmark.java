@@ -0,0 +1,52 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.benchmarks.DatosSinteticos;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selección de depósitos intermedios: k más cercanos al segmento origen-destino
+ * (está en el mismo paquete que DepositoService para usar sus helpers package-private)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DepositoServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int depositos;
+
+    private List<Map<String, Object>> lista;
+    private double[][] puntos;
+    private Long origenId;
+    private Long destinoId;
+
+    @Setup
+    public void preparar() {
+        lista = DatosSinteticos.depositos(depositos);
+        puntos = DatosSinteticos.coordenadas(depositos);
+        origenId = 1L;
+        destinoId = (long) depositos;
+    }
+
+    @Benchmark
+    public List<Long> kMasCercanosAlSegmento() {
+        return DepositoService.kMasCercanosAlSegmento(lista, origenId, destinoId, 3);
+    }
+
+    @Benchmark
+    public void distanciaPuntoSegmento(Blackhole bh) {
+        double[] a = puntos[0];
+        double[] b = puntos[puntos.length - 1];
+        for (double[] p : puntos) {
+            bh.consume(DepositoService.pointToSegmentDistanceKm(a[0], a[1], b[0], b[1], p[0], p[1]));
+        }
+    }
+}
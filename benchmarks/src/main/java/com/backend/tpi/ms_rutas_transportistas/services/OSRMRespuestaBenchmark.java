@@ -0,0 +1,66 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.benchmarks.DatosSinteticos;
+import com.backend.tpi.ms_rutas_transportistas.dtos.osrm.OSRMRouteResponse;
+import com.backend.tpi.ms_rutas_transportistas.dtos.osrm.OSRMTableResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificación de las respuestas de OSRM a los DTOs que usa OSRMService
+ * - /table con un origen y N depósitos destino (la forma en que se buscan depósitos cercanos)
+ * - /route con una geometría de N puntos (el tamaño crece con la cantidad de depósitos intermedios)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OSRMRespuestaBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int depositos;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] tabla;
+    private byte[] ruta;
+
+    @Setup
+    public void preparar() {
+        double[][] puntos = DatosSinteticos.coordenadas(depositos);
+        StringBuilder distancias = new StringBuilder();
+        StringBuilder duraciones = new StringBuilder();
+        for (int i = 0; i < depositos; i++) {
+            if (i > 0) {
+                distancias.append(',');
+                duraciones.append(',');
+            }
+            distancias.append(String.format(Locale.ROOT, "%.1f", 1000 + Math.abs(puntos[i][0] * puntos[i][1]) * 100));
+            duraciones.append(String.format(Locale.ROOT, "%.1f", 60 + Math.abs(puntos[i][0] * puntos[i][1]) * 4));
+        }
+        tabla = ("{\"code\":\"Ok\",\"distances\":[[" + distancias + "]],\"durations\":[[" + duraciones + "]],"
+                + "\"sources\":[{\"name\":\"\",\"location\":[-58.38,-34.60],\"distance\":1.2}]}").getBytes();
+
+        // Polyline sintética de ~6 caracteres por punto
+        StringBuilder geometria = new StringBuilder(depositos * 6);
+        for (int i = 0; i < depositos; i++) geometria.append("_p~iF~");
+        ruta = ("{\"code\":\"Ok\",\"routes\":[{\"distance\":845231.4,\"duration\":36512.7,\"geometry\":\""
+                + geometria + "\",\"weight\":36512.7,\"legs\":[{\"distance\":845231.4,\"duration\":36512.7,"
+                + "\"summary\":\"RN9, RN34\",\"steps\":[]}]}],\"waypoints\":[{\"name\":\"\",\"location\":[-58.38,-34.60],"
+                + "\"distance\":3.1},{\"name\":\"\",\"location\":[-64.18,-31.42],\"distance\":2.7}]}").getBytes();
+    }
+
+    @Benchmark
+    public OSRMTableResponse decodificarTabla() throws Exception {
+        return objectMapper.readValue(tabla, OSRMTableResponse.class);
+    }
+
+    @Benchmark
+    public OSRMRouteResponse decodificarRuta() throws Exception {
+        return objectMapper.readValue(ruta, OSRMRouteResponse.class);
+    }
+}
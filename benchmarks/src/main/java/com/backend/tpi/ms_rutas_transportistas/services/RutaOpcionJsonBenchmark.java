@@ -0,0 +1,83 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.benchmarks.DatosSinteticos;
+import com.backend.tpi.ms_rutas_transportistas.dtos.RutaTentativaDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (De)serialización JSON de las opciones de ruta: la respuesta de opciones (RutaTentativaDTO)
+ * y el formato legado tramosJson que RutaOpcionService todavía lee de filas viejas
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RutaOpcionJsonBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int depositos;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RutaTentativaDTO opcion;
+    private byte[] opcionJson;
+    private byte[] tramosJson;
+
+    @Setup
+    public void preparar() throws Exception {
+        double[][] puntos = DatosSinteticos.coordenadas(depositos + 1);
+        List<TramoTentativoDTO> tramos = new ArrayList<>(depositos);
+        List<Long> ids = new ArrayList<>(depositos);
+        List<String> nombres = new ArrayList<>(depositos);
+        for (int i = 0; i < depositos; i++) {
+            TramoTentativoDTO t = new TramoTentativoDTO();
+            t.setOrden(i + 1);
+            t.setOrigenDepositoId((long) i + 1);
+            t.setOrigenDepositoNombre("Depósito " + (i + 1));
+            t.setDestinoDepositoId((long) i + 2);
+            t.setDestinoDepositoNombre("Depósito " + (i + 2));
+            t.setOrigenLat(puntos[i][0]);
+            t.setOrigenLong(puntos[i][1]);
+            t.setDestinoLat(puntos[i + 1][0]);
+            t.setDestinoLong(puntos[i + 1][1]);
+            t.setDistanciaKm(RutaService.distanceKm(puntos[i][0], puntos[i][1], puntos[i + 1][0], puntos[i + 1][1]));
+            t.setDuracionHoras(t.getDistanciaKm() / 70.0);
+            t.setCostoAproximado(t.getDistanciaKm() * 850);
+            tramos.add(t);
+            ids.add((long) i + 1);
+            nombres.add("Depósito " + (i + 1));
+        }
+        opcion = RutaTentativaDTO.builder()
+                .depositosIds(ids)
+                .depositosNombres(nombres)
+                .tramos(tramos)
+                .numeroTramos(tramos.size())
+                .distanciaTotal(tramos.stream().mapToDouble(TramoTentativoDTO::getDistanciaKm).sum())
+                .exitoso(true)
+                .build();
+        opcionJson = objectMapper.writeValueAsBytes(opcion);
+        tramosJson = objectMapper.writeValueAsBytes(tramos);
+    }
+
+    @Benchmark
+    public byte[] serializarOpcion() throws Exception {
+        return objectMapper.writeValueAsBytes(opcion);
+    }
+
+    @Benchmark
+    public RutaTentativaDTO deserializarOpcion() throws Exception {
+        return objectMapper.readValue(opcionJson, RutaTentativaDTO.class);
+    }
+
+    @Benchmark
+    public TramoTentativoDTO[] deserializarTramosLegado() throws Exception {
+        return objectMapper.readValue(tramosJson, TramoTentativoDTO[].class);
+    }
+}
@@ -0,0 +1,42 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.benchmarks.DatosSinteticos;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Haversine de RutaService: búsqueda del depósito más cercano al origen de una solicitud
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RutaServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int depositos;
+
+    private double[][] puntos;
+    private double latitud;
+    private double longitud;
+
+    @Setup
+    public void preparar() {
+        puntos = DatosSinteticos.coordenadas(depositos);
+        // Buenos Aires
+        latitud = -34.6037;
+        longitud = -58.3816;
+    }
+
+    @Benchmark
+    public double depositoMasCercano() {
+        double mejor = Double.MAX_VALUE;
+        for (double[] p : puntos) {
+            mejor = Math.min(mejor, RutaService.distanceKm(latitud, longitud, p[0], p[1]));
+        }
+        return mejor;
+    }
+}
@@ -0,0 +1,57 @@
+package com.backend.tpi.ms_solicitudes.services;
+
+import com.backend.tpi.ms_solicitudes.models.Estado;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedorTipo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación de transiciones de estado de solicitudes y contenedores
+ * Las tablas tienen tamaño fijo (los enums), así que no hay parámetro de volumen:
+ * cada invocación valida todos los pares origen-destino.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EstadoTransicionServiceBenchmark {
+
+    private EstadoTransicionService servicio;
+    private String[] nombresSolicitud;
+    private String[] nombresContenedor;
+
+    @Setup
+    public void preparar() {
+        // Solo se usan las tablas estáticas: no hace falta el catálogo
+        servicio = new EstadoTransicionService();
+        nombresSolicitud = new String[Estado.values().length];
+        for (Estado e : Estado.values()) nombresSolicitud[e.ordinal()] = e.name();
+        nombresContenedor = new String[EstadoContenedorTipo.values().length];
+        for (EstadoContenedorTipo e : EstadoContenedorTipo.values()) nombresContenedor[e.ordinal()] = e.name();
+    }
+
+    @Benchmark
+    public void solicitudPorNombre(Blackhole bh) {
+        for (String origen : nombresSolicitud) {
+            for (String destino : nombresSolicitud) bh.consume(servicio.esTransicionSolicitudValida(origen, destino));
+        }
+    }
+
+    @Benchmark
+    public void solicitudPorEnum(Blackhole bh) {
+        for (Estado origen : Estado.values()) {
+            for (Estado destino : Estado.values()) bh.consume(servicio.esTransicionSolicitudValida(origen, destino));
+        }
+    }
+
+    @Benchmark
+    public void contenedorPorNombre(Blackhole bh) {
+        for (String origen : nombresContenedor) {
+            for (String destino : nombresContenedor) bh.consume(servicio.esTransicionContenedorValida(origen, destino));
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.backend.tpi.common.catalogo;
+
+/**
+ * Catálogo en memoria de tablas de referencia que debe descartarse cuando cambian sus filas
+ */
+public interface Catalogo {
+
+    /**
+     * Descarta lo cargado; la próxima lectura recarga desde la base
+     */
+    void invalidar();
+}
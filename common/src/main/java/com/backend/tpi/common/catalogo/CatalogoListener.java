@@ -0,0 +1,42 @@
+package com.backend.tpi.common.catalogo;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Listener JPA de las entidades de referencia (@EntityListeners(CatalogoListener.class))
+ * Cualquier alta, cambio o baja invalida los catálogos del servicio, sin importar desde dónde se
+ * escribió (servicios, DataInitializer, importaciones):
+ * - en el momento, para que la misma transacción vea la fila nueva (y no un ausente recordado)
+ * - otra vez al terminar la transacción, confirmada o no, para no quedarse con lo leído dentro de ella
+ * Hibernate lo crea a través de Spring, por eso puede recibir los catálogos inyectados.
+ */
+public class CatalogoListener {
+
+    @Autowired
+    private ObjectProvider<Catalogo> catalogos;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alModificar(Object entidad) {
+        invalidar();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidar();
+                }
+            });
+        }
+    }
+
+    private void invalidar() {
+        catalogos.orderedStream().forEach(Catalogo::invalidar);
+    }
+}
@@ -0,0 +1,198 @@
+package com.backend.tpi.common.catalogo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tabla de referencia en memoria con lectura a través (read-through)
+ * - Se sirve desde una instantánea inmutable: los IDs se buscan en un arreglo long[] ordenado
+ *   (sin boxing) y los nombres en un mapa inmutable
+ * - Si un nombre o ID no está en la instantánea se consulta la base y, si aparece, se recarga
+ * - Si tampoco está en la base se recuerda como ausente durante ausentesTtl, así un nombre
+ *   inexistente no consulta la base en cada llamada
+ * - invalidar() descarta instantánea y ausentes; la próxima lectura recarga (ver CatalogoListener)
+ */
+public class TablaReferencia<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablaReferencia.class);
+
+    // Tope de ausentes recordados: un cliente que prueba nombres al azar no hace crecer el mapa sin límite
+    private static final int MAX_AUSENTES = 1000;
+
+    private final String nombreTabla;
+    private final Supplier<List<E>> cargarTodas;
+    private final Function<E, Long> id;
+    private final Function<E, String> nombre;
+    private final Function<String, Optional<E>> buscarPorNombre;
+    private final Function<Long, Optional<E>> buscarPorId;
+    private final boolean ignorarMayusculas;
+    private final long ausentesTtlNanos;
+
+    private volatile Instantanea<E> actual;
+    // Clave ("n:" nombre o "i:" id) -> vencimiento en System.nanoTime()
+    private final Map<String, Long> ausentes = new ConcurrentHashMap<>();
+    // Cambia con cada carga o invalidación: un ausente leído antes de un cambio no se registra
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param nombreTabla Nombre para los logs
+     * @param cargarTodas Lectura completa de la tabla (findAll)
+     * @param id ID de una fila
+     * @param nombre Nombre de una fila
+     * @param buscarPorNombre Consulta a la base por nombre (con el mismo criterio de mayúsculas)
+     * @param buscarPorId Consulta a la base por ID (findById)
+     * @param ignorarMayusculas Si los nombres se comparan sin distinguir mayúsculas
+     * @param ausentesTtl Cuánto se recuerda un nombre o ID que no está en la base
+     */
+    public TablaReferencia(String nombreTabla, Supplier<List<E>> cargarTodas, Function<E, Long> id, Function<E, String> nombre,
+                           Function<String, Optional<E>> buscarPorNombre, Function<Long, Optional<E>> buscarPorId,
+                           boolean ignorarMayusculas, Duration ausentesTtl) {
+        this.nombreTabla = nombreTabla;
+        this.cargarTodas = cargarTodas;
+        this.id = id;
+        this.nombre = nombre;
+        this.buscarPorNombre = buscarPorNombre;
+        this.buscarPorId = buscarPorId;
+        this.ignorarMayusculas = ignorarMayusculas;
+        this.ausentesTtlNanos = ausentesTtl.toNanos();
+    }
+
+    /**
+     * Recarga la tabla completa; si la base no responde se mantiene la instantánea anterior
+     */
+    public synchronized void cargar() {
+        try {
+            actual = new Instantanea<>(cargarTodas.get(), id, e -> clave(nombre.apply(e)));
+            version.incrementAndGet();
+            ausentes.clear();
+            logger.info("Catálogo {} cargado: {} filas", nombreTabla, actual.tamanio());
+        } catch (Exception e) {
+            logger.warn("No se pudo cargar el catálogo {}: {}", nombreTabla, e.getMessage());
+        }
+    }
+
+    /**
+     * Descarta la instantánea y los ausentes recordados (se llama después de cada escritura en la tabla)
+     */
+    public void invalidar() {
+        version.incrementAndGet();
+        actual = null;
+        ausentes.clear();
+    }
+
+    public Optional<E> porNombre(String nombreBuscado) {
+        if (nombreBuscado == null) return Optional.empty();
+        E fila = instantanea().porNombre(clave(nombreBuscado));
+        if (fila != null) return Optional.of(fila);
+        return leerDeBase("n:" + clave(nombreBuscado), () -> buscarPorNombre.apply(nombreBuscado));
+    }
+
+    public Optional<E> porId(Long idBuscado) {
+        if (idBuscado == null) return Optional.empty();
+        E fila = instantanea().porId(idBuscado);
+        if (fila != null) return Optional.of(fila);
+        return leerDeBase("i:" + idBuscado, () -> buscarPorId.apply(idBuscado));
+    }
+
+    /**
+     * Fila de menor ID
+     */
+    public Optional<E> primera() {
+        return Optional.ofNullable(instantanea().primera());
+    }
+
+    private Optional<E> leerDeBase(String clave, Supplier<Optional<E>> consulta) {
+        Long vence = ausentes.get(clave);
+        if (vence != null) {
+            if (System.nanoTime() - vence < 0) return Optional.empty();
+            ausentes.remove(clave, vence);
+        }
+        long versionLeida = version.get();
+        Optional<E> desdeBase = consulta.get();
+        if (desdeBase.isPresent()) {
+            cargar();
+        } else if (version.get() == versionLeida) {
+            if (ausentes.size() >= MAX_AUSENTES) ausentes.clear();
+            ausentes.put(clave, System.nanoTime() + ausentesTtlNanos);
+        }
+        return desdeBase;
+    }
+
+    private Instantanea<E> instantanea() {
+        Instantanea<E> instantanea = actual;
+        if (instantanea == null) {
+            synchronized (this) {
+                if (actual == null) cargar();
+                instantanea = actual;
+            }
+        }
+        return instantanea != null ? instantanea : Instantanea.vacia();
+    }
+
+    private String clave(String valor) {
+        if (valor == null) return null;
+        return ignorarMayusculas ? valor.toLowerCase(Locale.ROOT) : valor;
+    }
+
+    /**
+     * Instantánea inmutable de la tabla
+     */
+    private static final class Instantanea<E> {
+        private final long[] ids;
+        private final Object[] filas;
+        private final Map<String, E> porNombre;
+
+        Instantanea(List<E> entidades, Function<E, Long> id, Function<E, String> clave) {
+            List<E> ordenadas = entidades.stream()
+                    .filter(e -> id.apply(e) != null)
+                    .sorted(Comparator.comparingLong(e -> id.apply(e)))
+                    .toList();
+            this.ids = new long[ordenadas.size()];
+            this.filas = new Object[ordenadas.size()];
+            Map<String, E> nombres = new HashMap<>();
+            for (int i = 0; i < ordenadas.size(); i++) {
+                E e = ordenadas.get(i);
+                ids[i] = id.apply(e);
+                filas[i] = e;
+                if (clave.apply(e) != null) nombres.putIfAbsent(clave.apply(e), e);
+            }
+            this.porNombre = Map.copyOf(nombres);
+        }
+
+        static <E> Instantanea<E> vacia() {
+            return new Instantanea<>(List.of(), e -> null, e -> null);
+        }
+
+        @SuppressWarnings("unchecked")
+        E porId(long id) {
+            int i = Arrays.binarySearch(ids, id);
+            return i >= 0 ? (E) filas[i] : null;
+        }
+
+        E porNombre(String clave) {
+            return porNombre.get(clave);
+        }
+
+        @SuppressWarnings("unchecked")
+        E primera() {
+            return filas.length > 0 ? (E) filas[0] : null;
+        }
+
+        int tamanio() {
+            return ids.length;
+        }
+    }
+}
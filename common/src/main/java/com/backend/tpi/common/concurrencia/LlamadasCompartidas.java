@@ -0,0 +1,68 @@
+package com.backend.tpi.common.concurrencia;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas idénticas concurrentes (single-flight): mientras una llamada con cierta clave
+ * está en curso, los demás hilos que piden la misma clave esperan su resultado en lugar de repetirla.
+ * No guarda resultados: en cuanto la llamada termina, la siguiente con esa clave vuelve a ejecutarse.
+ * Si la llamada lanza una excepción, la reciben todos los que la esperaban.
+ * El resultado se comparte entre hilos, así que no debe modificarse.
+ */
+public class LlamadasCompartidas<K, V> {
+
+    private final String nombre;
+    private final RegistroMetricas registroMetricas;
+    private final Map<K, CompletableFuture<V>> enCurso = new ConcurrentHashMap<>();
+
+    /**
+     * @param nombre Etiqueta "llamada" de la métrica llamadas.compartidas
+     * @param registroMetricas Registro donde contar las llamadas ahorradas (puede ser null)
+     */
+    public LlamadasCompartidas(String nombre, RegistroMetricas registroMetricas) {
+        this.nombre = nombre;
+        this.registroMetricas = registroMetricas;
+    }
+
+    public V ejecutar(K clave, Supplier<V> llamada) {
+        CompletableFuture<V> propia = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(clave, propia);
+        if (existente != null) {
+            if (registroMetricas != null) registroMetricas.incrementar("llamadas.compartidas", Map.of("llamada", nombre));
+            return esperar(existente);
+        }
+        try {
+            V valor = llamada.get();
+            propia.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(clave, propia);
+        }
+    }
+
+    /**
+     * Cantidad de claves con una llamada en curso
+     */
+    public int enCurso() {
+        return enCurso.size();
+    }
+
+    private static <V> V esperar(CompletableFuture<V> llamada) {
+        try {
+            return llamada.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
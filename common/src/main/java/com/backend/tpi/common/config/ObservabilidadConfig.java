@@ -0,0 +1,33 @@
+package com.backend.tpi.common.config;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import com.backend.tpi.common.trazas.ExportadorTrazas;
+import com.backend.tpi.common.trazas.Rastreador;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.context.annotation.Import;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Map;
+
+/**
+ * Registro de métricas y trazas comunes al gateway y a los microservicios, con los gauges de la JVM
+ * (jvm.*: memoria e hilos). Se carga sola (autoconfiguración) en cada aplicación que depende de common.
+ */
+@AutoConfiguration
+@Import({RegistroMetricas.class, Rastreador.class, ExportadorTrazas.class})
+public class ObservabilidadConfig {
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    @PostConstruct
+    public void registrarGauges() {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        registroMetricas.gauge("jvm.memory.used.bytes", Map.of("area", "heap"), () -> memoria.getHeapMemoryUsage().getUsed());
+        registroMetricas.gauge("jvm.memory.used.bytes", Map.of("area", "nonheap"), () -> memoria.getNonHeapMemoryUsage().getUsed());
+        registroMetricas.gauge("jvm.threads.live", Map.of(), () -> ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+}
@@ -0,0 +1,115 @@
+package com.backend.tpi.common.config;
+
+import com.backend.tpi.common.metricas.ManejadorObservaciones;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import com.backend.tpi.common.trazas.ManejadorTrazas;
+import com.backend.tpi.common.trazas.Rastreador;
+import com.backend.tpi.common.trazas.Span;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Instrumentación de los microservicios (servlet), expuesta en /actuator/prometheus (MetricasController):
+ * - http.server.requests: latencia por endpoint (plantilla de la URL, método y estado)
+ * - http.client.requests: latencia y errores por llamada saliente (RestClient)
+ * - spring.data.repository.invocations: latencia por método de repositorio JPA
+ * - hikaricp.connections.*: uso del pool de conexiones
+ * Las mismas observaciones alimentan las trazas (ManejadorTrazas / Rastreador).
+ * El gateway (reactivo) no la carga: mide sus rutas con su propio WebFilter.
+ */
+@AutoConfiguration(after = ObservabilidadConfig.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ObservabilidadServletConfig {
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    @Autowired
+    private ObjectProvider<DataSource> dataSource;
+
+    @Bean
+    public ObservationRegistry observationRegistry(RegistroMetricas registroMetricas, Rastreador rastreador) {
+        ObservationRegistry registry = ObservationRegistry.create();
+        registry.observationConfig()
+                .observationHandler(new ManejadorObservaciones(registroMetricas))
+                .observationHandler(new ManejadorTrazas(rastreador));
+        return registry;
+    }
+
+    /**
+     * Observa cada request entrante; va antes de la cadena de seguridad para medir también los 401/403
+     */
+    @Bean
+    public FilterRegistrationBean<ServerHttpObservationFilter> observacionRequests(ObservationRegistry observationRegistry) {
+        FilterRegistrationBean<ServerHttpObservationFilter> registro =
+                new FilterRegistrationBean<>(new ServerHttpObservationFilter(observationRegistry));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registro;
+    }
+
+    /**
+     * Agrega a cada repositorio un listener que mide sus invocaciones y las suma como span a la traza en curso
+     */
+    @Bean
+    public static BeanPostProcessor metricasRepositorios(ObjectProvider<RegistroMetricas> registroMetricas,
+                                                         ObjectProvider<Rastreador> rastreador,
+                                                         ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    RepositoryMethodInvocationListener listener = invocacion -> {
+                        String repositorio = invocacion.getRepositoryInterface().getSimpleName();
+                        String metodo = invocacion.getMethod().getName();
+                        long nanos = invocacion.getDuration(TimeUnit.NANOSECONDS);
+                        registroMetricas.getObject().registrarTiempo("spring.data.repository.invocations",
+                                Map.of("repository", repositorio, "method", metodo,
+                                        "state", invocacion.getResult() != null ? invocacion.getResult().getState().name() : "SUCCESS"),
+                                nanos);
+                        rastreador.getObject().registrarTerminado(repositorio + "." + metodo, Span.Tipo.INTERNAL,
+                                ManejadorTrazas.spanActual(observationRegistry.getObject()), nanos, Map.of(),
+                                invocacion.getResult() != null ? invocacion.getResult().getError() : null);
+                    };
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(listener));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void registrarGauges() {
+        DataSource ds = dataSource.getIfAvailable();
+        if (ds instanceof HikariDataSource hikari) {
+            Map<String, String> pool = Map.of("pool", String.valueOf(hikari.getPoolName()));
+            registroMetricas.gauge("hikaricp.connections.active", pool, () -> pool(hikari, HikariPoolMXBean::getActiveConnections));
+            registroMetricas.gauge("hikaricp.connections.idle", pool, () -> pool(hikari, HikariPoolMXBean::getIdleConnections));
+            registroMetricas.gauge("hikaricp.connections.pending", pool, () -> pool(hikari, HikariPoolMXBean::getThreadsAwaitingConnection));
+            registroMetricas.gauge("hikaricp.connections.max", pool, hikari::getMaximumPoolSize);
+        }
+    }
+
+    // El pool se crea con la primera conexión; antes no hay valores
+    private static double pool(HikariDataSource hikari, ToIntFunction<HikariPoolMXBean> valor) {
+        HikariPoolMXBean mx = hikari.getHikariPoolMXBean();
+        return mx != null ? valor.applyAsInt(mx) : Double.NaN;
+    }
+}
@@ -0,0 +1,178 @@
+package com.backend.tpi.common.exportacion;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Escribe el resultado de una consulta en CSV o NDJSON a medida que se lee
+ * Las filas se leen con un cursor JDBC de solo avance (fetch size acotado, transacción de solo lectura),
+ * sin cargar entidades ni armar la lista completa en memoria. Las columnas salen con su alias (AS "...").
+ */
+public class ExportadorFilas {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportadorFilas.class);
+
+    public static final String FORMATO_CSV = "csv";
+    public static final String FORMATO_NDJSON = "ndjson";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate soloLectura;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    /**
+     * @param fetchSize Filas que el driver trae por viaje al servidor (con autocommit off PostgreSQL usa un cursor)
+     */
+    public ExportadorFilas(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           ObjectMapper objectMapper, int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.soloLectura = new TransactionTemplate(transactionManager);
+        this.soloLectura.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Ejecuta la consulta y escribe cada fila en la salida
+     * @param nombre Qué se exporta (para el log)
+     * @param sql Consulta con parámetros posicionales
+     * @param params Valores de los parámetros, en orden
+     * @param formato csv o ndjson (ver formatoDe)
+     * @param salida Stream de la respuesta
+     * @return Filas exportadas
+     */
+    public long exportar(String nombre, String sql, List<Object> params, String formato, OutputStream salida) {
+        long inicio = System.currentTimeMillis();
+        Long filas = soloLectura.execute(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, params.get(i));
+            return ps;
+        }, escritor(formato, salida)));
+        logger.info("Exportación de {} ({}) completada: {} filas en {} ms", nombre, formato, filas, System.currentTimeMillis() - inicio);
+        return filas != null ? filas : 0L;
+    }
+
+    /**
+     * Normaliza el parámetro de formato
+     * @return csv, ndjson o null si no es soportado
+     */
+    public static String formatoDe(String formato) {
+        if (formato == null || formato.isBlank()) return FORMATO_CSV;
+        String f = formato.trim().toLowerCase();
+        if (f.equals("csv")) return FORMATO_CSV;
+        if (f.equals("ndjson") || f.equals("jsonl")) return FORMATO_NDJSON;
+        return null;
+    }
+
+    private ResultSetExtractor<Long> escritor(String formato, OutputStream salida) {
+        return rs -> {
+            try {
+                return FORMATO_NDJSON.equals(formato) ? escribirNdjson(rs, salida) : escribirCsv(rs, salida);
+            } catch (IOException e) {
+                // Normalmente el cliente cortó la descarga
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private long escribirCsv(ResultSet rs, OutputStream salida) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnas = meta.getColumnCount();
+        Writer out = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        for (int c = 1; c <= columnas; c++) {
+            if (c > 1) out.write(',');
+            out.write(campoCsv(meta.getColumnLabel(c)));
+        }
+        out.write("\r\n");
+        long filas = 0;
+        while (rs.next()) {
+            for (int c = 1; c <= columnas; c++) {
+                if (c > 1) out.write(',');
+                Object valor = valor(rs, c, meta.getColumnType(c));
+                if (valor != null) out.write(campoCsv(valor.toString()));
+            }
+            out.write("\r\n");
+            filas++;
+        }
+        out.flush();
+        return filas;
+    }
+
+    private long escribirNdjson(ResultSet rs, OutputStream salida) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnas = meta.getColumnCount();
+        String[] nombres = new String[columnas + 1];
+        for (int c = 1; c <= columnas; c++) nombres[c] = meta.getColumnLabel(c);
+        long filas = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(salida, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rs.next()) {
+                json.writeStartObject();
+                for (int c = 1; c <= columnas; c++) {
+                    Object valor = valor(rs, c, meta.getColumnType(c));
+                    if (valor == null) json.writeNullField(nombres[c]);
+                    else if (valor instanceof java.math.BigDecimal d) json.writeNumberField(nombres[c], d);
+                    else if (valor instanceof Long l) json.writeNumberField(nombres[c], l);
+                    else if (valor instanceof Integer i) json.writeNumberField(nombres[c], i);
+                    else if (valor instanceof Double d) json.writeNumberField(nombres[c], d);
+                    else if (valor instanceof Boolean b) json.writeBooleanField(nombres[c], b);
+                    else json.writeStringField(nombres[c], valor.toString());
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+                filas++;
+            }
+            json.flush();
+        }
+        return filas;
+    }
+
+    /**
+     * Lee la columna con un tipo Java estable para ambos formatos (fechas en ISO-8601)
+     */
+    private static Object valor(ResultSet rs, int c, int tipo) throws SQLException {
+        Object valor = switch (tipo) {
+            case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> {
+                Timestamp ts = rs.getTimestamp(c);
+                yield ts != null ? ts.toLocalDateTime() : null;
+            }
+            case Types.BIGINT -> rs.getLong(c);
+            case Types.INTEGER, Types.SMALLINT -> rs.getInt(c);
+            case Types.DOUBLE, Types.FLOAT, Types.REAL -> rs.getDouble(c);
+            case Types.NUMERIC, Types.DECIMAL -> rs.getBigDecimal(c);
+            case Types.BOOLEAN, Types.BIT -> rs.getBoolean(c);
+            default -> rs.getString(c);
+        };
+        return rs.wasNull() ? null : valor;
+    }
+
+    private static String campoCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,29 @@
+package com.backend.tpi.common.logs;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Habilita el log de SQL de Hibernate (logger org.hibernate.SQL, nivel DEBUG) solo en el hilo de
+ * una request marcada por SqlPorRequestFilter, sin bajar el nivel del logger para el resto.
+ * Se registra en logback-spring.xml; con spring.jpa.show-sql=false Hibernate consulta
+ * isDebugEnabled() en cada sentencia, así que la decisión se toma por request.
+ */
+public class FiltroSqlPorRequest extends TurboFilter {
+
+    public static final String MDC_LOG_SQL = "logSql";
+
+    private static final String LOGGER_SQL = "org.hibernate.SQL";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == Level.DEBUG && LOGGER_SQL.equals(logger.getName()) && MDC.get(MDC_LOG_SQL) != null) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
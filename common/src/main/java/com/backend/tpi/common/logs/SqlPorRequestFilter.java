@@ -0,0 +1,42 @@
+package com.backend.tpi.common.logs;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Marca la request para loguear su SQL cuando trae la cabecera X-Log-Sql: true y el usuario es ADMIN
+ * Va en la cadena de seguridad después de validar el token; la marca vive en el MDC del hilo
+ * de la request y la lee FiltroSqlPorRequest.
+ */
+public class SqlPorRequestFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA = "X-Log-Sql";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!"true".equalsIgnoreCase(request.getHeader(CABECERA)) || !esAdmin()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        MDC.put(FiltroSqlPorRequest.MDC_LOG_SQL, "true");
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(FiltroSqlPorRequest.MDC_LOG_SQL);
+        }
+    }
+
+    private static boolean esAdmin() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+    }
+}
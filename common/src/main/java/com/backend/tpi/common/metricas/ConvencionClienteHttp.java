@@ -0,0 +1,34 @@
+package com.backend.tpi.common.metricas;
+
+import io.micrometer.common.KeyValue;
+import org.springframework.http.client.observation.ClientRequestObservationContext;
+import org.springframework.http.client.observation.DefaultClientRequestObservationConvention;
+
+/**
+ * Etiqueta uri de las llamadas salientes sin query ni valores variables
+ * Varias llamadas arman la URL completa (coordenadas de OSRM, IDs concatenados) en lugar de usar
+ * una plantilla; sin normalizar, cada URL distinta sería una serie nueva.
+ */
+public class ConvencionClienteHttp extends DefaultClientRequestObservationConvention {
+
+    @Override
+    protected KeyValue uri(ClientRequestObservationContext context) {
+        String plantilla = context.getUriTemplate();
+        if (plantilla == null) return KeyValue.of("uri", "none");
+        return KeyValue.of("uri", normalizar(plantilla));
+    }
+
+    public static String normalizar(String url) {
+        String path = url.replaceFirst("^[a-zA-Z][a-zA-Z0-9+.-]*://[^/]*", "");
+        int query = path.indexOf('?');
+        if (query >= 0) path = path.substring(0, query);
+        StringBuilder resultado = new StringBuilder();
+        for (String segmento : path.split("/")) {
+            if (segmento.isEmpty()) continue;
+            resultado.append('/');
+            // IDs, coordenadas (lon,lat;lon,lat) y dominios de camión se reemplazan por un marcador
+            resultado.append(segmento.matches("[-0-9.,;]+") || segmento.matches("(?=.*\\d)[A-Z0-9]{6,7}") ? "{valor}" : segmento);
+        }
+        return resultado.length() == 0 ? "/" : resultado.toString();
+    }
+}
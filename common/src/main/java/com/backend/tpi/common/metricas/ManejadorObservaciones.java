@@ -0,0 +1,48 @@
+package com.backend.tpi.common.metricas;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Traduce las observaciones de Micrometer (requests HTTP entrantes con ServerHttpObservationFilter
+ * y llamadas de RestClient) a timers del RegistroMetricas, etiquetados con sus key values de baja
+ * cardinalidad. Las que terminan con excepción o con outcome de error también cuentan en {nombre}.errores.
+ */
+public class ManejadorObservaciones implements ObservationHandler<Observation.Context> {
+
+    private static final String INICIO = ManejadorObservaciones.class.getName() + ".inicio";
+    private static final Set<String> OUTCOMES_ERROR = Set.of("CLIENT_ERROR", "SERVER_ERROR", "UNKNOWN");
+
+    private final RegistroMetricas registroMetricas;
+
+    public ManejadorObservaciones(RegistroMetricas registroMetricas) {
+        this.registroMetricas = registroMetricas;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        context.put(INICIO, System.nanoTime());
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Long inicio = context.get(INICIO);
+        if (inicio == null) return;
+        Map<String, String> etiquetas = new TreeMap<>();
+        for (KeyValue kv : context.getLowCardinalityKeyValues()) etiquetas.put(kv.getKey(), kv.getValue());
+        registroMetricas.registrarTiempo(context.getName(), etiquetas, System.nanoTime() - inicio);
+        if (context.getError() != null || OUTCOMES_ERROR.contains(etiquetas.get("outcome"))) {
+            registroMetricas.incrementar(context.getName() + ".errores", etiquetas);
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+}
@@ -0,0 +1,184 @@
+package com.backend.tpi.common.metricas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registro de métricas del servicio (timers con histograma, contadores y gauges) con salida en
+ * formato de texto de Prometheus. Los nombres siguen la convención de Micrometer (con puntos) y se
+ * traducen al exportar: los timers se publican como {nombre}_seconds y los contadores como {nombre}_total.
+ * Cada métrica admite a lo sumo MAX_SERIES combinaciones de etiquetas para acotar la cardinalidad.
+ */
+@Component
+public class RegistroMetricas {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegistroMetricas.class);
+
+    // Límites de las cubetas de los timers, en segundos
+    private static final double[] CUBETAS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30 };
+
+    private static final int MAX_SERIES = 500;
+
+    private enum Tipo { TIMER, CONTADOR, GAUGE }
+
+    private static class Serie {
+        final LongAdder cuenta = new LongAdder();
+        final DoubleAdder suma = new DoubleAdder();
+        final LongAdder[] cubetas;
+        final DoubleSupplier valor;
+
+        Serie(Tipo tipo, DoubleSupplier valor) {
+            this.cubetas = tipo == Tipo.TIMER ? new LongAdder[CUBETAS.length] : null;
+            if (cubetas != null) for (int i = 0; i < cubetas.length; i++) cubetas[i] = new LongAdder();
+            this.valor = valor;
+        }
+    }
+
+    private record Familia(Tipo tipo, Map<String, Serie> series) {}
+
+    private final Map<String, Familia> familias = new ConcurrentHashMap<>();
+
+    /**
+     * Registra la duración de una operación
+     */
+    public void registrarTiempo(String nombre, Map<String, String> etiquetas, long nanos) {
+        Serie serie = serie(nombre, Tipo.TIMER, etiquetas, null);
+        if (serie == null) return;
+        double segundos = nanos / 1e9;
+        serie.cuenta.increment();
+        serie.suma.add(segundos);
+        for (int i = 0; i < CUBETAS.length; i++) {
+            if (segundos <= CUBETAS[i]) {
+                serie.cubetas[i].increment();
+                break;
+            }
+        }
+    }
+
+    public void incrementar(String nombre, Map<String, String> etiquetas) {
+        incrementar(nombre, etiquetas, 1);
+    }
+
+    public void incrementar(String nombre, Map<String, String> etiquetas, long cantidad) {
+        Serie serie = serie(nombre, Tipo.CONTADOR, etiquetas, null);
+        if (serie != null) serie.cuenta.add(cantidad);
+    }
+
+    /**
+     * Cuenta un acceso a una caché (cache.gets con result hit o miss, como Micrometer)
+     */
+    public void registrarCache(String cache, boolean acierto, long cantidad) {
+        if (cantidad > 0) incrementar("cache.gets", Map.of("cache", cache, "result", acierto ? "hit" : "miss"), cantidad);
+    }
+
+    /**
+     * Registra un valor que se lee al exportar (tamaño de pool, memoria, etc.)
+     */
+    public void gauge(String nombre, Map<String, String> etiquetas, DoubleSupplier valor) {
+        serie(nombre, Tipo.GAUGE, etiquetas, valor);
+    }
+
+    private Serie serie(String nombre, Tipo tipo, Map<String, String> etiquetas, DoubleSupplier valor) {
+        Familia familia = familias.computeIfAbsent(nombre, n -> new Familia(tipo, new ConcurrentHashMap<>()));
+        if (familia.tipo() != tipo) {
+            throw new IllegalArgumentException("La métrica " + nombre + " ya está registrada como " + familia.tipo());
+        }
+        String clave = etiquetas(etiquetas);
+        Serie serie = familia.series().get(clave);
+        if (serie != null) return serie;
+        if (familia.series().size() >= MAX_SERIES) {
+            logger.warn("Métrica {} superó {} combinaciones de etiquetas, se descarta {}", nombre, MAX_SERIES, clave);
+            return null;
+        }
+        return familia.series().computeIfAbsent(clave, k -> new Serie(tipo, valor));
+    }
+
+    /**
+     * Exporta todas las métricas en formato de texto de Prometheus (versión 0.0.4)
+     */
+    public String exportarPrometheus() {
+        StringBuilder salida = new StringBuilder(4096);
+        for (Map.Entry<String, Familia> e : new TreeMap<>(familias).entrySet()) {
+            String base = nombrePrometheus(e.getKey());
+            Familia familia = e.getValue();
+            Map<String, Serie> series = new TreeMap<>(familia.series());
+            switch (familia.tipo()) {
+                case TIMER -> {
+                    String nombre = base + "_seconds";
+                    salida.append("# TYPE ").append(nombre).append(" histogram\n");
+                    series.forEach((etiquetas, s) -> {
+                        long acumulado = 0;
+                        for (int i = 0; i < CUBETAS.length; i++) {
+                            acumulado += s.cubetas[i].sum();
+                            linea(salida, nombre + "_bucket", conEtiqueta(etiquetas, "le", String.valueOf(CUBETAS[i])), acumulado);
+                        }
+                        long cuenta = s.cuenta.sum();
+                        linea(salida, nombre + "_bucket", conEtiqueta(etiquetas, "le", "+Inf"), cuenta);
+                        linea(salida, nombre + "_count", etiquetas, cuenta);
+                        linea(salida, nombre + "_sum", etiquetas, s.suma.sum());
+                    });
+                }
+                case CONTADOR -> {
+                    String nombre = base + "_total";
+                    salida.append("# TYPE ").append(nombre).append(" counter\n");
+                    series.forEach((etiquetas, s) -> linea(salida, nombre, etiquetas, s.cuenta.sum()));
+                }
+                case GAUGE -> {
+                    salida.append("# TYPE ").append(base).append(" gauge\n");
+                    series.forEach((etiquetas, s) -> {
+                        double v;
+                        try {
+                            v = s.valor.getAsDouble();
+                        } catch (RuntimeException ex) {
+                            v = Double.NaN;
+                        }
+                        linea(salida, base, etiquetas, v);
+                    });
+                }
+            }
+        }
+        return salida.toString();
+    }
+
+    private static void linea(StringBuilder salida, String nombre, String etiquetas, double valor) {
+        salida.append(nombre);
+        if (!etiquetas.isEmpty()) salida.append('{').append(etiquetas).append('}');
+        salida.append(' ');
+        if (Double.isNaN(valor)) salida.append("NaN");
+        else if (valor == Math.rint(valor) && Math.abs(valor) < 1e15) salida.append((long) valor);
+        else salida.append(valor);
+        salida.append('\n');
+    }
+
+    private static String conEtiqueta(String etiquetas, String clave, String valor) {
+        String extra = clave + "=\"" + valor + "\"";
+        return etiquetas.isEmpty() ? extra : etiquetas + "," + extra;
+    }
+
+    /**
+     * Etiquetas ordenadas en formato Prometheus (clave="valor",...), usadas también como clave de la serie
+     */
+    private static String etiquetas(Map<String, String> etiquetas) {
+        if (etiquetas == null || etiquetas.isEmpty()) return "";
+        StringBuilder resultado = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<>(etiquetas).entrySet()) {
+            if (resultado.length() > 0) resultado.append(',');
+            resultado.append(nombrePrometheus(e.getKey())).append("=\"")
+                    .append(String.valueOf(e.getValue()).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return resultado.toString();
+    }
+
+    private static String nombrePrometheus(String nombre) {
+        return nombre.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+}
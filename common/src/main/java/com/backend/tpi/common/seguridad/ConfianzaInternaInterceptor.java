@@ -0,0 +1,35 @@
+package com.backend.tpi.common.seguridad;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * En las llamadas a otros microservicios agrega X-Jwt-Verificado si el token reenviado ya se
+ * verificó en este servicio, así el siguiente no repite la verificación (ver DecodificadorJwtCacheado)
+ */
+public class ConfianzaInternaInterceptor implements ClientHttpRequestInterceptor {
+
+    private final DecodificadorJwtCacheado decodificador;
+
+    public ConfianzaInternaInterceptor(DecodificadorJwtCacheado decodificador) {
+        this.decodificador = decodificador;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        String autorizacion = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (autorizacion != null && autorizacion.startsWith("Bearer ")) {
+            String token = autorizacion.substring(7).trim();
+            String firma = decodificador.firma(token);
+            if (firma != null && decodificador.verificado(token)) {
+                request.getHeaders().set(DecodificadorJwtCacheado.CABECERA_CONFIANZA, firma);
+            }
+        }
+        return execution.execute(request, body);
+    }
+}
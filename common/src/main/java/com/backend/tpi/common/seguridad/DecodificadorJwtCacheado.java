@@ -0,0 +1,184 @@
+package com.backend.tpi.common.seguridad;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodificador de los JWT de Keycloak que no repite la verificación de un token ya verificado
+ * - Los tokens verificados se guardan (por su hash SHA-256) hasta que vencen, como mucho app.jwt.max-tokens
+ * - La firma se verifica con las claves de JwksPrecargado, sin descargas durante las requests
+ * - Modo de confianza interna (app.jwt.confianza.secreto): el gateway y los microservicios comparten un
+ *   secreto, y quien ya verificó un token lo reenvía con la cabecera X-Jwt-Verificado (HMAC del hash del
+ *   token). Con esa cabecera válida no se verifica la firma RSA, pero sí el vencimiento y el emisor.
+ */
+public class DecodificadorJwtCacheado implements JwtDecoder {
+
+    public static final String CABECERA_CONFIANZA = "X-Jwt-Verificado";
+
+    private static final String CACHE = "jwt.verificados";
+
+    private final NimbusJwtDecoder verificador;
+    private final OAuth2TokenValidator<Jwt> validador;
+    private final MappedJwtClaimSetConverter conversorClaims = MappedJwtClaimSetConverter.withDefaults(Map.of());
+    private final int maxTokens;
+    private final SecretKeySpec secreto;
+    private final RegistroMetricas registroMetricas;
+
+    private final Map<String, Jwt> verificados = new ConcurrentHashMap<>();
+
+    /**
+     * @param claves Claves públicas para verificar la firma
+     * @param emisor Issuer esperado (vacío para no validarlo)
+     * @param maxTokens Tokens verificados que se recuerdan como máximo
+     * @param secreto Secreto compartido del modo de confianza interna (vacío para deshabilitarlo)
+     */
+    public DecodificadorJwtCacheado(JWKSource<SecurityContext> claves, String emisor, int maxTokens, String secreto,
+                                    RegistroMetricas registroMetricas) {
+        DefaultJWTProcessor<SecurityContext> procesador = new DefaultJWTProcessor<>();
+        procesador.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, claves));
+        // Los claims los valida Spring con el validador (igual que el decodificador por defecto)
+        procesador.setJWTClaimsSetVerifier((claims, contexto) -> {});
+        this.validador = emisor == null || emisor.isBlank() ? JwtValidators.createDefault() : JwtValidators.createDefaultWithIssuer(emisor);
+        this.verificador = new NimbusJwtDecoder(procesador);
+        this.verificador.setJwtValidator(validador);
+        this.maxTokens = maxTokens;
+        this.secreto = secreto == null || secreto.isBlank() ? null
+                : new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.registroMetricas = registroMetricas;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String hash = hash(token);
+        Jwt jwt = verificados.get(hash);
+        registroMetricas.registrarCache(CACHE, jwt != null && vigente(jwt), 1);
+        if (jwt != null) {
+            if (vigente(jwt)) return jwt;
+            verificados.remove(hash, jwt);
+        }
+
+        String modo;
+        if (secreto != null && MessageDigest.isEqual(
+                firmaDeHash(hash).getBytes(StandardCharsets.US_ASCII), cabeceraConfianza().getBytes(StandardCharsets.US_ASCII))) {
+            jwt = sinVerificarFirma(token);
+            modo = "confianza";
+        } else {
+            jwt = verificador.decode(token);
+            modo = "firma";
+        }
+        registroMetricas.incrementar("jwt.verificaciones", Map.of("modo", modo));
+        guardar(hash, jwt);
+        return jwt;
+    }
+
+    /**
+     * Si el token ya se verificó en este servicio y sigue vigente
+     */
+    public boolean verificado(String token) {
+        Jwt jwt = verificados.get(hash(token));
+        return jwt != null && vigente(jwt);
+    }
+
+    /**
+     * Valor de X-Jwt-Verificado para el token, o null si el modo de confianza está deshabilitado
+     */
+    public String firma(String token) {
+        return secreto != null ? firmaDeHash(hash(token)) : null;
+    }
+
+    private void guardar(String hash, Jwt jwt) {
+        // Sin vencimiento no se guarda: no habría cuándo descartarlo
+        if (jwt.getExpiresAt() == null) return;
+        if (verificados.size() >= maxTokens) {
+            verificados.values().removeIf(j -> !vigente(j));
+            if (verificados.size() >= maxTokens) return;
+        }
+        verificados.put(hash, jwt);
+    }
+
+    private static boolean vigente(Jwt jwt) {
+        return jwt.getExpiresAt() != null && Instant.now().isBefore(jwt.getExpiresAt());
+    }
+
+    /**
+     * Arma el Jwt como NimbusJwtDecoder pero sin verificar la firma; los claims se validan igual
+     */
+    private Jwt sinVerificarFirma(String token) {
+        try {
+            JWT parseado = JWTParser.parse(token);
+            if (!(parseado instanceof SignedJWT)) throw new BadJwtException("El token no está firmado");
+            Map<String, Object> cabeceras = new LinkedHashMap<>(parseado.getHeader().toJSONObject());
+            Map<String, Object> claims = conversorClaims.convert(parseado.getJWTClaimsSet().getClaims());
+            Jwt jwt = Jwt.withTokenValue(token)
+                    .headers(h -> h.putAll(cabeceras))
+                    .claims(c -> c.putAll(claims))
+                    .build();
+            OAuth2TokenValidatorResult resultado = validador.validate(jwt);
+            if (resultado.hasErrors()) {
+                throw new JwtValidationException("Token inválido: " + resultado.getErrors().iterator().next().getDescription(), resultado.getErrors());
+            }
+            return jwt;
+        } catch (java.text.ParseException e) {
+            throw new BadJwtException("Token mal formado: " + e.getMessage(), e);
+        }
+    }
+
+    private static String cabeceraConfianza() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes atributos) {
+            HttpServletRequest request = atributos.getRequest();
+            String valor = request.getHeader(CABECERA_CONFIANZA);
+            if (valor != null) return valor;
+        }
+        return "";
+    }
+
+    private String firmaDeHash(String hash) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(secreto);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(hash.getBytes(StandardCharsets.US_ASCII)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 no disponible", e);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.backend.tpi.common.seguridad;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claves públicas de Keycloak (JWKS) descargadas en segundo plano
+ * - Se descargan al arrancar y se renuevan cada app.jwt.jwks-refresco, fuera de las requests
+ * - Si llega un token firmado con una clave desconocida (Keycloak rotó las claves) se descargan
+ *   en el momento, como mucho una vez cada 30 segundos
+ * - Si Keycloak no responde se siguen usando las últimas claves descargadas
+ */
+public class JwksPrecargado implements JWKSource<SecurityContext> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksPrecargado.class);
+
+    private static final long ESPERA_MINIMA_NANOS = Duration.ofSeconds(30).toNanos();
+    private static final int TIMEOUT_MS = 5000;
+    private static final int MAX_BYTES = 512 * 1024;
+
+    private final URI jwkSetUri;
+    private final ScheduledExecutorService programador;
+
+    private volatile JWKSet claves;
+    // Última descarga pedida por una clave desconocida (las periódicas no cuentan)
+    private long recargadoPorClaveEnNanos = System.nanoTime() - ESPERA_MINIMA_NANOS;
+
+    public JwksPrecargado(String jwkSetUri, Duration refresco) {
+        this.jwkSetUri = URI.create(jwkSetUri);
+        this.programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "jwks-precarga");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        programador.scheduleWithFixedDelay(this::descargar, 0, refresco.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext contexto) throws KeySourceException {
+        JWKSet actuales = claves;
+        if (actuales != null) {
+            List<JWK> encontradas = selector.select(actuales);
+            if (!encontradas.isEmpty()) return encontradas;
+        }
+        // Clave desconocida o todavía sin descargar: puede ser una rotación de claves
+        synchronized (this) {
+            if (claves == actuales && System.nanoTime() - recargadoPorClaveEnNanos >= ESPERA_MINIMA_NANOS) {
+                recargadoPorClaveEnNanos = System.nanoTime();
+                descargar();
+            }
+        }
+        if (claves == null) throw new KeySourceException("No se pudieron obtener las claves de " + jwkSetUri);
+        return selector.select(claves);
+    }
+
+    private synchronized void descargar() {
+        try {
+            claves = JWKSet.load(jwkSetUri.toURL(), TIMEOUT_MS, TIMEOUT_MS, MAX_BYTES);
+            logger.debug("JWKS descargado de {}: {} claves", jwkSetUri, claves.getKeys().size());
+        } catch (Exception e) {
+            logger.warn("No se pudo descargar el JWKS de {}: {}", jwkSetUri, e.getMessage());
+        }
+    }
+
+    public void cerrar() {
+        programador.shutdownNow();
+    }
+}
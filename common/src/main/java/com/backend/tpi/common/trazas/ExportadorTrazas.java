@@ -0,0 +1,181 @@
+package com.backend.tpi.common.trazas;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envía las trazas muestreadas fuera del proceso desde un hilo propio, sin demorar las requests
+ * - app.trazas.exportador=archivo: un span por línea (JSON) en app.trazas.archivo
+ * - app.trazas.exportador=otlp: OTLP/HTTP JSON a app.trazas.otlp-url (colector de OpenTelemetry, Jaeger, Tempo)
+ * - app.trazas.exportador=ninguno (por defecto): solo queda el log de requests lentas
+ * Si la cola se llena (el destino no da abasto) las trazas nuevas se descartan.
+ * Usa su propio HttpClient (ni los RestClient del servicio ni las rutas del gateway) para no rastrear sus propias llamadas.
+ */
+@Component
+public class ExportadorTrazas {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportadorTrazas.class);
+
+    private static final int LOTE = 100;
+
+    @Value("${app.trazas.exportador:ninguno}")
+    private String tipo;
+
+    @Value("${app.trazas.archivo:logs/trazas.jsonl}")
+    private String archivo;
+
+    @Value("${app.trazas.otlp-url:http://otel-collector:4318/v1/traces}")
+    private String otlpUrl;
+
+    @Value("${app.trazas.cola:1000}")
+    private int capacidadCola;
+
+    @Value("${spring.application.name:servicio}")
+    private String servicio;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BlockingQueue<List<Span>> cola;
+    private HttpClient httpClient;
+    private Thread hilo;
+    private final AtomicLong descartadas = new AtomicLong();
+
+    @PostConstruct
+    public void iniciar() {
+        if ("ninguno".equals(tipo)) return;
+        cola = new ArrayBlockingQueue<>(Math.max(1, capacidadCola));
+        if ("otlp".equals(tipo)) {
+            httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        }
+        hilo = new Thread(this::procesar, "exportador-trazas");
+        hilo.setDaemon(true);
+        hilo.start();
+        logger.info("Exportación de trazas: {} ({})", tipo, "otlp".equals(tipo) ? otlpUrl : archivo);
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (hilo != null) hilo.interrupt();
+    }
+
+    public void exportar(List<Span> spans) {
+        if (cola == null || spans.isEmpty()) return;
+        if (!cola.offer(spans)) {
+            long total = descartadas.incrementAndGet();
+            if (total % 100 == 1) logger.warn("Cola de exportación de trazas llena, {} trazas descartadas", total);
+        }
+    }
+
+    private void procesar() {
+        List<List<Span>> lote = new ArrayList<>(LOTE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Span> primera = cola.poll(1, TimeUnit.SECONDS);
+                if (primera == null) continue;
+                lote.add(primera);
+                cola.drainTo(lote, LOTE - 1);
+                List<Span> spans = new ArrayList<>();
+                lote.forEach(spans::addAll);
+                if ("otlp".equals(tipo)) enviarOtlp(spans);
+                else escribirArchivo(spans);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("No se pudieron exportar {} trazas: {}", lote.size(), e.getMessage());
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribirArchivo(List<Span> spans) throws IOException {
+        StringBuilder lineas = new StringBuilder();
+        for (Span span : spans) {
+            Map<String, Object> linea = new LinkedHashMap<>();
+            linea.put("servicio", servicio);
+            linea.put("traceId", span.getTraceId());
+            linea.put("spanId", span.getSpanId());
+            linea.put("parentSpanId", span.getParentSpanId());
+            linea.put("nombre", span.getNombre());
+            linea.put("tipo", span.getTipo().name());
+            linea.put("inicioEpochMicros", span.getInicioEpochNanos() / 1000);
+            linea.put("duracionMicros", span.getDuracionNanos() / 1000);
+            linea.put("etiquetas", span.getEtiquetas());
+            linea.put("error", span.getError());
+            lineas.append(objectMapper.writeValueAsString(linea)).append('\n');
+        }
+        Path destino = Path.of(archivo);
+        if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+        Files.writeString(destino, lineas, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void enviarOtlp(List<Span> spans) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(otlpUrl))
+                .timeout(Duration.ofSeconds(5))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(otlp(spans))))
+                .build();
+        HttpResponse<String> respuesta = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() >= 300) {
+            logger.warn("El colector OTLP respondió {} al exportar {} spans", respuesta.statusCode(), spans.size());
+        }
+    }
+
+    /**
+     * Cuerpo ExportTraceServiceRequest en la codificación JSON de OTLP
+     */
+    private Map<String, Object> otlp(List<Span> spans) {
+        List<Map<String, Object>> otlpSpans = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("traceId", span.getTraceId());
+            s.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) s.put("parentSpanId", span.getParentSpanId());
+            s.put("name", span.getNombre());
+            s.put("kind", switch (span.getTipo()) {
+                case INTERNAL -> 1;
+                case SERVER -> 2;
+                case CLIENT -> 3;
+            });
+            s.put("startTimeUnixNano", String.valueOf(span.getInicioEpochNanos()));
+            s.put("endTimeUnixNano", String.valueOf(span.getInicioEpochNanos() + span.getDuracionNanos()));
+            s.put("attributes", atributos(span.getEtiquetas()));
+            s.put("status", span.getError() != null ? Map.of("code", 2, "message", span.getError()) : Map.of("code", 0));
+            otlpSpans.add(s);
+        }
+        return Map.of("resourceSpans", List.of(Map.of(
+                "resource", Map.of("attributes", atributos(Map.of("service.name", servicio))),
+                "scopeSpans", List.of(Map.of(
+                        "scope", Map.of("name", "tpi-backend"),
+                        "spans", otlpSpans)))));
+    }
+
+    private static List<Map<String, Object>> atributos(Map<String, String> etiquetas) {
+        List<Map<String, Object>> resultado = new ArrayList<>(etiquetas.size());
+        etiquetas.forEach((clave, valor) -> resultado.add(Map.of("key", clave, "value", Map.of("stringValue", valor))));
+        return resultado;
+    }
+}
@@ -0,0 +1,48 @@
+package com.backend.tpi.common.trazas;
+
+import com.backend.tpi.common.metricas.ConvencionClienteHttp;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Llamadas con java.net.http.HttpClient observadas igual que las de RestClient
+ * (timer http.client.requests con las mismas etiquetas y span CLIENT en la traza en curso)
+ * No propaga traceparent: se usa solo contra servicios externos (Nominatim).
+ */
+public final class HttpObservado {
+
+    private HttpObservado() {
+    }
+
+    public static <T> HttpResponse<T> enviar(HttpClient http, HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                             ObservationRegistry registry) throws IOException, InterruptedException {
+        Observation observacion = Observation.createNotStarted("http.client.requests", registry)
+                .contextualName("http " + request.method().toLowerCase())
+                .lowCardinalityKeyValue("method", request.method())
+                .lowCardinalityKeyValue("uri", ConvencionClienteHttp.normalizar(request.uri().toString()))
+                .lowCardinalityKeyValue("client.name", String.valueOf(request.uri().getHost()))
+                .start();
+        try (Observation.Scope ignored = observacion.openScope()) {
+            HttpResponse<T> respuesta = http.send(request, handler);
+            int status = respuesta.statusCode();
+            observacion.lowCardinalityKeyValue("status", String.valueOf(status))
+                    .lowCardinalityKeyValue("outcome", status < 300 ? "SUCCESS" : status < 400 ? "REDIRECTION"
+                            : status < 500 ? "CLIENT_ERROR" : "SERVER_ERROR")
+                    .lowCardinalityKeyValue("exception", "none");
+            return respuesta;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            observacion.lowCardinalityKeyValue("status", "CLIENT_ERROR")
+                    .lowCardinalityKeyValue("outcome", "UNKNOWN")
+                    .lowCardinalityKeyValue("exception", e.getClass().getSimpleName());
+            observacion.error(e);
+            throw e;
+        } finally {
+            observacion.stop();
+        }
+    }
+}
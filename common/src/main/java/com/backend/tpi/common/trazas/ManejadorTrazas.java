@@ -0,0 +1,154 @@
+package com.backend.tpi.common.trazas;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.ObservationView;
+import io.micrometer.observation.transport.ReceiverContext;
+import io.micrometer.observation.transport.SenderContext;
+import org.slf4j.MDC;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Abre un span por cada observación (requests entrantes, llamadas de RestClient/RestTemplate)
+ * El padre es la observación que estaba en curso en el hilo; en las requests entrantes sin padre
+ * se continúa la traza de la cabecera traceparent y en las salientes se la agrega a la request.
+ * Mientras la observación está en alcance, traceId y spanId quedan en el MDC para los logs.
+ */
+public class ManejadorTrazas implements ObservationHandler<Observation.Context> {
+
+    private static final String SPAN = ManejadorTrazas.class.getName() + ".span";
+
+    public static final String MDC_TRACE_ID = "traceId";
+    public static final String MDC_SPAN_ID = "spanId";
+
+    // Valores del MDC anteriores a cada alcance abierto en el hilo (los alcances se anidan)
+    private static final ThreadLocal<Deque<String[]>> MDC_ANTERIOR = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final Rastreador rastreador;
+
+    public ManejadorTrazas(Rastreador rastreador) {
+        this.rastreador = rastreador;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void onStart(Observation.Context context) {
+        Span padre = span(context.getParentObservation());
+        String traceparent = null;
+        if (padre == null && context instanceof ReceiverContext receptor && receptor.getCarrier() != null) {
+            traceparent = (String) receptor.getGetter().get(receptor.getCarrier(), Rastreador.TRACEPARENT);
+        }
+        Span.Tipo tipo = context instanceof SenderContext ? Span.Tipo.CLIENT
+                : context instanceof ReceiverContext ? Span.Tipo.SERVER : Span.Tipo.INTERNAL;
+        Span span = rastreador.iniciar(context.getName(), tipo, padre, traceparent);
+        if (span == null) return;
+        context.put(SPAN, span);
+        if (context instanceof SenderContext emisor && emisor.getCarrier() != null) {
+            emisor.getSetter().set(emisor.getCarrier(), Rastreador.TRACEPARENT, span.traceparent());
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Span span = context.get(SPAN);
+        if (span == null) return;
+        // El nombre contextual (método y plantilla de la URL) recién se conoce al terminar
+        String nombre = context.getContextualName() != null ? context.getContextualName() : context.getName();
+        KeyValue uri = context.getLowCardinalityKeyValue("uri");
+        if (span.getTipo() == Span.Tipo.CLIENT && uri != null) {
+            KeyValue cliente = context.getLowCardinalityKeyValue("client.name");
+            nombre = nombre + " " + (cliente != null ? cliente.getValue() : "") + uri.getValue();
+        }
+        span.setNombre(nombre);
+        for (KeyValue kv : context.getLowCardinalityKeyValues()) span.etiqueta(kv.getKey(), kv.getValue());
+        rastreador.finalizar(span, context.getError());
+    }
+
+    @Override
+    public void onScopeOpened(Observation.Context context) {
+        Span span = context.get(SPAN);
+        if (span == null) return;
+        MDC_ANTERIOR.get().push(new String[]{MDC.get(MDC_TRACE_ID), MDC.get(MDC_SPAN_ID)});
+        MDC.put(MDC_TRACE_ID, span.getTraceId());
+        MDC.put(MDC_SPAN_ID, span.getSpanId());
+    }
+
+    @Override
+    public void onScopeClosed(Observation.Context context) {
+        if (context.get(SPAN) == null) return;
+        String[] anterior = MDC_ANTERIOR.get().poll();
+        restaurar(MDC_TRACE_ID, anterior != null ? anterior[0] : null);
+        restaurar(MDC_SPAN_ID, anterior != null ? anterior[1] : null);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    /**
+     * Span de la observación en curso en este hilo, o null fuera de una request
+     */
+    public static Span spanActual(ObservationRegistry registry) {
+        return span(registry.getCurrentObservation());
+    }
+
+    /**
+     * Envuelve una tarea para que corra dentro de la observación actual del hilo que la crea
+     * Se usa al repartir trabajo en otros hilos, para que sus llamadas sigan en la misma traza.
+     * También copia el MDC (por ejemplo la marca de log de SQL de la request).
+     */
+    public static <T> Callable<T> enContexto(ObservationRegistry registry, Callable<T> tarea) {
+        Observation actual = registry.getCurrentObservation();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        if (actual == null && mdc == null) return tarea;
+        return () -> {
+            Map<String, String> anterior = fijarMdc(mdc);
+            try {
+                return actual != null ? actual.scopedChecked(tarea::call) : tarea.call();
+            } finally {
+                fijarMdc(anterior);
+            }
+        };
+    }
+
+    public static Runnable enContexto(ObservationRegistry registry, Runnable tarea) {
+        Observation actual = registry.getCurrentObservation();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        if (actual == null && mdc == null) return tarea;
+        return () -> {
+            Map<String, String> anterior = fijarMdc(mdc);
+            try {
+                if (actual != null) actual.scoped(tarea);
+                else tarea.run();
+            } finally {
+                fijarMdc(anterior);
+            }
+        };
+    }
+
+    /**
+     * Reemplaza el MDC del hilo y devuelve el que tenía
+     */
+    private static Map<String, String> fijarMdc(Map<String, String> mdc) {
+        Map<String, String> anterior = MDC.getCopyOfContextMap();
+        if (mdc != null) MDC.setContextMap(mdc);
+        else MDC.clear();
+        return anterior;
+    }
+
+    private static void restaurar(String clave, String valor) {
+        if (valor != null) MDC.put(clave, valor);
+        else MDC.remove(clave);
+    }
+
+    private static Span span(ObservationView observacion) {
+        return observacion != null ? observacion.getContextView().get(SPAN) : null;
+    }
+}
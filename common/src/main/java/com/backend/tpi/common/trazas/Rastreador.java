@@ -0,0 +1,157 @@
+package com.backend.tpi.common.trazas;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Crea y cierra los spans del gateway o del microservicio y decide qué hacer con cada traza terminada:
+ * - exportarla (archivo JSON o colector OTLP) si está muestreada
+ * - volcar el árbol de spans al log si la request superó app.trazas.lento-ms
+ * El contexto llega y se propaga con la cabecera W3C traceparent; la decisión de muestreo la
+ * toma el primer eslabón de la cadena (normalmente el gateway, que inicia la traza si el cliente
+ * no envió traceparent) y el resto la respeta.
+ */
+@Component
+public class Rastreador {
+
+    private static final Logger logger = LoggerFactory.getLogger(Rastreador.class);
+
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final Pattern FORMATO_TRACEPARENT = Pattern.compile("00-[0-9a-f]{32}-[0-9a-f]{16}-[0-9a-f]{2}");
+    private static final String TRACE_ID_INVALIDO = "0".repeat(32);
+
+    @Value("${app.trazas.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${app.trazas.muestreo:0.1}")
+    private double muestreo;
+
+    @Value("${app.trazas.lento-ms:2000}")
+    private long lentoMs;
+
+    @Value("${app.trazas.lento-max-por-minuto:10}")
+    private int lentoMaxPorMinuto;
+
+    private final ExportadorTrazas exportador;
+
+    // Ventana de un minuto para acotar cuántas trazas lentas se vuelcan al log
+    private final AtomicLong ventanaLentas = new AtomicLong();
+    private final AtomicInteger lentasEnVentana = new AtomicInteger();
+
+    public Rastreador(ExportadorTrazas exportador) {
+        this.exportador = exportador;
+    }
+
+    /**
+     * Abre un span
+     * @param padre Span local que lo contiene, o null si es el primero de la traza en este servicio
+     * @param traceparent Cabecera recibida (solo se usa sin padre local); null o inválida inicia una traza nueva
+     * @return El span, o null si el rastreo está deshabilitado
+     */
+    public Span iniciar(String nombre, Span.Tipo tipo, Span padre, String traceparent) {
+        return iniciar(nombre, tipo, padre, traceparent, 0);
+    }
+
+    /**
+     * Registra un span ya terminado (por ejemplo una consulta a repositorio medida por Spring Data)
+     * Solo se registra dentro de una traza en curso.
+     */
+    public void registrarTerminado(String nombre, Span.Tipo tipo, Span padre, long duracionNanos,
+                                   Map<String, String> etiquetas, Throwable error) {
+        if (padre == null) return;
+        Span span = iniciar(nombre, tipo, padre, null, duracionNanos);
+        if (span == null) return;
+        etiquetas.forEach(span::etiqueta);
+        finalizar(span, error, duracionNanos);
+    }
+
+    public void finalizar(Span span, Throwable error) {
+        finalizar(span, error, -1);
+    }
+
+    private Span iniciar(String nombre, Span.Tipo tipo, Span padre, String traceparent, long transcurridoNanos) {
+        if (!habilitado) return null;
+        if (padre != null) {
+            return new Span(padre.getTraceId(), nuevoId(16), padre.getSpanId(), padre.isMuestreado(), tipo, nombre, padre, transcurridoNanos);
+        }
+        if (traceparent != null && FORMATO_TRACEPARENT.matcher(traceparent.trim()).matches()) {
+            String[] partes = traceparent.trim().split("-");
+            if (!TRACE_ID_INVALIDO.equals(partes[1])) {
+                boolean muestreado = (Integer.parseInt(partes[3], 16) & 1) == 1;
+                return new Span(partes[1], nuevoId(16), partes[2], muestreado, tipo, nombre, null, transcurridoNanos);
+            }
+        }
+        boolean muestreado = ThreadLocalRandom.current().nextDouble() < muestreo;
+        return new Span(nuevoId(32), nuevoId(16), null, muestreado, tipo, nombre, null, transcurridoNanos);
+    }
+
+    private void finalizar(Span span, Throwable error, long duracionNanos) {
+        if (span == null) return;
+        String mensaje = error != null ? error.getClass().getSimpleName() + ": " + error.getMessage() : null;
+        if (!span.terminar(duracionNanos, mensaje) || !span.esRaizLocal()) return;
+
+        List<Span> spans;
+        synchronized (span.terminados) {
+            spans = new ArrayList<>(span.terminados);
+        }
+        if (span.getDuracionNanos() >= lentoMs * 1_000_000L && permitirVolcado()) {
+            logger.warn("Request lenta ({} ms) - traza {}:\n{}", span.getDuracionNanos() / 1_000_000, span.getTraceId(), arbol(span, spans));
+        }
+        if (span.isMuestreado()) exportador.exportar(spans);
+    }
+
+    private boolean permitirVolcado() {
+        long minuto = System.currentTimeMillis() / 60_000;
+        long anterior = ventanaLentas.get();
+        if (anterior != minuto && ventanaLentas.compareAndSet(anterior, minuto)) lentasEnVentana.set(0);
+        return lentasEnVentana.incrementAndGet() <= lentoMaxPorMinuto;
+    }
+
+    /**
+     * Árbol de spans indentado, con el desfasaje respecto del inicio de la raíz y la duración de cada uno
+     */
+    static String arbol(Span raiz, List<Span> spans) {
+        Map<String, List<Span>> hijos = spans.stream()
+                .filter(s -> s != raiz && s.getParentSpanId() != null)
+                .sorted(Comparator.comparingLong(Span::getInicioEpochNanos))
+                .collect(Collectors.groupingBy(Span::getParentSpanId));
+        StringBuilder salida = new StringBuilder();
+        agregarRama(salida, raiz, hijos, raiz.getInicioEpochNanos(), 1);
+        return salida.toString();
+    }
+
+    private static void agregarRama(StringBuilder salida, Span span, Map<String, List<Span>> hijos, long inicioRaiz, int nivel) {
+        salida.append("  ".repeat(nivel))
+                .append(String.format("+%d ms %d ms %s", (span.getInicioEpochNanos() - inicioRaiz) / 1_000_000,
+                        span.getDuracionNanos() / 1_000_000, span.getNombre()));
+        if (!span.getEtiquetas().isEmpty()) salida.append(' ').append(span.getEtiquetas());
+        if (span.getError() != null) salida.append(" ERROR ").append(span.getError());
+        salida.append('\n');
+        for (Span hijo : hijos.getOrDefault(span.getSpanId(), List.of())) {
+            agregarRama(salida, hijo, hijos, inicioRaiz, nivel + 1);
+        }
+    }
+
+    private static String nuevoId(int digitos) {
+        StringBuilder id = new StringBuilder(digitos);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (id.length() < digitos) {
+            long valor = random.nextLong();
+            if (valor != 0) id.append(String.format("%016x", valor));
+        }
+        return id.toString();
+    }
+}
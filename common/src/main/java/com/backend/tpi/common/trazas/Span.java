@@ -0,0 +1,96 @@
+package com.backend.tpi.common.trazas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tramo de una traza (request entrante, reenvío del gateway, llamada saliente o consulta a repositorio)
+ * Los IDs siguen W3C Trace Context: traceId de 32 hex y spanId de 16 hex.
+ * Los spans de una misma traza dentro del servicio comparten la lista de terminados; la traza se
+ * completa cuando termina el span raíz local (el primero creado en este servicio).
+ */
+public class Span {
+
+    public enum Tipo { SERVER, CLIENT, INTERNAL }
+
+    // Evita que una operación con miles de consultas retenga una traza enorme
+    static final int MAX_SPANS_POR_TRAZA = 1000;
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final boolean muestreado;
+    private final Tipo tipo;
+    private String nombre;
+    private final long inicioEpochNanos;
+    private final long inicioNanos;
+    private long duracionNanos = -1;
+    private final Map<String, String> etiquetas = new LinkedHashMap<>();
+    private String error;
+
+    final Span raiz;
+    final List<Span> terminados;
+
+    /**
+     * @param transcurridoNanos Tiempo desde que empezó la operación (0 si empieza ahora)
+     */
+    Span(String traceId, String spanId, String parentSpanId, boolean muestreado, Tipo tipo, String nombre,
+         Span padreLocal, long transcurridoNanos) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.muestreado = muestreado;
+        this.tipo = tipo;
+        this.nombre = nombre;
+        this.inicioEpochNanos = System.currentTimeMillis() * 1_000_000L - transcurridoNanos;
+        this.inicioNanos = System.nanoTime() - transcurridoNanos;
+        this.raiz = padreLocal != null ? padreLocal.raiz : this;
+        this.terminados = padreLocal != null ? padreLocal.terminados : Collections.synchronizedList(new ArrayList<>());
+    }
+
+    public String getTraceId() { return traceId; }
+    public String getSpanId() { return spanId; }
+    public String getParentSpanId() { return parentSpanId; }
+    public boolean isMuestreado() { return muestreado; }
+    public Tipo getTipo() { return tipo; }
+    public String getNombre() { return nombre; }
+    public long getInicioEpochNanos() { return inicioEpochNanos; }
+    public long getDuracionNanos() { return duracionNanos; }
+    public Map<String, String> getEtiquetas() { return etiquetas; }
+    public String getError() { return error; }
+
+    public boolean esRaizLocal() {
+        return raiz == this;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public void etiqueta(String clave, String valor) {
+        if (valor != null) etiquetas.put(clave, valor);
+    }
+
+    /**
+     * Cierra el span; devuelve false si ya estaba cerrado
+     */
+    boolean terminar(long duracionNanos, String error) {
+        if (this.duracionNanos >= 0) return false;
+        this.duracionNanos = duracionNanos >= 0 ? duracionNanos : System.nanoTime() - inicioNanos;
+        this.error = error;
+        synchronized (terminados) {
+            if (terminados.size() < MAX_SPANS_POR_TRAZA || esRaizLocal()) terminados.add(this);
+        }
+        return true;
+    }
+
+    /**
+     * Valor de la cabecera traceparent para propagar este span como padre
+     */
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + (muestreado ? "-01" : "-00");
+    }
+}
@@ -0,0 +1,89 @@
+package com.backend.tpi.common.catalogo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TablaReferenciaTest {
+
+    private record Fila(Long id, String nombre) {}
+
+    private final List<Fila> base = new ArrayList<>();
+    private final AtomicInteger cargas = new AtomicInteger();
+    private final AtomicInteger consultasPorNombre = new AtomicInteger();
+
+    private TablaReferencia<Fila> tabla;
+
+    @BeforeEach
+    public void setUp() {
+        base.add(new Fila(2L, "PENDIENTE"));
+        base.add(new Fila(1L, "FINALIZADO"));
+        tabla = tabla(false, Duration.ofMinutes(1));
+        tabla.cargar();
+    }
+
+    @Test
+    public void nombreInexistente_seConsultaUnaSolaVez() {
+        assertTrue(tabla.porNombre("COMPLETADO").isEmpty());
+        assertTrue(tabla.porNombre("COMPLETADO").isEmpty());
+
+        assertEquals(1, consultasPorNombre.get());
+    }
+
+    @Test
+    public void invalidar_olvidaLosAusentesYRecarga() {
+        assertTrue(tabla.porNombre("EN_PROCESO").isEmpty());
+        base.add(new Fila(3L, "EN_PROCESO"));
+
+        tabla.invalidar();
+
+        assertEquals(Optional.of(new Fila(3L, "EN_PROCESO")), tabla.porNombre("EN_PROCESO"));
+        assertEquals(2, cargas.get());
+    }
+
+    @Test
+    public void ausenteVencido_vuelveAConsultarLaBase() {
+        tabla = tabla(false, Duration.ZERO);
+        tabla.cargar();
+        assertTrue(tabla.porNombre("EN_PROCESO").isEmpty());
+        base.add(new Fila(3L, "EN_PROCESO"));
+
+        assertEquals(Optional.of(new Fila(3L, "EN_PROCESO")), tabla.porNombre("EN_PROCESO"));
+    }
+
+    @Test
+    public void porIdYPrimera_usanLaInstantaneaOrdenada() {
+        assertEquals(Optional.of(new Fila(2L, "PENDIENTE")), tabla.porId(2L));
+        assertEquals(Optional.of(new Fila(1L, "FINALIZADO")), tabla.primera());
+        assertTrue(tabla.porId(99L).isEmpty());
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    public void ignorarMayusculas_comparaNombresSinDistinguir() {
+        tabla = tabla(true, Duration.ofMinutes(1));
+
+        assertEquals(Optional.of(new Fila(2L, "PENDIENTE")), tabla.porNombre("pendiente"));
+        assertEquals(0, consultasPorNombre.get());
+    }
+
+    private TablaReferencia<Fila> tabla(boolean ignorarMayusculas, Duration ausentesTtl) {
+        return new TablaReferencia<>("prueba",
+                () -> { cargas.incrementAndGet(); return List.copyOf(base); },
+                Fila::id, Fila::nombre,
+                nombre -> {
+                    consultasPorNombre.incrementAndGet();
+                    return base.stream().filter(f -> ignorarMayusculas ? f.nombre().equalsIgnoreCase(nombre) : f.nombre().equals(nombre)).findFirst();
+                },
+                id -> base.stream().filter(f -> f.id().equals(id)).findFirst(),
+                ignorarMayusculas, ausentesTtl);
+    }
+}
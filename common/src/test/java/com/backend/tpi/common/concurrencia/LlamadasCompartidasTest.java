@@ -0,0 +1,69 @@
+package com.backend.tpi.common.concurrencia;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LlamadasCompartidasTest {
+
+    @Test
+    public void llamadasConcurrentesMismaClave_ejecutanUnaSola() throws Exception {
+        LlamadasCompartidas<String, Integer> llamadas = new LlamadasCompartidas<>("prueba", null);
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<Integer> primera = pool.submit(() -> llamadas.ejecutar("ruta", () -> {
+                ejecuciones.incrementAndGet();
+                iniciada.countDown();
+                await(liberar);
+                return 42;
+            }));
+            assertTrue(iniciada.await(5, TimeUnit.SECONDS));
+            List<Future<Integer>> resto = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                resto.add(pool.submit(() -> llamadas.ejecutar("ruta", ejecuciones::incrementAndGet)));
+            }
+            // Los que llegan durante la llamada esperan su resultado en lugar de ejecutar la propia
+            Thread.sleep(300);
+            assertTrue(resto.stream().noneMatch(Future::isDone));
+            liberar.countDown();
+
+            assertEquals(42, primera.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> f : resto) assertEquals(42, f.get(5, TimeUnit.SECONDS));
+            assertEquals(1, ejecuciones.get());
+            assertEquals(0, llamadas.enCurso());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void excepcion_seTransmiteYNoQuedaEnCurso() {
+        LlamadasCompartidas<String, Integer> llamadas = new LlamadasCompartidas<>("prueba", null);
+
+        assertThrows(IllegalStateException.class, () -> llamadas.ejecutar("ruta", () -> {
+            throw new IllegalStateException("OSRM caído");
+        }));
+        assertEquals(0, llamadas.enCurso());
+        assertEquals(7, llamadas.ejecutar("ruta", () -> 7));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.backend.tpi.ms_gestion_calculos.config;
 
+import com.backend.tpi.common.metricas.ConvencionClienteHttp;
+import com.backend.tpi.common.seguridad.ConfianzaInternaInterceptor;
+import com.backend.tpi.common.seguridad.DecodificadorJwtCacheado;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.RestClient;
 
@@ -11,23 +14,37 @@ import org.springframework.web.client.RestClient;
 public class RestMicroservicioConfig {
 
     @Bean
-    public RestClient rutasClient(@Value("${app.rutas.base-url:http://localhost:8082}") String baseUrl) {
+    public RestClient rutasClient(@Value("${app.rutas.base-url:http://localhost:8082}") String baseUrl,
+                                  ObservationRegistry observationRegistry,
+                                  DecodificadorJwtCacheado decodificadorJwt) {
         return RestClient.builder()
                 .baseUrl(baseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new ConvencionClienteHttp())
+                .requestInterceptor(new ConfianzaInternaInterceptor(decodificadorJwt))
                 .build();
     }
 
     @Bean
-    public RestClient solicitudesClient(@Value("${app.solicitudes.base-url:http://localhost:8083}") String baseUrl) {
+    public RestClient solicitudesClient(@Value("${app.solicitudes.base-url:http://localhost:8083}") String baseUrl,
+                                        ObservationRegistry observationRegistry,
+                                        DecodificadorJwtCacheado decodificadorJwt) {
         return RestClient.builder()
                 .baseUrl(baseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new ConvencionClienteHttp())
+                .requestInterceptor(new ConfianzaInternaInterceptor(decodificadorJwt))
                 .build();
     }
 
         // Proveer un RestTemplate simple para inyección en servicios que lo requieran
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ObservationRegistry observationRegistry, DecodificadorJwtCacheado decodificadorJwt) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setObservationRegistry(observationRegistry);
+        restTemplate.setObservationConvention(new ConvencionClienteHttp());
+        restTemplate.getInterceptors().add(new ConfianzaInternaInterceptor(decodificadorJwt));
+        return restTemplate;
     }
 
 }
@@ -1,5 +1,10 @@
 package com.backend.tpi.ms_gestion_calculos.config;
 
+import com.backend.tpi.common.logs.SqlPorRequestFilter;
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import com.backend.tpi.common.seguridad.DecodificadorJwtCacheado;
+import com.backend.tpi.common.seguridad.JwksPrecargado;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -11,8 +16,10 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +29,7 @@ import java.util.stream.Collectors;
  * Configuración de seguridad con Keycloak
  * Define las reglas de autenticación OAuth2 con JWT
  * Extrae los roles de Keycloak y los convierte en autoridades de Spring Security
+ * Los tokens ya verificados no se vuelven a verificar hasta que vencen (ver DecodificadorJwtCacheado)
  */
 @Configuration
 @EnableWebSecurity
@@ -34,12 +42,33 @@ public class SecurityConfig {
             .authorizeHttpRequests(authorize -> authorize
                 // permitir la documentación OpenAPI/Swagger públicamente
                 .requestMatchers("/v3/api-docs/**", "/v3/api-docs", "/swagger-ui.html", "/swagger-ui/**").permitAll()
+                // scrape de Prometheus dentro de la red de docker (el gateway lo publica autenticado)
+                .requestMatchers("/actuator/prometheus").permitAll()
                 .anyRequest().authenticated()
             ).oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt ->
-                jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())));
+                jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())))
+            // después de validar el token: X-Log-Sql solo se respeta para ADMIN
+            .addFilterAfter(new SqlPorRequestFilter(), BearerTokenAuthenticationFilter.class);
         return http.build();
     }
 
+    // Claves de Keycloak descargadas al arrancar y renovadas en segundo plano
+    @Bean(destroyMethod = "cerrar")
+    JwksPrecargado jwksPrecargado(@Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                  @Value("${app.jwt.jwks-refresco:5m}") Duration refresco) {
+        return new JwksPrecargado(jwkSetUri, refresco);
+    }
+
+    // Reemplaza al JwtDecoder por defecto de Spring Boot
+    @Bean
+    DecodificadorJwtCacheado jwtDecoder(JwksPrecargado jwks,
+                                        @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}") String emisor,
+                                        @Value("${app.jwt.max-tokens:10000}") int maxTokens,
+                                        @Value("${app.jwt.confianza.secreto:}") String secreto,
+                                        RegistroMetricas registroMetricas) {
+        return new DecodificadorJwtCacheado(jwks, emisor, maxTokens, secreto, registroMetricas);
+    }
+
     @Bean
     Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter() {
         return new Converter<Jwt, AbstractAuthenticationToken>() {
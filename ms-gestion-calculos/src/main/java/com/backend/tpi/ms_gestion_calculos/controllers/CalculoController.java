@@ -2,10 +2,14 @@ package com.backend.tpi.ms_gestion_calculos.controllers;
 
 import com.backend.tpi.ms_gestion_calculos.dtos.DistanciaRequestDTO;
 import com.backend.tpi.ms_gestion_calculos.dtos.DistanciaResponseDTO;
+import com.backend.tpi.ms_gestion_calculos.dtos.MatrizDistanciasDTO;
+import com.backend.tpi.ms_gestion_calculos.dtos.MatrizRequestDTO;
 import com.backend.tpi.ms_gestion_calculos.services.CalculoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controlador REST para cálculos de distancia
@@ -29,6 +34,9 @@ public class CalculoController {
     @Autowired
     private CalculoService calculoService;
 
+    @Value("${app.matriz.max-celdas:10000}")
+    private long maxCeldas;
+
     /**
     * POST /api/v1/gestion/distancia - Calcula la distancia entre dos ubicaciones
     * Requiere rol CLIENTE u OPERADOR
@@ -59,4 +67,29 @@ public class CalculoController {
         }
         return ResponseEntity.ok(coord);
     }
+
+    /**
+    * POST /api/v1/gestion/matriz - Calcula distancias entre M orígenes y N destinos
+    * Responde NDJSON (application/x-ndjson), una línea por par origen/destino
+    * Requiere rol CLIENTE u OPERADOR
+     * @param request Orígenes y destinos
+     * @return Stream con las celdas de la matriz
+     */
+    @PostMapping(value = "/matriz", produces = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('CLIENTE','OPERADOR')")
+    public ResponseEntity<?> calcularMatriz(@RequestBody MatrizRequestDTO request) {
+        int m = request.getOrigenes() != null ? request.getOrigenes().size() : 0;
+        int n = request.getDestinos() != null ? request.getDestinos().size() : 0;
+        if (m == 0 || n == 0 || (long) m * n > maxCeldas) {
+            logger.warn("POST /api/v1/gestion/matriz - Respuesta: 400 - Tamaño inválido {} x {}", m, n);
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(java.util.Map.of("error", "Se requieren orígenes y destinos, con a lo sumo " + maxCeldas + " celdas"));
+        }
+        logger.info("POST /api/v1/gestion/matriz - Calculando matriz {} x {}", m, n);
+        // La matriz se calcula en el hilo del request (con el token del usuario); solo la escritura es diferida
+        MatrizDistanciasDTO matriz = calculoService.calcularMatriz(request.getOrigenes(), request.getDestinos());
+        StreamingResponseBody cuerpo = salida -> calculoService.escribirMatriz(matriz, salida);
+        logger.info("POST /api/v1/gestion/matriz - Respuesta: 200 - {} celdas", m * n);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(cuerpo);
+    }
 }
@@ -2,16 +2,23 @@ package com.backend.tpi.ms_gestion_calculos.controllers;
 
 import com.backend.tpi.ms_gestion_calculos.dtos.CostoRequestDTO;
 import com.backend.tpi.ms_gestion_calculos.dtos.CostoResponseDTO;
+import com.backend.tpi.ms_gestion_calculos.dtos.MatrizDistanciasDTO;
+import com.backend.tpi.ms_gestion_calculos.dtos.MatrizRequestDTO;
+import com.backend.tpi.ms_gestion_calculos.services.CalculoService;
 import com.backend.tpi.ms_gestion_calculos.services.PrecioService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controlador REST para cálculo de Precios
@@ -26,6 +33,12 @@ public class PrecioController {
     @Autowired
     private PrecioService precioService;
 
+    @Autowired
+    private CalculoService calculoService;
+
+    @Value("${app.matriz.max-celdas:10000}")
+    private long maxCeldas;
+
     /**
     * POST /api/v1/precio/estimado - Calcula un precio estimado para un traslado
     * Requiere rol CLIENTE u OPERADOR
@@ -71,4 +84,30 @@ public class PrecioController {
         logger.info("POST /api/v1/precio/solicitud/{}/costo - Respuesta: 200 - Costo total: {}", id, result.getCostoTotal());
         return result;
     }
+
+    /**
+    * POST /api/v1/precio/matriz - Cotiza M orígenes x N destinos x K cargas en una sola llamada
+    * Responde NDJSON (application/x-ndjson), una línea por celda y carga
+    * Requiere rol CLIENTE u OPERADOR
+     * @param request Orígenes, destinos y cargas (peso/volumen)
+     * @return Stream con el costo de cada celda
+     */
+    @PostMapping(value = "/matriz", produces = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('CLIENTE','OPERADOR')")
+    public ResponseEntity<?> getPreciosMatriz(@RequestBody MatrizRequestDTO request) {
+        int m = request.getOrigenes() != null ? request.getOrigenes().size() : 0;
+        int n = request.getDestinos() != null ? request.getDestinos().size() : 0;
+        int k = request.getCargas() != null && !request.getCargas().isEmpty() ? request.getCargas().size() : 1;
+        if (m == 0 || n == 0 || (long) m * n * k > maxCeldas) {
+            logger.warn("POST /api/v1/precio/matriz - Respuesta: 400 - Tamaño inválido {} x {} x {}", m, n, k);
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(java.util.Map.of("error", "Se requieren orígenes y destinos, con a lo sumo " + maxCeldas + " celdas"));
+        }
+        logger.info("POST /api/v1/precio/matriz - Cotizando {} x {} x {} cargas", m, n, k);
+        // La matriz se calcula en el hilo del request (con el token del usuario); la cotización se hace al escribir
+        MatrizDistanciasDTO matriz = calculoService.calcularMatriz(request.getOrigenes(), request.getDestinos());
+        StreamingResponseBody cuerpo = salida -> precioService.escribirMatrizPrecios(matriz, request.getCargas(), salida);
+        logger.info("POST /api/v1/precio/matriz - Respuesta: 200 - {} celdas", (long) m * n * k);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(cuerpo);
+    }
 }
@@ -0,0 +1,16 @@
+package com.backend.tpi.ms_gestion_calculos.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tamaño de carga a cotizar (peso en kg, volumen en m3)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CargaDTO {
+    private Double peso;
+    private Double volumen;
+}
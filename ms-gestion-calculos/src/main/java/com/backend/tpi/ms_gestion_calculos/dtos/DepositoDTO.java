@@ -12,4 +12,7 @@ public class DepositoDTO {
     private Long idCiudad;
     private String nombreCiudad;  // Permite especificar ciudad por nombre (alternativa a idCiudad)
     private Double costoEstadiaDiario;
+    private Integer capacidad;  // Contenedores que admite en simultáneo (opcional)
+    private java.time.LocalTime horaApertura;  // Horario de atención (opcional, null = 24 horas)
+    private java.time.LocalTime horaCierre;
 }
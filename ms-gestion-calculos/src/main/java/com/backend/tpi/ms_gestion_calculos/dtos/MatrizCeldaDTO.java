@@ -0,0 +1,21 @@
+package com.backend.tpi.ms_gestion_calculos.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * Una celda de la matriz, serializada como una línea NDJSON
+ * origen/destino/carga son índices en las listas del pedido
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MatrizCeldaDTO {
+    private int origen;
+    private int destino;
+    private Integer carga;
+    private Double distancia;  // en kilómetros
+    private Double duracion;   // en minutos
+    private String fuente;     // OSRM o HAVERSINE
+    private Double costoTotal;
+    private String error;
+}
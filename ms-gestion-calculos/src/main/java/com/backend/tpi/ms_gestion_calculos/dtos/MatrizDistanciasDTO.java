@@ -0,0 +1,20 @@
+package com.backend.tpi.ms_gestion_calculos.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado interno de la matriz de distancias, en arreglos primitivos indexados [origen][destino]
+ * NaN indica que no hay valor; las coordenadas null indican que la dirección no se pudo geocodificar
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatrizDistanciasDTO {
+    private CoordenadaDTO[] origenes;
+    private CoordenadaDTO[] destinos;
+    private double[][] distancias;
+    private double[][] duraciones;
+    private boolean[][] osrm;
+}
@@ -0,0 +1,17 @@
+package com.backend.tpi.ms_gestion_calculos.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Pedido de matriz M orígenes x N destinos (x K cargas para precios)
+ * Orígenes y destinos aceptan los mismos formatos que /distancia: "lat,lon" o dirección de texto
+ */
+@Data
+public class MatrizRequestDTO {
+    private List<String> origenes;
+    private List<String> destinos;
+    // Solo para /precio/matriz; si no se informa se cotiza con peso/volumen sin especificar
+    private List<CargaDTO> cargas;
+}
@@ -1,5 +1,6 @@
 package com.backend.tpi.ms_gestion_calculos.models;
 
+import com.backend.tpi.common.catalogo.CatalogoListener;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -10,6 +11,7 @@ import lombok.Data;
 @Entity
 @Data
 @Table(name = "ciudades")
+@EntityListeners(CatalogoListener.class)
 public class Ciudad {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,4 +33,12 @@ public class Deposito {
 
     @Column(name = "costo_estadia_diario")
     private BigDecimal costoEstadiaDiario;
+
+    // Contenedores que admite en simultáneo (null = sin límite conocido)
+    private Integer capacidad;
+
+    // Horario de recepción/despacho (ambos null = abierto las 24 horas; cierre anterior a apertura = cruza la medianoche)
+    private java.time.LocalTime horaApertura;
+
+    private java.time.LocalTime horaCierre;
 }
@@ -1,9 +1,11 @@
 package com.backend.tpi.ms_gestion_calculos.services;
 
+import com.backend.tpi.common.concurrencia.LlamadasCompartidas;
 import com.backend.tpi.ms_gestion_calculos.dtos.CoordenadaDTO;
 // import com.backend.tpi.ms_gestion_calculos.dtos.DepositoDTO; // ya no se usa
 import com.backend.tpi.ms_gestion_calculos.dtos.DistanciaRequestDTO;
 import com.backend.tpi.ms_gestion_calculos.dtos.DistanciaResponseDTO;
+import com.backend.tpi.ms_gestion_calculos.dtos.MatrizDistanciasDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,12 +28,37 @@ public class CalculoService {
     
     @Autowired
     private RestClient rutasClient;
+
+    @Autowired
+    private com.backend.tpi.common.metricas.RegistroMetricas registroMetricas;
+
+    @Autowired
+    private io.micrometer.observation.ObservationRegistry observationRegistry;
     
     // Nota: ya no usamos búsqueda por depósitos en la geocodificación; eliminada.
     
     @Value("${app.osrm.base-url:http://osrm:5000}")
     private String osrmBaseUrl;
 
+    // Tamaño máximo de tabla del servidor OSRM (orígenes + destinos por llamada a /table)
+    @Value("${app.matriz.osrm-max-coordenadas:100}")
+    private int osrmMaxCoordenadas;
+
+    // Base de Nominatim para /search (configurable para apuntar a un servidor simulado en pruebas de carga)
+    @Value("${app.nominatim.base-url:https://nominatim.openstreetmap.org}")
+    private String nominatimBaseUrl;
+
+    @Autowired
+    private com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+
+    // Geocodificaciones simultáneas de la misma dirección de texto comparten la consulta a Nominatim
+    private LlamadasCompartidas<String, CoordenadaDTO> geocodificacionesEnCurso;
+
+    @jakarta.annotation.PostConstruct
+    void iniciarLlamadasCompartidas() {
+        geocodificacionesEnCurso = new LlamadasCompartidas<>("nominatim.search", registroMetricas);
+    }
+
     /**
      * Calcula la distancia entre dos ubicaciones
      * Intenta usar OSRM (vía ms-rutas-transportistas) para rutas reales
@@ -50,7 +77,7 @@ public class CalculoService {
             if (coordOrigen == null || coordDestino == null) {
                 logger.warn("No se pudieron geocodificar las direcciones, usando cálculo Haversine");
                 double distancia = calcularDistanciaHaversine(request.getOrigen(), request.getDestino());
-                logger.info("Distancia calculada (Haversine): {} km", distancia);
+                logger.debug("Distancia calculada (Haversine): {} km", distancia);
                 return new DistanciaResponseDTO(distancia, null);
             }
             
@@ -70,12 +97,12 @@ public class CalculoService {
                     .body(DistanciaResponseDTO.class);
             
             if (distanciaResp != null && distanciaResp.getDistancia() != null) {
-                logger.info("Distancia calculada con OSRM: {} km", distanciaResp.getDistancia());
+                logger.debug("Distancia calculada con OSRM: {} km", distanciaResp.getDistancia());
                 return distanciaResp;
             } else {
                 logger.warn("OSRM no devolvió resultado válido, usando cálculo Haversine como fallback");
                 double distancia = calcularDistanciaHaversine(coordOrigen, coordDestino);
-                logger.info("Distancia calculada (Haversine fallback): {} km", distancia);
+                logger.debug("Distancia calculada (Haversine fallback): {} km", distancia);
                 return new DistanciaResponseDTO(distancia, null);
             }
             
@@ -84,11 +111,191 @@ public class CalculoService {
             logger.debug("Stack trace:", e);
             // Fallback a cálculo Haversine en caso de error
             double distancia = calcularDistanciaHaversine(request.getOrigen(), request.getDestino());
-            logger.info("Distancia calculada (Haversine por error): {} km", distancia);
+            logger.debug("Distancia calculada (Haversine por error): {} km", distancia);
             return new DistanciaResponseDTO(distancia, null);
         }
     }
 
+    /**
+     * Calcula la matriz de distancias entre todos los orígenes y destinos
+     * Cada dirección distinta se geocodifica una sola vez; los pares se resuelven con el servicio
+     * /table de OSRM (vía ms-rutas-transportistas) en bloques que respetan el tamaño máximo de tabla,
+     * en paralelo. Las celdas sin ruta OSRM caen a Haversine.
+     * @param origenes Orígenes ("lat,lon" o dirección)
+     * @param destinos Destinos ("lat,lon" o dirección)
+     * @return Matriz [origen][destino] con distancias (km) y duraciones (minutos)
+     */
+    public MatrizDistanciasDTO calcularMatriz(java.util.List<String> origenes, java.util.List<String> destinos) {
+        int m = origenes.size();
+        int n = destinos.size();
+        logger.info("Calculando matriz de distancias {} x {}", m, n);
+
+        java.util.Map<String, CoordenadaDTO> geocodificadas = new java.util.HashMap<>();
+        CoordenadaDTO[] coordOrigenes = geocodificarTodas(origenes, geocodificadas);
+        CoordenadaDTO[] coordDestinos = geocodificarTodas(destinos, geocodificadas);
+        logger.debug("Matriz: {} direcciones distintas geocodificadas para {} entradas", geocodificadas.size(), m + n);
+
+        double[][] distancias = new double[m][n];
+        double[][] duraciones = new double[m][n];
+        boolean[][] osrm = new boolean[m][n];
+        for (int i = 0; i < m; i++) {
+            java.util.Arrays.fill(distancias[i], Double.NaN);
+            java.util.Arrays.fill(duraciones[i], Double.NaN);
+        }
+
+        // Solo se envían a OSRM los puntos geocodificados
+        int[] iOrig = indicesValidos(coordOrigenes);
+        int[] iDest = indicesValidos(coordDestinos);
+        if (iOrig.length > 0 && iDest.length > 0) {
+            int max = Math.max(2, osrmMaxCoordenadas);
+            int bloqueOrig = Math.min(iOrig.length, max - Math.min(iDest.length, max / 2));
+            int bloqueDest = Math.min(iDest.length, max - bloqueOrig);
+            String token = extractBearerToken();
+            try (java.util.concurrent.ExecutorService bloques = java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int o = 0; o < iOrig.length; o += bloqueOrig) {
+                    int[] filas = java.util.Arrays.copyOfRange(iOrig, o, Math.min(iOrig.length, o + bloqueOrig));
+                    for (int d = 0; d < iDest.length; d += bloqueDest) {
+                        int[] columnas = java.util.Arrays.copyOfRange(iDest, d, Math.min(iDest.length, d + bloqueDest));
+                        // Cada bloque escribe celdas disjuntas de las matrices
+                        bloques.submit(com.backend.tpi.common.trazas.ManejadorTrazas.enContexto(observationRegistry,
+                                () -> calcularBloque(filas, columnas, coordOrigenes, coordDestinos, distancias, duraciones, osrm, token)));
+                    }
+                }
+            }
+        }
+
+        // Fallback Haversine para las celdas que OSRM no resolvió
+        for (int i = 0; i < m; i++) {
+            if (coordOrigenes[i] == null) continue;
+            for (int j = 0; j < n; j++) {
+                if (coordDestinos[j] != null && Double.isNaN(distancias[i][j])) {
+                    distancias[i][j] = calcularDistanciaHaversine(coordOrigenes[i], coordDestinos[j]);
+                }
+            }
+        }
+        return new MatrizDistanciasDTO(coordOrigenes, coordDestinos, distancias, duraciones, osrm);
+    }
+
+    /**
+     * Escribe la matriz de distancias como NDJSON, una línea por celda
+     * @param matriz Matriz calculada con {@link #calcularMatriz}
+     * @param salida Stream de la respuesta HTTP
+     */
+    public void escribirMatriz(MatrizDistanciasDTO matriz, java.io.OutputStream salida) throws java.io.IOException {
+        com.fasterxml.jackson.databind.ObjectWriter writer = escritorNdjson();
+        for (int i = 0; i < matriz.getOrigenes().length; i++) {
+            for (int j = 0; j < matriz.getDestinos().length; j++) {
+                writer.writeValue(salida, celda(matriz, i, j));
+                salida.write('\n');
+            }
+            salida.flush();
+        }
+    }
+
+    /**
+     * Writer de celdas que no cierra el stream de la respuesta después de cada línea
+     */
+    public com.fasterxml.jackson.databind.ObjectWriter escritorNdjson() {
+        return objectMapper.writerFor(com.backend.tpi.ms_gestion_calculos.dtos.MatrizCeldaDTO.class)
+                .without(com.fasterxml.jackson.core.JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Arma la celda [i][j] con distancia, duración y fuente, o el error si falta una coordenada
+     */
+    public com.backend.tpi.ms_gestion_calculos.dtos.MatrizCeldaDTO celda(MatrizDistanciasDTO matriz, int i, int j) {
+        com.backend.tpi.ms_gestion_calculos.dtos.MatrizCeldaDTO celda = new com.backend.tpi.ms_gestion_calculos.dtos.MatrizCeldaDTO();
+        celda.setOrigen(i);
+        celda.setDestino(j);
+        if (matriz.getOrigenes()[i] == null) {
+            celda.setError("No se pudo geocodificar el origen");
+        } else if (matriz.getDestinos()[j] == null) {
+            celda.setError("No se pudo geocodificar el destino");
+        } else {
+            celda.setDistancia(matriz.getDistancias()[i][j]);
+            double duracion = matriz.getDuraciones()[i][j];
+            celda.setDuracion(Double.isNaN(duracion) ? null : duracion);
+            celda.setFuente(matriz.getOsrm()[i][j] ? "OSRM" : "HAVERSINE");
+        }
+        return celda;
+    }
+
+    /**
+     * Resuelve un bloque de la matriz con una llamada a /api/v1/osrm/tabla de ms-rutas-transportistas
+     * Si falla, las celdas quedan en NaN y se completan con Haversine
+     */
+    private void calcularBloque(int[] filas, int[] columnas, CoordenadaDTO[] coordOrigenes, CoordenadaDTO[] coordDestinos,
+                                double[][] distancias, double[][] duraciones, boolean[][] osrm, String token) {
+        try {
+            java.util.Map<String, Object> body = new java.util.HashMap<>();
+            body.put("origenes", java.util.Arrays.stream(filas).mapToObj(i -> coordOrigenes[i]).toList());
+            body.put("destinos", java.util.Arrays.stream(columnas).mapToObj(j -> coordDestinos[j]).toList());
+            TablaDistancias tabla = rutasClient.post()
+                    .uri("/api/v1/osrm/tabla")
+                    .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                    .body(body)
+                    .retrieve()
+                    .body(TablaDistancias.class);
+            if (tabla == null || !tabla.exitoso() || tabla.distanciasKm() == null) {
+                logger.warn("OSRM /table no devolvió resultado para bloque {} x {}: {}",
+                        filas.length, columnas.length, tabla != null ? tabla.mensaje() : "sin respuesta");
+                return;
+            }
+            for (int a = 0; a < filas.length; a++) {
+                for (int b = 0; b < columnas.length; b++) {
+                    Double km = tabla.distanciasKm()[a][b];
+                    if (km == null) continue;
+                    distancias[filas[a]][columnas[b]] = km;
+                    Double minutos = tabla.duracionesMinutos() != null ? tabla.duracionesMinutos()[a][b] : null;
+                    if (minutos != null) duraciones[filas[a]][columnas[b]] = minutos;
+                    osrm[filas[a]][columnas[b]] = true;
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Error al calcular bloque {} x {} con OSRM /table: {}", filas.length, columnas.length, e.getMessage());
+        }
+    }
+
+    /** Marca en el mapa de geocodificadas las direcciones que fallaron, para no volver a consultarlas */
+    private static final CoordenadaDTO SIN_COORDENADAS = new CoordenadaDTO();
+
+    /**
+     * Geocodifica una lista de direcciones reutilizando las ya resueltas (una consulta por dirección distinta).
+     * Las direcciones que fallan también se recuerdan y quedan en null en el resultado.
+     */
+    private CoordenadaDTO[] geocodificarTodas(java.util.List<String> direcciones, java.util.Map<String, CoordenadaDTO> geocodificadas) {
+        CoordenadaDTO[] coords = new CoordenadaDTO[direcciones.size()];
+        int aciertos = 0;
+        for (int i = 0; i < coords.length; i++) {
+            String direccion = direcciones.get(i) != null ? direcciones.get(i).trim() : "";
+            if (geocodificadas.containsKey(direccion)) aciertos++;
+            CoordenadaDTO coordenada = geocodificadas.computeIfAbsent(direccion, d -> {
+                try {
+                    CoordenadaDTO resultado = geocodificar(d);
+                    return resultado != null ? resultado : SIN_COORDENADAS;
+                } catch (Exception e) {
+                    logger.warn("No se pudo geocodificar '{}': {}", d, e.getMessage());
+                    return SIN_COORDENADAS;
+                }
+            });
+            coords[i] = coordenada != SIN_COORDENADAS ? coordenada : null;
+        }
+        registroMetricas.registrarCache("matriz.geocodificacion", true, aciertos);
+        registroMetricas.registrarCache("matriz.geocodificacion", false, coords.length - aciertos);
+        return coords;
+    }
+
+    private static int[] indicesValidos(CoordenadaDTO[] coords) {
+        return java.util.stream.IntStream.range(0, coords.length).filter(i -> coords[i] != null).toArray();
+    }
+
+    /**
+     * Respuesta de /api/v1/osrm/tabla (matrices [origen][destino], km y minutos)
+     */
+    @com.fasterxml.jackson.annotation.JsonIgnoreProperties(ignoreUnknown = true)
+    record TablaDistancias(Double[][] distanciasKm, Double[][] duracionesMinutos, boolean exitoso, String mensaje) {}
+
     /**
      * Método público expuesto a controladores para geocodificar una dirección de texto o coordenadas
      * @param direccion texto o coordenadas
@@ -138,11 +345,19 @@ public class CalculoService {
                 logger.debug("Cadena con coma pero no es coordenadas numéricas: {} - continuando como texto", direccion);
             }
         }
-        
+
+        String texto = direccion;
+        return geocodificacionesEnCurso.ejecutar(texto, () -> geocodificarTexto(texto));
+    }
+
+    /**
+     * Geocodifica una dirección de texto: Nominatim y, si no hay resultado, heurística por ciudad
+     */
+    private CoordenadaDTO geocodificarTexto(String direccion) {
         // 2. Intentar geocodificación externa (Nominatim) COMO PRIMERA OPCIÓN
         try {
             String q = java.net.URLEncoder.encode(direccion, java.nio.charset.StandardCharsets.UTF_8);
-            String url = "https://nominatim.openstreetmap.org/search?q=" + q + "&format=json&limit=1&addressdetails=0";
+            String url = nominatimBaseUrl + "/search?q=" + q + "&format=json&limit=1&addressdetails=0";
             logger.debug("Intentando geocodificación externa (Nominatim) para: {}", direccion);
 
             java.net.http.HttpClient http = java.net.http.HttpClient.newBuilder().build();
@@ -151,7 +366,8 @@ public class CalculoService {
                     .header("User-Agent", "TPI-Backend-Geocoder/1.0 (contacto@dominio.example)")
                     .GET()
                     .build();
-            java.net.http.HttpResponse<String> resp = http.send(req, java.net.http.HttpResponse.BodyHandlers.ofString());
+            java.net.http.HttpResponse<String> resp = com.backend.tpi.common.trazas.HttpObservado.enviar(
+                    http, req, java.net.http.HttpResponse.BodyHandlers.ofString(), observationRegistry);
             if (resp.statusCode() == 200) {
                 String body = resp.body();
                 java.util.regex.Pattern pLat = java.util.regex.Pattern.compile("\\\"lat\\\"\\s*:\\s*\\\"([0-9+\\-\\.]+)\\\"");
@@ -161,7 +377,7 @@ public class CalculoService {
                 if (mLat.find() && mLon.find()) {
                     double lat = Double.parseDouble(mLat.group(1));
                     double lon = Double.parseDouble(mLon.group(1));
-                    logger.info("Geocodificación externa exitosa para '{}': lat={}, lon={}", direccion, lat, lon);
+                    logger.debug("Geocodificación externa exitosa para '{}': lat={}, lon={}", direccion, lat, lon);
                     return new CoordenadaDTO(lat, lon);
                 }
             } else {
@@ -175,19 +391,19 @@ public class CalculoService {
         // heurística por nombre de ciudad como fallback.
         String lower = direccion.toLowerCase();
         if (lower.contains("caba") || lower.contains("buenos") || lower.contains("b.a.s.a")) {
-            logger.info("Heurística por ciudad aplicada: CABA para '{}'", direccion);
+            logger.debug("Heurística por ciudad aplicada: CABA para '{}'", direccion);
             return new CoordenadaDTO(-34.6037, -58.3816);
         }
         if (lower.contains("rosario")) {
-            logger.info("Heurística por ciudad aplicada: Rosario para '{}'", direccion);
+            logger.debug("Heurística por ciudad aplicada: Rosario para '{}'", direccion);
             return new CoordenadaDTO(-32.9445, -60.6500);
         }
         if (lower.contains("cordoba")) {
-            logger.info("Heurística por ciudad aplicada: Córdoba para '{}'", direccion);
+            logger.debug("Heurística por ciudad aplicada: Córdoba para '{}'", direccion);
             return new CoordenadaDTO(-31.4167, -64.1833);
         }
         if (lower.contains("mendoza")) {
-            logger.info("Heurística por ciudad aplicada: Mendoza para '{}'", direccion);
+            logger.debug("Heurística por ciudad aplicada: Mendoza para '{}'", direccion);
             return new CoordenadaDTO(-32.8908, -68.8272);
         }
 
@@ -230,7 +446,7 @@ public class CalculoService {
      * @param destino Coordenadas del punto destino
      * @return Distancia en kilómetros (redondeada a 2 decimales)
      */
-    private double calcularDistanciaHaversine(CoordenadaDTO origen, CoordenadaDTO destino) {
+    static double calcularDistanciaHaversine(CoordenadaDTO origen, CoordenadaDTO destino) {
         double lat1 = origen.getLatitud();
         double lon1 = origen.getLongitud();
         double lat2 = destino.getLatitud();
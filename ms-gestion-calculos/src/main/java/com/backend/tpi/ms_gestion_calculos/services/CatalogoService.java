@@ -0,0 +1,62 @@
+package com.backend.tpi.ms_gestion_calculos.services;
+
+import com.backend.tpi.common.catalogo.Catalogo;
+import com.backend.tpi.common.catalogo.TablaReferencia;
+import com.backend.tpi.ms_gestion_calculos.models.Ciudad;
+import com.backend.tpi.ms_gestion_calculos.repositories.CiudadRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Catálogo en memoria de la tabla de referencia de ciudades
+ * Se carga al iniciar y se sirve desde una instantánea inmutable con lectura a través (TablaReferencia);
+ * los nombres se comparan sin distinguir mayúsculas (como findByNombreIgnoreCase).
+ * Crear una ciudad lo invalida solo (CatalogoListener).
+ */
+@Service
+public class CatalogoService implements Catalogo {
+
+    @Autowired
+    private CiudadRepository ciudadRepository;
+
+    // Cuánto se recuerda un nombre o ID que no existe antes de volver a consultar la base
+    @Value("${app.catalogo.ausentes-ttl-ms:60000}")
+    private long ausentesTtlMs;
+
+    private TablaReferencia<Ciudad> ciudades;
+
+    @PostConstruct
+    public void crearTablas() {
+        ciudades = new TablaReferencia<>("ciudades", ciudadRepository::findAll, Ciudad::getId, Ciudad::getNombre,
+                ciudadRepository::findByNombreIgnoreCase, ciudadRepository::findById, true,
+                Duration.ofMillis(ausentesTtlMs));
+    }
+
+    /**
+     * Carga el catálogo completo cuando la aplicación terminó de iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refrescar() {
+        ciudades.cargar();
+    }
+
+    @Override
+    public void invalidar() {
+        ciudades.invalidar();
+    }
+
+    public Optional<Ciudad> findCiudadById(Long id) {
+        return ciudades.porId(id);
+    }
+
+    public Optional<Ciudad> findCiudadByNombreIgnoreCase(String nombre) {
+        return ciudades.porNombre(nombre);
+    }
+}
@@ -28,6 +28,9 @@ public class DepositoService {
     @Autowired
     private CiudadRepository ciudadRepository;
 
+    @Autowired
+    private CatalogoService catalogoService;
+
     @Autowired
     private NominatimService nominatimService;
 
@@ -65,7 +68,7 @@ public class DepositoService {
         }
         // Prioridad 2: Si se proporciona ID de ciudad, usarlo
         else if (dto.getIdCiudad() != null) {
-            ciudad = ciudadRepository.findById(dto.getIdCiudad())
+            ciudad = catalogoService.findCiudadById(dto.getIdCiudad())
                 .orElseThrow(() -> new RuntimeException("Ciudad no encontrada con id: " + dto.getIdCiudad()));
             logger.info("Ciudad asignada por ID: {} (ID: {})", ciudad.getNombre(), ciudad.getId());
         }
@@ -135,7 +138,7 @@ public class DepositoService {
      * @return Ciudad encontrada o creada
      */
     private Ciudad obtenerOCrearCiudadPorNombre(String nombreCiudad) {
-        return ciudadRepository.findByNombreIgnoreCase(nombreCiudad)
+        return catalogoService.findCiudadByNombreIgnoreCase(nombreCiudad)
             .orElseGet(() -> {
                 logger.info("Ciudad '{}' no existe, creándola...", nombreCiudad);
                 Ciudad nuevaCiudad = new Ciudad();
@@ -168,7 +171,7 @@ public class DepositoService {
                 nombreCiudad, ubicacion.getProvincia(), ubicacion.getPais());
             
             // Buscar si la ciudad ya existe en la base de datos
-            return ciudadRepository.findByNombreIgnoreCase(nombreCiudad)
+            return catalogoService.findCiudadByNombreIgnoreCase(nombreCiudad)
                 .orElseGet(() -> {
                     // Si no existe, crearla
                     logger.info("Ciudad '{}' no existe en la base de datos, creándola...", nombreCiudad);
@@ -236,6 +239,15 @@ public class DepositoService {
             logger.debug("Actualizando costoEstadiaDiario: {}", dto.getCostoEstadiaDiario());
             deposito.setCostoEstadiaDiario(java.math.BigDecimal.valueOf(dto.getCostoEstadiaDiario()));
         }
+        if (dto.getCapacidad() != null) {
+            logger.debug("Actualizando capacidad: {}", dto.getCapacidad());
+            deposito.setCapacidad(dto.getCapacidad());
+        }
+        if (dto.getHoraApertura() != null || dto.getHoraCierre() != null) {
+            logger.debug("Actualizando horario: {} - {}", dto.getHoraApertura(), dto.getHoraCierre());
+            deposito.setHoraApertura(dto.getHoraApertura());
+            deposito.setHoraCierre(dto.getHoraCierre());
+        }
         
         // Actualizar ciudad si se proporciona nombreCiudad o idCiudad
         if (dto.getNombreCiudad() != null && !dto.getNombreCiudad().trim().isEmpty()) {
@@ -244,7 +256,7 @@ public class DepositoService {
             deposito.setCiudad(ciudad);
             logger.debug("Actualizando ciudad por nombre: {} (ID: {})", ciudad.getNombre(), ciudad.getId());
         } else if (dto.getIdCiudad() != null) {
-            Ciudad ciudad = ciudadRepository.findById(dto.getIdCiudad())
+            Ciudad ciudad = catalogoService.findCiudadById(dto.getIdCiudad())
                 .orElseThrow(() -> new RuntimeException("Ciudad no encontrada con id: " + dto.getIdCiudad()));
             deposito.setCiudad(ciudad);
             logger.debug("Actualizando ciudad por ID: {} (ID: {})", ciudad.getNombre(), ciudad.getId());
@@ -275,6 +287,9 @@ public class DepositoService {
         if (deposito.getCostoEstadiaDiario() != null) {
             dto.setCostoEstadiaDiario(deposito.getCostoEstadiaDiario().doubleValue());
         }
+        dto.setCapacidad(deposito.getCapacidad());
+        dto.setHoraApertura(deposito.getHoraApertura());
+        dto.setHoraCierre(deposito.getHoraCierre());
         if (deposito.getCiudad() != null) {
             dto.setIdCiudad(deposito.getCiudad().getId());
             dto.setNombreCiudad(deposito.getCiudad().getNombre());
@@ -302,6 +317,9 @@ public class DepositoService {
         if (dto.getCostoEstadiaDiario() != null) {
             deposito.setCostoEstadiaDiario(java.math.BigDecimal.valueOf(dto.getCostoEstadiaDiario()));
         }
+        deposito.setCapacidad(dto.getCapacidad());
+        deposito.setHoraApertura(dto.getHoraApertura());
+        deposito.setHoraCierre(dto.getHoraCierre());
         return deposito;
     }
 }
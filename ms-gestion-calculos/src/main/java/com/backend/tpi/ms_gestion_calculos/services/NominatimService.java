@@ -1,5 +1,6 @@
 package com.backend.tpi.ms_gestion_calculos.services;
 
+import com.backend.tpi.common.concurrencia.LlamadasCompartidas;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -24,10 +25,18 @@ public class NominatimService {
 
     private final RestClient restClient;
 
-    public NominatimService(@Value("${app.nominatim.base-url:https://nominatim.openstreetmap.org}") String nominatimBaseUrl) {
+    // Consultas simultáneas por las mismas coordenadas comparten la llamada (y su espera de 1 s)
+    private final LlamadasCompartidas<String, UbicacionDTO> ubicacionesEnCurso;
+
+    public NominatimService(@Value("${app.nominatim.base-url:https://nominatim.openstreetmap.org}") String nominatimBaseUrl,
+                            io.micrometer.observation.ObservationRegistry observationRegistry,
+                            com.backend.tpi.common.metricas.RegistroMetricas registroMetricas) {
         this.nominatimBaseUrl = nominatimBaseUrl;
+        this.ubicacionesEnCurso = new LlamadasCompartidas<>("nominatim.reverse", registroMetricas);
         this.restClient = RestClient.builder()
                 .baseUrl(nominatimBaseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new com.backend.tpi.common.metricas.ConvencionClienteHttp())
                 .build();
     }
 
@@ -43,12 +52,17 @@ public class NominatimService {
      * @return Información de ubicación (ciudad, provincia, país, etc.), null si falla
      */
     public UbicacionDTO obtenerUbicacion(BigDecimal latitud, BigDecimal longitud) {
+        return ubicacionesEnCurso.ejecutar(latitud.toPlainString() + "," + longitud.toPlainString(),
+                () -> consultarUbicacion(latitud, longitud));
+    }
+
+    private UbicacionDTO consultarUbicacion(BigDecimal latitud, BigDecimal longitud) {
         try {
             // Nominatim requiere máximo 1 request por segundo
             // Agregamos un pequeño delay para cumplir con la política de uso
             Thread.sleep(1100);
             
-            log.info("Consultando Nominatim para coordenadas: lat={}, lon={}", latitud, longitud);
+            log.debug("Consultando Nominatim para coordenadas: lat={}, lon={}", latitud, longitud);
             
             // Nominatim reverse endpoint: /reverse?lat={lat}&lon={lon}&format=json
             // Agregamos User-Agent requerido por las políticas de uso de Nominatim
@@ -73,7 +87,7 @@ public class NominatimService {
                 return null;
             }
 
-            log.info("Ubicación encontrada: {}", response.getDisplayName());
+            log.debug("Ubicación encontrada: {}", response.getDisplayName());
 
             UbicacionDTO ubicacion = new UbicacionDTO();
             ubicacion.setCiudad(extraerNombreCiudad(response.getAddress()));
@@ -64,25 +64,14 @@ public class PrecioService {
         // obtener tarifa base (la más reciente si existe)
         logger.debug("Obteniendo tarifa base desde repositorio");
         Tarifa tarifa = tarifaRepository.findTopByOrderByIdDesc();
-        double costoBase = tarifa != null && tarifa.getCostoBaseGestionFijo() != null ? tarifa.getCostoBaseGestionFijo().doubleValue() : 0.0;
-        double precioPorKm = tarifa != null && tarifa.getValorLitroCombustible() != null ? tarifa.getValorLitroCombustible().doubleValue() : 1.0;
+        double costoBase = costoBase(tarifa);
+        double precioPorKm = precioPorKm(tarifa);
         logger.debug("Tarifa aplicada - costoBase: {}, precioPorKm: {}", costoBase, precioPorKm);
 
         // buscar cargo por volumen/peso aplicable
         logger.debug("Buscando cargo por volumen/peso aplicable");
         List<TarifaVolumenPeso> tvps = tarifaVolumenPesoRepository.findAll();
-        double cargoVolumenPeso = 0.0;
-        if (tvps != null && !tvps.isEmpty()) {
-            for (TarifaVolumenPeso t : tvps) {
-                boolean aplicaPeso = request.getPeso() == null || t.getPesoMax() == null || request.getPeso() <= t.getPesoMax();
-                boolean aplicaVolumen = request.getVolumen() == null || t.getVolumenMax() == null || request.getVolumen() <= t.getVolumenMax();
-                if (aplicaPeso && aplicaVolumen) {
-                    cargoVolumenPeso = t.getCostoPorKmBase() != null ? t.getCostoPorKmBase() : 0.0;
-                    logger.debug("Cargo por volumen/peso encontrado: {}", cargoVolumenPeso);
-                    break;
-                }
-            }
-        }
+        double cargoVolumenPeso = cargoVolumenPeso(tvps, request.getPeso(), request.getVolumen());
 
         double costo = costoBase + (precioPorKm * distancia) + cargoVolumenPeso;
         logger.debug("Costo calculado (antes de redondeo): {}", costo);
@@ -175,6 +164,82 @@ public class PrecioService {
         return resp;
     }
 
+    /**
+     * Calcula la matriz de distancias y la cotiza para cada carga, escribiendo NDJSON (una línea por celda y carga)
+     * Tarifa y tabla volumen/peso se leen una sola vez y el cargo de cada carga se resuelve antes de recorrer
+     * la matriz; cada fila se cotiza en un bucle sobre arreglos primitivos con la misma fórmula que
+     * {@link #calcularCostoEstimado}: costoBase + precioPorKm * distancia + cargoPorVolumenPeso
+     * @param matriz Matriz de distancias ya calculada
+     * @param cargas Cargas a cotizar (vacía = una carga sin peso/volumen)
+     * @param salida Stream de la respuesta HTTP
+     */
+    public void escribirMatrizPrecios(com.backend.tpi.ms_gestion_calculos.dtos.MatrizDistanciasDTO matriz,
+                                      List<com.backend.tpi.ms_gestion_calculos.dtos.CargaDTO> cargas,
+                                      java.io.OutputStream salida) throws java.io.IOException {
+        Tarifa tarifa = tarifaRepository.findTopByOrderByIdDesc();
+        double costoBase = costoBase(tarifa);
+        double precioPorKm = precioPorKm(tarifa);
+        List<TarifaVolumenPeso> tvps = tarifaVolumenPesoRepository.findAll();
+
+        List<com.backend.tpi.ms_gestion_calculos.dtos.CargaDTO> lista = cargas != null && !cargas.isEmpty()
+                ? cargas
+                : java.util.Collections.singletonList(new com.backend.tpi.ms_gestion_calculos.dtos.CargaDTO());
+        double[] fijoPorCarga = new double[lista.size()];
+        for (int k = 0; k < fijoPorCarga.length; k++) {
+            com.backend.tpi.ms_gestion_calculos.dtos.CargaDTO c = lista.get(k) != null ? lista.get(k) : new com.backend.tpi.ms_gestion_calculos.dtos.CargaDTO();
+            fijoPorCarga[k] = costoBase + cargoVolumenPeso(tvps, c.getPeso(), c.getVolumen());
+        }
+        logger.info("Cotizando matriz {} x {} x {} cargas - costoBase: {}, precioPorKm: {}",
+                matriz.getOrigenes().length, matriz.getDestinos().length, fijoPorCarga.length, costoBase, precioPorKm);
+
+        com.fasterxml.jackson.databind.ObjectWriter writer = calculoService.escritorNdjson();
+        int n = matriz.getDestinos().length;
+        double[] precios = new double[n];
+        for (int i = 0; i < matriz.getOrigenes().length; i++) {
+            double[] distancias = matriz.getDistancias()[i];
+            for (int k = 0; k < fijoPorCarga.length; k++) {
+                double fijo = fijoPorCarga[k];
+                for (int j = 0; j < n; j++) {
+                    // redondear a 2 decimales (las celdas con error de geocodificación no usan el valor)
+                    precios[j] = Math.round((fijo + precioPorKm * distancias[j]) * 100.0) / 100.0;
+                }
+                for (int j = 0; j < n; j++) {
+                    com.backend.tpi.ms_gestion_calculos.dtos.MatrizCeldaDTO celda = calculoService.celda(matriz, i, j);
+                    celda.setCarga(k);
+                    if (celda.getError() == null) celda.setCostoTotal(precios[j]);
+                    writer.writeValue(salida, celda);
+                    salida.write('\n');
+                }
+            }
+            salida.flush();
+        }
+    }
+
+    static double costoBase(Tarifa tarifa) {
+        return tarifa != null && tarifa.getCostoBaseGestionFijo() != null ? tarifa.getCostoBaseGestionFijo().doubleValue() : 0.0;
+    }
+
+    static double precioPorKm(Tarifa tarifa) {
+        return tarifa != null && tarifa.getValorLitroCombustible() != null ? tarifa.getValorLitroCombustible().doubleValue() : 1.0;
+    }
+
+    /**
+     * Cargo del primer rango volumen/peso que admite la carga (0 si ninguno aplica)
+     */
+    static double cargoVolumenPeso(List<TarifaVolumenPeso> tvps, Double peso, Double volumen) {
+        if (tvps == null) return 0.0;
+        for (TarifaVolumenPeso t : tvps) {
+            boolean aplicaPeso = peso == null || t.getPesoMax() == null || peso <= t.getPesoMax();
+            boolean aplicaVolumen = volumen == null || t.getVolumenMax() == null || volumen <= t.getVolumenMax();
+            if (aplicaPeso && aplicaVolumen) {
+                double cargo = t.getCostoPorKmBase() != null ? t.getCostoPorKmBase() : 0.0;
+                logger.debug("Cargo por volumen/peso encontrado: {}", cargo);
+                return cargo;
+            }
+        }
+        return 0.0;
+    }
+
     /**
      * Helper: extrae token Bearer del SecurityContext si existe
      */
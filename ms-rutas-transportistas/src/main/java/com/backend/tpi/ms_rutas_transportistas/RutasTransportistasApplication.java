@@ -2,8 +2,10 @@ package com.backend.tpi.ms_rutas_transportistas;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RutasTransportistasApplication {
 
     public static void main(String[] args) {
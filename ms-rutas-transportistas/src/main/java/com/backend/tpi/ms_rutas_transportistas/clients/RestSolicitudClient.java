@@ -1,14 +1,19 @@
 package com.backend.tpi.ms_rutas_transportistas.clients;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.client.HttpClientErrorException;
 
 @Component
 public class RestSolicitudClient implements SolicitudClient {
 
+    private static final Logger logger = LoggerFactory.getLogger(RestSolicitudClient.class);
+
     @Autowired
     private org.springframework.web.client.RestClient solicitudesClient;
 
@@ -21,7 +26,7 @@ public class RestSolicitudClient implements SolicitudClient {
     }
 
     @Override
-    public void cambiarEstado(Long solicitudId, String nuevoEstado) {
+    public boolean cambiarEstado(Long solicitudId, String nuevoEstado) {
         try {
             String token = extractBearerToken();
             solicitudesClient.put()
@@ -29,6 +34,12 @@ public class RestSolicitudClient implements SolicitudClient {
                     .headers(h -> { if (token != null) h.setBearerAuth(token); })
                     .retrieve()
                     .toBodilessEntity();
+            return true;
+        } catch (HttpClientErrorException.Conflict e) {
+            // Transición no permitida desde el estado actual (ej: la solicitud ya avanzó o se canceló)
+            logger.warn("ms-solicitudes rechazó el cambio de la solicitud {} a {}: {}", solicitudId, nuevoEstado,
+                    e.getResponseBodyAsString());
+            return false;
         } catch (Exception e) {
             throw new RuntimeException("Error cambiando estado de solicitud: " + e.getMessage(), e);
         }
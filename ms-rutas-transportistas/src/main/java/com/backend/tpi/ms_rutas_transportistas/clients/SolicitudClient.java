@@ -1,6 +1,10 @@
 package com.backend.tpi.ms_rutas_transportistas.clients;
 
 public interface SolicitudClient {
-    void cambiarEstado(Long solicitudId, String nuevoEstado);
+    /**
+     * Cambia el estado de una solicitud en ms-solicitudes
+     * @return false si ms-solicitudes rechazó la transición (409): no tiene sentido reintentarla
+     */
+    boolean cambiarEstado(Long solicitudId, String nuevoEstado);
     void finalizarSolicitud(Long solicitudId, double costoFinal, double tiempoReal);
 }
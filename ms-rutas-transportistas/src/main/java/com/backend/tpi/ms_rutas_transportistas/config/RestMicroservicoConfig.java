@@ -1,5 +1,9 @@
 package com.backend.tpi.ms_rutas_transportistas.config;
 
+import com.backend.tpi.common.metricas.ConvencionClienteHttp;
+import com.backend.tpi.common.seguridad.ConfianzaInternaInterceptor;
+import com.backend.tpi.common.seguridad.DecodificadorJwtCacheado;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,25 +16,39 @@ public class RestMicroservicoConfig {
 
     // Cliente para ms-solicitudes. Configurar en application.yml como app.solicitudes.base-url
     @Bean
-    public RestClient solicitudesClient(@Value("${app.solicitudes.base-url:http://localhost:8083}") String baseUrl) {
+    public RestClient solicitudesClient(@Value("${app.solicitudes.base-url:http://localhost:8083}") String baseUrl,
+                                        ObservationRegistry observationRegistry,
+                                        DecodificadorJwtCacheado decodificadorJwt) {
         return RestClient.builder()
                 .baseUrl(baseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new ConvencionClienteHttp())
+                .requestInterceptor(new ConfianzaInternaInterceptor(decodificadorJwt))
                 .build();
     }
 
     // Cliente para ms-gestion-calculos. Configurar en application.yml como app.calculos.base-url
     // Bean principal nombrado "calculosClient" para inyección por nombre
     @Bean("calculosClient")
-    public RestClient calculosClient(@Value("${app.calculos.base-url:http://localhost:8081}") String baseUrl) {
+    public RestClient calculosClient(@Value("${app.calculos.base-url:http://localhost:8081}") String baseUrl,
+                                     ObservationRegistry observationRegistry,
+                                     DecodificadorJwtCacheado decodificadorJwt) {
         return RestClient.builder()
                 .baseUrl(baseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new ConvencionClienteHttp())
+                .requestInterceptor(new ConfianzaInternaInterceptor(decodificadorJwt))
                 .build();
     }
 
     // RestTemplate bean para compatibilidad con código legacy
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ObservationRegistry observationRegistry, DecodificadorJwtCacheado decodificadorJwt) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setObservationRegistry(observationRegistry);
+        restTemplate.setObservationConvention(new ConvencionClienteHttp());
+        restTemplate.getInterceptors().add(new ConfianzaInternaInterceptor(decodificadorJwt));
+        return restTemplate;
     }
 
     // Proveer un RestTemplate simple para inyección en servicios que lo requieran
@@ -0,0 +1,49 @@
+package com.backend.tpi.ms_rutas_transportistas.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Alinea las secuencias de IDs con los datos existentes al iniciar
+ * Las tablas rutas, tramos, ruta_opciones y camiones usaban IDENTITY; al pasar a secuencias
+ * con asignación por bloques (allocationSize = 50) la secuencia nueva empieza en 1 y
+ * colisionaría con las filas ya creadas. Se adelanta cada secuencia hasta el máximo ID actual.
+ */
+@Component
+public class SecuenciasInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecuenciasInitializer.class);
+
+    // secuencia, tabla, columna de ID
+    private static final String[][] SECUENCIAS = {
+            {"rutas_seq", "rutas", "id_ruta"},
+            {"tramos_seq", "tramos", "id_tramo"},
+            {"ruta_opciones_seq", "ruta_opciones", "id_ruta_opcion"},
+            {"camiones_seq", "camiones", "id"}
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (String[] s : SECUENCIAS) {
+            try {
+                // Con el optimizador pooled cada valor de la secuencia reserva los IDs (valor-49 .. valor),
+                // por lo que alcanza con que el último valor sea >= al máximo ID existente
+                Long valor = jdbcTemplate.queryForObject(
+                        "SELECT setval('" + s[0] + "', GREATEST((SELECT last_value FROM " + s[0] + "), "
+                                + "(SELECT COALESCE(MAX(" + s[2] + "), 0) FROM " + s[1] + ")))",
+                        Long.class);
+                logger.debug("Secuencia {} alineada en {}", s[0], valor);
+            } catch (Exception e) {
+                logger.warn("No se pudo alinear la secuencia {}: {}", s[0], e.getMessage());
+            }
+        }
+    }
+}
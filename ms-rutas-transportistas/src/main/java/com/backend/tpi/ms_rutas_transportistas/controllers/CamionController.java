@@ -1,6 +1,7 @@
 package com.backend.tpi.ms_rutas_transportistas.controllers;
 
 import com.backend.tpi.ms_rutas_transportistas.dtos.CamionDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.IndisponibilidadCamionDTO;
 import com.backend.tpi.ms_rutas_transportistas.services.CamionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +24,9 @@ public class CamionController {
     @Autowired
     private CamionService camionService;
 
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.ProgramacionService programacionService;
+
     /**
      * Obtiene la lista de todos los camiones registrados
      * @return Lista de camiones
@@ -120,4 +124,59 @@ public class CamionController {
         logger.info("DELETE /api/v1/camiones/{} - Respuesta: 204 - Camión eliminado", dominio);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Lista los períodos de indisponibilidad vigentes o futuros de un camión
+     * @param dominio Dominio del camión
+     * @return Períodos ordenados por inicio
+     */
+    @GetMapping("/{dominio}/indisponibilidades")
+    @PreAuthorize("hasAnyRole('OPERADOR','TRANSPORTISTA','ADMIN')")
+    @Operation(summary = "Listar indisponibilidades del camión")
+    public List<IndisponibilidadCamionDTO> getIndisponibilidades(@PathVariable String dominio) {
+        logger.info("GET /api/v1/camiones/{}/indisponibilidades - Listando indisponibilidades", dominio);
+        List<IndisponibilidadCamionDTO> result = programacionService.listarIndisponibilidades(dominio);
+        logger.info("GET /api/v1/camiones/{}/indisponibilidades - Respuesta: 200 - {} períodos", dominio, result.size());
+        return result;
+    }
+
+    /**
+     * Registra un período en que el camión no puede operar; los tramos programados que caen en él se reprograman
+     * @param dominio Dominio del camión
+     * @param dto Período (desde, hasta, motivo)
+     * @return Período registrado
+     */
+    @PostMapping("/{dominio}/indisponibilidades")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Registrar indisponibilidad del camión")
+    public ResponseEntity<?> registrarIndisponibilidad(@PathVariable String dominio, @RequestBody IndisponibilidadCamionDTO dto) {
+        logger.info("POST /api/v1/camiones/{}/indisponibilidades - Registrando período", dominio);
+        try {
+            IndisponibilidadCamionDTO creada = programacionService.registrarIndisponibilidad(dominio, dto);
+            logger.info("POST /api/v1/camiones/{}/indisponibilidades - Respuesta: 200 - Período {} registrado", dominio, creada.getId());
+            return ResponseEntity.ok(creada);
+        } catch (IllegalArgumentException e) {
+            logger.warn("POST /api/v1/camiones/{}/indisponibilidades - Respuesta: 400 - {}", dominio, e.getMessage());
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Elimina un período de indisponibilidad
+     * @param dominio Dominio del camión
+     * @param id ID del período
+     * @return Respuesta sin contenido
+     */
+    @DeleteMapping("/{dominio}/indisponibilidades/{id}")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Eliminar indisponibilidad del camión")
+    public ResponseEntity<Void> eliminarIndisponibilidad(@PathVariable String dominio, @PathVariable Long id) {
+        logger.info("DELETE /api/v1/camiones/{}/indisponibilidades/{} - Eliminando período", dominio, id);
+        if (!programacionService.eliminarIndisponibilidad(dominio, id)) {
+            logger.warn("DELETE /api/v1/camiones/{}/indisponibilidades/{} - Respuesta: 404", dominio, id);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("DELETE /api/v1/camiones/{}/indisponibilidades/{} - Respuesta: 204", dominio, id);
+        return ResponseEntity.noContent().build();
+    }
 }
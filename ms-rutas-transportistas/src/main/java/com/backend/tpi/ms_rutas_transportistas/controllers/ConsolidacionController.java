@@ -0,0 +1,52 @@
+package com.backend.tpi.ms_rutas_transportistas.controllers;
+
+import com.backend.tpi.ms_rutas_transportistas.dtos.PlanConsolidacionDTO;
+import com.backend.tpi.ms_rutas_transportistas.services.ConsolidacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Controlador REST de consolidación de solicitudes en rutas compartidas
+ * Devuelve una propuesta; no crea rutas ni asigna camiones.
+ */
+@RestController
+@RequestMapping("/api/v1/rutas/consolidacion")
+@Tag(name = "Consolidación", description = "Propuesta de rutas compartidas para solicitudes programadas")
+public class ConsolidacionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsolidacionController.class);
+
+    @Autowired
+    private ConsolidacionService consolidacionService;
+
+    /**
+     * GET /api/v1/rutas/consolidacion - Propone rutas compartidas para las solicitudes PROGRAMADA
+     * creadas en la ventana [desde, hasta)
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Proponer consolidación de solicitudes programadas en rutas compartidas")
+    public ResponseEntity<?> planificar(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        logger.info("GET /api/v1/rutas/consolidacion - Desde {} hasta {}", desde, hasta);
+        if (desde != null && hasta != null && !desde.isBefore(hasta)) {
+            logger.warn("GET /api/v1/rutas/consolidacion - Respuesta: 400 - Ventana inválida");
+            return ResponseEntity.badRequest().body(Map.of("error", "'desde' debe ser anterior a 'hasta'"));
+        }
+        PlanConsolidacionDTO plan = consolidacionService.planificar(desde, hasta);
+        logger.info("GET /api/v1/rutas/consolidacion - Respuesta: 200 - {} rutas, ahorro {}",
+                plan.getRutas().size(), plan.getAhorro());
+        return ResponseEntity.ok(plan);
+    }
+}
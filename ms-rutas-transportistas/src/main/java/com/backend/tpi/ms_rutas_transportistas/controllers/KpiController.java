@@ -0,0 +1,132 @@
+package com.backend.tpi.ms_rutas_transportistas.controllers;
+
+import com.backend.tpi.ms_rutas_transportistas.dtos.KpiDTO;
+import com.backend.tpi.ms_rutas_transportistas.services.KpiService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controlador REST de KPIs operativos
+ * Lee los agregados precalculados (por día, camión y depósito); no recorre la tabla de tramos.
+ * Las fechas son días ISO (YYYY-MM-DD); sin rango se usan los últimos app.kpis.dias-por-defecto días.
+ */
+@RestController
+@RequestMapping("/api/v1/kpis")
+@Tag(name = "KPIs", description = "Indicadores operativos precalculados")
+public class KpiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiController.class);
+
+    @Autowired
+    private KpiService kpiService;
+
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.OcupacionDepositoService ocupacionDepositoService;
+
+    /**
+     * GET /api/v1/kpis - Resumen del período (puntualidad, demoras, costo por km)
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Resumen de KPIs del período")
+    public ResponseEntity<?> resumen(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        logger.info("GET /api/v1/kpis - Resumen desde {} hasta {}", desde, hasta);
+        try {
+            KpiDTO resumen = kpiService.resumen(desde, hasta);
+            logger.info("GET /api/v1/kpis - Respuesta: 200 - {} tramos finalizados", resumen.getTramosFinalizados());
+            return ResponseEntity.ok(resumen);
+        } catch (IllegalArgumentException e) {
+            logger.warn("GET /api/v1/kpis - Respuesta: 400 - {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/v1/kpis/dias - KPIs de cada día con actividad
+     */
+    @GetMapping("/dias")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "KPIs por día")
+    public ResponseEntity<?> porDia(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        logger.info("GET /api/v1/kpis/dias - Desde {} hasta {}", desde, hasta);
+        try {
+            List<KpiDTO> result = kpiService.porDia(desde, hasta);
+            logger.info("GET /api/v1/kpis/dias - Respuesta: 200 - {} días", result.size());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("GET /api/v1/kpis/dias - Respuesta: 400 - {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/v1/kpis/camiones - KPIs por camión, con su utilización en el período
+     */
+    @GetMapping("/camiones")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "KPIs por camión")
+    public ResponseEntity<?> porCamion(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String dominio) {
+        logger.info("GET /api/v1/kpis/camiones - Desde {} hasta {} (dominio: {})", desde, hasta, dominio);
+        try {
+            List<KpiDTO> result = kpiService.porCamion(desde, hasta, dominio);
+            logger.info("GET /api/v1/kpis/camiones - Respuesta: 200 - {} camiones", result.size());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("GET /api/v1/kpis/camiones - Respuesta: 400 - {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/v1/kpis/depositos - KPIs por depósito (llegadas y estadía)
+     */
+    @GetMapping("/depositos")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "KPIs por depósito")
+    public ResponseEntity<?> porDeposito(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long depositoId) {
+        logger.info("GET /api/v1/kpis/depositos - Desde {} hasta {} (depósito: {})", desde, hasta, depositoId);
+        try {
+            List<KpiDTO> result = kpiService.porDeposito(desde, hasta, depositoId);
+            logger.info("GET /api/v1/kpis/depositos - Respuesta: 200 - {} depósitos", result.size());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("GET /api/v1/kpis/depositos - Respuesta: 400 - {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/v1/kpis/depositos/ocupacion - Ocupación actual de los depósitos e histograma de estadías
+     */
+    @GetMapping("/depositos/ocupacion")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Ocupación actual e histograma de estadías por depósito")
+    public List<com.backend.tpi.ms_rutas_transportistas.dtos.OcupacionDepositoDTO> ocupacion(
+            @RequestParam(required = false) Long depositoId) {
+        logger.info("GET /api/v1/kpis/depositos/ocupacion - Consultando ocupación (depósito: {})", depositoId);
+        List<com.backend.tpi.ms_rutas_transportistas.dtos.OcupacionDepositoDTO> result = ocupacionDepositoService.consultar(depositoId);
+        logger.info("GET /api/v1/kpis/depositos/ocupacion - Respuesta: 200 - {} depósitos", result.size());
+        return result;
+    }
+}
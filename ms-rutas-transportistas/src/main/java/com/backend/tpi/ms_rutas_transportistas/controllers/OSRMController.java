@@ -60,6 +60,27 @@ public class OSRMController {
         return ResponseEntity.ok(response);
     }
 
-    // Only /distancia endpoint is kept for external use; other route calculation
+    /**
+     * Calcula la matriz de distancias y duraciones entre varios orígenes y destinos
+     * Usado por ms-gestion-calculos para cotizar muchos trayectos en una sola llamada
+     * @param request Orígenes y destinos (lat, lon)
+     * @return Matriz [origen][destino] con distancias en km y duraciones en minutos
+     */
+    @PostMapping("/tabla")
+    @PreAuthorize("hasAnyRole('CLIENTE','OPERADOR','ADMIN')")
+    @Operation(summary = "Calcular matriz de distancias entre orígenes y destinos",
+            description = "Usa el servicio /table de OSRM; el llamador debe fragmentar matrices grandes")
+    public ResponseEntity<com.backend.tpi.ms_rutas_transportistas.dtos.osrm.TablaDistanciasDTO> getTabla(
+            @RequestBody com.backend.tpi.ms_rutas_transportistas.dtos.osrm.TablaRequestDTO request) {
+        int origenes = request.getOrigenes() != null ? request.getOrigenes().size() : 0;
+        int destinos = request.getDestinos() != null ? request.getDestinos().size() : 0;
+        if (origenes == 0 || destinos == 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("POST /api/v1/osrm/tabla - {} orígenes x {} destinos", origenes, destinos);
+        return ResponseEntity.ok(osrmService.calcularTabla(request.getOrigenes(), request.getDestinos()));
+    }
+
+    // Only /distancia and /tabla are exposed for external use; other route calculation
     // capabilities are available internally via the OSRMService bean.
 }
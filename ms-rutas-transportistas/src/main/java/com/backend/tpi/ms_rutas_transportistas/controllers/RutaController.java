@@ -41,6 +41,15 @@ public class RutaController {
     @Autowired
     private com.backend.tpi.ms_rutas_transportistas.services.RutaOpcionService rutaOpcionService;
 
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.GeometriaService geometriaService;
+
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.ExportacionService exportacionService;
+
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.ProgramacionService programacionService;
+
     @Autowired
     private com.backend.tpi.ms_rutas_transportistas.repositories.RutaOpcionRepository rutaOpcionRepository;
 
@@ -115,19 +124,25 @@ public class RutaController {
 
     /**
      * Lista opciones persistidas para una solicitud
-     * GET /api/v1/solicitudes/{solicitudId}/opciones
+     * GET /api/v1/solicitudes/{solicitudId}/opciones?detalle=baja|media|alta
+     * Sin el parámetro detalle no se incluye la geometría
      */
     @GetMapping("/solicitudes/{solicitudId}/opciones")
     @PreAuthorize("hasAnyRole('OPERADOR','ADMIN','TRANSPORTISTA')")
-    public ResponseEntity<java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO>> listOptionsForSolicitud(@PathVariable Long solicitudId) {
-        logger.info("GET /api/v1/solicitudes/{}/opciones - Listando opciones persistidas", solicitudId);
+    public ResponseEntity<java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO>> listOptionsForSolicitud(
+            @PathVariable Long solicitudId,
+            @RequestParam(required = false) String detalle) {
+        logger.info("GET /api/v1/solicitudes/{}/opciones - Listando opciones persistidas (detalle={})", solicitudId, detalle);
+        if (detalle != null && !geometriaService.esNivelValido(detalle)) {
+            logger.warn("Nivel de detalle inválido: {}", detalle);
+            return ResponseEntity.badRequest().build();
+        }
         try {
             java.util.List<com.backend.tpi.ms_rutas_transportistas.models.RutaOpcion> opciones = rutaOpcionService.listOptionsForSolicitud(solicitudId);
             java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO> dtos = new java.util.ArrayList<>();
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
             for (com.backend.tpi.ms_rutas_transportistas.models.RutaOpcion opcion : opciones) {
                 try {
-                    com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO dto = mapRutaOpcionToDTO(opcion, mapper);
+                    com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO dto = mapRutaOpcionToDTO(opcion, detalle);
                     dtos.add(dto);
                 } catch (Exception ex) {
                     logger.warn("No se pudo deserializar opcion id {}: {}", opcion.getId(), ex.getMessage());
@@ -167,44 +182,10 @@ public class RutaController {
                 return ResponseEntity.badRequest().build();
             }
 
-            logger.info("=== CONFIRMACION: Opcion {} para solicitud {} ===", opcionId, solicitudId);
-            logger.info("TramosJson de DB (primeros 500 chars): {}", 
-                opcion.getTramosJson() != null && opcion.getTramosJson().length() > 500 
-                    ? opcion.getTramosJson().substring(0, 500) + "..." 
-                    : opcion.getTramosJson());
+            logger.info("Confirmando opción {} para solicitud {}", opcionId, solicitudId);
 
-            // Convertir RutaOpcion a RutaTentativaDTO
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            
-            // Deserializar los arrays JSON
-            List<Long> depositosIds = mapper.readValue(opcion.getDepositosIdsJson(), 
-                    new com.fasterxml.jackson.core.type.TypeReference<List<Long>>() {});
-            List<String> depositosNombres = mapper.readValue(opcion.getDepositosNombresJson(), 
-                    new com.fasterxml.jackson.core.type.TypeReference<List<String>>() {});
-            List<com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO> tramos = mapper.readValue(opcion.getTramosJson(), 
-                    new com.fasterxml.jackson.core.type.TypeReference<List<com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO>>() {});
-            
-            logger.info("Tramos deserializados: {}", tramos != null ? tramos.size() : 0);
-            if (tramos != null) {
-                for (int i = 0; i < tramos.size(); i++) {
-                    com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO t = tramos.get(i);
-                    logger.info("  Tramo {}: orden={}, origenDepId={}, destinoDepId={}, dist={}", 
-                        i+1, t.getOrden(), t.getOrigenDepositoId(), t.getDestinoDepositoId(), t.getDistanciaKm());
-                }
-            }
-            
-            // Reconstruir RutaTentativaDTO
-            com.backend.tpi.ms_rutas_transportistas.dtos.RutaTentativaDTO rutaTentativa = 
-                    com.backend.tpi.ms_rutas_transportistas.dtos.RutaTentativaDTO.builder()
-                    .depositosIds(depositosIds)
-                    .depositosNombres(depositosNombres)
-                    .distanciaTotal(opcion.getDistanciaTotal())
-                    .duracionTotalHoras(opcion.getDuracionTotalHoras())
-                    .numeroTramos(tramos.size())
-                    .tramos(tramos)
-                    .geometry(opcion.getGeometry())
-                    .exitoso(true)
-                    .build();
+            // Reconstruir RutaTentativaDTO desde las tablas hijas de la opción
+            com.backend.tpi.ms_rutas_transportistas.dtos.RutaTentativaDTO rutaTentativa = rutaOpcionService.toRutaTentativa(opcion);
 
             // Crear Ruta definitiva usando RutaService
             RutaDTO rutaDto = rutaService.createFromTentativa(solicitudId, rutaTentativa);
@@ -225,19 +206,24 @@ public class RutaController {
     // Removed deprecated POST /api/v1/rutas/{id}/opciones per deprecation policy
 
     /**
-     * GET /api/v1/rutas/{id}/opciones - Lista las opciones persistidas para una ruta
+     * GET /api/v1/rutas/{id}/opciones?detalle=baja|media|alta - Lista las opciones persistidas para una ruta
      */
     @GetMapping("/{id}/opciones")
     @PreAuthorize("hasAnyRole('OPERADOR','ADMIN','TRANSPORTISTA')")
-    public ResponseEntity<java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO>> listOptions(@PathVariable Long id) {
-        logger.info("GET /api/v1/rutas/{}/opciones - Listando opciones guardadas", id);
+    public ResponseEntity<java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO>> listOptions(
+            @PathVariable Long id,
+            @RequestParam(required = false) String detalle) {
+        logger.info("GET /api/v1/rutas/{}/opciones - Listando opciones guardadas (detalle={})", id, detalle);
+        if (detalle != null && !geometriaService.esNivelValido(detalle)) {
+            logger.warn("Nivel de detalle inválido: {}", detalle);
+            return ResponseEntity.badRequest().build();
+        }
         try {
             java.util.List<com.backend.tpi.ms_rutas_transportistas.models.RutaOpcion> opciones = rutaOpcionService.listOptionsForRuta(id);
             java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO> dtos = new java.util.ArrayList<>();
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
             for (com.backend.tpi.ms_rutas_transportistas.models.RutaOpcion opcion : opciones) {
                 try {
-                    dtos.add(mapRutaOpcionToDTO(opcion, mapper));
+                    dtos.add(mapRutaOpcionToDTO(opcion, detalle));
                 } catch (Exception ex) {
                     logger.warn("No se pudo deserializar opcion id {}: {}", opcion.getId(), ex.getMessage());
                     dtos.add(com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO.builder()
@@ -260,28 +246,14 @@ public class RutaController {
     }
 
     /**
-     * Helper: convierte una entidad RutaOpcion en el DTO legible (sin geometry)
+     * Helper: convierte una entidad RutaOpcion en el DTO legible
+     * La geometría solo se incluye si se pide un nivel de detalle
      */
     private com.backend.tpi.ms_rutas_transportistas.dtos.RutaOpcionDTO mapRutaOpcionToDTO(
             com.backend.tpi.ms_rutas_transportistas.models.RutaOpcion opcion,
-            com.fasterxml.jackson.databind.ObjectMapper mapper) throws Exception {
+            String detalle) throws Exception {
 
-        java.util.List<java.lang.Long> depositosIds = null;
-        java.util.List<java.lang.String> depositosNombres = null;
-        java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO> tramos = null;
-
-        if (opcion.getDepositosIdsJson() != null && !opcion.getDepositosIdsJson().isBlank()) {
-            depositosIds = mapper.readValue(opcion.getDepositosIdsJson(),
-                    new com.fasterxml.jackson.core.type.TypeReference<java.util.List<java.lang.Long>>() {});
-        }
-        if (opcion.getDepositosNombresJson() != null && !opcion.getDepositosNombresJson().isBlank()) {
-            depositosNombres = mapper.readValue(opcion.getDepositosNombresJson(),
-                    new com.fasterxml.jackson.core.type.TypeReference<java.util.List<java.lang.String>>() {});
-        }
-        if (opcion.getTramosJson() != null && !opcion.getTramosJson().isBlank()) {
-            tramos = mapper.readValue(opcion.getTramosJson(),
-                new com.fasterxml.jackson.core.type.TypeReference<java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO>>() {});
-        }
+        java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO> tramos = rutaOpcionService.obtenerTramos(opcion);
 
         // Construir resumen legible
         String resumen = String.format("Opción %s: %.2f km, %.2f h, %d tramos",
@@ -311,12 +283,13 @@ public class RutaController {
             .distanciaTotal(opcion.getDistanciaTotal())
             .duracionTotalHoras(opcion.getDuracionTotalHoras())
             .costoTotal(opcion.getCostoTotal())
-            .depositosIds(depositosIds)
-            .depositosNombres(depositosNombres)
+            .depositosIds(rutaOpcionService.obtenerDepositosIds(opcion))
+            .depositosNombres(rutaOpcionService.obtenerDepositosNombres(opcion))
             .tramos(tramos)
             .resumen(resumen)
             .resumenTramos(resumenTramos)
             .fechaCreacion(opcion.getFechaCreacion())
+            .geometry(detalle != null ? rutaOpcionService.obtenerGeometria(opcion, detalle) : null)
             .build();
     }
 
@@ -418,6 +391,49 @@ public class RutaController {
         return ResponseEntity.ok(tramos);
     }
 
+    /**
+     * Recalcula las fechas estimadas de los tramos pendientes de una ruta
+     * (horario de depósitos, descansos de conducción y calendario de los camiones asignados)
+     * @param id ID de la ruta
+     * @return Tramos de la ruta con las fechas actualizadas
+     */
+    @PostMapping("/{id}/reprogramar")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Reprogramar las fechas estimadas de los tramos de una ruta")
+    public ResponseEntity<List<TramoDTO>> reprogramar(@PathVariable Long id) {
+        logger.info("POST /api/v1/rutas/{}/reprogramar - Recalculando fechas estimadas", id);
+        int modificados = programacionService.reprogramarRuta(id);
+        List<TramoDTO> tramos = tramoService.findByRutaId(id);
+        if (tramos.isEmpty()) {
+            logger.warn("POST /api/v1/rutas/{}/reprogramar - Respuesta: 404 - Ruta sin tramos", id);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("POST /api/v1/rutas/{}/reprogramar - Respuesta: 200 - {} tramos reprogramados", id, modificados);
+        return ResponseEntity.ok(tramos);
+    }
+
+    /**
+     * Actualiza en bloque las estimaciones (costo, distancia, duración) de los tramos de una ruta
+     * @param id ID de la ruta
+     * @param estimaciones Lista de {tramoId, costoEstimado, distancia, duracion}
+     * @return Resultado por ítem, en el mismo orden recibido
+     */
+    @PatchMapping("/{id}/tramos")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Actualizar en bloque las estimaciones de los tramos de una ruta")
+    public ResponseEntity<List<ResultadoEstimacionTramoDTO>> actualizarEstimaciones(
+            @PathVariable Long id,
+            @RequestBody List<EstimacionTramoDTO> estimaciones) {
+        logger.info("PATCH /api/v1/rutas/{}/tramos - Actualizando {} estimaciones", id, estimaciones != null ? estimaciones.size() : 0);
+        List<ResultadoEstimacionTramoDTO> resultados = tramoService.actualizarEstimaciones(id, estimaciones);
+        if (resultados == null) {
+            logger.warn("PATCH /api/v1/rutas/{}/tramos - Respuesta: 404 - Ruta no encontrada", id);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("PATCH /api/v1/rutas/{}/tramos - Respuesta: 200", id);
+        return ResponseEntity.ok(resultados);
+    }
+
     /**
      * Marca el inicio de un tramo de transporte
      * @param id ID de la ruta
@@ -578,4 +594,36 @@ public class RutaController {
             return ResponseEntity.status(500).body(error);
         }
     }
+
+    /**
+     * GET /api/v1/rutas/export - Exporta rutas en CSV o NDJSON para reportes
+     * Las filas se leen con un cursor y se escriben a medida que llegan (memoria constante)
+     * @param formato csv (por defecto) o ndjson
+     * @param desde Fecha de creación mínima (opcional)
+     * @param hasta Fecha de creación máxima, exclusiva (opcional)
+     * @param estado PENDIENTE, EN_CURSO o COMPLETADA (opcional)
+     * @return Stream con las rutas
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    @Operation(summary = "Exportar rutas en CSV o NDJSON")
+    public ResponseEntity<?> exportar(
+            @RequestParam(required = false) String formato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String estado) {
+        String f = com.backend.tpi.common.exportacion.ExportadorFilas.formatoDe(formato);
+        if (f == null) {
+            logger.warn("GET /api/v1/rutas/export - Respuesta: 400 - Formato no soportado: {}", formato);
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", "Formato no soportado, use csv o ndjson"));
+        }
+        logger.info("GET /api/v1/rutas/export - Respuesta: 200 - Exportando rutas en {}", f);
+        org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody cuerpo =
+                salida -> exportacionService.exportarRutas(desde, hasta, estado, f, salida);
+        return ResponseEntity.ok()
+                .contentType(org.springframework.http.MediaType.parseMediaType(
+                        f.equals("csv") ? "text/csv;charset=UTF-8" : "application/x-ndjson"))
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rutas." + f + "\"")
+                .body(cuerpo);
+    }
 }
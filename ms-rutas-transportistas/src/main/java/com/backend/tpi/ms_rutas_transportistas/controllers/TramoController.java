@@ -21,6 +21,12 @@ public class TramoController {
     @Autowired
     private TramoService tramoService;
 
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.ExportacionService exportacionService;
+
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.services.ProgramacionService programacionService;
+
     /**
      * Crea un nuevo tramo para una ruta
      * @param tramoRequestDTO Datos del tramo a crear
@@ -107,6 +113,24 @@ public class TramoController {
         }
     }
 
+    /**
+     * Lista los camiones que pueden hacer el tramo, ordenados por el primer horario libre en su calendario
+     * @param id ID del tramo
+     * @return Candidatos con su inicio posible y demora respecto del inicio estimado
+     */
+    @GetMapping("/{id}/camiones-disponibles")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public ResponseEntity<List<com.backend.tpi.ms_rutas_transportistas.dtos.DisponibilidadCamionDTO>> camionesDisponibles(@PathVariable Long id) {
+        logger.info("GET /api/v1/tramos/{}/camiones-disponibles - Buscando camiones", id);
+        List<com.backend.tpi.ms_rutas_transportistas.dtos.DisponibilidadCamionDTO> candidatos = programacionService.camionesDisponibles(id);
+        if (candidatos == null) {
+            logger.warn("GET /api/v1/tramos/{}/camiones-disponibles - Respuesta: 404 - Tramo no encontrado", id);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("GET /api/v1/tramos/{}/camiones-disponibles - Respuesta: 200 - {} camiones", id, candidatos.size());
+        return ResponseEntity.ok(candidatos);
+    }
+
     /**
      * Elimina un tramo del sistema
      * @param id ID del tramo a eliminar
@@ -150,4 +174,37 @@ public class TramoController {
             ));
         }
     }
+
+    /**
+     * GET /api/v1/tramos/export - Exporta tramos en CSV o NDJSON para reportes
+     * Las filas se leen con un cursor y se escriben a medida que llegan (memoria constante)
+     * @param formato csv (por defecto) o ndjson
+     * @param desde Inicio (real o estimado) mínimo (opcional)
+     * @param hasta Inicio máximo, exclusivo (opcional)
+     * @param estado Nombre del estado del tramo (opcional)
+     * @param rutaId ID de la ruta (opcional)
+     * @return Stream con los tramos
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public ResponseEntity<?> exportar(
+            @RequestParam(required = false) String formato,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime desde,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime hasta,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Long rutaId) {
+        String f = com.backend.tpi.common.exportacion.ExportadorFilas.formatoDe(formato);
+        if (f == null) {
+            logger.warn("GET /api/v1/tramos/export - Respuesta: 400 - Formato no soportado: {}", formato);
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", "Formato no soportado, use csv o ndjson"));
+        }
+        logger.info("GET /api/v1/tramos/export - Respuesta: 200 - Exportando tramos en {}", f);
+        org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody cuerpo =
+                salida -> exportacionService.exportarTramos(desde, hasta, estado, rutaId, f, salida);
+        return ResponseEntity.ok()
+                .contentType(org.springframework.http.MediaType.parseMediaType(
+                        f.equals("csv") ? "text/csv;charset=UTF-8" : "application/x-ndjson"))
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"tramos." + f + "\"")
+                .body(cuerpo);
+    }
 }
@@ -0,0 +1,19 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Camión candidato para un tramo: primer horario en que puede hacerlo según su calendario
+ */
+@Data
+public class DisponibilidadCamionDTO {
+    private String dominio;
+    private Double capacidadPesoMax;
+    private Double capacidadVolumenMax;
+    private LocalDateTime inicioPosible;
+    private LocalDateTime finPosible;
+    // Atraso respecto del inicio estimado actual del tramo (0 = puede hacerlo en horario)
+    private long demoraMinutos;
+}
@@ -0,0 +1,17 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Estimación de un tramo para la actualización masiva de una ruta
+ * Los campos null no modifican el valor guardado
+ */
+@Data
+public class EstimacionTramoDTO {
+    private Long tramoId;
+    private BigDecimal costoEstimado;
+    private Double distancia;  // en kilómetros
+    private Double duracion;   // en horas
+}
@@ -0,0 +1,14 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class IndisponibilidadCamionDTO {
+    private Long id;
+    private String camionDominio;
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private String motivo;
+}
@@ -0,0 +1,39 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * KPIs operativos de un período para una dimensión (día, camión o depósito)
+ * Los indicadores sin datos en el período se omiten
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class KpiDTO {
+    private String dimension;
+    private String clave;
+    private LocalDate desde;
+    private LocalDate hasta;
+    private long tramosIniciados;
+    private long tramosFinalizados;
+    // Fracción de tramos con estimación que llegaron dentro de la tolerancia
+    private Double tasaPuntualidad;
+    private Double demoraPromedioMinutos;
+    private Double demoraP50Minutos;
+    private Double demoraP90Minutos;
+    private Double demoraP99Minutos;
+    private BigDecimal costoRealTotal;
+    private BigDecimal costoPorKm;
+    private Double distanciaKm;
+    private Double horasReales;
+    // Horas en tramo sobre las horas del período (solo camiones)
+    private Double utilizacion;
+    private Long llegadas;
+    private Long estadias;
+    private Double estadiaPromedioHoras;
+    private Double estadiaP50Horas;
+    private Double estadiaP90Horas;
+}
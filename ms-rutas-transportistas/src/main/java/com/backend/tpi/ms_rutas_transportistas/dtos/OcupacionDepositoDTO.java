@@ -0,0 +1,27 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Ocupación actual de un depósito y distribución de las estadías registradas
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OcupacionDepositoDTO {
+    private Long depositoId;
+    private int contenedoresActuales;
+    // Capacidad informada por ms-gestion-calculos (null si no está cargada)
+    private Integer capacidad;
+    // contenedoresActuales / capacidad
+    private Double ocupacion;
+    private boolean saturado;
+    private long ingresos;
+    private long egresos;
+    private long estadias;
+    private Double estadiaPromedioHoras;
+    // Cantidad de estadías por rango de horas (ej: "0-6", "6-12", "120+")
+    private Map<String, Long> histogramaHoras;
+}
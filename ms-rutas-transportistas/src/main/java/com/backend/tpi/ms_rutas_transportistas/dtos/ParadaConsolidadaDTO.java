@@ -0,0 +1,16 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Parada de una ruta consolidada: depósito donde se entregan uno o más contenedores
+ */
+@Data
+public class ParadaConsolidadaDTO {
+    private Long depositoId;
+    private List<Long> solicitudesIds;
+    // Distancia recorrida desde el depósito de origen hasta esta parada
+    private Double distanciaAcumuladaKm;
+}
@@ -0,0 +1,33 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Propuesta de consolidación de solicitudes PROGRAMADA en rutas compartidas
+ * Compara el costo del tramo troncal entre depósitos con el de una ruta por solicitud
+ * (mismos parámetros de costo en ambos casos)
+ */
+@Data
+public class PlanConsolidacionDTO {
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private int solicitudesConsideradas;
+    private int solicitudesPlanificadas;
+    private List<RutaConsolidadaDTO> rutas;
+    // Una ruta por solicitud (esquema actual)
+    private BigDecimal costoActual;
+    private BigDecimal costoPropuesto;
+    private BigDecimal ahorro;
+    private Double ahorroPorcentaje;
+    private int camionesNecesarios;
+    private int camionesDisponibles;
+    // Solicitudes que quedaron fuera del plan y el motivo
+    private Map<Long, String> noPlanificadas;
+    private long duracionMs;
+    private String mensaje;
+}
@@ -0,0 +1,17 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado por ítem de la actualización masiva de estimaciones
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoEstimacionTramoDTO {
+    private Long tramoId;
+    private boolean actualizado;
+    private String error;
+}
@@ -0,0 +1,22 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Ruta compartida propuesta: un camión sale de un depósito con varios contenedores
+ * y los entrega en sus depósitos de destino
+ */
+@Data
+public class RutaConsolidadaDTO {
+    private Long depositoOrigenId;
+    // Camión sugerido (el más chico disponible en el que entra la carga); null si no alcanzan los camiones
+    private String camionDominio;
+    private List<ParadaConsolidadaDTO> paradas;
+    private Double pesoTotal;
+    private Double volumenTotal;
+    private Double distanciaKm;
+    private BigDecimal costo;
+}
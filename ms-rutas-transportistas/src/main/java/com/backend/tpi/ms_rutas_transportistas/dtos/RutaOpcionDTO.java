@@ -1,5 +1,6 @@
 package com.backend.tpi.ms_rutas_transportistas.dtos;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,7 +11,7 @@ import java.util.List;
 
 /**
  * DTO de salida para opciones de ruta (legible por cliente)
- * - No incluye la geometría
+ * - Incluye la geometría solo si el cliente pide un nivel de detalle (baja, media, alta)
  * - Deserializa los campos JSON que estaban en la entidad
  */
 @Data
@@ -43,4 +44,10 @@ public class RutaOpcionDTO {
     private List<String> resumenTramos;
     
     private LocalDateTime fechaCreacion;
+
+    /**
+     * Polylines codificadas separadas por ";", simplificadas al nivel de detalle pedido
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String geometry;
 }
@@ -54,6 +54,7 @@ public class RutaTentativaDTO {
     
     /**
      * Geometría de la ruta completa en formato polyline (para visualización en mapas)
+     * Una polyline por tramo, separadas por ";"
      */
     private String geometry;
     
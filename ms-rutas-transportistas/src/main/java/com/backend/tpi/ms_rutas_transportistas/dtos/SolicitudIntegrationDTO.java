@@ -8,4 +8,9 @@ public class SolicitudIntegrationDTO {
     private Long id;
     private Long contenedorId;
     private LocalDateTime fechaCreacion;
+    private String estado;
+    private Double origenLat;
+    private Double origenLong;
+    private Double destinoLat;
+    private Double destinoLong;
 }
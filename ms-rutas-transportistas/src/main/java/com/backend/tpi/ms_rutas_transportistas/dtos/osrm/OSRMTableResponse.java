@@ -0,0 +1,17 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos.osrm;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Respuesta del servicio /table de OSRM
+ * distances en metros y durations en segundos, indexadas [origen][destino]; null si no hay ruta
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OSRMTableResponse {
+    private String code;
+    private List<List<Double>> distances;
+    private List<List<Double>> durations;
+}
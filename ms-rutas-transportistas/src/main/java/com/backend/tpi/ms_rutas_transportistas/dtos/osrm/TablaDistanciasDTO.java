@@ -0,0 +1,21 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos.osrm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Matriz de distancias (km) y duraciones (minutos) indexada [origen][destino]
+ * Una celda null indica que OSRM no encontró ruta entre ese par
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TablaDistanciasDTO {
+    private Double[][] distanciasKm;
+    private Double[][] duracionesMinutos;
+    private boolean exitoso;
+    private String mensaje;
+}
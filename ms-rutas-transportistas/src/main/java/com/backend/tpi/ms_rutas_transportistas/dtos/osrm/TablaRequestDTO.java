@@ -0,0 +1,13 @@
+package com.backend.tpi.ms_rutas_transportistas.dtos.osrm;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Pedido de matriz de distancias: todos los orígenes contra todos los destinos
+ */
+@Data
+public class TablaRequestDTO {
+    private List<CoordenadaDTO> origenes;
+    private List<CoordenadaDTO> destinos;
+}
@@ -0,0 +1,16 @@
+package com.backend.tpi.ms_rutas_transportistas.eventos;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+
+/**
+ * Destino al que el relay entrega los eventos del outbox
+ * La implementación por defecto despacha en el mismo proceso; puede reemplazarse por un broker externo.
+ */
+public interface BrokerEventos {
+
+    /**
+     * Entrega el evento a sus consumidores
+     * @throws RuntimeException si algún consumidor falló (el relay reintentará el evento)
+     */
+    void publicar(EventoOutbox evento);
+}
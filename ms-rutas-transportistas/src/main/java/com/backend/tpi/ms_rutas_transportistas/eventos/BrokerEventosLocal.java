@@ -0,0 +1,66 @@
+package com.backend.tpi.ms_rutas_transportistas.eventos;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import com.backend.tpi.ms_rutas_transportistas.models.EventoProcesado;
+import com.backend.tpi.ms_rutas_transportistas.repositories.EventoProcesadoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Broker en proceso: entrega cada evento a los consumidores registrados como beans
+ * Cada consumidor corre en su propia transacción junto con el registro de idempotencia,
+ * así un reintento solo repite los consumidores que fallaron.
+ */
+@Component
+public class BrokerEventosLocal implements BrokerEventos {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrokerEventosLocal.class);
+
+    @Autowired
+    private List<ConsumidorEventos> consumidores;
+
+    @Autowired
+    private EventoProcesadoRepository eventoProcesadoRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public BrokerEventosLocal(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void publicar(EventoOutbox evento) {
+        RuntimeException primerError = null;
+        for (ConsumidorEventos consumidor : consumidores) {
+            if (!consumidor.acepta(evento.getTipo())) continue;
+            try {
+                transactionTemplate.executeWithoutResult(status -> entregar(consumidor, evento));
+            } catch (RuntimeException e) {
+                logger.warn("Consumidor {} falló procesando evento {} ({}): {}",
+                        consumidor.nombre(), evento.getId(), evento.getClaveIdempotencia(), e.getMessage());
+                if (primerError == null) primerError = e;
+            }
+        }
+        if (primerError != null) throw primerError;
+    }
+
+    private void entregar(ConsumidorEventos consumidor, EventoOutbox evento) {
+        if (eventoProcesadoRepository.existsByConsumidorAndClaveIdempotencia(consumidor.nombre(), evento.getClaveIdempotencia())) {
+            logger.debug("Evento {} ya procesado por {}, se omite", evento.getClaveIdempotencia(), consumidor.nombre());
+            return;
+        }
+        consumidor.procesar(evento);
+        EventoProcesado procesado = new EventoProcesado();
+        procesado.setConsumidor(consumidor.nombre());
+        procesado.setClaveIdempotencia(evento.getClaveIdempotencia());
+        eventoProcesadoRepository.save(procesado);
+    }
+}
@@ -0,0 +1,18 @@
+package com.backend.tpi.ms_rutas_transportistas.eventos;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+
+/**
+ * Consumidor de eventos del outbox
+ * Cada consumidor se identifica por nombre: el broker registra qué claves de idempotencia
+ * ya procesó para no repetir sus efectos si el evento se entrega más de una vez.
+ * Para que el evento se reintente, procesar() debe lanzar la excepción (no atraparla).
+ */
+public interface ConsumidorEventos {
+
+    String nombre();
+
+    boolean acepta(TipoEvento tipo);
+
+    void procesar(EventoOutbox evento);
+}
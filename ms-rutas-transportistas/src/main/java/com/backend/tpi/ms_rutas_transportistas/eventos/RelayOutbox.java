@@ -0,0 +1,213 @@
+package com.backend.tpi.ms_rutas_transportistas.eventos;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import com.backend.tpi.ms_rutas_transportistas.repositories.EventoOutboxRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.EventoProcesadoRepository;
+import com.backend.tpi.ms_rutas_transportistas.seguridad.CredencialServicio;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Relay del outbox: lee los eventos pendientes y los entrega al broker
+ * Corre periódicamente y también apenas se confirma una transacción que registró eventos.
+ * Si la entrega falla se reintenta con espera exponencial hasta app.outbox.max-intentos;
+ * después el evento queda FALLIDO para revisión. Los eventos de una misma ruta se entregan en orden.
+ * La entrega corre fuera de la transacción que reserva el evento y se autentica con la credencial
+ * del servicio (ver CredencialServicio), no con el token del usuario que lo originó.
+ */
+@Component
+public class RelayOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayOutbox.class);
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private EventoProcesadoRepository eventoProcesadoRepository;
+
+    @Autowired
+    private BrokerEventos brokerEventos;
+
+    @Autowired
+    private CredencialServicio credencialServicio;
+
+    @Value("${app.outbox.lote:50}")
+    private int lote;
+
+    @Value("${app.outbox.max-intentos:10}")
+    private int maxIntentos;
+
+    @Value("${app.outbox.backoff-inicial-ms:1000}")
+    private long backoffInicialMs;
+
+    @Value("${app.outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    @Value("${app.outbox.reserva-ms:120000}")
+    private long reservaMs;
+
+    @Value("${app.outbox.retencion-dias:7}")
+    private int retencionDias;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+    private final AtomicBoolean repetir = new AtomicBoolean();
+    private final AtomicBoolean despertado = new AtomicBoolean();
+
+    private final ExecutorService despertador = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "outbox-relay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RelayOutbox(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Pide una entrega inmediata sin esperar al próximo ciclo (no bloquea al llamador)
+     */
+    public void despertar() {
+        if (despertado.compareAndSet(false, true)) {
+            despertador.execute(() -> {
+                despertado.set(false);
+                entregarPendientes();
+            });
+        }
+    }
+
+    /**
+     * Entrega los eventos pendientes cuyo reintento ya venció
+     * Si ya hay una entrega en curso, se le pide que haga otra pasada al terminar
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.intervalo-ms:1000}")
+    public void entregarPendientes() {
+        if (!enCurso.compareAndSet(false, true)) {
+            repetir.set(true);
+            return;
+        }
+        try {
+            do {
+                repetir.set(false);
+                while (entregarLote() > 0) {
+                    // seguir mientras se entreguen eventos: pueden haber quedado listos los siguientes de cada ruta
+                }
+            } while (repetir.get());
+        } catch (Exception e) {
+            logger.error("Error en el relay del outbox: {}", e.getMessage(), e);
+        } finally {
+            enCurso.set(false);
+        }
+    }
+
+    /**
+     * Borra los eventos entregados y los registros de idempotencia más viejos que la retención
+     */
+    @Scheduled(cron = "${app.outbox.limpieza-cron:0 0 3 * * *}")
+    public void limpiar() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(retencionDias);
+        transactionTemplate.executeWithoutResult(status -> {
+            int eventos = eventoOutboxRepository.deleteEntregadosAntesDe(limite);
+            int procesados = eventoProcesadoRepository.deleteProcesadosAntesDe(limite);
+            logger.info("Outbox: {} eventos entregados y {} registros de idempotencia eliminados", eventos, procesados);
+        });
+    }
+
+    private int entregarLote() {
+        List<Long> ids = eventoOutboxRepository.findIdsListos(LocalDateTime.now(), PageRequest.of(0, lote));
+        int entregados = 0;
+        for (Long id : ids) {
+            EventoOutbox evento = transactionTemplate.execute(status -> reservar(id));
+            if (evento != null && entregar(evento)) entregados++;
+        }
+        return entregados;
+    }
+
+    /**
+     * Toma el evento para esta instancia y confirma enseguida, sin retener el bloqueo durante la entrega
+     * Corre el próximo intento app.outbox.reserva-ms hacia adelante: mientras tanto no lo toma otra
+     * instancia, y si esta se cae antes de registrar el resultado el evento vuelve a quedar listo.
+     * @return el evento reservado, o null si lo tomó otra instancia o ya se entregó
+     */
+    private EventoOutbox reservar(Long id) {
+        EventoOutbox evento = eventoOutboxRepository.findConBloqueoById(id).orElse(null);
+        LocalDateTime ahora = LocalDateTime.now();
+        if (evento == null || !EventoOutbox.PENDIENTE.equals(evento.getEstado())
+                || (evento.getProximoIntento() != null && evento.getProximoIntento().isAfter(ahora))) {
+            return null;
+        }
+        evento.setProximoIntento(ahora.plusNanos(reservaMs * 1_000_000L));
+        return eventoOutboxRepository.save(evento);
+    }
+
+    /**
+     * Entrega el evento fuera de toda transacción (los consumidores abren las suyas) y registra el resultado
+     */
+    private boolean entregar(EventoOutbox evento) {
+        RuntimeException error = null;
+        try {
+            credencialServicio.ejecutar(() -> brokerEventos.publicar(evento));
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        RuntimeException fallo = error;
+        transactionTemplate.executeWithoutResult(status -> registrarResultado(evento.getId(), fallo));
+        return error == null;
+    }
+
+    private void registrarResultado(Long id, RuntimeException e) {
+        EventoOutbox evento = eventoOutboxRepository.findById(id).orElse(null);
+        if (evento == null) return;
+        if (e == null) {
+            evento.setEstado(EventoOutbox.ENTREGADO);
+            evento.setFechaEntrega(LocalDateTime.now());
+            evento.setUltimoError(null);
+            logger.info("Evento {} entregado (intento {})", evento.getClaveIdempotencia(), evento.getIntentos() + 1);
+        } else {
+            evento.setIntentos(evento.getIntentos() + 1);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            evento.setUltimoError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (evento.getIntentos() >= maxIntentos) {
+                evento.setEstado(EventoOutbox.FALLIDO);
+                logger.error("Evento {} marcado FALLIDO tras {} intentos: {}", evento.getClaveIdempotencia(), evento.getIntentos(), error);
+            } else {
+                long espera = espera(evento.getIntentos());
+                evento.setProximoIntento(LocalDateTime.now().plusNanos(espera * 1_000_000L));
+                logger.warn("Evento {} falló (intento {}), reintento en {} ms: {}",
+                        evento.getClaveIdempotencia(), evento.getIntentos(), espera, error);
+            }
+        }
+        eventoOutboxRepository.save(evento);
+    }
+
+    /**
+     * Espera exponencial con un 20% de variación aleatoria para no sincronizar reintentos
+     */
+    private long espera(int intentos) {
+        long base = backoffInicialMs << Math.min(intentos - 1, 20);
+        long acotada = Math.min(base, backoffMaxMs);
+        return acotada + ThreadLocalRandom.current().nextLong(acotada / 5 + 1);
+    }
+
+    @PreDestroy
+    void detener() {
+        despertador.shutdownNow();
+    }
+}
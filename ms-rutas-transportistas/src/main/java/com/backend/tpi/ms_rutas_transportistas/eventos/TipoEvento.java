@@ -0,0 +1,10 @@
+package com.backend.tpi.ms_rutas_transportistas.eventos;
+
+/**
+ * Eventos del ciclo de vida de tramos y rutas publicados a través del outbox
+ */
+public enum TipoEvento {
+    TRAMO_INICIADO,
+    TRAMO_FINALIZADO,
+    RUTA_COMPLETADA
+}
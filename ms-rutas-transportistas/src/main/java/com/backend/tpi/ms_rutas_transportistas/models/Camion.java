@@ -13,7 +13,8 @@ import lombok.Data;
 @Data
 public class Camion {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "camiones_seq")
+    @SequenceGenerator(name = "camiones_seq", sequenceName = "camiones_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "dominio", nullable = false, unique = true)
@@ -0,0 +1,31 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Cubeta del histograma de estadías de un depósito
+ * La cubeta es el índice del límite superior en app.depositos.histograma-horas
+ * (la última cubeta acumula las estadías que superan el último límite).
+ */
+@Entity
+@Table(name = "estadias_deposito_histograma", uniqueConstraints =
+        @UniqueConstraint(name = "uk_estadia_deposito_cubeta", columnNames = {"deposito_id", "cubeta"}))
+@Data
+public class EstadiaDepositoCubeta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "deposito_id", nullable = false)
+    private Long depositoId;
+
+    @Column(nullable = false)
+    private int cubeta;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long cantidad;
+
+    @Column(columnDefinition = "double precision not null default 0")
+    private double horasTotal;
+}
@@ -1,6 +1,8 @@
 package com.backend.tpi.ms_rutas_transportistas.models;
 
+import com.backend.tpi.common.catalogo.CatalogoListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -8,6 +10,7 @@ import lombok.Data;
 
 @Entity
 @Data
+@EntityListeners(CatalogoListener.class)
 public class EstadoTramo {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,69 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento pendiente de entrega (patrón transactional outbox)
+ * Se inserta en la misma transacción que el cambio del tramo y lo entrega luego el relay,
+ * con reintentos. La clave de idempotencia identifica el evento ante los consumidores.
+ */
+@Entity
+@Table(name = "eventos_outbox", indexes = {
+        @Index(name = "idx_eventos_outbox_pendientes", columnList = "estado, proximo_intento"),
+        @Index(name = "idx_eventos_outbox_ruta", columnList = "ruta_id, estado")
+})
+@Data
+public class EventoOutbox {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String ENTREGADO = "ENTREGADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_evento")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 40)
+    private TipoEvento tipo;
+
+    @Column(name = "clave_idempotencia", nullable = false, unique = true, length = 120)
+    private String claveIdempotencia;
+
+    // Los eventos de una misma ruta se entregan en orden
+    @Column(name = "ruta_id")
+    private Long rutaId;
+
+    @Column(name = "tramo_id")
+    private Long tramoId;
+
+    @Column(name = "solicitud_id")
+    private Long solicitudId;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false, length = 20)
+    private String estado = PENDIENTE;
+
+    private int intentos;
+
+    @Column(name = "proximo_intento")
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 1000)
+    private String ultimoError;
+
+    @CreationTimestamp
+    @Column(name = "fecha_creacion", updatable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_entrega")
+    private LocalDateTime fechaEntrega;
+}
@@ -0,0 +1,31 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de un evento ya procesado por un consumidor
+ * Permite descartar entregas repetidas (el relay entrega "al menos una vez")
+ */
+@Entity
+@Table(name = "eventos_procesados", uniqueConstraints =
+        @UniqueConstraint(name = "uk_evento_procesado", columnNames = {"consumidor", "clave_idempotencia"}))
+@Data
+public class EventoProcesado {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 80)
+    private String consumidor;
+
+    @Column(name = "clave_idempotencia", nullable = false, length = 120)
+    private String claveIdempotencia;
+
+    @CreationTimestamp
+    @Column(name = "fecha_procesado", updatable = false)
+    private LocalDateTime fechaProcesado;
+}
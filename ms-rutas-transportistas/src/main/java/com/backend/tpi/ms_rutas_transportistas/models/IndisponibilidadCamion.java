@@ -0,0 +1,31 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Período en que un camión no puede operar (mantenimiento, licencia del chofer, etc.)
+ * Forma parte del calendario del camión junto con los tramos que tiene programados.
+ */
+@Entity
+@Table(name = "indisponibilidades_camion", indexes =
+        @Index(name = "idx_indisponibilidad_camion_dominio", columnList = "camion_dominio"))
+@Data
+public class IndisponibilidadCamion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "camion_dominio", nullable = false)
+    private String camionDominio;
+
+    @Column(nullable = false)
+    private LocalDateTime desde;
+
+    @Column(nullable = false)
+    private LocalDateTime hasta;
+
+    private String motivo;
+}
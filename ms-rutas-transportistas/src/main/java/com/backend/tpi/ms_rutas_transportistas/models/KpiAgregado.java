@@ -0,0 +1,90 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Agregado diario de KPIs operativos para una dimensión (total del día, camión o depósito)
+ * Lo mantiene incrementalmente el consumidor de eventos de tramos; los tableros leen estas filas
+ * en lugar de recorrer la tabla de tramos. Los percentiles se guardan como t-digests serializados,
+ * que se combinan para cualquier rango de días.
+ */
+@Entity
+@Table(name = "kpi_agregados", uniqueConstraints =
+        @UniqueConstraint(name = "uk_kpi_agregado", columnNames = {"dimension", "clave", "fecha"}),
+        indexes = @Index(name = "idx_kpi_agregados_fecha", columnList = "dimension, fecha"))
+@Data
+public class KpiAgregado {
+
+    public static final String DIA = "DIA";
+    public static final String CAMION = "CAMION";
+    public static final String DEPOSITO = "DEPOSITO";
+
+    // Clave de la dimensión DIA (un único agregado por día)
+    public static final String TOTAL = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_kpi")
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String dimension;
+
+    // Dominio del camión, ID del depósito o TOTAL
+    @Column(nullable = false, length = 60)
+    private String clave;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long tramosIniciados;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long tramosFinalizados;
+
+    // Tramos finalizados con fecha de fin estimada (base de la tasa de puntualidad)
+    @Column(columnDefinition = "bigint not null default 0")
+    private long tramosConEstimacion;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long tramosPuntuales;
+
+    // Demora de llegada respecto de la estimada, en minutos (negativa si llegó antes)
+    @Column(columnDefinition = "double precision not null default 0")
+    private double demoraTotalMinutos;
+
+    @Column(columnDefinition = "bytea")
+    private byte[] digestDemoras;
+
+    @Column(columnDefinition = "numeric(14,2) not null default 0")
+    private BigDecimal costoRealTotal;
+
+    // Distancia de los tramos con costo real (base del costo por km)
+    @Column(columnDefinition = "double precision not null default 0")
+    private double distanciaCosteadaKm;
+
+    @Column(columnDefinition = "double precision not null default 0")
+    private double distanciaTotalKm;
+
+    @Column(columnDefinition = "double precision not null default 0")
+    private double horasRealesTotal;
+
+    // Tramos finalizados en el depósito (dimensión DEPOSITO)
+    @Column(columnDefinition = "bigint not null default 0")
+    private long llegadas;
+
+    // Estadías en el depósito: entre la llegada de un tramo y la salida del siguiente de la misma ruta
+    @Column(columnDefinition = "bigint not null default 0")
+    private long estadias;
+
+    @Column(columnDefinition = "double precision not null default 0")
+    private double estadiaTotalHoras;
+
+    @Column(columnDefinition = "bytea")
+    private byte[] digestEstadias;
+}
@@ -0,0 +1,31 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ocupación actual de un depósito (contenedores en estadía intermedia)
+ * La mantienen UPDATE atómicos de OcupacionDepositoRepository a partir de los eventos de tramos;
+ * la entidad solo se lee.
+ */
+@Entity
+@Table(name = "ocupacion_depositos")
+@Data
+public class OcupacionDeposito {
+    @Id
+    @Column(name = "deposito_id")
+    private Long depositoId;
+
+    @Column(columnDefinition = "integer not null default 0")
+    private int contenedoresActuales;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long ingresos;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long egresos;
+
+    private LocalDateTime fechaActualizacion;
+}
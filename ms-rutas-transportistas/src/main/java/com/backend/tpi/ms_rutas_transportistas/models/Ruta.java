@@ -17,7 +17,8 @@ import java.util.List;
 @Data
 public class Ruta {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rutas_seq")
+    @SequenceGenerator(name = "rutas_seq", sequenceName = "rutas_seq", allocationSize = 50)
     @Column(name = "id_ruta")
     private Long id;
 
@@ -31,4 +32,22 @@ public class Ruta {
 
     @OneToMany(mappedBy = "ruta", cascade = CascadeType.ALL)
     private List<Tramo> tramos;
+
+    // Agregados de avance de la ruta. Los mantienen UPDATE atómicos de RutaRepository
+    // (recontarTramos, registrarTramoFinalizado, acumularCostoReal); la entidad solo los lee
+    @Column(name = "tramos_total", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private Integer tramosTotal;
+
+    @Column(name = "tramos_finalizados", insertable = false, updatable = false,
+            columnDefinition = "integer not null default 0")
+    private Integer tramosFinalizados;
+
+    @Column(name = "costo_real_acumulado", insertable = false, updatable = false,
+            columnDefinition = "numeric(14,2) not null default 0")
+    private java.math.BigDecimal costoRealAcumulado;
+
+    @Column(name = "horas_reales_acumuladas", insertable = false, updatable = false,
+            columnDefinition = "double precision not null default 0")
+    private Double horasRealesAcumuladas;
 }
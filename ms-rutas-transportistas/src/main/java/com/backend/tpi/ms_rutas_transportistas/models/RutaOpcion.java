@@ -2,17 +2,20 @@ package com.backend.tpi.ms_rutas_transportistas.models;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
- 
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "ruta_opciones")
 @Data
 public class RutaOpcion {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ruta_opciones_seq")
+    @SequenceGenerator(name = "ruta_opciones_seq", sequenceName = "ruta_opciones_seq", allocationSize = 50)
     @Column(name = "id_ruta_opcion")
     private Long id;
 
@@ -36,18 +39,64 @@ public class RutaOpcion {
     @Column(name = "costo_total")
     private Double costoTotal;
 
+    /**
+     * IDs de los depósitos intermedios, en orden (tabla hija ruta_opcion_depositos)
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "ruta_opcion_depositos", joinColumns = @JoinColumn(name = "id_ruta_opcion"))
+    @OrderColumn(name = "posicion")
+    @Column(name = "deposito_id")
+    @BatchSize(size = 20)
+    private List<Long> depositosIds = new ArrayList<>();
+
+    /**
+     * Nombres de los depósitos intermedios, en orden (tabla hija ruta_opcion_depositos_nombres)
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "ruta_opcion_depositos_nombres", joinColumns = @JoinColumn(name = "id_ruta_opcion"))
+    @OrderColumn(name = "posicion")
+    @Column(name = "nombre")
+    @BatchSize(size = 20)
+    private List<String> depositosNombres = new ArrayList<>();
+
+    /**
+     * Tramos de la opción (tabla hija ruta_opcion_tramos)
+     * Se cargan recién cuando se acceden, por lotes para todas las opciones de la sesión
+     */
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "ruta_opcion_tramos", joinColumns = @JoinColumn(name = "id_ruta_opcion"))
+    @OrderColumn(name = "posicion")
+    @BatchSize(size = 20)
+    private List<RutaOpcionTramo> tramos = new ArrayList<>();
+
+    // Columnas JSON en texto de versiones anteriores: solo se leen para opciones ya guardadas
     @Column(name = "depositos_ids", columnDefinition = "text")
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private String depositosIdsJson;
 
     @Column(name = "depositos_nombres", columnDefinition = "text")
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private String depositosNombresJson;
 
     @Column(name = "tramos_json", columnDefinition = "text")
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private String tramosJson;
 
+    /**
+     * Geometría en texto (polylines separadas por "|").
+     * Solo se conserva para leer opciones antiguas; las nuevas usan geometryCompacta
+     */
     @Column(name = "geometry", columnDefinition = "text")
+    @com.fasterxml.jackson.annotation.JsonIgnore
     private String geometry;
 
+    /**
+     * Geometría simplificada y empaquetada en binario (deltas zigzag-varint), ver GeometriaService
+     */
+    @Column(name = "geometry_compacta", columnDefinition = "bytea")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private byte[] geometryCompacta;
+
     @CreationTimestamp
     private LocalDateTime fechaCreacion;
 }
@@ -0,0 +1,35 @@
+package com.backend.tpi.ms_rutas_transportistas.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Tramo de una opción de ruta
+ * Se guarda como fila de la tabla hija ruta_opcion_tramos en lugar de texto JSON
+ */
+@Embeddable
+@Data
+public class RutaOpcionTramo {
+    // Orden del tramo en la ruta (1, 2, 3, etc.)
+    private Integer orden;
+
+    private Long origenDepositoId;
+
+    @Column(length = 255)
+    private String origenDepositoNombre;
+
+    private Long destinoDepositoId;
+
+    @Column(length = 255)
+    private String destinoDepositoNombre;
+
+    private Double distanciaKm;
+    private Double duracionHoras;
+    private Double costoAproximado;
+
+    // Coordenadas para tramos que no inician/terminan en un depósito
+    private Double origenLat;
+    private Double origenLong;
+    private Double destinoLat;
+    private Double destinoLong;
+}
@@ -13,7 +13,8 @@ import lombok.Data;
 @Data
 public class Tramo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tramos_seq")
+    @SequenceGenerator(name = "tramos_seq", sequenceName = "tramos_seq", allocationSize = 50)
     @Column(name = "id_tramo")
     private Long id;
     
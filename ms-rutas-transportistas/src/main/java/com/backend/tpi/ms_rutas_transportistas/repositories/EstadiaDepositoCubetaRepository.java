@@ -0,0 +1,32 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EstadiaDepositoCubeta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio JPA para el histograma de estadías por depósito
+ */
+@Repository
+public interface EstadiaDepositoCubetaRepository extends JpaRepository<EstadiaDepositoCubeta, Long> {
+
+	/**
+	 * Suma una estadía a la cubeta del depósito (UPSERT atómico)
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "INSERT INTO estadias_deposito_histograma (deposito_id, cubeta, cantidad, horas_total) " +
+			"VALUES (:depositoId, :cubeta, 1, :horas) ON CONFLICT (deposito_id, cubeta) DO UPDATE SET " +
+			"cantidad = estadias_deposito_histograma.cantidad + 1, " +
+			"horas_total = estadias_deposito_histograma.horas_total + :horas", nativeQuery = true)
+	int sumarEstadia(@Param("depositoId") Long depositoId, @Param("cubeta") int cubeta, @Param("horas") double horas);
+
+	List<EstadiaDepositoCubeta> findByDepositoIdInOrderByDepositoIdAscCubetaAsc(Collection<Long> depositosIds);
+
+	List<EstadiaDepositoCubeta> findAllByOrderByDepositoIdAscCubetaAsc();
+}
@@ -0,0 +1,48 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio JPA para la tabla outbox de eventos
+ */
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+	/**
+	 * IDs de eventos pendientes cuyo reintento ya venció, en orden de creación
+	 * Excluye los eventos de una ruta que tenga otro pendiente anterior, para entregar cada ruta en orden
+	 */
+	@Query("SELECT e.id FROM EventoOutbox e WHERE e.estado = 'PENDIENTE' AND e.proximoIntento <= :ahora " +
+			"AND NOT EXISTS (SELECT p.id FROM EventoOutbox p WHERE p.rutaId = e.rutaId AND p.estado = 'PENDIENTE' AND p.id < e.id) " +
+			"ORDER BY e.id")
+	List<Long> findIdsListos(@Param("ahora") LocalDateTime ahora, Pageable pageable);
+
+	/**
+	 * Bloquea el evento para entregarlo; si otra instancia ya lo tiene bloqueado se omite (SKIP LOCKED)
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+	Optional<EventoOutbox> findConBloqueoById(Long id);
+
+	boolean existsByClaveIdempotencia(String claveIdempotencia);
+
+	long countByEstado(String estado);
+
+	@Modifying
+	@Query("DELETE FROM EventoOutbox e WHERE e.estado = 'ENTREGADO' AND e.fechaEntrega < :limite")
+	int deleteEntregadosAntesDe(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,22 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.models.EventoProcesado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio JPA para los eventos ya procesados por cada consumidor
+ */
+@Repository
+public interface EventoProcesadoRepository extends JpaRepository<EventoProcesado, Long> {
+	boolean existsByConsumidorAndClaveIdempotencia(String consumidor, String claveIdempotencia);
+
+	@Modifying
+	@Query("DELETE FROM EventoProcesado e WHERE e.fechaProcesado < :limite")
+	int deleteProcesadosAntesDe(@Param("limite") LocalDateTime limite);
+}
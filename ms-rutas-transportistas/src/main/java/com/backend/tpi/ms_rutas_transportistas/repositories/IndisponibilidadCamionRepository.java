@@ -0,0 +1,20 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.models.IndisponibilidadCamion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio JPA para los períodos de indisponibilidad de camiones
+ */
+@Repository
+public interface IndisponibilidadCamionRepository extends JpaRepository<IndisponibilidadCamion, Long> {
+
+	/**
+	 * Períodos de un camión que todavía no terminaron
+	 */
+	List<IndisponibilidadCamion> findByCamionDominioAndHastaAfterOrderByDesdeAsc(String camionDominio, LocalDateTime fecha);
+}
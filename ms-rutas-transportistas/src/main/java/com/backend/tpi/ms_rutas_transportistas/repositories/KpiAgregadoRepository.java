@@ -0,0 +1,39 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.models.KpiAgregado;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio JPA para los agregados diarios de KPIs
+ */
+@Repository
+public interface KpiAgregadoRepository extends JpaRepository<KpiAgregado, Long> {
+
+	/**
+	 * Crea el agregado en cero si todavía no existe (sin fallar si otra transacción lo crea a la vez)
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO kpi_agregados (dimension, clave, fecha) VALUES (:dimension, :clave, :fecha) " +
+			"ON CONFLICT (dimension, clave, fecha) DO NOTHING", nativeQuery = true)
+	int crearSiNoExiste(@Param("dimension") String dimension, @Param("clave") String clave, @Param("fecha") LocalDate fecha);
+
+	/**
+	 * Obtiene el agregado bloqueándolo hasta el fin de la transacción
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	Optional<KpiAgregado> findConBloqueoByDimensionAndClaveAndFecha(String dimension, String clave, LocalDate fecha);
+
+	List<KpiAgregado> findByDimensionAndFechaBetweenOrderByFechaAsc(String dimension, LocalDate desde, LocalDate hasta);
+
+	List<KpiAgregado> findByDimensionAndClaveAndFechaBetweenOrderByFechaAsc(String dimension, String clave, LocalDate desde, LocalDate hasta);
+}
@@ -0,0 +1,47 @@
+package com.backend.tpi.ms_rutas_transportistas.repositories;
+
+import com.backend.tpi.ms_rutas_transportistas.models.OcupacionDeposito;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio JPA para la ocupación de depósitos
+ * Los contadores se actualizan con un único UPSERT atómico, sin leer la fila antes
+ */
+@Repository
+public interface OcupacionDepositoRepository extends JpaRepository<OcupacionDeposito, Long> {
+
+	/**
+	 * Registra el ingreso de un contenedor al depósito
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "INSERT INTO ocupacion_depositos (deposito_id, contenedores_actuales, ingresos, egresos, fecha_actualizacion) " +
+			"VALUES (:depositoId, 1, 1, 0, now()) ON CONFLICT (deposito_id) DO UPDATE SET " +
+			"contenedores_actuales = ocupacion_depositos.contenedores_actuales + 1, " +
+			"ingresos = ocupacion_depositos.ingresos + 1, fecha_actualizacion = now()", nativeQuery = true)
+	int registrarIngreso(@Param("depositoId") Long depositoId);
+
+	/**
+	 * Registra el egreso de un contenedor del depósito
+	 * Nunca deja la ocupación negativa (ingresos anteriores a que existiera el contador)
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "INSERT INTO ocupacion_depositos (deposito_id, contenedores_actuales, ingresos, egresos, fecha_actualizacion) " +
+			"VALUES (:depositoId, 0, 0, 1, now()) ON CONFLICT (deposito_id) DO UPDATE SET " +
+			"contenedores_actuales = GREATEST(ocupacion_depositos.contenedores_actuales - 1, 0), " +
+			"egresos = ocupacion_depositos.egresos + 1, fecha_actualizacion = now()", nativeQuery = true)
+	int registrarEgreso(@Param("depositoId") Long depositoId);
+
+	List<OcupacionDeposito> findByDepositoIdIn(Collection<Long> depositosIds);
+
+	/**
+	 * Depósitos que tienen contenedores en este momento
+	 */
+	List<OcupacionDeposito> findByContenedoresActualesGreaterThan(int minimo);
+}
@@ -3,6 +3,9 @@ package com.backend.tpi.ms_rutas_transportistas.repositories;
 import com.backend.tpi.ms_rutas_transportistas.models.Ruta;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -17,4 +20,49 @@ public interface RutaRepository extends JpaRepository<Ruta, Long> {
 	 * @return Ruta asociada a la solicitud, si existe
 	 */
 	Optional<Ruta> findByIdSolicitud(Long idSolicitud);
+
+	/**
+	 * Recalcula los agregados de avance de una ruta a partir de sus tramos
+	 * Se usa cuando cambia la composición de la ruta (alta/baja de tramos) o para corregir fechas
+	 * @param rutaId ID de la ruta
+	 * @return Filas actualizadas (0 si la ruta no existe)
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "UPDATE rutas r SET tramos_total = c.total, tramos_finalizados = c.finalizados, " +
+			"costo_real_acumulado = c.costo, horas_reales_acumuladas = c.horas " +
+			"FROM (SELECT COUNT(*) AS total, COUNT(t.fecha_hora_fin_real) AS finalizados, " +
+			"COALESCE(SUM(COALESCE(t.costo_real, CASE WHEN t.fecha_hora_fin_real IS NULL THEN 0 ELSE t.costo_aproximado END, 0)), 0) AS costo, " +
+			"COALESCE(SUM(CASE WHEN t.fecha_hora_fin_real IS NULL THEN 0 ELSE " +
+			"COALESCE(EXTRACT(EPOCH FROM (t.fecha_hora_fin_real - t.fecha_hora_inicio_real)) / 3600.0, t.duracion_horas, 0) END), 0) AS horas " +
+			"FROM tramos t WHERE t.ruta_id = :rutaId) c " +
+			"WHERE r.id_ruta = :rutaId", nativeQuery = true)
+	int recontarTramos(@Param("rutaId") Long rutaId);
+
+	/**
+	 * Suma un tramo finalizado, sus horas reales y su costo provisorio, solo si quedaban tramos por finalizar
+	 * @param rutaId ID de la ruta
+	 * @param horas Horas reales del tramo finalizado
+	 * @param costo Costo aproximado si el tramo todavía no tiene costo real (se reemplaza al calcularlo), si no 0
+	 * @return 1 si se registró, 0 si la condición no se cumplió (agregados sin inicializar o ruta ya completa)
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "UPDATE rutas SET tramos_finalizados = tramos_finalizados + 1, " +
+			"horas_reales_acumuladas = horas_reales_acumuladas + :horas, " +
+			"costo_real_acumulado = costo_real_acumulado + :costo " +
+			"WHERE id_ruta = :rutaId AND tramos_finalizados < tramos_total", nativeQuery = true)
+	int registrarTramoFinalizado(@Param("rutaId") Long rutaId, @Param("horas") double horas,
+			@Param("costo") java.math.BigDecimal costo);
+
+	/**
+	 * Suma la diferencia entre el costo real nuevo y el anterior de un tramo
+	 */
+	@Modifying(flushAutomatically = true)
+	@Query(value = "UPDATE rutas SET costo_real_acumulado = costo_real_acumulado + :delta WHERE id_ruta = :rutaId", nativeQuery = true)
+	int acumularCostoReal(@Param("rutaId") Long rutaId, @Param("delta") java.math.BigDecimal delta);
+
+	/**
+	 * Tramos que faltan finalizar según los agregados (lectura por clave primaria)
+	 */
+	@Query(value = "SELECT tramos_total - tramos_finalizados FROM rutas WHERE id_ruta = :rutaId", nativeQuery = true)
+	Integer contarTramosPendientes(@Param("rutaId") Long rutaId);
 }
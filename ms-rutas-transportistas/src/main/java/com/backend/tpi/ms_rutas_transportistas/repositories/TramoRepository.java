@@ -30,4 +30,38 @@ public interface TramoRepository extends JpaRepository<Tramo, Long> {
 	 * @return Cantidad de tramos de la ruta
 	 */
 	long countByRutaId(Long rutaId);
+
+	/**
+	 * Busca el último tramo (mayor orden) de una ruta
+	 * @param rutaId ID de la ruta
+	 * @return Último tramo de la ruta, si tiene tramos
+	 */
+	java.util.Optional<Tramo> findFirstByRutaIdOrderByOrdenDesc(Long rutaId);
+
+	/**
+	 * Busca el tramo de una ruta con el orden indicado
+	 * @param rutaId ID de la ruta
+	 * @param orden Orden del tramo en la ruta
+	 * @return Tramo, si existe
+	 */
+	java.util.Optional<Tramo> findByRutaIdAndOrden(Long rutaId, Integer orden);
+
+	/**
+	 * Filtra los IDs indicados dejando solo los que pertenecen a la ruta
+	 * @param rutaId ID de la ruta
+	 * @param ids IDs de tramo a validar
+	 * @return IDs de la lista que son tramos de la ruta
+	 */
+	@org.springframework.data.jpa.repository.Query("SELECT t.id FROM Tramo t WHERE t.ruta.id = :rutaId AND t.id IN :ids")
+	java.util.List<Long> findIdsDeRuta(@org.springframework.data.repository.query.Param("rutaId") Long rutaId,
+			@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+	/**
+	 * Tramos de un camión que todavía no finalizaron y tienen fechas estimadas (su calendario ocupado)
+	 * @param dominio Dominio del camión
+	 * @return Tramos pendientes o en curso del camión
+	 */
+	@org.springframework.data.jpa.repository.Query("SELECT t FROM Tramo t WHERE t.camionDominio = :dominio AND t.fechaHoraFinReal IS NULL " +
+			"AND t.fechaHoraInicioEstimada IS NOT NULL AND t.fechaHoraFinEstimada IS NOT NULL")
+	java.util.List<Tramo> findPendientesDeCamion(@org.springframework.data.repository.query.Param("dominio") String dominio);
 }
@@ -0,0 +1,110 @@
+package com.backend.tpi.ms_rutas_transportistas.seguridad;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Credencial propia del microservicio para las llamadas que no vienen de una request de usuario
+ * (por ejemplo, los consumidores del outbox)
+ * - El token se pide a Keycloak con client_credentials (cliente app.servicio.client-id) y se renueva
+ *   30 segundos antes de vencer; los tokens de usuario nunca se guardan
+ * - Se valida con el mismo JwtDecoder y los mismos roles que un token entrante
+ */
+@Component
+public class CredencialServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredencialServicio.class);
+
+    private static final Duration MARGEN_RENOVACION = Duration.ofSeconds(30);
+
+    @Value("${app.servicio.token-uri:http://keycloak:8080/realms/tpi-backend/protocol/openid-connect/token}")
+    private String tokenUri;
+
+    @Value("${app.servicio.client-id:ms-rutas-transportistas}")
+    private String clientId;
+
+    @Value("${app.servicio.client-secret:}")
+    private String clientSecret;
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private Converter<Jwt, AbstractAuthenticationToken> jwtAuthenticationConverter;
+
+    private final RestClient keycloak = RestClient.create();
+
+    private volatile AbstractAuthenticationToken actual;
+
+    /**
+     * Ejecuta la acción con la credencial del servicio en el SecurityContext, así los RestClient
+     * que reenvían el token del contexto se autentican como el servicio
+     * @throws IllegalStateException si no se pudo obtener el token
+     */
+    public void ejecutar(Runnable accion) {
+        SecurityContext anterior = SecurityContextHolder.getContext();
+        SecurityContext contexto = SecurityContextHolder.createEmptyContext();
+        contexto.setAuthentication(autenticacion());
+        SecurityContextHolder.setContext(contexto);
+        try {
+            accion.run();
+        } finally {
+            SecurityContextHolder.setContext(anterior);
+        }
+    }
+
+    private AbstractAuthenticationToken autenticacion() {
+        AbstractAuthenticationToken autenticacion = actual;
+        if (vigente(autenticacion)) return autenticacion;
+        synchronized (this) {
+            if (!vigente(actual)) {
+                actual = jwtAuthenticationConverter.convert(jwtDecoder.decode(pedirToken()));
+                logger.debug("Token de servicio renovado para {}", clientId);
+            }
+            return actual;
+        }
+    }
+
+    private static boolean vigente(AbstractAuthenticationToken autenticacion) {
+        if (autenticacion == null || !(autenticacion.getCredentials() instanceof Jwt jwt)) return false;
+        return jwt.getExpiresAt() != null && Instant.now().plus(MARGEN_RENOVACION).isBefore(jwt.getExpiresAt());
+    }
+
+    private String pedirToken() {
+        if (clientSecret == null || clientSecret.isBlank()) {
+            throw new IllegalStateException("app.servicio.client-secret no configurado: no hay credencial de servicio");
+        }
+        MultiValueMap<String, String> formulario = new LinkedMultiValueMap<>();
+        formulario.add("grant_type", "client_credentials");
+        formulario.add("client_id", clientId);
+        formulario.add("client_secret", clientSecret);
+        Map<String, Object> respuesta = keycloak.post()
+                .uri(tokenUri)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(formulario)
+                .retrieve()
+                .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+        if (respuesta == null || !(respuesta.get("access_token") instanceof String token)) {
+            throw new IllegalStateException("Keycloak no devolvió un access_token para " + clientId);
+        }
+        return token;
+    }
+}
@@ -0,0 +1,84 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.common.catalogo.Catalogo;
+import com.backend.tpi.common.catalogo.TablaReferencia;
+import com.backend.tpi.ms_rutas_transportistas.models.EstadoTramo;
+import com.backend.tpi.ms_rutas_transportistas.models.TipoTramo;
+import com.backend.tpi.ms_rutas_transportistas.repositories.EstadoTramoRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.TipoTramoRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Catálogo en memoria de las tablas de referencia (EstadoTramo, TipoTramo)
+ * Se carga al iniciar y se sirve desde instantáneas inmutables con lectura a través (TablaReferencia).
+ * Las escrituras en esas tablas lo invalidan solas (CatalogoListener).
+ */
+@Service
+public class CatalogoService implements Catalogo {
+
+    @Autowired
+    private EstadoTramoRepository estadoTramoRepository;
+
+    @Autowired
+    private TipoTramoRepository tipoTramoRepository;
+
+    // Cuánto se recuerda un nombre o ID que no existe antes de volver a consultar la base
+    @Value("${app.catalogo.ausentes-ttl-ms:60000}")
+    private long ausentesTtlMs;
+
+    private TablaReferencia<EstadoTramo> estadosTramo;
+    private TablaReferencia<TipoTramo> tiposTramo;
+
+    @PostConstruct
+    public void crearTablas() {
+        Duration ausentesTtl = Duration.ofMillis(ausentesTtlMs);
+        estadosTramo = new TablaReferencia<>("estado_tramo", estadoTramoRepository::findAll,
+                EstadoTramo::getId, EstadoTramo::getNombre,
+                estadoTramoRepository::findByNombre, estadoTramoRepository::findById, false, ausentesTtl);
+        tiposTramo = new TablaReferencia<>("tipo_tramo", tipoTramoRepository::findAll,
+                TipoTramo::getId, TipoTramo::getNombre,
+                tipoTramoRepository::findByNombre, tipoTramoRepository::findById, false, ausentesTtl);
+    }
+
+    /**
+     * Carga el catálogo completo cuando la aplicación terminó de iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refrescar() {
+        estadosTramo.cargar();
+        tiposTramo.cargar();
+    }
+
+    @Override
+    public void invalidar() {
+        estadosTramo.invalidar();
+        tiposTramo.invalidar();
+    }
+
+    public Optional<EstadoTramo> findEstadoTramoByNombre(String nombre) {
+        return estadosTramo.porNombre(nombre);
+    }
+
+    public Optional<EstadoTramo> findEstadoTramoById(Long id) {
+        return estadosTramo.porId(id);
+    }
+
+    public Optional<TipoTramo> findTipoTramoByNombre(String nombre) {
+        return tiposTramo.porNombre(nombre);
+    }
+
+    /**
+     * Tipo de tramo por defecto: el de menor ID
+     */
+    public Optional<TipoTramo> findTipoTramoPorDefecto() {
+        return tiposTramo.primera();
+    }
+}
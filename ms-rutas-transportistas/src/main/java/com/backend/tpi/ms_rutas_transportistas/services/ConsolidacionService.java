@@ -0,0 +1,389 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.dtos.ContenedorIntegrationDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.ParadaConsolidadaDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.PlanConsolidacionDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.RutaConsolidadaDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.SolicitudIntegrationDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.osrm.CoordenadaDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.osrm.TablaDistanciasDTO;
+import com.backend.tpi.ms_rutas_transportistas.models.Camion;
+import com.backend.tpi.ms_rutas_transportistas.repositories.CamionRepository;
+import com.backend.tpi.ms_rutas_transportistas.services.PlanificadorConsolidacion.Envio;
+import com.backend.tpi.ms_rutas_transportistas.services.PlanificadorConsolidacion.Recorrido;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Servicio de consolidación de solicitudes en rutas compartidas
+ * Toma las solicitudes PROGRAMADA de la ventana, asigna cada una al depósito más cercano a su origen
+ * y a su destino, y por cada depósito de origen (región) arma recorridos de varias paradas que
+ * respetan la capacidad de los camiones. Las regiones se resuelven en paralelo con fork/join.
+ * Solo propone: no crea rutas ni modifica solicitudes.
+ */
+@Service
+public class ConsolidacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsolidacionService.class);
+
+    @Autowired
+    private RestClient solicitudesClient;
+
+    @Autowired
+    private DepositoService depositoService;
+
+    @Autowired
+    private OSRMService osrmService;
+
+    @Autowired
+    private CamionRepository camionRepository;
+
+    @Value("${app.consolidacion.max-iteraciones-busqueda-local:200}")
+    private int maxIteraciones;
+
+    // Máximo de depósitos para pedir la matriz a OSRM en una sola tabla (si se supera se usa Haversine)
+    @Value("${app.consolidacion.osrm-max-depositos:100}")
+    private int osrmMaxDepositos;
+
+    /**
+     * Arma la propuesta de consolidación
+     * @param desde Fecha de creación mínima de las solicitudes (opcional)
+     * @param hasta Fecha de creación máxima, exclusiva (opcional)
+     * @return Plan con las rutas propuestas y la comparación de costos
+     */
+    public PlanConsolidacionDTO planificar(LocalDateTime desde, LocalDateTime hasta) {
+        long inicio = System.currentTimeMillis();
+        PlanConsolidacionDTO plan = new PlanConsolidacionDTO();
+        plan.setDesde(desde);
+        plan.setHasta(hasta);
+        plan.setRutas(new ArrayList<>());
+        plan.setNoPlanificadas(new TreeMap<>());
+
+        String token = extractBearerToken();
+        List<SolicitudIntegrationDTO> solicitudes = obtenerSolicitudesProgramadas(token).stream()
+                .filter(s -> desde == null || (s.getFechaCreacion() != null && !s.getFechaCreacion().isBefore(desde)))
+                .filter(s -> hasta == null || (s.getFechaCreacion() != null && s.getFechaCreacion().isBefore(hasta)))
+                .toList();
+        plan.setSolicitudesConsideradas(solicitudes.size());
+        logger.info("Consolidación: {} solicitudes PROGRAMADA en la ventana {} - {}", solicitudes.size(), desde, hasta);
+
+        List<Camion> flota = camionRepository.findAll().stream()
+                .filter(c -> !Boolean.FALSE.equals(c.getActivo()) && !Boolean.FALSE.equals(c.getDisponible()))
+                .toList();
+        plan.setCamionesDisponibles(flota.size());
+        if (solicitudes.isEmpty() || flota.isEmpty()) {
+            plan.setMensaje(flota.isEmpty() ? "No hay camiones disponibles" : "No hay solicitudes para consolidar");
+            return terminar(plan, inicio, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        // Capacidad por recorrido: la del camión más grande; costos: promedio de la flota
+        double capacidadPeso = flota.stream().mapToDouble(c -> valor(c.getCapacidadPesoMax(), Double.MAX_VALUE)).max().orElse(0);
+        double capacidadVolumen = flota.stream().mapToDouble(c -> valor(c.getCapacidadVolumenMax(), Double.MAX_VALUE)).max().orElse(0);
+        double costoBase = flota.stream().mapToDouble(c -> valor(c.getCostoBase(), 0)).average().orElse(0);
+        double costoPorKm = flota.stream().mapToDouble(c -> valor(c.getCostoPorKm(), 0)).average().orElse(0);
+
+        Map<Long, ContenedorIntegrationDTO> contenedores = obtenerContenedores(token);
+        List<Map<String, Object>> depositos = depositoService.getAllDepositos().stream()
+                .filter(d -> d.get("id") instanceof Number && d.get("latitud") instanceof Number && d.get("longitud") instanceof Number)
+                .toList();
+        if (depositos.isEmpty()) {
+            plan.setMensaje("No se pudo obtener la red de depósitos");
+            return terminar(plan, inicio, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+
+        // Índices compactos de los depósitos usados y envíos por depósito de origen
+        Map<Long, Integer> indice = new LinkedHashMap<>();
+        Map<Integer, List<Envio>> porOrigen = new TreeMap<>();
+        for (SolicitudIntegrationDTO s : solicitudes) {
+            String motivo = validar(s, contenedores, capacidadPeso, capacidadVolumen);
+            if (motivo != null) {
+                plan.getNoPlanificadas().put(s.getId(), motivo);
+                continue;
+            }
+            Long depOrigen = masCercano(depositos, s.getOrigenLat(), s.getOrigenLong());
+            Long depDestino = masCercano(depositos, s.getDestinoLat(), s.getDestinoLong());
+            if (depOrigen.equals(depDestino)) {
+                plan.getNoPlanificadas().put(s.getId(), "Origen y destino corresponden al mismo depósito");
+                continue;
+            }
+            int o = indice.computeIfAbsent(depOrigen, k -> indice.size());
+            int d = indice.computeIfAbsent(depDestino, k -> indice.size());
+            ContenedorIntegrationDTO c = contenedores.get(s.getContenedorId());
+            porOrigen.computeIfAbsent(o, k -> new ArrayList<>())
+                    .add(new Envio(s.getId(), d, c.getPeso().doubleValue(), c.getVolumen().doubleValue()));
+        }
+        if (porOrigen.isEmpty()) {
+            plan.setMensaje("Ninguna solicitud se pudo planificar");
+            return terminar(plan, inicio, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+
+        Long[] depositoDe = indice.keySet().toArray(new Long[0]);
+        double[][] distancias = matrizDistancias(depositoDe, depositos);
+
+        List<Region> regiones = new ArrayList<>();
+        porOrigen.forEach((o, envios) -> regiones.add(new Region(o, envios)));
+        PlanificadorRegiones tarea = new PlanificadorRegiones(regiones, 0, regiones.size(),
+                distancias, capacidadPeso, capacidadVolumen, costoBase, costoPorKm, maxIteraciones);
+        List<List<Recorrido>> resultados = ForkJoinPool.commonPool().invoke(tarea);
+
+        double costoActual = 0;
+        double costoPropuesto = 0;
+        List<RutaConsolidadaDTO> rutas = new ArrayList<>();
+        for (int r = 0; r < regiones.size(); r++) {
+            Region region = regiones.get(r);
+            for (Envio e : region.envios()) {
+                costoActual += costoBase + costoPorKm * distancias[region.origen()][e.destino()];
+            }
+            for (Recorrido recorrido : resultados.get(r)) {
+                double costo = costoBase + costoPorKm * recorrido.distanciaKm();
+                costoPropuesto += costo;
+                rutas.add(aDto(depositoDe, region.origen(), recorrido, distancias, costo));
+            }
+        }
+        asignarCamiones(rutas, flota);
+        plan.setRutas(rutas);
+        plan.setSolicitudesPlanificadas(rutas.stream().mapToInt(r -> r.getParadas().stream().mapToInt(p -> p.getSolicitudesIds().size()).sum()).sum());
+        plan.setCamionesNecesarios(rutas.size());
+        logger.info("Consolidación: {} rutas propuestas para {} solicitudes en {} regiones (costo {} -> {})",
+                rutas.size(), plan.getSolicitudesPlanificadas(), regiones.size(),
+                String.format("%.2f", costoActual), String.format("%.2f", costoPropuesto));
+        return terminar(plan, inicio, BigDecimal.valueOf(costoActual), BigDecimal.valueOf(costoPropuesto));
+    }
+
+    /**
+     * Envíos que salen de un mismo depósito
+     */
+    private record Region(int origen, List<Envio> envios) {}
+
+    /**
+     * Divide las regiones en mitades hasta resolver una por tarea
+     */
+    private static class PlanificadorRegiones extends RecursiveTask<List<List<Recorrido>>> {
+        private final List<Region> regiones;
+        private final int desde;
+        private final int hasta;
+        private final double[][] distancias;
+        private final double capacidadPeso;
+        private final double capacidadVolumen;
+        private final double costoBase;
+        private final double costoPorKm;
+        private final int maxIteraciones;
+
+        PlanificadorRegiones(List<Region> regiones, int desde, int hasta, double[][] distancias,
+                             double capacidadPeso, double capacidadVolumen, double costoBase, double costoPorKm, int maxIteraciones) {
+            this.regiones = regiones;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.distancias = distancias;
+            this.capacidadPeso = capacidadPeso;
+            this.capacidadVolumen = capacidadVolumen;
+            this.costoBase = costoBase;
+            this.costoPorKm = costoPorKm;
+            this.maxIteraciones = maxIteraciones;
+        }
+
+        @Override
+        protected List<List<Recorrido>> compute() {
+            if (hasta - desde == 1) {
+                Region region = regiones.get(desde);
+                PlanificadorConsolidacion planificador = new PlanificadorConsolidacion(distancias, region.origen(),
+                        capacidadPeso, capacidadVolumen, costoBase, costoPorKm, maxIteraciones);
+                List<List<Recorrido>> resultado = new ArrayList<>(1);
+                resultado.add(planificador.resolver(region.envios()));
+                return resultado;
+            }
+            int medio = (desde + hasta) >>> 1;
+            PlanificadorRegiones izquierda = new PlanificadorRegiones(regiones, desde, medio, distancias,
+                    capacidadPeso, capacidadVolumen, costoBase, costoPorKm, maxIteraciones);
+            PlanificadorRegiones derecha = new PlanificadorRegiones(regiones, medio, hasta, distancias,
+                    capacidadPeso, capacidadVolumen, costoBase, costoPorKm, maxIteraciones);
+            izquierda.fork();
+            List<List<Recorrido>> resultado = new ArrayList<>(derecha.compute());
+            resultado.addAll(0, izquierda.join());
+            return resultado;
+        }
+    }
+
+    private String validar(SolicitudIntegrationDTO s, Map<Long, ContenedorIntegrationDTO> contenedores,
+                           double capacidadPeso, double capacidadVolumen) {
+        if (s.getOrigenLat() == null || s.getOrigenLong() == null || s.getDestinoLat() == null || s.getDestinoLong() == null) {
+            return "Solicitud sin coordenadas de origen o destino";
+        }
+        ContenedorIntegrationDTO c = s.getContenedorId() != null ? contenedores.get(s.getContenedorId()) : null;
+        if (c == null || c.getPeso() == null || c.getVolumen() == null) {
+            return "Contenedor inexistente o sin peso/volumen";
+        }
+        if (c.getPeso().doubleValue() > capacidadPeso || c.getVolumen().doubleValue() > capacidadVolumen) {
+            return "El contenedor no entra en ningún camión disponible";
+        }
+        return null;
+    }
+
+    /**
+     * Asigna a cada ruta (de mayor a menor carga) el camión disponible más chico en el que entra
+     */
+    private void asignarCamiones(List<RutaConsolidadaDTO> rutas, List<Camion> flota) {
+        List<Camion> libres = new ArrayList<>(flota);
+        libres.sort(Comparator.comparingDouble((Camion c) -> valor(c.getCapacidadPesoMax(), Double.MAX_VALUE))
+                .thenComparingDouble(c -> valor(c.getCapacidadVolumenMax(), Double.MAX_VALUE)));
+        List<RutaConsolidadaDTO> porCarga = new ArrayList<>(rutas);
+        porCarga.sort(Comparator.comparingDouble(RutaConsolidadaDTO::getPesoTotal).reversed());
+        for (RutaConsolidadaDTO ruta : porCarga) {
+            for (int i = 0; i < libres.size(); i++) {
+                Camion c = libres.get(i);
+                if (valor(c.getCapacidadPesoMax(), Double.MAX_VALUE) >= ruta.getPesoTotal()
+                        && valor(c.getCapacidadVolumenMax(), Double.MAX_VALUE) >= ruta.getVolumenTotal()) {
+                    ruta.setCamionDominio(c.getDominio());
+                    libres.remove(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    private RutaConsolidadaDTO aDto(Long[] depositoDe, int origen, Recorrido recorrido, double[][] distancias, double costo) {
+        RutaConsolidadaDTO dto = new RutaConsolidadaDTO();
+        dto.setDepositoOrigenId(depositoDe[origen]);
+        List<ParadaConsolidadaDTO> paradas = new ArrayList<>();
+        int anterior = origen;
+        double acumulada = 0;
+        ParadaConsolidadaDTO actual = null;
+        for (Envio e : recorrido.envios()) {
+            // Envíos consecutivos al mismo depósito se entregan en una sola parada
+            if (actual == null || e.destino() != anterior) {
+                acumulada += distancias[anterior][e.destino()];
+                actual = new ParadaConsolidadaDTO();
+                actual.setDepositoId(depositoDe[e.destino()]);
+                actual.setSolicitudesIds(new ArrayList<>());
+                actual.setDistanciaAcumuladaKm(redondear(acumulada));
+                paradas.add(actual);
+                anterior = e.destino();
+            }
+            actual.getSolicitudesIds().add(e.solicitudId());
+        }
+        dto.setParadas(paradas);
+        dto.setPesoTotal(redondear(recorrido.peso()));
+        dto.setVolumenTotal(redondear(recorrido.volumen()));
+        dto.setDistanciaKm(redondear(recorrido.distanciaKm()));
+        dto.setCosto(BigDecimal.valueOf(costo).setScale(2, RoundingMode.HALF_UP));
+        return dto;
+    }
+
+    private PlanConsolidacionDTO terminar(PlanConsolidacionDTO plan, long inicio, BigDecimal actual, BigDecimal propuesto) {
+        plan.setCostoActual(actual.setScale(2, RoundingMode.HALF_UP));
+        plan.setCostoPropuesto(propuesto.setScale(2, RoundingMode.HALF_UP));
+        plan.setAhorro(plan.getCostoActual().subtract(plan.getCostoPropuesto()));
+        if (actual.signum() > 0) {
+            plan.setAhorroPorcentaje(redondear(100.0 * plan.getAhorro().doubleValue() / actual.doubleValue()));
+        }
+        plan.setDuracionMs(System.currentTimeMillis() - inicio);
+        return plan;
+    }
+
+    /**
+     * Matriz de distancias entre los depósitos usados: OSRM en una sola tabla, Haversine para los pares sin ruta
+     */
+    private double[][] matrizDistancias(Long[] depositoDe, List<Map<String, Object>> depositos) {
+        Map<Long, Map<String, Object>> porId = new HashMap<>();
+        for (Map<String, Object> d : depositos) porId.put(((Number) d.get("id")).longValue(), d);
+        int n = depositoDe.length;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        List<CoordenadaDTO> coordenadas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> d = porId.get(depositoDe[i]);
+            lat[i] = ((Number) d.get("latitud")).doubleValue();
+            lon[i] = ((Number) d.get("longitud")).doubleValue();
+            coordenadas.add(new CoordenadaDTO(lat[i], lon[i]));
+        }
+        Double[][] osrm = null;
+        if (n <= osrmMaxDepositos) {
+            TablaDistanciasDTO tabla = osrmService.calcularTabla(coordenadas, coordenadas);
+            if (tabla != null && tabla.isExitoso()) osrm = tabla.getDistanciasKm();
+            else logger.warn("Consolidación: OSRM no devolvió la tabla, se usa Haversine");
+        }
+        double[][] distancias = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i == j) continue;
+                Double km = osrm != null ? osrm[i][j] : null;
+                distancias[i][j] = km != null ? km : haversineKm(lat[i], lon[i], lat[j], lon[j]);
+            }
+        }
+        return distancias;
+    }
+
+    private Long masCercano(List<Map<String, Object>> depositos, double lat, double lon) {
+        Long mejor = null;
+        double mejorDistancia = Double.MAX_VALUE;
+        for (Map<String, Object> d : depositos) {
+            double km = haversineKm(lat, lon, ((Number) d.get("latitud")).doubleValue(), ((Number) d.get("longitud")).doubleValue());
+            if (km < mejorDistancia) {
+                mejorDistancia = km;
+                mejor = ((Number) d.get("id")).longValue();
+            }
+        }
+        return mejor;
+    }
+
+    private List<SolicitudIntegrationDTO> obtenerSolicitudesProgramadas(String token) {
+        List<SolicitudIntegrationDTO> solicitudes = solicitudesClient.get()
+                .uri("/api/v1/solicitudes?estado=PROGRAMADA")
+                .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<SolicitudIntegrationDTO>>() {});
+        return solicitudes != null ? solicitudes : List.of();
+    }
+
+    private Map<Long, ContenedorIntegrationDTO> obtenerContenedores(String token) {
+        List<ContenedorIntegrationDTO> lista = solicitudesClient.get()
+                .uri("/api/v1/contenedores")
+                .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<ContenedorIntegrationDTO>>() {});
+        Map<Long, ContenedorIntegrationDTO> porId = new HashMap<>();
+        if (lista != null) for (ContenedorIntegrationDTO c : lista) porId.put(c.getId(), c);
+        return porId;
+    }
+
+    private static double valor(Double v, double porDefecto) {
+        return v != null && v > 0 ? v : porDefecto;
+    }
+
+    private static double redondear(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    private static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private String extractBearerToken() {
+        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
+        if (auth instanceof org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken) {
+            return ((org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken) auth).getToken().getTokenValue();
+        }
+        return null;
+    }
+}
@@ -23,32 +23,71 @@ public class DepositoService {
      */
     public List<Map<String, Object>> getAllDepositos() {
         try {
-            String token = extractBearerToken();
-            ResponseEntity<List<Map<String, Object>>> resp = calculosClient.get()
-                    .uri("/api/v1/depositos")
-                    .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                    .retrieve()
-                    .toEntity(new ParameterizedTypeReference<List<Map<String, Object>>>() {});
-            return resp.getBody() != null ? resp.getBody() : Collections.emptyList();
+            return consultarDepositos();
         } catch (Exception e) {
             logger.warn("Error al obtener lista de depósitos desde ms-gestion-calculos: {}", e.getMessage());
             return Collections.emptyList();
         }
     }
 
+    private List<Map<String, Object>> consultarDepositos() {
+        String token = extractBearerToken();
+        ResponseEntity<List<Map<String, Object>>> resp = calculosClient.get()
+                .uri("/api/v1/depositos")
+                .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                .retrieve()
+                .toEntity(new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+        return resp.getBody() != null ? resp.getBody() : Collections.emptyList();
+    }
+
+    /**
+     * Obtiene la capacidad (contenedores) de los depósitos que la tienen cargada
+     * @return Mapa de ID de depósito a capacidad
+     * @throws RuntimeException si ms-gestion-calculos no respondió (no se confunde con "sin capacidades")
+     */
+    public Map<Long, Integer> getCapacidades() {
+        Map<Long, Integer> capacidades = new HashMap<>();
+        for (Map<String, Object> d : consultarDepositos()) {
+            if (d.get("id") instanceof Number id && d.get("capacidad") instanceof Number capacidad) {
+                capacidades.put(id.longValue(), capacidad.intValue());
+            }
+        }
+        return capacidades;
+    }
+
+    /**
+     * Obtiene el horario de atención de los depósitos que lo tienen cargado
+     * @return Mapa de ID de depósito a {apertura, cierre}
+     */
+    public Map<Long, java.time.LocalTime[]> getHorarios() {
+        Map<Long, java.time.LocalTime[]> horarios = new HashMap<>();
+        for (Map<String, Object> d : getAllDepositos()) {
+            if (d.get("id") instanceof Number id && d.get("horaApertura") instanceof String apertura
+                    && d.get("horaCierre") instanceof String cierre) {
+                try {
+                    horarios.put(id.longValue(), new java.time.LocalTime[] {
+                            java.time.LocalTime.parse(apertura), java.time.LocalTime.parse(cierre) });
+                } catch (java.time.format.DateTimeParseException e) {
+                    logger.warn("Horario inválido en depósito {}: {} - {}", id, apertura, cierre);
+                }
+            }
+        }
+        return horarios;
+    }
+
     /**
      * Obtiene info para un conjunto de depósitos usando el endpoint /depositos/{id}/coordenadas
      */
     public Map<Long, Map<String, Object>> getInfoForDepositos(List<Long> depositosIds) {
-        logger.info("=== INICIO getInfoForDepositos ===");
-        logger.info("Solicitando info para depósitos: {}", depositosIds);
+        logger.debug("Solicitando info para depósitos: {}", depositosIds);
         Map<Long, Map<String, Object>> resultado = new HashMap<>();
         if (depositosIds == null || depositosIds.isEmpty()) return resultado;
         String token = extractBearerToken();
-        logger.info("Token extraído: {}", token != null ? "PRESENTE (longitud=" + token.length() + ")" : "AUSENTE");
+        if (logger.isDebugEnabled()) {
+            logger.debug("Token extraído: {}", token != null ? "PRESENTE (longitud=" + token.length() + ")" : "AUSENTE");
+        }
         for (Long id : depositosIds) {
             try {
-                logger.info("Llamando GET /api/v1/depositos/{}/coordenadas", id);
                 ResponseEntity<Map<String, Object>> resp = calculosClient.get()
                         .uri("/api/v1/depositos/{id}/coordenadas", id)
                         .headers(h -> { if (token != null) h.setBearerAuth(token); })
@@ -56,7 +95,7 @@ public class DepositoService {
                         .toEntity(new ParameterizedTypeReference<Map<String, Object>>() {});
                 if (resp.getBody() != null) {
                     resultado.put(id, resp.getBody());
-                    logger.info("Depósito {} obtenido: {}", id, resp.getBody());
+                    logger.debug("Depósito {} obtenido: {}", id, resp.getBody());
                 } else {
                     logger.warn("Depósito {} respondió con body null", id);
                 }
@@ -64,7 +103,7 @@ public class DepositoService {
                 logger.error("Error al obtener info del depósito {}: {} - {}", id, e.getClass().getSimpleName(), e.getMessage());
             }
         }
-        logger.info("=== FIN getInfoForDepositos: {} depósitos obtenidos ===", resultado.size());
+        logger.debug("getInfoForDepositos: {} de {} depósitos obtenidos", resultado.size(), depositosIds.size());
         return resultado;
     }
 
@@ -73,7 +112,14 @@ public class DepositoService {
      * excluyendo origenId y destinoId.
      */
     public List<Long> getKNearestToRoute(Long origenId, Long destinoId, int k) {
-        List<Map<String, Object>> all = getAllDepositos();
+        return kMasCercanosAlSegmento(getAllDepositos(), origenId, destinoId, k);
+    }
+
+    /**
+     * Selección de los k depósitos más cercanos al segmento sobre una lista ya obtenida
+     * (sin estado ni llamadas remotas; la usan también los benchmarks)
+     */
+    static List<Long> kMasCercanosAlSegmento(List<Map<String, Object>> all, Long origenId, Long destinoId, int k) {
         if (all.isEmpty()) return Collections.emptyList();
 
         Map<Long, Map<String, Object>> mapById = new HashMap<>();
@@ -122,7 +168,7 @@ public class DepositoService {
     }
 
     // Approximate distance from point P to segment AB in kilometers using equirectangular projection
-    private double pointToSegmentDistanceKm(double aLat, double aLon, double bLat, double bLon, double pLat, double pLon) {
+    static double pointToSegmentDistanceKm(double aLat, double aLon, double bLat, double bLon, double pLat, double pLon) {
         // convert degrees to radians
         double lat1 = Math.toRadians(aLat);
         double lon1 = Math.toRadians(aLon);
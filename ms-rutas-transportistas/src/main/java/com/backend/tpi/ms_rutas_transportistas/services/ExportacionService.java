@@ -0,0 +1,120 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.common.exportacion.ExportadorFilas;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Servicio de exportación de rutas y tramos para reportes
+ * Las filas se escriben en CSV o NDJSON a medida que se leen (ExportadorFilas)
+ */
+@Service
+public class ExportacionService {
+
+    private static final String SQL_RUTAS =
+            "SELECT r.id_ruta AS \"id\", r.id_solicitud AS \"idSolicitud\", r.fecha_creacion AS \"fechaCreacion\", " +
+            "r.opcion_seleccionada_id AS \"opcionSeleccionadaId\", r.tramos_total AS \"tramosTotal\", " +
+            "r.tramos_finalizados AS \"tramosFinalizados\", r.costo_real_acumulado AS \"costoRealAcumulado\", " +
+            "r.horas_reales_acumuladas AS \"horasRealesAcumuladas\", " + estadoRuta() + " AS \"estado\" " +
+            "FROM rutas r WHERE 1 = 1";
+
+    private static final String SQL_TRAMOS =
+            "SELECT t.id_tramo AS \"id\", t.ruta_id AS \"idRuta\", t.orden AS \"orden\", et.nombre AS \"estado\", " +
+            "tt.nombre AS \"tipo\", t.camion_dominio AS \"camionDominio\", t.origen_deposito_id AS \"origenDepositoId\", " +
+            "t.destino_deposito_id AS \"destinoDepositoId\", t.origen_lat AS \"origenLat\", t.origen_long AS \"origenLong\", " +
+            "t.destino_lat AS \"destinoLat\", t.destino_long AS \"destinoLong\", t.distancia AS \"distancia\", " +
+            "t.duracion_horas AS \"duracionHoras\", t.costo_aproximado AS \"costoAproximado\", t.costo_real AS \"costoReal\", " +
+            "t.fecha_hora_inicio_estimada AS \"fechaHoraInicioEstimada\", t.fecha_hora_fin_estimada AS \"fechaHoraFinEstimada\", " +
+            "t.fecha_hora_inicio_real AS \"fechaHoraInicioReal\", t.fecha_hora_fin_real AS \"fechaHoraFinReal\" " +
+            "FROM tramos t LEFT JOIN estado_tramo et ON et.id = t.estado_tramo_id " +
+            "LEFT JOIN tipo_tramo tt ON tt.id = t.tipo_tramo_id WHERE 1 = 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Filas que el driver trae por viaje al servidor (con autocommit off PostgreSQL usa un cursor)
+    @Value("${app.exportacion.fetch-size:1000}")
+    private int fetchSize;
+
+    private ExportadorFilas exportador;
+
+    @PostConstruct
+    public void crearExportador() {
+        exportador = new ExportadorFilas(jdbcTemplate, transactionManager, objectMapper, fetchSize);
+    }
+
+    /**
+     * Exporta rutas con sus agregados de avance
+     * @param desde Fecha de creación mínima (opcional)
+     * @param hasta Fecha de creación máxima, exclusiva (opcional)
+     * @param estado PENDIENTE, EN_CURSO o COMPLETADA según el estado de los tramos (opcional)
+     * @param formato csv o ndjson
+     * @param salida Stream de la respuesta
+     * @return Filas exportadas
+     */
+    public long exportarRutas(LocalDateTime desde, LocalDateTime hasta, String estado, String formato, OutputStream salida) {
+        StringBuilder sql = new StringBuilder(SQL_RUTAS);
+        List<Object> params = new ArrayList<>();
+        if (desde != null) { sql.append(" AND r.fecha_creacion >= ?"); params.add(Timestamp.valueOf(desde)); }
+        if (hasta != null) { sql.append(" AND r.fecha_creacion < ?"); params.add(Timestamp.valueOf(hasta)); }
+        if (estado != null && !estado.isBlank()) { sql.append(" AND ").append(estadoRuta()).append(" = ?"); params.add(estado.trim().toUpperCase()); }
+        sql.append(" ORDER BY r.id_ruta");
+        return exportador.exportar("rutas", sql.toString(), params, formato, salida);
+    }
+
+    /**
+     * Exporta tramos con el nombre de su estado y tipo
+     * @param desde Inicio (real o, si no comenzó, estimado) mínimo (opcional)
+     * @param hasta Inicio máximo, exclusivo (opcional)
+     * @param estado Nombre del estado del tramo (opcional)
+     * @param rutaId Ruta (opcional)
+     * @param formato csv o ndjson
+     * @param salida Stream de la respuesta
+     * @return Filas exportadas
+     */
+    public long exportarTramos(LocalDateTime desde, LocalDateTime hasta, String estado, Long rutaId, String formato, OutputStream salida) {
+        StringBuilder sql = new StringBuilder(SQL_TRAMOS);
+        List<Object> params = new ArrayList<>();
+        String inicio = "COALESCE(t.fecha_hora_inicio_real, t.fecha_hora_inicio_estimada)";
+        if (desde != null) { sql.append(" AND ").append(inicio).append(" >= ?"); params.add(Timestamp.valueOf(desde)); }
+        if (hasta != null) { sql.append(" AND ").append(inicio).append(" < ?"); params.add(Timestamp.valueOf(hasta)); }
+        if (estado != null && !estado.isBlank()) { sql.append(" AND UPPER(et.nombre) = ?"); params.add(estado.trim().toUpperCase()); }
+        if (rutaId != null) { sql.append(" AND t.ruta_id = ?"); params.add(rutaId); }
+        sql.append(" ORDER BY t.id_tramo");
+        return exportador.exportar("tramos", sql.toString(), params, formato, salida);
+    }
+
+    /**
+     * Estado de la ruta derivado del estado de sus tramos (no de los agregados, que solo cuentan finalizados)
+     * - COMPLETADA: tiene tramos y todos terminaron
+     * - EN_CURSO: algún tramo comenzó
+     * - PENDIENTE: ningún tramo comenzó (o todavía no tiene tramos)
+     * Un tramo comenzó si tiene inicio real o estado EN_PROCESO; terminó si tiene fin real o estado FINALIZADO/COMPLETADO
+     */
+    private static String estadoRuta() {
+        String tramosDeLaRuta = "SELECT 1 FROM tramos t LEFT JOIN estado_tramo et ON et.id = t.estado_tramo_id " +
+                "WHERE t.ruta_id = r.id_ruta";
+        String terminado = "(t.fecha_hora_fin_real IS NOT NULL OR UPPER(et.nombre) IN ('FINALIZADO', 'COMPLETADO'))";
+        String comenzado = "(t.fecha_hora_inicio_real IS NOT NULL OR UPPER(et.nombre) = 'EN_PROCESO' OR " + terminado + ")";
+        return "(CASE WHEN EXISTS (" + tramosDeLaRuta + ") AND NOT EXISTS (" + tramosDeLaRuta + " AND NOT " + terminado + ") " +
+               "THEN 'COMPLETADA' " +
+               "WHEN EXISTS (" + tramosDeLaRuta + " AND " + comenzado + ") THEN 'EN_CURSO' ELSE 'PENDIENTE' END)";
+    }
+}
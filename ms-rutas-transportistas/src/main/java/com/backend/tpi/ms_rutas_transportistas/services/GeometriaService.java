@@ -0,0 +1,339 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio para simplificar y compactar geometrías de rutas
+ * Las geometrías llegan de OSRM como polylines codificadas (precisión 1e5), una por tramo,
+ * combinadas con el separador ";" (fuera del alfabeto polyline, a diferencia de "|"). Este servicio:
+ * - simplifica cada polyline con Douglas-Peucker según la tolerancia del nivel de detalle
+ * - almacena las coordenadas como deltas zigzag-varint en binario (columna bytea)
+ * - reconstruye la polyline al nivel de detalle pedido por el cliente
+ */
+@Service
+public class GeometriaService {
+
+    public static final String NIVEL_BAJA = "baja";
+    public static final String NIVEL_MEDIA = "media";
+    public static final String NIVEL_ALTA = "alta";
+
+    private static final String SEPARADOR = ";";
+    private static final byte VERSION_FORMATO = 1;
+    private static final double FACTOR_POLYLINE = 1e5;
+    // Metros por unidad de coordenada en precisión 1e5 (aprox. 111.32 km por grado)
+    private static final double METROS_POR_UNIDAD = 111_320.0 / FACTOR_POLYLINE;
+
+    private final Map<String, Double> toleranciasMetros = new LinkedHashMap<>();
+
+    public GeometriaService(
+            @Value("${app.geometria.tolerancia-metros.baja:500}") double toleranciaBaja,
+            @Value("${app.geometria.tolerancia-metros.media:100}") double toleranciaMedia,
+            @Value("${app.geometria.tolerancia-metros.alta:10}") double toleranciaAlta) {
+        toleranciasMetros.put(NIVEL_BAJA, toleranciaBaja);
+        toleranciasMetros.put(NIVEL_MEDIA, toleranciaMedia);
+        toleranciasMetros.put(NIVEL_ALTA, toleranciaAlta);
+    }
+
+    /**
+     * Indica si el nivel de detalle es uno de los configurados (baja, media, alta)
+     */
+    public boolean esNivelValido(String nivel) {
+        return nivel != null && toleranciasMetros.containsKey(nivel.toLowerCase());
+    }
+
+    /**
+     * Simplifica cada polyline de tramo al nivel indicado y las combina en una sola geometría
+     * @param segmentos polylines codificadas, una por tramo
+     * @param nivel nivel de detalle (baja, media, alta)
+     * @return polylines simplificadas separadas por ";", o null si no hay segmentos
+     */
+    public String combinar(List<String> segmentos, String nivel) {
+        if (segmentos == null || segmentos.isEmpty()) return null;
+        double tolerancia = toleranciaPara(nivel);
+        List<String> resultado = new ArrayList<>(segmentos.size());
+        for (String polyline : segmentos) {
+            resultado.add(codificarPolyline(douglasPeucker(decodificarPolyline(polyline), tolerancia)));
+        }
+        return String.join(SEPARADOR, resultado);
+    }
+
+    /**
+     * Simplifica una geometría combinada (polylines separadas por ";") al nivel indicado
+     * @param geometryCombinada polylines codificadas separadas por ";"
+     * @param nivel nivel de detalle (baja, media, alta)
+     * @return geometría simplificada con el mismo formato, o null si la entrada es null
+     */
+    public String simplificar(String geometryCombinada, String nivel) {
+        if (geometryCombinada == null || geometryCombinada.isEmpty()) return geometryCombinada;
+        return combinar(dividir(geometryCombinada), nivel);
+    }
+
+    /**
+     * Simplifica la geometría al nivel de almacenamiento (alta) y la empaqueta en binario
+     * Formato: versión, cantidad de segmentos y, por segmento, cantidad de puntos seguida
+     * de los deltas lat/long en zigzag-varint
+     * @param geometryCombinada polylines codificadas separadas por ";"
+     * @return bytes compactos, o null si no hay geometría
+     */
+    public byte[] comprimir(String geometryCombinada) {
+        if (geometryCombinada == null || geometryCombinada.isEmpty()) return null;
+        double tolerancia = toleranciaPara(NIVEL_ALTA);
+        List<String> segmentos = dividir(geometryCombinada);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(geometryCombinada.length() / 2);
+        out.write(VERSION_FORMATO);
+        escribirVarint(out, segmentos.size());
+        for (String polyline : segmentos) {
+            int[] puntos = douglasPeucker(decodificarPolyline(polyline), tolerancia);
+            escribirVarint(out, puntos.length / 2);
+            int latPrev = 0;
+            int lonPrev = 0;
+            for (int i = 0; i < puntos.length; i += 2) {
+                escribirVarint(out, zigzag(puntos[i] - latPrev));
+                escribirVarint(out, zigzag(puntos[i + 1] - lonPrev));
+                latPrev = puntos[i];
+                lonPrev = puntos[i + 1];
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reconstruye la geometría combinada a partir de los bytes compactos
+     * @param datos bytes generados por {@link #comprimir(String)}
+     * @param nivel nivel de detalle pedido (baja, media, alta)
+     * @return polylines codificadas separadas por ";", o null si no hay datos
+     */
+    public String descomprimir(byte[] datos, String nivel) {
+        if (datos == null || datos.length == 0) return null;
+        if (datos[0] != VERSION_FORMATO) {
+            throw new IllegalArgumentException("Formato de geometría compacta no soportado: " + datos[0]);
+        }
+        double tolerancia = toleranciaPara(nivel);
+        int[] pos = {1};
+        int cantidadSegmentos = leerVarint(datos, pos);
+        List<String> resultado = new ArrayList<>(cantidadSegmentos);
+        for (int s = 0; s < cantidadSegmentos; s++) {
+            int cantidadPuntos = leerVarint(datos, pos);
+            int[] puntos = new int[cantidadPuntos * 2];
+            int lat = 0;
+            int lon = 0;
+            for (int i = 0; i < puntos.length; i += 2) {
+                lat += unzigzag(leerVarint(datos, pos));
+                lon += unzigzag(leerVarint(datos, pos));
+                puntos[i] = lat;
+                puntos[i + 1] = lon;
+            }
+            resultado.add(codificarPolyline(douglasPeucker(puntos, tolerancia)));
+        }
+        return String.join(SEPARADOR, resultado);
+    }
+
+    /**
+     * Devuelve la geometría de una opción al nivel pedido, usando la columna compacta si existe.
+     * Las opciones antiguas guardaban el texto unido con "|", que también es un carácter válido
+     * de polyline; como no se puede separar de forma segura se devuelve tal cual
+     */
+    public String resolver(byte[] compacta, String legacy, String nivel) {
+        if (compacta != null && compacta.length > 0) return descomprimir(compacta, nivel);
+        return legacy;
+    }
+
+    private double toleranciaPara(String nivel) {
+        Double tolerancia = nivel != null ? toleranciasMetros.get(nivel.toLowerCase()) : null;
+        if (tolerancia == null) {
+            throw new IllegalArgumentException("Nivel de detalle inválido: " + nivel
+                    + ". Valores permitidos: " + toleranciasMetros.keySet());
+        }
+        return tolerancia;
+    }
+
+    private static List<String> dividir(String geometryCombinada) {
+        List<String> partes = new ArrayList<>();
+        int inicio = 0;
+        int idx;
+        while ((idx = geometryCombinada.indexOf(SEPARADOR, inicio)) >= 0) {
+            partes.add(geometryCombinada.substring(inicio, idx));
+            inicio = idx + 1;
+        }
+        partes.add(geometryCombinada.substring(inicio));
+        return partes;
+    }
+
+    // ---- Douglas-Peucker ----
+
+    /**
+     * Simplifica una secuencia de puntos [lat0, lon0, lat1, lon1, ...] en unidades 1e5.
+     * Versión iterativa (pila explícita) para no depender de la profundidad de recursión.
+     */
+    static int[] douglasPeucker(int[] puntos, double toleranciaMetros) {
+        int n = puntos.length / 2;
+        if (n < 3 || toleranciaMetros <= 0) return puntos;
+
+        // Proyección equirectangular: se usa la latitud del primer punto como referencia
+        double escalaLon = Math.cos(Math.toRadians(puntos[0] / FACTOR_POLYLINE));
+        double tolerancia2 = (toleranciaMetros / METROS_POR_UNIDAD) * (toleranciaMetros / METROS_POR_UNIDAD);
+
+        boolean[] conservar = new boolean[n];
+        conservar[0] = true;
+        conservar[n - 1] = true;
+        int conservados = 2;
+
+        Deque<int[]> pila = new ArrayDeque<>();
+        pila.push(new int[]{0, n - 1});
+        while (!pila.isEmpty()) {
+            int[] rango = pila.pop();
+            int a = rango[0];
+            int b = rango[1];
+            double maxDist = -1;
+            int idxMax = -1;
+            for (int i = a + 1; i < b; i++) {
+                double d = distanciaSegmento2(puntos, i, a, b, escalaLon);
+                if (d > maxDist) {
+                    maxDist = d;
+                    idxMax = i;
+                }
+            }
+            if (idxMax >= 0 && maxDist > tolerancia2) {
+                conservar[idxMax] = true;
+                conservados++;
+                pila.push(new int[]{a, idxMax});
+                pila.push(new int[]{idxMax, b});
+            }
+        }
+
+        if (conservados == n) return puntos;
+        int[] resultado = new int[conservados * 2];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (conservar[i]) {
+                resultado[j++] = puntos[2 * i];
+                resultado[j++] = puntos[2 * i + 1];
+            }
+        }
+        return resultado;
+    }
+
+    // Distancia al cuadrado (en unidades 1e5 proyectadas) del punto p al segmento a-b
+    private static double distanciaSegmento2(int[] puntos, int p, int a, int b, double escalaLon) {
+        double ay = puntos[2 * a];
+        double ax = puntos[2 * a + 1] * escalaLon;
+        double by = puntos[2 * b];
+        double bx = puntos[2 * b + 1] * escalaLon;
+        double py = puntos[2 * p];
+        double px = puntos[2 * p + 1] * escalaLon;
+
+        double vx = bx - ax;
+        double vy = by - ay;
+        double wx = px - ax;
+        double wy = py - ay;
+        double c2 = vx * vx + vy * vy;
+        double t = c2 == 0 ? 0 : (vx * wx + vy * wy) / c2;
+        if (t < 0) t = 0;
+        if (t > 1) t = 1;
+        double dx = px - (ax + t * vx);
+        double dy = py - (ay + t * vy);
+        return dx * dx + dy * dy;
+    }
+
+    // ---- Polyline (formato Google / OSRM, precisión 5) ----
+
+    static int[] decodificarPolyline(String polyline) {
+        if (polyline == null || polyline.isEmpty()) return new int[0];
+        int[] puntos = new int[Math.max(2, polyline.length() / 2)];
+        int cantidad = 0;
+        int idx = 0;
+        int lat = 0;
+        int lon = 0;
+        int largo = polyline.length();
+        while (idx < largo) {
+            int[] valor = new int[1];
+            idx = leerValorPolyline(polyline, idx, valor);
+            lat += valor[0];
+            if (idx >= largo) break;
+            idx = leerValorPolyline(polyline, idx, valor);
+            lon += valor[0];
+            if (cantidad + 2 > puntos.length) puntos = Arrays.copyOf(puntos, puntos.length * 2);
+            puntos[cantidad++] = lat;
+            puntos[cantidad++] = lon;
+        }
+        return Arrays.copyOf(puntos, cantidad);
+    }
+
+    private static int leerValorPolyline(String polyline, int idx, int[] valor) {
+        int resultado = 0;
+        int desplazamiento = 0;
+        int b;
+        do {
+            b = polyline.charAt(idx++) - 63;
+            resultado |= (b & 0x1f) << desplazamiento;
+            desplazamiento += 5;
+        } while (b >= 0x20 && idx < polyline.length());
+        valor[0] = (resultado & 1) != 0 ? ~(resultado >> 1) : (resultado >> 1);
+        return idx;
+    }
+
+    static String codificarPolyline(int[] puntos) {
+        StringBuilder sb = new StringBuilder(puntos.length * 3);
+        int latPrev = 0;
+        int lonPrev = 0;
+        for (int i = 0; i < puntos.length; i += 2) {
+            escribirValorPolyline(sb, puntos[i] - latPrev);
+            escribirValorPolyline(sb, puntos[i + 1] - lonPrev);
+            latPrev = puntos[i];
+            lonPrev = puntos[i + 1];
+        }
+        return sb.toString();
+    }
+
+    private static void escribirValorPolyline(StringBuilder sb, int valor) {
+        int v = valor < 0 ? ~(valor << 1) : (valor << 1);
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+
+    // ---- Varint ----
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream out, int valor) {
+        int v = valor;
+        while ((v & ~0x7f) != 0) {
+            out.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int leerVarint(byte[] datos, int[] pos) {
+        int resultado = 0;
+        int desplazamiento = 0;
+        while (true) {
+            if (pos[0] >= datos.length) {
+                throw new IllegalArgumentException("Geometría compacta truncada");
+            }
+            byte b = datos[pos[0]++];
+            resultado |= (b & 0x7f) << desplazamiento;
+            if ((b & 0x80) == 0) return resultado;
+            desplazamiento += 7;
+        }
+    }
+}
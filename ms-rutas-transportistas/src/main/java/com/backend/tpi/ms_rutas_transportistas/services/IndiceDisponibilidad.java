@@ -0,0 +1,168 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Índice de ocupación de un camión: árbol de intervalos (treap ordenado por inicio y aumentado
+ * con el fin máximo de cada subárbol) sobre los períodos en que el camión no está libre
+ * (tramos programados y bloqueos de calendario).
+ * Los intervalos son semiabiertos [inicio, fin) en minutos desde la época y se identifican por una clave,
+ * así un tramo reprogramado reemplaza su intervalo anterior.
+ * Las consultas de solapamiento cuestan O(log n + k); los métodos son sincronizados porque el índice
+ * se comparte entre requests.
+ */
+public class IndiceDisponibilidad {
+
+    /**
+     * Período ocupado
+     */
+    public record Intervalo(String clave, long inicio, long fin) {}
+
+    private static class Nodo {
+        final Intervalo intervalo;
+        final int prioridad;
+        long finMaximo;
+        Nodo izquierdo;
+        Nodo derecho;
+
+        Nodo(Intervalo intervalo) {
+            this.intervalo = intervalo;
+            this.prioridad = ThreadLocalRandom.current().nextInt();
+            this.finMaximo = intervalo.fin();
+        }
+    }
+
+    private Nodo raiz;
+    private final Map<String, Intervalo> porClave = new HashMap<>();
+
+    /**
+     * Agrega (o reemplaza) el intervalo de una clave; los intervalos vacíos solo quitan el anterior
+     */
+    public synchronized void agregar(String clave, long inicio, long fin) {
+        quitar(clave);
+        if (fin <= inicio) return;
+        Intervalo intervalo = new Intervalo(clave, inicio, fin);
+        porClave.put(clave, intervalo);
+        Nodo[] partes = dividir(raiz, intervalo);
+        raiz = unir(unir(partes[0], new Nodo(intervalo)), partes[1]);
+    }
+
+    /**
+     * Quita el intervalo de una clave
+     * @return true si existía
+     */
+    public synchronized boolean quitar(String clave) {
+        Intervalo intervalo = porClave.remove(clave);
+        if (intervalo == null) return false;
+        raiz = quitar(raiz, intervalo);
+        return true;
+    }
+
+    /**
+     * Intervalo registrado para una clave, o null
+     */
+    public synchronized Intervalo buscar(String clave) {
+        return porClave.get(clave);
+    }
+
+    public synchronized int tamanio() {
+        return porClave.size();
+    }
+
+    /**
+     * Intervalos que se solapan con [inicio, fin)
+     */
+    public synchronized List<Intervalo> solapados(long inicio, long fin) {
+        List<Intervalo> resultado = new ArrayList<>();
+        solapados(raiz, inicio, fin, resultado);
+        return resultado;
+    }
+
+    /**
+     * Primer instante t >= desde en que [t, t + duracion) no se solapa con ningún intervalo
+     * @param ignorar Claves que no cuentan como ocupación (por ejemplo, el propio tramo que se reprograma)
+     */
+    public synchronized long primerHueco(long desde, long duracion, Set<String> ignorar) {
+        long largo = Math.max(1, duracion);
+        long t = desde;
+        while (true) {
+            List<Intervalo> conflictos = new ArrayList<>();
+            solapados(raiz, t, t + largo, conflictos);
+            long siguiente = t;
+            for (Intervalo i : conflictos) {
+                if (ignorar != null && ignorar.contains(i.clave())) continue;
+                siguiente = Math.max(siguiente, i.fin());
+            }
+            // Cada vuelta salta al fin de al menos un intervalo, así termina en a lo sumo n vueltas
+            if (siguiente == t) return t;
+            t = siguiente;
+        }
+    }
+
+    private static void solapados(Nodo nodo, long inicio, long fin, List<Intervalo> resultado) {
+        // Ningún intervalo del subárbol termina después de inicio
+        if (nodo == null || nodo.finMaximo <= inicio) return;
+        solapados(nodo.izquierdo, inicio, fin, resultado);
+        Intervalo i = nodo.intervalo;
+        if (i.inicio() < fin && i.fin() > inicio) resultado.add(i);
+        // A la derecha todos empiezan en o después de nodo.inicio
+        if (i.inicio() < fin) solapados(nodo.derecho, inicio, fin, resultado);
+    }
+
+    private static int comparar(Intervalo a, Intervalo b) {
+        int c = Long.compare(a.inicio(), b.inicio());
+        return c != 0 ? c : a.clave().compareTo(b.clave());
+    }
+
+    /**
+     * Divide en (menores que pivote, mayores o iguales)
+     */
+    private static Nodo[] dividir(Nodo nodo, Intervalo pivote) {
+        if (nodo == null) return new Nodo[] { null, null };
+        if (comparar(nodo.intervalo, pivote) < 0) {
+            Nodo[] partes = dividir(nodo.derecho, pivote);
+            nodo.derecho = partes[0];
+            actualizar(nodo);
+            return new Nodo[] { nodo, partes[1] };
+        }
+        Nodo[] partes = dividir(nodo.izquierdo, pivote);
+        nodo.izquierdo = partes[1];
+        actualizar(nodo);
+        return new Nodo[] { partes[0], nodo };
+    }
+
+    private static Nodo unir(Nodo a, Nodo b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.prioridad > b.prioridad) {
+            a.derecho = unir(a.derecho, b);
+            actualizar(a);
+            return a;
+        }
+        b.izquierdo = unir(a, b.izquierdo);
+        actualizar(b);
+        return b;
+    }
+
+    private static Nodo quitar(Nodo nodo, Intervalo intervalo) {
+        if (nodo == null) return null;
+        int c = comparar(intervalo, nodo.intervalo);
+        if (c == 0) return unir(nodo.izquierdo, nodo.derecho);
+        if (c < 0) nodo.izquierdo = quitar(nodo.izquierdo, intervalo);
+        else nodo.derecho = quitar(nodo.derecho, intervalo);
+        actualizar(nodo);
+        return nodo;
+    }
+
+    private static void actualizar(Nodo nodo) {
+        long max = nodo.intervalo.fin();
+        if (nodo.izquierdo != null) max = Math.max(max, nodo.izquierdo.finMaximo);
+        if (nodo.derecho != null) max = Math.max(max, nodo.derecho.finMaximo);
+        nodo.finMaximo = max;
+    }
+}
@@ -0,0 +1,40 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.eventos.ConsumidorEventos;
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor que mantiene los agregados de KPIs a partir del inicio y fin de tramos
+ * El registro de idempotencia del broker garantiza que cada evento se sume una sola vez
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class KpiEventosConsumidor implements ConsumidorEventos {
+
+    @Autowired
+    private KpiService kpiService;
+
+    @Override
+    public String nombre() {
+        return "kpis";
+    }
+
+    @Override
+    public boolean acepta(TipoEvento tipo) {
+        return tipo == TipoEvento.TRAMO_INICIADO || tipo == TipoEvento.TRAMO_FINALIZADO;
+    }
+
+    @Override
+    public void procesar(EventoOutbox evento) {
+        switch (evento.getTipo()) {
+            case TRAMO_INICIADO -> kpiService.registrarTramoIniciado(evento.getTramoId());
+            case TRAMO_FINALIZADO -> kpiService.registrarTramoFinalizado(evento.getTramoId());
+            default -> { }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.dtos.KpiDTO;
+import com.backend.tpi.ms_rutas_transportistas.models.KpiAgregado;
+import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
+import com.backend.tpi.ms_rutas_transportistas.repositories.KpiAgregadoRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.TramoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio de KPIs operativos (puntualidad, costo por km, utilización de camiones, estadía en depósitos)
+ * Los eventos de inicio y fin de tramo actualizan agregados diarios por día, camión y depósito;
+ * las consultas combinan esos agregados sin recorrer la tabla de tramos.
+ */
+@Service
+public class KpiService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiService.class);
+
+    @Autowired
+    private KpiAgregadoRepository kpiAgregadoRepository;
+
+    @Autowired
+    private TramoRepository tramoRepository;
+
+    // Un tramo que llega hasta esta demora respecto de la estimada cuenta como puntual
+    @Value("${app.kpis.tolerancia-puntualidad-minutos:30}")
+    private double toleranciaMinutos;
+
+    @Value("${app.kpis.compresion-digest:100}")
+    private double compresion;
+
+    @Value("${app.kpis.dias-por-defecto:30}")
+    private int diasPorDefecto;
+
+    /**
+     * Registra el inicio de un tramo: cuenta el inicio y, si sale de un depósito
+     * al que llegó el tramo anterior de la ruta, la estadía en ese depósito
+     * @param tramoId ID del tramo iniciado
+     */
+    @Transactional
+    public void registrarTramoIniciado(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getFechaHoraInicioReal() == null) {
+            logger.warn("KPIs: tramo {} inexistente o sin inicio real, se ignora", tramoId);
+            return;
+        }
+        LocalDateTime inicio = tramo.getFechaHoraInicioReal();
+        LocalDate fecha = inicio.toLocalDate();
+
+        // Siempre en el mismo orden (día, camión, depósito) para no generar bloqueos cruzados
+        KpiAgregado dia = agregado(KpiAgregado.DIA, KpiAgregado.TOTAL, fecha);
+        dia.setTramosIniciados(dia.getTramosIniciados() + 1);
+        if (tramo.getCamionDominio() != null) {
+            KpiAgregado camion = agregado(KpiAgregado.CAMION, tramo.getCamionDominio(), fecha);
+            camion.setTramosIniciados(camion.getTramosIniciados() + 1);
+        }
+        if (tramo.getOrigenDepositoId() != null && tramo.getRuta() != null && tramo.getOrden() != null && tramo.getOrden() > 1) {
+            Tramo anterior = tramoRepository.findByRutaIdAndOrden(tramo.getRuta().getId(), tramo.getOrden() - 1).orElse(null);
+            if (anterior != null && anterior.getFechaHoraFinReal() != null && !anterior.getFechaHoraFinReal().isAfter(inicio)) {
+                double horas = horas(anterior.getFechaHoraFinReal(), inicio);
+                KpiAgregado deposito = agregado(KpiAgregado.DEPOSITO, tramo.getOrigenDepositoId().toString(), fecha);
+                deposito.setEstadias(deposito.getEstadias() + 1);
+                deposito.setEstadiaTotalHoras(deposito.getEstadiaTotalHoras() + horas);
+                deposito.setDigestEstadias(agregarADigest(deposito.getDigestEstadias(), horas));
+            }
+        }
+    }
+
+    /**
+     * Registra la finalización de un tramo: puntualidad, demora, costo, distancia y horas,
+     * y la llegada al depósito de destino
+     * @param tramoId ID del tramo finalizado
+     */
+    @Transactional
+    public void registrarTramoFinalizado(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getFechaHoraFinReal() == null) {
+            logger.warn("KPIs: tramo {} inexistente o sin fin real, se ignora", tramoId);
+            return;
+        }
+        LocalDate fecha = tramo.getFechaHoraFinReal().toLocalDate();
+        Double demora = tramo.getFechaHoraFinEstimada() != null
+                ? horas(tramo.getFechaHoraFinEstimada(), tramo.getFechaHoraFinReal()) * 60
+                : null;
+        double horas = tramo.getFechaHoraInicioReal() != null ? horas(tramo.getFechaHoraInicioReal(), tramo.getFechaHoraFinReal()) : 0;
+
+        acumularFinalizado(agregado(KpiAgregado.DIA, KpiAgregado.TOTAL, fecha), tramo, demora, horas);
+        if (tramo.getCamionDominio() != null) {
+            acumularFinalizado(agregado(KpiAgregado.CAMION, tramo.getCamionDominio(), fecha), tramo, demora, horas);
+        }
+        if (tramo.getDestinoDepositoId() != null) {
+            KpiAgregado deposito = agregado(KpiAgregado.DEPOSITO, tramo.getDestinoDepositoId().toString(), fecha);
+            deposito.setLlegadas(deposito.getLlegadas() + 1);
+        }
+    }
+
+    /**
+     * KPIs del período sumando todos los días
+     * @param desde Primer día (opcional, por defecto app.kpis.dias-por-defecto días atrás)
+     * @param hasta Último día, inclusive (opcional, por defecto hoy)
+     * @return KPIs del período
+     */
+    @Transactional(readOnly = true)
+    public KpiDTO resumen(LocalDate desde, LocalDate hasta) {
+        LocalDate[] rango = rango(desde, hasta);
+        Acumulador total = new Acumulador();
+        kpiAgregadoRepository.findByDimensionAndFechaBetweenOrderByFechaAsc(KpiAgregado.DIA, rango[0], rango[1])
+                .forEach(total::sumar);
+        return total.aDto(KpiAgregado.DIA, null, rango[0], rango[1]);
+    }
+
+    /**
+     * KPIs de cada día del período (solo los días con actividad)
+     */
+    @Transactional(readOnly = true)
+    public List<KpiDTO> porDia(LocalDate desde, LocalDate hasta) {
+        LocalDate[] rango = rango(desde, hasta);
+        List<KpiDTO> resultado = new ArrayList<>();
+        for (KpiAgregado a : kpiAgregadoRepository.findByDimensionAndFechaBetweenOrderByFechaAsc(KpiAgregado.DIA, rango[0], rango[1])) {
+            Acumulador dia = new Acumulador();
+            dia.sumar(a);
+            resultado.add(dia.aDto(KpiAgregado.DIA, a.getFecha().toString(), a.getFecha(), a.getFecha()));
+        }
+        return resultado;
+    }
+
+    /**
+     * KPIs por camión en el período, con la utilización (horas en tramo sobre horas del período)
+     * @param dominio Dominio del camión (opcional, todos si es null)
+     */
+    @Transactional(readOnly = true)
+    public List<KpiDTO> porCamion(LocalDate desde, LocalDate hasta, String dominio) {
+        LocalDate[] rango = rango(desde, hasta);
+        double horasPeriodo = 24.0 * (ChronoUnit.DAYS.between(rango[0], rango[1]) + 1);
+        List<KpiDTO> resultado = agrupar(KpiAgregado.CAMION, dominio, rango);
+        for (KpiDTO dto : resultado) {
+            dto.setUtilizacion(redondear(dto.getHorasReales() != null ? dto.getHorasReales() / horasPeriodo : 0));
+        }
+        return resultado;
+    }
+
+    /**
+     * KPIs por depósito en el período (llegadas y estadía)
+     * @param depositoId ID del depósito (opcional, todos si es null)
+     */
+    @Transactional(readOnly = true)
+    public List<KpiDTO> porDeposito(LocalDate desde, LocalDate hasta, Long depositoId) {
+        return agrupar(KpiAgregado.DEPOSITO, depositoId != null ? depositoId.toString() : null, rango(desde, hasta));
+    }
+
+    private List<KpiDTO> agrupar(String dimension, String clave, LocalDate[] rango) {
+        List<KpiAgregado> filas = clave != null
+                ? kpiAgregadoRepository.findByDimensionAndClaveAndFechaBetweenOrderByFechaAsc(dimension, clave, rango[0], rango[1])
+                : kpiAgregadoRepository.findByDimensionAndFechaBetweenOrderByFechaAsc(dimension, rango[0], rango[1]);
+        Map<String, Acumulador> porClave = new LinkedHashMap<>();
+        for (KpiAgregado a : filas) {
+            porClave.computeIfAbsent(a.getClave(), k -> new Acumulador()).sumar(a);
+        }
+        List<KpiDTO> resultado = new ArrayList<>(porClave.size());
+        porClave.forEach((k, acumulador) -> resultado.add(acumulador.aDto(dimension, k, rango[0], rango[1])));
+        return resultado;
+    }
+
+    private void acumularFinalizado(KpiAgregado a, Tramo tramo, Double demora, double horas) {
+        a.setTramosFinalizados(a.getTramosFinalizados() + 1);
+        a.setHorasRealesTotal(a.getHorasRealesTotal() + horas);
+        if (tramo.getDistancia() != null) {
+            a.setDistanciaTotalKm(a.getDistanciaTotalKm() + tramo.getDistancia());
+        }
+        if (tramo.getCostoReal() != null) {
+            a.setCostoRealTotal(a.getCostoRealTotal().add(tramo.getCostoReal()));
+            if (tramo.getDistancia() != null) a.setDistanciaCosteadaKm(a.getDistanciaCosteadaKm() + tramo.getDistancia());
+        }
+        if (demora != null) {
+            a.setTramosConEstimacion(a.getTramosConEstimacion() + 1);
+            if (demora <= toleranciaMinutos) a.setTramosPuntuales(a.getTramosPuntuales() + 1);
+            a.setDemoraTotalMinutos(a.getDemoraTotalMinutos() + demora);
+            a.setDigestDemoras(agregarADigest(a.getDigestDemoras(), demora));
+        }
+    }
+
+    /**
+     * Obtiene (creándolo si hace falta) el agregado bloqueado para esta transacción
+     */
+    private KpiAgregado agregado(String dimension, String clave, LocalDate fecha) {
+        kpiAgregadoRepository.crearSiNoExiste(dimension, clave, fecha);
+        return kpiAgregadoRepository.findConBloqueoByDimensionAndClaveAndFecha(dimension, clave, fecha)
+                .orElseThrow(() -> new IllegalStateException("No se pudo crear el agregado " + dimension + "/" + clave + "/" + fecha));
+    }
+
+    private byte[] agregarADigest(byte[] datos, double valor) {
+        TDigest digest = TDigest.desdeBytes(datos, compresion);
+        digest.agregar(valor);
+        return digest.aBytes();
+    }
+
+    private LocalDate[] rango(LocalDate desde, LocalDate hasta) {
+        LocalDate fin = hasta != null ? hasta : LocalDate.now();
+        LocalDate inicio = desde != null ? desde : fin.minusDays(diasPorDefecto - 1L);
+        if (inicio.isAfter(fin)) {
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a hasta");
+        }
+        return new LocalDate[] { inicio, fin };
+    }
+
+    private static double horas(LocalDateTime desde, LocalDateTime hasta) {
+        return Duration.between(desde, hasta).toSeconds() / 3600.0;
+    }
+
+    private static Double redondear(double valor) {
+        return Math.round(valor * 1000.0) / 1000.0;
+    }
+
+    /**
+     * Suma de agregados de varios días/claves; los digests se combinan para los percentiles del período
+     */
+    private class Acumulador {
+        private long iniciados;
+        private long finalizados;
+        private long conEstimacion;
+        private long puntuales;
+        private double demoraTotal;
+        private final TDigest demoras = new TDigest(compresion);
+        private BigDecimal costo = BigDecimal.ZERO;
+        private double distanciaCosteada;
+        private double distancia;
+        private double horas;
+        private long llegadas;
+        private long estadias;
+        private double estadiaTotal;
+        private final TDigest digestEstadias = new TDigest(compresion);
+
+        void sumar(KpiAgregado a) {
+            iniciados += a.getTramosIniciados();
+            finalizados += a.getTramosFinalizados();
+            conEstimacion += a.getTramosConEstimacion();
+            puntuales += a.getTramosPuntuales();
+            demoraTotal += a.getDemoraTotalMinutos();
+            if (a.getDigestDemoras() != null) demoras.agregar(TDigest.desdeBytes(a.getDigestDemoras(), compresion));
+            if (a.getCostoRealTotal() != null) costo = costo.add(a.getCostoRealTotal());
+            distanciaCosteada += a.getDistanciaCosteadaKm();
+            distancia += a.getDistanciaTotalKm();
+            horas += a.getHorasRealesTotal();
+            llegadas += a.getLlegadas();
+            estadias += a.getEstadias();
+            estadiaTotal += a.getEstadiaTotalHoras();
+            if (a.getDigestEstadias() != null) digestEstadias.agregar(TDigest.desdeBytes(a.getDigestEstadias(), compresion));
+        }
+
+        KpiDTO aDto(String dimension, String clave, LocalDate desde, LocalDate hasta) {
+            KpiDTO dto = new KpiDTO();
+            dto.setDimension(dimension);
+            dto.setClave(clave);
+            dto.setDesde(desde);
+            dto.setHasta(hasta);
+            dto.setTramosIniciados(iniciados);
+            dto.setTramosFinalizados(finalizados);
+            if (conEstimacion > 0) {
+                dto.setTasaPuntualidad(redondear((double) puntuales / conEstimacion));
+                dto.setDemoraPromedioMinutos(redondear(demoraTotal / conEstimacion));
+                dto.setDemoraP50Minutos(redondear(demoras.cuantil(0.5)));
+                dto.setDemoraP90Minutos(redondear(demoras.cuantil(0.9)));
+                dto.setDemoraP99Minutos(redondear(demoras.cuantil(0.99)));
+            }
+            if (finalizados > 0) {
+                dto.setCostoRealTotal(costo.setScale(2, RoundingMode.HALF_UP));
+                dto.setDistanciaKm(redondear(distancia));
+                dto.setHorasReales(redondear(horas));
+            }
+            if (distanciaCosteada > 0) {
+                dto.setCostoPorKm(costo.divide(BigDecimal.valueOf(distanciaCosteada), 2, RoundingMode.HALF_UP));
+            }
+            if (KpiAgregado.DEPOSITO.equals(dimension)) {
+                dto.setLlegadas(llegadas);
+                dto.setEstadias(estadias);
+                if (estadias > 0) {
+                    dto.setEstadiaPromedioHoras(redondear(estadiaTotal / estadias));
+                    dto.setEstadiaP50Horas(redondear(digestEstadias.cuantil(0.5)));
+                    dto.setEstadiaP90Horas(redondear(digestEstadias.cuantil(0.9)));
+                }
+            }
+            return dto;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.backend.tpi.ms_rutas_transportistas.services;
 
+import com.backend.tpi.common.concurrencia.LlamadasCompartidas;
 import com.backend.tpi.ms_rutas_transportistas.dtos.osrm.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,10 +22,20 @@ public class OSRMService {
 
     private final RestClient restClient;
 
-    public OSRMService(@Value("${app.osrm.base-url:http://osrm:5000}") String osrmBaseUrl) {
+    // Pedidos idénticos simultáneos a OSRM (misma URI) comparten una sola llamada
+    private final LlamadasCompartidas<String, OSRMRouteResponse> rutasEnCurso;
+    private final LlamadasCompartidas<String, OSRMTableResponse> tablasEnCurso;
+
+    public OSRMService(@Value("${app.osrm.base-url:http://osrm:5000}") String osrmBaseUrl,
+                       io.micrometer.observation.ObservationRegistry observationRegistry,
+                       com.backend.tpi.common.metricas.RegistroMetricas registroMetricas) {
         this.osrmBaseUrl = osrmBaseUrl;
+        this.rutasEnCurso = new LlamadasCompartidas<>("osrm.route", registroMetricas);
+        this.tablasEnCurso = new LlamadasCompartidas<>("osrm.table", registroMetricas);
         this.restClient = RestClient.builder()
                 .baseUrl(osrmBaseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new com.backend.tpi.common.metricas.ConvencionClienteHttp())
                 .build();
     }
 
@@ -43,15 +54,12 @@ public class OSRMService {
                     destino.getLongitud(), destino.getLatitud());
 
             // Construir URL directamente para evitar problemas de encoding con ; y ,
-            String uri = String.format("/route/v1/driving/%s?overview=full&steps=true&geometries=polyline", 
+            String uri = String.format("/route/v1/driving/%s?overview=full&steps=false&geometries=polyline", 
                     coordinates);
 
-            log.info("Llamando a OSRM: {}", osrmBaseUrl + uri);
+            log.debug("Llamando a OSRM: {}{}", osrmBaseUrl, uri);
 
-            OSRMRouteResponse response = restClient.get()
-                    .uri(uri)
-                    .retrieve()
-                    .body(OSRMRouteResponse.class);
+            OSRMRouteResponse response = obtenerRuta(uri);
 
             if (response == null || !"Ok".equals(response.getCode()) || response.getRoutes().isEmpty()) {
                 return RutaCalculadaDTO.builder()
@@ -113,15 +121,12 @@ public class OSRMService {
                         coordenadas[i].getLatitud()));
             }
 
-            String uri = String.format("/route/v1/driving/%s?overview=full&steps=true&geometries=polyline",
+            String uri = String.format("/route/v1/driving/%s?overview=full&steps=false&geometries=polyline",
                     coordinates.toString());
 
-            log.info("Llamando a OSRM con {} waypoints: {}", coordenadas.length, osrmBaseUrl + uri);
+            log.debug("Llamando a OSRM con {} waypoints: {}{}", coordenadas.length, osrmBaseUrl, uri);
 
-            OSRMRouteResponse response = restClient.get()
-                    .uri(uri)
-                    .retrieve()
-                    .body(OSRMRouteResponse.class);
+            OSRMRouteResponse response = obtenerRuta(uri);
 
             if (response == null || !"Ok".equals(response.getCode()) || response.getRoutes().isEmpty()) {
                 return RutaCalculadaDTO.builder()
@@ -154,4 +159,92 @@ public class OSRMService {
                     .build();
         }
     }
+
+    /**
+     * Calcula la matriz de distancias y duraciones entre orígenes y destinos con el servicio /table de OSRM
+     * Una sola llamada resuelve todos los pares; el llamador es responsable de respetar el
+     * tamaño máximo de tabla configurado en el servidor OSRM (max-table-size)
+     * @param origenes Coordenadas de origen
+     * @param destinos Coordenadas de destino
+     * @return TablaDistanciasDTO indexada [origen][destino]
+     */
+    public TablaDistanciasDTO calcularTabla(java.util.List<CoordenadaDTO> origenes, java.util.List<CoordenadaDTO> destinos) {
+        if (origenes == null || origenes.isEmpty() || destinos == null || destinos.isEmpty()) {
+            return TablaDistanciasDTO.builder()
+                    .exitoso(false)
+                    .mensaje("Se requiere al menos un origen y un destino")
+                    .build();
+        }
+
+        try {
+            // Coordenadas: primero los orígenes y luego los destinos, referenciados por índice
+            StringBuilder coordinates = new StringBuilder();
+            StringBuilder sources = new StringBuilder();
+            StringBuilder destinations = new StringBuilder();
+            int indice = 0;
+            for (CoordenadaDTO c : origenes) {
+                if (indice > 0) coordinates.append(";");
+                if (sources.length() > 0) sources.append(";");
+                coordinates.append(String.format(java.util.Locale.ROOT, "%f,%f", c.getLongitud(), c.getLatitud()));
+                sources.append(indice++);
+            }
+            for (CoordenadaDTO c : destinos) {
+                if (destinations.length() > 0) destinations.append(";");
+                coordinates.append(";").append(String.format(java.util.Locale.ROOT, "%f,%f", c.getLongitud(), c.getLatitud()));
+                destinations.append(indice++);
+            }
+
+            String uri = String.format("/table/v1/driving/%s?sources=%s&destinations=%s&annotations=distance,duration",
+                    coordinates, sources, destinations);
+
+            log.debug("Llamando a OSRM /table con {} orígenes x {} destinos", origenes.size(), destinos.size());
+
+            OSRMTableResponse response = tablasEnCurso.ejecutar(uri, () -> restClient.get()
+                    .uri(uri)
+                    .retrieve()
+                    .body(OSRMTableResponse.class));
+
+            if (response == null || !"Ok".equals(response.getCode()) || response.getDistances() == null) {
+                return TablaDistanciasDTO.builder()
+                        .exitoso(false)
+                        .mensaje("No se pudo calcular la tabla. Código: " + (response != null ? response.getCode() : "null"))
+                        .build();
+            }
+
+            Double[][] distancias = new Double[origenes.size()][destinos.size()];
+            Double[][] duraciones = new Double[origenes.size()][destinos.size()];
+            for (int i = 0; i < origenes.size(); i++) {
+                java.util.List<Double> filaDist = response.getDistances().get(i);
+                java.util.List<Double> filaDur = response.getDurations() != null ? response.getDurations().get(i) : null;
+                for (int j = 0; j < destinos.size(); j++) {
+                    Double metros = filaDist.get(j);
+                    Double segundos = filaDur != null ? filaDur.get(j) : null;
+                    // Convertir metros a km y segundos a minutos (2 decimales)
+                    distancias[i][j] = metros != null ? Math.round(metros / 10.0) / 100.0 : null;
+                    duraciones[i][j] = segundos != null ? Math.round(segundos / 0.6) / 100.0 : null;
+                }
+            }
+
+            return TablaDistanciasDTO.builder()
+                    .exitoso(true)
+                    .distanciasKm(distancias)
+                    .duracionesMinutos(duraciones)
+                    .mensaje("Tabla calculada exitosamente")
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Error al calcular tabla con OSRM", e);
+            return TablaDistanciasDTO.builder()
+                    .exitoso(false)
+                    .mensaje("Error al calcular tabla: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    private OSRMRouteResponse obtenerRuta(String uri) {
+        return rutasEnCurso.ejecutar(uri, () -> restClient.get()
+                .uri(uri)
+                .retrieve()
+                .body(OSRMRouteResponse.class));
+    }
 }
@@ -0,0 +1,36 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.eventos.ConsumidorEventos;
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor que mantiene la ocupación de depósitos y el histograma de estadías
+ */
+@Component
+public class OcupacionDepositoConsumidor implements ConsumidorEventos {
+
+    @Autowired
+    private OcupacionDepositoService ocupacionDepositoService;
+
+    @Override
+    public String nombre() {
+        return "ocupacion-depositos";
+    }
+
+    @Override
+    public boolean acepta(TipoEvento tipo) {
+        return tipo == TipoEvento.TRAMO_INICIADO || tipo == TipoEvento.TRAMO_FINALIZADO;
+    }
+
+    @Override
+    public void procesar(EventoOutbox evento) {
+        switch (evento.getTipo()) {
+            case TRAMO_INICIADO -> ocupacionDepositoService.registrarTramoIniciado(evento.getTramoId());
+            case TRAMO_FINALIZADO -> ocupacionDepositoService.registrarTramoFinalizado(evento.getTramoId());
+            default -> { }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.dtos.OcupacionDepositoDTO;
+import com.backend.tpi.ms_rutas_transportistas.models.EstadiaDepositoCubeta;
+import com.backend.tpi.ms_rutas_transportistas.models.OcupacionDeposito;
+import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
+import com.backend.tpi.ms_rutas_transportistas.repositories.EstadiaDepositoCubetaRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.OcupacionDepositoRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.TramoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Servicio de ocupación de depósitos
+ * Un contenedor ingresa a un depósito cuando finaliza un tramo que termina ahí y la ruta sigue,
+ * y egresa cuando se inicia el tramo siguiente; la estadía se suma a un histograma por depósito.
+ * Con la capacidad de cada depósito (ms-gestion-calculos) informa cuáles están saturados,
+ * para que el cálculo de rutas tentativas los relegue al elegir depósitos intermedios.
+ */
+@Service
+public class OcupacionDepositoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcupacionDepositoService.class);
+
+    @Autowired
+    private OcupacionDepositoRepository ocupacionDepositoRepository;
+
+    @Autowired
+    private EstadiaDepositoCubetaRepository estadiaDepositoCubetaRepository;
+
+    @Autowired
+    private TramoRepository tramoRepository;
+
+    @Autowired
+    private DepositoService depositoService;
+
+    // Límites superiores (en horas) de las cubetas del histograma de estadías
+    @Value("${app.depositos.histograma-horas:6,12,24,48,72,120}")
+    private double[] limitesHoras;
+
+    // Fracción de la capacidad a partir de la cual un depósito se considera saturado
+    @Value("${app.depositos.umbral-saturacion:0.9}")
+    private double umbralSaturacion;
+
+    // Vigencia de las capacidades leídas de ms-gestion-calculos (cambian solo al editar un depósito)
+    @Value("${app.depositos.capacidades-ttl-ms:300000}")
+    private long capacidadesTtlMs;
+
+    private volatile Map<Long, Integer> capacidades;
+    private volatile long capacidadesCargadasNanos;
+
+    /**
+     * Registra el ingreso del contenedor al depósito de destino si la ruta continúa desde ahí
+     * @param tramoId ID del tramo finalizado
+     */
+    @Transactional
+    public void registrarTramoFinalizado(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getDestinoDepositoId() == null || tramo.getRuta() == null || tramo.getOrden() == null) {
+            return;
+        }
+        // Si es el último tramo el contenedor se entrega: no es una estadía intermedia
+        boolean continua = tramoRepository.findByRutaIdAndOrden(tramo.getRuta().getId(), tramo.getOrden() + 1).isPresent();
+        if (!continua) return;
+        ocupacionDepositoRepository.registrarIngreso(tramo.getDestinoDepositoId());
+        logger.debug("Depósito {}: ingreso de contenedor (tramo {})", tramo.getDestinoDepositoId(), tramoId);
+    }
+
+    /**
+     * Registra el egreso del contenedor del depósito de origen y su estadía
+     * @param tramoId ID del tramo iniciado
+     */
+    @Transactional
+    public void registrarTramoIniciado(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getOrigenDepositoId() == null || tramo.getRuta() == null
+                || tramo.getOrden() == null || tramo.getOrden() <= 1) {
+            return;
+        }
+        Tramo anterior = tramoRepository.findByRutaIdAndOrden(tramo.getRuta().getId(), tramo.getOrden() - 1).orElse(null);
+        if (anterior == null || !tramo.getOrigenDepositoId().equals(anterior.getDestinoDepositoId())) {
+            return;
+        }
+        Long depositoId = tramo.getOrigenDepositoId();
+        ocupacionDepositoRepository.registrarEgreso(depositoId);
+        if (anterior.getFechaHoraFinReal() != null && tramo.getFechaHoraInicioReal() != null
+                && !anterior.getFechaHoraFinReal().isAfter(tramo.getFechaHoraInicioReal())) {
+            double horas = Duration.between(anterior.getFechaHoraFinReal(), tramo.getFechaHoraInicioReal()).toSeconds() / 3600.0;
+            estadiaDepositoCubetaRepository.sumarEstadia(depositoId, cubeta(horas), horas);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Depósito {}: egreso de contenedor tras {} h (tramo {})", depositoId, String.format("%.1f", horas), tramoId);
+            }
+        } else {
+            logger.debug("Depósito {}: egreso de contenedor sin fechas reales para la estadía (tramo {})", depositoId, tramoId);
+        }
+    }
+
+    /**
+     * Ocupación e histograma de estadías de los depósitos con actividad registrada
+     * @param depositoId Depósito (opcional, todos si es null)
+     */
+    @Transactional(readOnly = true)
+    public List<OcupacionDepositoDTO> consultar(Long depositoId) {
+        List<OcupacionDeposito> ocupaciones = depositoId != null
+                ? ocupacionDepositoRepository.findByDepositoIdIn(List.of(depositoId))
+                : ocupacionDepositoRepository.findAll();
+        List<EstadiaDepositoCubeta> cubetas = depositoId != null
+                ? estadiaDepositoCubetaRepository.findByDepositoIdInOrderByDepositoIdAscCubetaAsc(List.of(depositoId))
+                : estadiaDepositoCubetaRepository.findAllByOrderByDepositoIdAscCubetaAsc();
+        Map<Long, Integer> capacidades = capacidades();
+
+        Map<Long, OcupacionDepositoDTO> porDeposito = new TreeMap<>();
+        for (OcupacionDeposito o : ocupaciones) {
+            OcupacionDepositoDTO dto = dto(porDeposito, o.getDepositoId());
+            dto.setContenedoresActuales(o.getContenedoresActuales());
+            dto.setIngresos(o.getIngresos());
+            dto.setEgresos(o.getEgresos());
+        }
+        Map<Long, Double> horasPorDeposito = new TreeMap<>();
+        for (EstadiaDepositoCubeta c : cubetas) {
+            OcupacionDepositoDTO dto = dto(porDeposito, c.getDepositoId());
+            dto.setEstadias(dto.getEstadias() + c.getCantidad());
+            dto.getHistogramaHoras().merge(etiqueta(c.getCubeta()), c.getCantidad(), Long::sum);
+            horasPorDeposito.merge(c.getDepositoId(), c.getHorasTotal(), Double::sum);
+        }
+        for (OcupacionDepositoDTO dto : porDeposito.values()) {
+            Integer capacidad = capacidades.get(dto.getDepositoId());
+            dto.setCapacidad(capacidad);
+            if (capacidad != null && capacidad > 0) {
+                dto.setOcupacion(Math.round(1000.0 * dto.getContenedoresActuales() / capacidad) / 1000.0);
+                dto.setSaturado(saturado(dto.getContenedoresActuales(), capacidad));
+            }
+            if (dto.getEstadias() > 0) {
+                dto.setEstadiaPromedioHoras(Math.round(100.0 * horasPorDeposito.get(dto.getDepositoId()) / dto.getEstadias()) / 100.0);
+            }
+        }
+        return new ArrayList<>(porDeposito.values());
+    }
+
+    /**
+     * Filtra los depósitos que están saturados (ocupación sobre el umbral de su capacidad)
+     * Solo necesita capacidades si alguno de los depósitos tiene contenedores
+     * Si ms-gestion-calculos no responde y nunca se cargaron capacidades, se avisa y no se relega ninguno:
+     * el cálculo de rutas no depende de este dato
+     * @param depositosIds Depósitos a evaluar
+     * @return IDs saturados (vacío si no hay datos de ocupación o capacidad)
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> saturados(Collection<Long> depositosIds) {
+        if (depositosIds == null || depositosIds.isEmpty()) return Collections.emptySet();
+        List<OcupacionDeposito> ocupados = ocupacionDepositoRepository.findByDepositoIdIn(depositosIds).stream()
+                .filter(o -> o.getContenedoresActuales() > 0)
+                .toList();
+        if (ocupados.isEmpty()) return Collections.emptySet();
+        Map<Long, Integer> capacidades;
+        try {
+            capacidades = capacidades();
+        } catch (RuntimeException e) {
+            logger.warn("Sin capacidades de depósitos, no se relegan depósitos saturados: {}", e.getMessage());
+            return Collections.emptySet();
+        }
+        Set<Long> saturados = new HashSet<>();
+        for (OcupacionDeposito o : ocupados) {
+            Integer capacidad = capacidades.get(o.getDepositoId());
+            if (capacidad != null && saturado(o.getContenedoresActuales(), capacidad)) saturados.add(o.getDepositoId());
+        }
+        return saturados;
+    }
+
+    /**
+     * Capacidad 0 o negativa es un dato no cargado, no un depósito lleno
+     */
+    private boolean saturado(int contenedores, int capacidad) {
+        return capacidad > 0 && contenedores >= umbralSaturacion * capacidad;
+    }
+
+    /**
+     * Capacidades por depósito, releídas de ms-gestion-calculos cada app.depositos.capacidades-ttl-ms
+     * Si la relectura falla se siguen usando las anteriores
+     * @throws RuntimeException si falla la consulta y todavía no hay capacidades cargadas
+     */
+    private Map<Long, Integer> capacidades() {
+        Map<Long, Integer> actuales = capacidades;
+        if (vigentes(actuales)) return actuales;
+        synchronized (this) {
+            actuales = capacidades;
+            if (vigentes(actuales)) return actuales;
+            try {
+                capacidades = Map.copyOf(depositoService.getCapacidades());
+                capacidadesCargadasNanos = System.nanoTime();
+                return capacidades;
+            } catch (RuntimeException e) {
+                if (actuales == null) throw e;
+                logger.warn("No se pudieron actualizar las capacidades de depósitos, se usan las anteriores: {}", e.getMessage());
+                // No reintentar en cada cálculo mientras ms-gestion-calculos no responda
+                capacidadesCargadasNanos = System.nanoTime();
+                return actuales;
+            }
+        }
+    }
+
+    private boolean vigentes(Map<Long, Integer> actuales) {
+        return actuales != null && System.nanoTime() - capacidadesCargadasNanos < capacidadesTtlMs * 1_000_000L;
+    }
+
+    private OcupacionDepositoDTO dto(Map<Long, OcupacionDepositoDTO> porDeposito, Long depositoId) {
+        return porDeposito.computeIfAbsent(depositoId, id -> {
+            OcupacionDepositoDTO dto = new OcupacionDepositoDTO();
+            dto.setDepositoId(id);
+            dto.setHistogramaHoras(new LinkedHashMap<>());
+            return dto;
+        });
+    }
+
+    int cubeta(double horas) {
+        for (int i = 0; i < limitesHoras.length; i++) {
+            if (horas < limitesHoras[i]) return i;
+        }
+        return limitesHoras.length;
+    }
+
+    String etiqueta(int cubeta) {
+        if (cubeta >= limitesHoras.length) {
+            return formato(limitesHoras.length > 0 ? limitesHoras[limitesHoras.length - 1] : 0) + "+";
+        }
+        return formato(cubeta == 0 ? 0 : limitesHoras[cubeta - 1]) + "-" + formato(limitesHoras[cubeta]);
+    }
+
+    private static String formato(double horas) {
+        return horas == Math.rint(horas) ? String.valueOf((long) horas) : String.valueOf(horas);
+    }
+}
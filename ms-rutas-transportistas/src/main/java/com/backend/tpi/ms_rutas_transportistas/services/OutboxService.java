@@ -0,0 +1,98 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.eventos.RelayOutbox;
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import com.backend.tpi.ms_rutas_transportistas.models.Ruta;
+import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
+import com.backend.tpi.ms_rutas_transportistas.repositories.EventoOutboxRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Servicio para registrar eventos en el outbox
+ * El evento se inserta en la transacción del llamador: se confirma o se descarta junto con el cambio
+ * que lo originó. Al confirmar la transacción se despierta al relay para entregarlo enseguida.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    @Autowired
+    private EventoOutboxRepository eventoOutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Lazy
+    private RelayOutbox relayOutbox;
+
+    /**
+     * Registra un evento de tramo o de ruta
+     * @param tipo Tipo de evento
+     * @param ruta Ruta afectada
+     * @param tramo Tramo afectado (null para eventos de ruta)
+     * @return Evento registrado, o null si ya existía un evento con la misma clave de idempotencia
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public EventoOutbox registrar(TipoEvento tipo, Ruta ruta, Tramo tramo) {
+        EventoOutbox evento = new EventoOutbox();
+        evento.setTipo(tipo);
+        evento.setRutaId(ruta != null ? ruta.getId() : null);
+        evento.setTramoId(tramo != null ? tramo.getId() : null);
+        evento.setSolicitudId(ruta != null ? ruta.getIdSolicitud() : null);
+        // Un evento por tipo y agregado: un tramo se inicia y finaliza una sola vez, una ruta se completa una vez
+        evento.setClaveIdempotencia(tipo.name() + (tramo != null ? ":tramo:" + tramo.getId() : ":ruta:" + evento.getRutaId()));
+        if (eventoOutboxRepository.existsByClaveIdempotencia(evento.getClaveIdempotencia())) {
+            logger.info("Evento {} ya registrado, no se duplica", evento.getClaveIdempotencia());
+            return null;
+        }
+        evento.setPayload(payload(tipo, evento, tramo));
+        evento.setProximoIntento(LocalDateTime.now());
+        evento = eventoOutboxRepository.save(evento);
+        logger.info("Evento {} registrado en outbox (clave: {})", tipo, evento.getClaveIdempotencia());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relayOutbox.despertar();
+                }
+            });
+        }
+        return evento;
+    }
+
+    private String payload(TipoEvento tipo, EventoOutbox evento, Tramo tramo) {
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("tipo", tipo.name());
+        datos.put("rutaId", evento.getRutaId());
+        datos.put("solicitudId", evento.getSolicitudId());
+        if (tramo != null) {
+            datos.put("tramoId", tramo.getId());
+            datos.put("orden", tramo.getOrden());
+            datos.put("fechaHoraInicioReal", tramo.getFechaHoraInicioReal() != null ? tramo.getFechaHoraInicioReal().toString() : null);
+            datos.put("fechaHoraFinReal", tramo.getFechaHoraFinReal() != null ? tramo.getFechaHoraFinReal().toString() : null);
+        }
+        try {
+            return objectMapper.writeValueAsString(datos);
+        } catch (Exception e) {
+            logger.warn("No se pudo serializar el payload del evento {}: {}", tipo, e.getMessage());
+            return null;
+        }
+    }
+}
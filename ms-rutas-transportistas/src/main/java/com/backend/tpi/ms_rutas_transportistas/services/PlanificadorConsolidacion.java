@@ -0,0 +1,250 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ruteo con capacidad de una región: todos los envíos salen del mismo depósito de origen
+ * y se reparten en recorridos de varias paradas (VRP abierto: el camión no vuelve al origen).
+ * Construye la solución con el algoritmo de ahorros de Clarke-Wright y la mejora con búsqueda local
+ * (2-opt dentro de cada recorrido y reubicación de envíos entre recorridos).
+ * El costo de un recorrido es costoBase + costoPorKm * distancia, así unir dos envíos ahorra un costo base.
+ * No depende de Spring: recibe la matriz de distancias ya calculada.
+ */
+public class PlanificadorConsolidacion {
+
+    // Vecinos más cercanos por envío para los que se calculan ahorros (acota los pares a n * k)
+    private static final int VECINOS = 40;
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Envío a consolidar
+     * @param solicitudId Solicitud que lo origina
+     * @param destino Índice del depósito de destino en la matriz de distancias
+     */
+    public record Envio(long solicitudId, int destino, double peso, double volumen) {}
+
+    /**
+     * Recorrido propuesto: envíos en orden de entrega
+     */
+    public record Recorrido(List<Envio> envios, double distanciaKm, double peso, double volumen) {}
+
+    private final double[][] distancias;
+    private final int origen;
+    private final double capacidadPeso;
+    private final double capacidadVolumen;
+    private final double costoBase;
+    private final double costoPorKm;
+    private final int maxIteraciones;
+
+    /**
+     * @param distancias Distancias en km entre depósitos, [desde][hasta] (puede ser asimétrica)
+     * @param origen Índice del depósito de origen de la región
+     * @param capacidadPeso Peso máximo por recorrido
+     * @param capacidadVolumen Volumen máximo por recorrido
+     * @param costoBase Costo fijo de usar un camión
+     * @param costoPorKm Costo por km recorrido
+     * @param maxIteraciones Pasadas máximas de búsqueda local
+     */
+    public PlanificadorConsolidacion(double[][] distancias, int origen, double capacidadPeso, double capacidadVolumen,
+                                     double costoBase, double costoPorKm, int maxIteraciones) {
+        this.distancias = distancias;
+        this.origen = origen;
+        this.capacidadPeso = capacidadPeso;
+        this.capacidadVolumen = capacidadVolumen;
+        this.costoBase = costoBase;
+        this.costoPorKm = costoPorKm;
+        this.maxIteraciones = maxIteraciones;
+    }
+
+    /**
+     * Resuelve la región
+     * @param envios Envíos de la región; cada uno debe entrar solo en un camión
+     * @return Recorridos propuestos
+     */
+    public List<Recorrido> resolver(List<Envio> envios) {
+        Envio[] e = envios.toArray(new Envio[0]);
+        List<List<Integer>> recorridos = ahorros(e);
+        for (List<Integer> r : recorridos) dosOpt(e, r);
+        reubicar(e, recorridos);
+
+        List<Recorrido> resultado = new ArrayList<>(recorridos.size());
+        for (List<Integer> r : recorridos) {
+            if (r.isEmpty()) continue;
+            List<Envio> orden = new ArrayList<>(r.size());
+            for (int i : r) orden.add(e[i]);
+            resultado.add(new Recorrido(orden, distancia(e, r), peso(e, r), volumen(e, r)));
+        }
+        return resultado;
+    }
+
+    /**
+     * Clarke-Wright para rutas abiertas: unir la ruta que termina en i con la que empieza en j
+     * ahorra costoBase + costoPorKm * (d(origen, j) - d(i, j))
+     */
+    private List<List<Integer>> ahorros(Envio[] e) {
+        int n = e.length;
+        List<List<Integer>> rutas = new ArrayList<>(n);
+        int[] rutaDe = new int[n];
+        double[] pesoRuta = new double[n];
+        double[] volumenRuta = new double[n];
+        for (int i = 0; i < n; i++) {
+            List<Integer> r = new ArrayList<>();
+            r.add(i);
+            rutas.add(r);
+            rutaDe[i] = i;
+            pesoRuta[i] = e[i].peso();
+            volumenRuta[i] = e[i].volumen();
+        }
+        if (n < 2) return rutas;
+
+        // Pares (i, j) entre vecinos cercanos con ahorro positivo
+        int k = Math.min(VECINOS, n - 1);
+        List<int[]> pares = new ArrayList<>(n * k);
+        List<Double> valores = new ArrayList<>(n * k);
+        Integer[] porCercania = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            final int desde = e[i].destino();
+            for (int j = 0; j < n; j++) porCercania[j] = j;
+            Arrays.sort(porCercania, (a, b) -> Double.compare(d(desde, e[a].destino()), d(desde, e[b].destino())));
+            int tomados = 0;
+            for (int idx = 0; idx < n && tomados < k; idx++) {
+                int j = porCercania[idx];
+                if (j == i) continue;
+                tomados++;
+                double ahorro = costoBase + costoPorKm * (d(origen, e[j].destino()) - d(e[i].destino(), e[j].destino()));
+                if (ahorro > EPSILON) {
+                    pares.add(new int[] { i, j });
+                    valores.add(ahorro);
+                }
+            }
+        }
+        Integer[] orden = new Integer[pares.size()];
+        for (int p = 0; p < orden.length; p++) orden[p] = p;
+        Arrays.sort(orden, (a, b) -> Double.compare(valores.get(b), valores.get(a)));
+
+        for (int p : orden) {
+            int i = pares.get(p)[0];
+            int j = pares.get(p)[1];
+            int ri = rutaDe[i];
+            int rj = rutaDe[j];
+            if (ri == rj) continue;
+            List<Integer> a = rutas.get(ri);
+            List<Integer> b = rutas.get(rj);
+            // i debe ser el último de su ruta y j el primero de la suya
+            if (a.get(a.size() - 1) != i || b.get(0) != j) continue;
+            if (pesoRuta[ri] + pesoRuta[rj] > capacidadPeso + EPSILON
+                    || volumenRuta[ri] + volumenRuta[rj] > capacidadVolumen + EPSILON) continue;
+            a.addAll(b);
+            for (int x : b) rutaDe[x] = ri;
+            b.clear();
+            pesoRuta[ri] += pesoRuta[rj];
+            volumenRuta[ri] += volumenRuta[rj];
+        }
+        List<List<Integer>> resultado = new ArrayList<>();
+        for (List<Integer> r : rutas) if (!r.isEmpty()) resultado.add(r);
+        return resultado;
+    }
+
+    /**
+     * 2-opt sobre el camino abierto (el inicio en el origen queda fijo)
+     * Recalcula el costo del camino completo para admitir distancias asimétricas
+     */
+    private void dosOpt(Envio[] e, List<Integer> r) {
+        if (r.size() < 2) return;
+        boolean mejora = true;
+        for (int iter = 0; mejora && iter < maxIteraciones; iter++) {
+            mejora = false;
+            double actual = distancia(e, r);
+            for (int i = 0; i < r.size() - 1; i++) {
+                for (int j = i + 1; j < r.size(); j++) {
+                    Collections.reverse(r.subList(i, j + 1));
+                    double candidata = distancia(e, r);
+                    if (candidata < actual - EPSILON) {
+                        actual = candidata;
+                        mejora = true;
+                    } else {
+                        Collections.reverse(r.subList(i, j + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Mueve envíos de un recorrido a la mejor posición de otro mientras baje el costo total
+     * (vaciar un recorrido ahorra su costo base)
+     */
+    private void reubicar(Envio[] e, List<List<Integer>> recorridos) {
+        for (int iter = 0; iter < maxIteraciones; iter++) {
+            double mejorDelta = -EPSILON;
+            int mejorOrigen = -1, mejorPosicion = -1, mejorDestino = -1, mejorInsercion = -1;
+            for (int a = 0; a < recorridos.size(); a++) {
+                List<Integer> ra = recorridos.get(a);
+                if (ra.isEmpty()) continue;
+                double costoA = costo(e, ra);
+                for (int pos = 0; pos < ra.size(); pos++) {
+                    int envio = ra.remove(pos);
+                    double deltaA = costo(e, ra) - costoA;
+                    for (int b = 0; b < recorridos.size(); b++) {
+                        List<Integer> rb = recorridos.get(b);
+                        if (b == a || rb.isEmpty()) continue;
+                        if (peso(e, rb) + e[envio].peso() > capacidadPeso + EPSILON
+                                || volumen(e, rb) + e[envio].volumen() > capacidadVolumen + EPSILON) continue;
+                        double costoB = costo(e, rb);
+                        for (int ins = 0; ins <= rb.size(); ins++) {
+                            rb.add(ins, envio);
+                            double delta = deltaA + costo(e, rb) - costoB;
+                            rb.remove(ins);
+                            if (delta < mejorDelta) {
+                                mejorDelta = delta;
+                                mejorOrigen = a;
+                                mejorPosicion = pos;
+                                mejorDestino = b;
+                                mejorInsercion = ins;
+                            }
+                        }
+                    }
+                    ra.add(pos, envio);
+                }
+            }
+            if (mejorOrigen < 0) return;
+            int envio = recorridos.get(mejorOrigen).remove(mejorPosicion);
+            recorridos.get(mejorDestino).add(mejorInsercion, envio);
+            dosOpt(e, recorridos.get(mejorDestino));
+        }
+    }
+
+    private double costo(Envio[] e, List<Integer> r) {
+        return r.isEmpty() ? 0 : costoBase + costoPorKm * distancia(e, r);
+    }
+
+    private double distancia(Envio[] e, List<Integer> r) {
+        double total = 0;
+        int anterior = origen;
+        for (int i : r) {
+            total += d(anterior, e[i].destino());
+            anterior = e[i].destino();
+        }
+        return total;
+    }
+
+    private static double peso(Envio[] e, List<Integer> r) {
+        double total = 0;
+        for (int i : r) total += e[i].peso();
+        return total;
+    }
+
+    private static double volumen(Envio[] e, List<Integer> r) {
+        double total = 0;
+        for (int i : r) total += e[i].volumen();
+        return total;
+    }
+
+    private double d(int desde, int hasta) {
+        return distancias[desde][hasta];
+    }
+}
@@ -0,0 +1,32 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.eventos.ConsumidorEventos;
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor que reprograma los tramos siguientes cuando uno se inicia o finaliza fuera de horario
+ */
+@Component
+public class ProgramacionConsumidor implements ConsumidorEventos {
+
+    @Autowired
+    private ProgramacionService programacionService;
+
+    @Override
+    public String nombre() {
+        return "programacion";
+    }
+
+    @Override
+    public boolean acepta(TipoEvento tipo) {
+        return tipo == TipoEvento.TRAMO_INICIADO || tipo == TipoEvento.TRAMO_FINALIZADO;
+    }
+
+    @Override
+    public void procesar(EventoOutbox evento) {
+        programacionService.reprogramarSiguientes(evento.getTramoId());
+    }
+}
@@ -0,0 +1,502 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.dtos.DisponibilidadCamionDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.IndisponibilidadCamionDTO;
+import com.backend.tpi.ms_rutas_transportistas.models.Camion;
+import com.backend.tpi.ms_rutas_transportistas.models.IndisponibilidadCamion;
+import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
+import com.backend.tpi.ms_rutas_transportistas.repositories.CamionRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.IndisponibilidadCamionRepository;
+import com.backend.tpi.ms_rutas_transportistas.repositories.TramoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Motor de programación de tramos
+ * Calcula las fechas estimadas de cada tramo de una ruta respetando:
+ * - el horario de atención de los depósitos de origen (salida) y destino (descarga; si llega cerrado, espera)
+ * - las horas máximas de conducción continua, insertando descansos del chofer
+ * - el calendario del camión asignado (otros tramos programados e indisponibilidades)
+ * El calendario de cada camión se mantiene en memoria como un árbol de intervalos (IndiceDisponibilidad).
+ * Se descarta cada app.programacion.recarga-calendarios-ms y se vuelve a armar desde la base, así los
+ * cambios hechos por otras instancias del servicio se ven como mucho con ese atraso.
+ * Cuando un tramo se atrasa o adelanta solo se recalcula el sufijo de la ruta que le sigue, y se corta
+ * en cuanto un tramo queda con las mismas fechas que ya tenía.
+ */
+@Service
+public class ProgramacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProgramacionService.class);
+
+    private static final String CLAVE_TRAMO = "tramo:";
+    private static final String CLAVE_BLOQUEO = "bloqueo:";
+
+    // Ajustes máximos de un tramo entre ventana horaria y calendario del camión antes de aceptar el resultado
+    private static final int MAX_AJUSTES = 50;
+
+    @Autowired
+    private TramoRepository tramoRepository;
+
+    @Autowired
+    private CamionRepository camionRepository;
+
+    @Autowired
+    private IndisponibilidadCamionRepository indisponibilidadRepository;
+
+    @Autowired
+    private DepositoService depositoService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.rutas.estadia-deposito-horas:24.0}")
+    private double estadiaDepositoHoras;
+
+    @Value("${app.programacion.conduccion-max-horas:9}")
+    private double conduccionMaxHoras;
+
+    @Value("${app.programacion.descanso-horas:11}")
+    private double descansoHoras;
+
+    // Calendario ocupado por dominio de camión, construido a demanda
+    private final Map<String, IndiceDisponibilidad> indices = new ConcurrentHashMap<>();
+
+    // Reprogramaciones de mejor esfuerzo: corren después de confirmar el cambio que las origina
+    private TransactionTemplate transaccionPropia;
+
+    @PostConstruct
+    public void iniciar() {
+        transaccionPropia = new TransactionTemplate(transactionManager);
+        transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Resultado de programar un tramo
+     */
+    private record Plan(LocalDateTime inicio, LocalDateTime fin, long conduccionMinutos) {}
+
+    /**
+     * Reprograma una ruta completa desde su primer tramo sin iniciar (sin cortar antes de tiempo)
+     * @param rutaId ID de la ruta
+     * @return Cantidad de tramos con fechas modificadas
+     */
+    @Transactional
+    public int reprogramarRuta(Long rutaId) {
+        List<Tramo> tramos = tramoRepository.findByRutaIdOrderByOrdenAsc(rutaId);
+        int desde = 0;
+        while (desde < tramos.size() && tramos.get(desde).getFechaHoraInicioReal() != null) desde++;
+        return reprogramar(tramos, desde, true);
+    }
+
+    /**
+     * Reprograma desde el tramo indicado, incluido (ej: al asignarle un camión)
+     * @param tramoId ID del tramo
+     * @return Cantidad de tramos con fechas modificadas
+     */
+    @Transactional
+    public int reprogramarDesde(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getRuta() == null) return 0;
+        List<Tramo> tramos = tramoRepository.findByRutaIdOrderByOrdenAsc(tramo.getRuta().getId());
+        return reprogramar(tramos, indiceDe(tramos, tramoId), false);
+    }
+
+    /**
+     * Reprograma la ruta completa cuando confirme la transacción en curso (ej: al crear sus tramos),
+     * en una transacción propia. Si falla solo se registra: el cambio que la originó ya quedó guardado
+     * y las fechas se pueden recalcular con POST /api/v1/rutas/{id}/reprogramar
+     * @param rutaId ID de la ruta
+     */
+    public void reprogramarRutaAlConfirmar(Long rutaId) {
+        alConfirmar(() -> mejorEsfuerzo("la ruta " + rutaId, () -> reprogramarRuta(rutaId)));
+    }
+
+    /**
+     * Igual que reprogramarDesde, pero cuando confirme la transacción en curso (ver reprogramarRutaAlConfirmar)
+     * @param tramoId ID del tramo
+     */
+    public void reprogramarDesdeAlConfirmar(Long tramoId) {
+        alConfirmar(() -> mejorEsfuerzo("la ruta del tramo " + tramoId, () -> reprogramarDesde(tramoId)));
+    }
+
+    /**
+     * Libera del calendario de su camión a los tramos eliminados, cuando confirme la transacción en curso
+     * @param tramoIds IDs de los tramos eliminados
+     */
+    public void quitarTramosAlConfirmar(Collection<Long> tramoIds) {
+        List<String> claves = tramoIds.stream().map(id -> CLAVE_TRAMO + id).toList();
+        alConfirmar(() -> claves.forEach(this::quitarDeIndices));
+    }
+
+    /**
+     * Descarta los calendarios en memoria: se vuelven a armar desde la base en el próximo uso
+     * (incluye tramos e indisponibilidades cambiados por otras instancias)
+     */
+    @Scheduled(fixedDelayString = "${app.programacion.recarga-calendarios-ms:300000}")
+    public void recargarCalendarios() {
+        if (indices.isEmpty()) return;
+        logger.debug("Descartando {} calendarios de camiones en memoria", indices.size());
+        indices.clear();
+    }
+
+    /**
+     * Reprograma los tramos que siguen a uno que se inició o finalizó con su hora real
+     * @param tramoId ID del tramo iniciado o finalizado
+     * @return Cantidad de tramos con fechas modificadas
+     */
+    @Transactional
+    public int reprogramarSiguientes(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getRuta() == null) return 0;
+        // El tramo mismo conserva sus estimaciones (son la referencia de puntualidad); en el calendario
+        // del camión pasa a ocupar su horario real, o se libera si ya terminó
+        if (tramo.getCamionDominio() != null) {
+            LocalDateTime fin = finProyectado(tramo);
+            if (tramo.getFechaHoraFinReal() != null) {
+                alConfirmar(() -> quitarDeIndices(CLAVE_TRAMO + tramoId));
+            } else if (tramo.getFechaHoraInicioReal() != null && fin != null) {
+                String dominio = tramo.getCamionDominio();
+                LocalDateTime inicio = tramo.getFechaHoraInicioReal();
+                alConfirmar(() -> indice(dominio).agregar(CLAVE_TRAMO + tramoId, minutos(inicio), minutos(fin)));
+            }
+        }
+        List<Tramo> tramos = tramoRepository.findByRutaIdOrderByOrdenAsc(tramo.getRuta().getId());
+        return reprogramar(tramos, indiceDe(tramos, tramoId) + 1, false);
+    }
+
+    /**
+     * Camiones activos y disponibles ordenados por el primer horario en que pueden hacer el tramo
+     * @param tramoId ID del tramo
+     * @return Candidatos, o null si el tramo no existe
+     */
+    @Transactional(readOnly = true)
+    public List<DisponibilidadCamionDTO> camionesDisponibles(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null) return null;
+        Map<Long, LocalTime[]> horarios = depositoService.getHorarios();
+        LocalDateTime desde = tramo.getFechaHoraInicioEstimada() != null ? tramo.getFechaHoraInicioEstimada() : LocalDateTime.now();
+        List<DisponibilidadCamionDTO> resultado = new ArrayList<>();
+        for (Camion camion : camionRepository.findAll()) {
+            if (Boolean.FALSE.equals(camion.getActivo()) || Boolean.FALSE.equals(camion.getDisponible())) continue;
+            Plan plan = programar(tramo, desde, 0, horarios, indice(camion.getDominio()), Set.of(CLAVE_TRAMO + tramoId));
+            DisponibilidadCamionDTO dto = new DisponibilidadCamionDTO();
+            dto.setDominio(camion.getDominio());
+            dto.setCapacidadPesoMax(camion.getCapacidadPesoMax());
+            dto.setCapacidadVolumenMax(camion.getCapacidadVolumenMax());
+            dto.setInicioPosible(plan.inicio());
+            dto.setFinPosible(plan.fin());
+            dto.setDemoraMinutos(Math.max(0, Duration.between(desde, plan.inicio()).toMinutes()));
+            resultado.add(dto);
+        }
+        resultado.sort(Comparator.comparingLong(DisponibilidadCamionDTO::getDemoraMinutos)
+                .thenComparing(DisponibilidadCamionDTO::getCapacidadPesoMax, Comparator.nullsLast(Comparator.naturalOrder())));
+        return resultado;
+    }
+
+    /**
+     * Períodos de indisponibilidad vigentes o futuros de un camión
+     */
+    public List<IndisponibilidadCamionDTO> listarIndisponibilidades(String dominio) {
+        return indisponibilidadRepository.findByCamionDominioAndHastaAfterOrderByDesdeAsc(dominio, LocalDateTime.now())
+                .stream().map(this::toDto).toList();
+    }
+
+    /**
+     * Registra un período de indisponibilidad y reprograma los tramos del camión que caen en él
+     * @throws IllegalArgumentException si el camión no existe o el período es inválido
+     */
+    @Transactional
+    public IndisponibilidadCamionDTO registrarIndisponibilidad(String dominio, IndisponibilidadCamionDTO dto) {
+        if (camionRepository.findFirstByDominio(dominio).isEmpty()) {
+            throw new IllegalArgumentException("Camión no encontrado con dominio: " + dominio);
+        }
+        if (dto == null || dto.getDesde() == null || dto.getHasta() == null || !dto.getDesde().isBefore(dto.getHasta())) {
+            throw new IllegalArgumentException("El período debe tener 'desde' anterior a 'hasta'");
+        }
+        IndisponibilidadCamion bloqueo = new IndisponibilidadCamion();
+        bloqueo.setCamionDominio(dominio);
+        bloqueo.setDesde(dto.getDesde());
+        bloqueo.setHasta(dto.getHasta());
+        bloqueo.setMotivo(dto.getMotivo());
+        bloqueo = indisponibilidadRepository.save(bloqueo);
+
+        IndiceDisponibilidad indice = indice(dominio);
+        List<IndiceDisponibilidad.Intervalo> afectados = indice.solapados(minutos(bloqueo.getDesde()), minutos(bloqueo.getHasta()));
+        indice.agregar(CLAVE_BLOQUEO + bloqueo.getId(), minutos(bloqueo.getDesde()), minutos(bloqueo.getHasta()));
+        Long bloqueoId = bloqueo.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) indice.quitar(CLAVE_BLOQUEO + bloqueoId);
+                }
+            });
+        }
+        int reprogramados = 0;
+        for (IndiceDisponibilidad.Intervalo intervalo : afectados) {
+            if (intervalo.clave().startsWith(CLAVE_TRAMO)) {
+                reprogramados += reprogramarDesde(Long.valueOf(intervalo.clave().substring(CLAVE_TRAMO.length())));
+            }
+        }
+        logger.info("Indisponibilidad registrada para camión {}: {} - {} ({} tramos reprogramados)",
+                dominio, bloqueo.getDesde(), bloqueo.getHasta(), reprogramados);
+        return toDto(bloqueo);
+    }
+
+    /**
+     * Elimina un período de indisponibilidad (no adelanta tramos ya programados)
+     * @return true si existía
+     */
+    @Transactional
+    public boolean eliminarIndisponibilidad(String dominio, Long id) {
+        IndisponibilidadCamion bloqueo = indisponibilidadRepository.findById(id).orElse(null);
+        if (bloqueo == null || !bloqueo.getCamionDominio().equals(dominio)) return false;
+        indisponibilidadRepository.delete(bloqueo);
+        alConfirmar(() -> indice(dominio).quitar(CLAVE_BLOQUEO + id));
+        return true;
+    }
+
+    /**
+     * Recalcula las fechas estimadas de tramos[desde..] y las guarda
+     * @param completo Si es false, corta en el primer tramo cuyas fechas no cambian
+     */
+    private int reprogramar(List<Tramo> tramos, int desde, boolean completo) {
+        if (desde < 0 || desde >= tramos.size()) return 0;
+        Map<Long, LocalTime[]> horarios = depositoService.getHorarios();
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime ancla;
+        if (desde == 0) {
+            Tramo primero = tramos.get(0);
+            ancla = primero.getFechaHoraInicioEstimada() != null ? primero.getFechaHoraInicioEstimada() : ahora;
+        } else {
+            Tramo previo = tramos.get(desde - 1);
+            LocalDateTime finPrevio = finProyectado(previo);
+            ancla = (finPrevio != null ? finPrevio : ahora).plusMinutes(estadiaMinutos(previo));
+        }
+
+        // Los tramos del sufijo no se bloquean entre sí: sus intervalos anteriores se van a reemplazar
+        Set<String> propios = new LinkedHashSet<>();
+        for (int i = desde; i < tramos.size(); i++) propios.add(CLAVE_TRAMO + tramos.get(i).getId());
+
+        long conduccion = 0;
+        List<Tramo> modificados = new ArrayList<>();
+        for (int i = desde; i < tramos.size(); i++) {
+            Tramo t = tramos.get(i);
+            if (t.getFechaHoraInicioReal() != null) {
+                // Ya salió: solo aporta su fin real o proyectado
+                LocalDateTime fin = finProyectado(t);
+                ancla = (fin != null ? fin : ahora).plusMinutes(estadiaMinutos(t));
+                conduccion = 0;
+                continue;
+            }
+            IndiceDisponibilidad indice = t.getCamionDominio() != null ? indice(t.getCamionDominio()) : null;
+            LocalDateTime inicio = ancla.isAfter(ahora) ? ancla : ahora;
+            Plan plan = programar(t, inicio, conduccion, horarios, indice, propios);
+            boolean igual = plan.inicio().equals(t.getFechaHoraInicioEstimada()) && plan.fin().equals(t.getFechaHoraFinEstimada());
+            if (igual && !completo) break;
+            if (!igual) {
+                t.setFechaHoraInicioEstimada(plan.inicio());
+                t.setFechaHoraFinEstimada(plan.fin());
+                modificados.add(t);
+                String clave = CLAVE_TRAMO + t.getId();
+                String dominio = t.getCamionDominio();
+                alConfirmar(() -> {
+                    quitarDeIndices(clave);
+                    if (dominio != null) indice(dominio).agregar(clave, minutos(plan.inicio()), minutos(plan.fin()));
+                });
+            }
+            long estadia = estadiaMinutos(t);
+            ancla = plan.fin().plusMinutes(estadia);
+            conduccion = estadia >= Math.round(descansoHoras * 60) ? 0 : plan.conduccionMinutos();
+        }
+        if (!modificados.isEmpty()) {
+            tramoRepository.saveAll(modificados);
+            logger.info("Ruta {}: {} tramos reprogramados desde el orden {}",
+                    tramos.get(desde).getRuta() != null ? tramos.get(desde).getRuta().getId() : null,
+                    modificados.size(), tramos.get(desde).getOrden());
+        }
+        return modificados.size();
+    }
+
+    /**
+     * Programa un tramo a partir de un instante: ajusta la salida al horario del depósito de origen,
+     * agrega los descansos de conducción, espera la apertura del depósito de destino si llega cerrado
+     * y busca el primer hueco del calendario del camión que cubra todo el tramo
+     */
+    private Plan programar(Tramo t, LocalDateTime desde, long conduccionPrevia, Map<Long, LocalTime[]> horarios,
+                           IndiceDisponibilidad indice, Set<String> ignorar) {
+        long manejo = duracionMinutos(t);
+        LocalTime[] ventanaOrigen = t.getOrigenDepositoId() != null ? horarios.get(t.getOrigenDepositoId()) : null;
+        LocalTime[] ventanaDestino = t.getDestinoDepositoId() != null ? horarios.get(t.getDestinoDepositoId()) : null;
+
+        LocalDateTime inicio = desde;
+        for (int intento = 0; ; intento++) {
+            inicio = proximaApertura(inicio, ventanaOrigen);
+            long[] viaje = conducir(manejo, conduccionPrevia);
+            LocalDateTime fin = proximaApertura(inicio.plusMinutes(viaje[0]), ventanaDestino);
+            Plan plan = new Plan(inicio, fin, viaje[1]);
+            if (indice == null) return plan;
+            long libre = indice.primerHueco(minutos(inicio), minutos(fin) - minutos(inicio), ignorar);
+            if (libre == minutos(inicio)) return plan;
+            if (intento >= MAX_AJUSTES) {
+                logger.warn("Tramo {}: sin hueco compatible con el horario tras {} ajustes, se mantiene {}", t.getId(), intento, inicio);
+                return plan;
+            }
+            inicio = LocalDateTime.ofEpochSecond(libre * 60, 0, ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * Tiempo total de viaje con descansos
+     * @return {minutos totales, minutos de conducción acumulados desde el último descanso al llegar}
+     */
+    private long[] conducir(long manejo, long conduccionPrevia) {
+        long maximo = Math.round(conduccionMaxHoras * 60);
+        long descanso = Math.round(descansoHoras * 60);
+        long acumulada = conduccionPrevia;
+        long restante = manejo;
+        long total = 0;
+        if (maximo > 0) {
+            while (acumulada + restante > maximo) {
+                long hastaDescanso = Math.max(0, maximo - acumulada);
+                total += hastaDescanso + descanso;
+                restante -= hastaDescanso;
+                acumulada = 0;
+            }
+        }
+        return new long[] { total + restante, acumulada + restante };
+    }
+
+    /**
+     * El mismo instante si el depósito está abierto, o su próxima apertura
+     * Sin horario (null) o con apertura igual al cierre el depósito atiende las 24 horas
+     */
+    static LocalDateTime proximaApertura(LocalDateTime t, LocalTime[] ventana) {
+        if (ventana == null || ventana[0] == null || ventana[1] == null || ventana[0].equals(ventana[1])) return t;
+        LocalTime apertura = ventana[0];
+        LocalTime cierre = ventana[1];
+        LocalTime hora = t.toLocalTime();
+        boolean abierto = apertura.isBefore(cierre)
+                ? !hora.isBefore(apertura) && hora.isBefore(cierre)
+                : !hora.isBefore(apertura) || hora.isBefore(cierre);
+        if (abierto) return t;
+        LocalDateTime hoy = t.toLocalDate().atTime(apertura);
+        return hora.isBefore(apertura) ? hoy : hoy.plusDays(1);
+    }
+
+    private long duracionMinutos(Tramo t) {
+        if (t.getDuracionHoras() != null) return Math.round(t.getDuracionHoras() * 60);
+        if (t.getFechaHoraInicioEstimada() != null && t.getFechaHoraFinEstimada() != null) {
+            return Math.max(0, Duration.between(t.getFechaHoraInicioEstimada(), t.getFechaHoraFinEstimada()).toMinutes());
+        }
+        return 0;
+    }
+
+    private long estadiaMinutos(Tramo t) {
+        // Solo los tramos que terminan en un depósito tienen estadía; el último llega al destino final
+        return t.getDestinoDepositoId() != null ? Math.round(estadiaDepositoHoras * 60) : 0;
+    }
+
+    /**
+     * Fin real, o fin proyectado a partir del inicio real y la duración estimada, o fin estimado
+     */
+    private LocalDateTime finProyectado(Tramo t) {
+        if (t.getFechaHoraFinReal() != null) return t.getFechaHoraFinReal();
+        if (t.getFechaHoraInicioReal() != null) return t.getFechaHoraInicioReal().plusMinutes(duracionMinutos(t));
+        return t.getFechaHoraFinEstimada();
+    }
+
+    private int indiceDe(List<Tramo> tramos, Long tramoId) {
+        for (int i = 0; i < tramos.size(); i++) {
+            if (tramos.get(i).getId().equals(tramoId)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Calendario del camión; se arma la primera vez a partir de sus tramos pendientes e indisponibilidades
+     */
+    private IndiceDisponibilidad indice(String dominio) {
+        IndiceDisponibilidad indice = indices.get(dominio);
+        if (indice != null) return indice;
+        IndiceDisponibilidad nuevo = new IndiceDisponibilidad();
+        for (Tramo t : tramoRepository.findPendientesDeCamion(dominio)) {
+            LocalDateTime inicio = t.getFechaHoraInicioReal() != null ? t.getFechaHoraInicioReal() : t.getFechaHoraInicioEstimada();
+            LocalDateTime fin = finProyectado(t);
+            if (fin != null) nuevo.agregar(CLAVE_TRAMO + t.getId(), minutos(inicio), minutos(fin));
+        }
+        for (IndisponibilidadCamion b : indisponibilidadRepository.findByCamionDominioAndHastaAfterOrderByDesdeAsc(dominio, LocalDateTime.now())) {
+            nuevo.agregar(CLAVE_BLOQUEO + b.getId(), minutos(b.getDesde()), minutos(b.getHasta()));
+        }
+        logger.debug("Calendario del camión {} cargado: {} períodos ocupados", dominio, nuevo.tamanio());
+        IndiceDisponibilidad previo = indices.putIfAbsent(dominio, nuevo);
+        return previo != null ? previo : nuevo;
+    }
+
+    private void quitarDeIndices(String clave) {
+        for (IndiceDisponibilidad indice : indices.values()) indice.quitar(clave);
+    }
+
+    private void mejorEsfuerzo(String descripcion, Runnable reprogramacion) {
+        try {
+            // Desde afterCommit hace falta una transacción nueva: la anterior ya no admite cambios
+            transaccionPropia.executeWithoutResult(status -> reprogramacion.run());
+        } catch (Exception e) {
+            logger.warn("No se pudo reprogramar {}: {}", descripcion, e.getMessage());
+        }
+    }
+
+    /**
+     * Aplica un cambio al calendario en memoria cuando la transacción confirma (o en el momento si no hay transacción)
+     */
+    private void alConfirmar(Runnable cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambio.run();
+                }
+            });
+        } else {
+            cambio.run();
+        }
+    }
+
+    private static long minutos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private IndisponibilidadCamionDTO toDto(IndisponibilidadCamion bloqueo) {
+        IndisponibilidadCamionDTO dto = new IndisponibilidadCamionDTO();
+        dto.setId(bloqueo.getId());
+        dto.setCamionDominio(bloqueo.getCamionDominio());
+        dto.setDesde(bloqueo.getDesde());
+        dto.setHasta(bloqueo.getHasta());
+        dto.setMotivo(bloqueo.getMotivo());
+        return dto;
+    }
+}
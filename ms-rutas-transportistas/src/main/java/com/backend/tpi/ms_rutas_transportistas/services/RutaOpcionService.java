@@ -4,6 +4,7 @@ import com.backend.tpi.ms_rutas_transportistas.dtos.TramoTentativoDTO;
 import com.backend.tpi.ms_rutas_transportistas.dtos.RutaTentativaDTO;
 import com.backend.tpi.ms_rutas_transportistas.models.Ruta;
 import com.backend.tpi.ms_rutas_transportistas.models.RutaOpcion;
+import com.backend.tpi.ms_rutas_transportistas.models.RutaOpcionTramo;
 import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
 import com.backend.tpi.ms_rutas_transportistas.repositories.RutaOpcionRepository;
 import com.backend.tpi.ms_rutas_transportistas.repositories.RutaRepository;
@@ -40,10 +41,7 @@ public class RutaOpcionService {
     private TramoRepository tramoRepository;
 
     @Autowired
-    private com.backend.tpi.ms_rutas_transportistas.repositories.TipoTramoRepository tipoTramoRepository;
-
-    @Autowired
-    private com.backend.tpi.ms_rutas_transportistas.repositories.EstadoTramoRepository estadoTramoRepository;
+    private CatalogoService catalogoService;
 
     @Autowired
     private RestTemplate restTemplate;
@@ -51,6 +49,12 @@ public class RutaOpcionService {
     @Autowired
     private DepositoService depositoService;
 
+    @Autowired
+    private GeometriaService geometriaService;
+
+    @Autowired
+    private ProgramacionService programacionService;
+
     @Value("${app.solicitudes.base-url:http://ms-solicitudes:8083}")
     private String solicitudesBaseUrl;
 
@@ -61,36 +65,29 @@ public class RutaOpcionService {
     // avoid unused code while preserving service responsibilities for solicitud-based flows.
 
     @Transactional
-    public List<RutaOpcion> saveOptionsForSolicitud(Long solicitudId, List<RutaTentativaDTO> opciones) throws Exception {
-        List<RutaOpcion> saved = new ArrayList<>();
+    public List<RutaOpcion> saveOptionsForSolicitud(Long solicitudId, List<RutaTentativaDTO> opciones) {
+        log.info("Guardando {} opciones para solicitud {}", opciones.size(), solicitudId);
+        List<RutaOpcion> nuevas = new ArrayList<>(opciones.size());
         int idx = 1;
         for (RutaTentativaDTO opcion : opciones) {
-            log.info("=== Guardando opción {} para solicitud {} ===", idx, solicitudId);
-            log.info("Tramos en RutaTentativaDTO: {}", opcion.getTramos() != null ? opcion.getTramos().size() : 0);
-            if (opcion.getTramos() != null) {
-                for (int i = 0; i < opcion.getTramos().size(); i++) {
-                    TramoTentativoDTO t = opcion.getTramos().get(i);
-                    log.info("  Tramo {}: orden={}, origenDepId={}, destinoDepId={}, dist={}", 
-                        i+1, t.getOrden(), t.getOrigenDepositoId(), t.getDestinoDepositoId(), t.getDistanciaKm());
-                }
-            }
-            
             RutaOpcion ro = new RutaOpcion();
             ro.setSolicitudId(solicitudId);
             ro.setOpcionIndex(idx++);
             ro.setDistanciaTotal(opcion.getDistanciaTotal());
             ro.setDuracionTotalHoras(opcion.getDuracionTotalHoras());
-            ro.setDepositosIdsJson(objectMapper.writeValueAsString(opcion.getDepositosIds()));
-            ro.setDepositosNombresJson(objectMapper.writeValueAsString(opcion.getDepositosNombres()));
-            
-            String tramosJsonStr = objectMapper.writeValueAsString(opcion.getTramos());
-            log.info("TramosJson serializado (primeros 300 chars): {}", 
-                tramosJsonStr.length() > 300 ? tramosJsonStr.substring(0, 300) + "..." : tramosJsonStr);
-            ro.setTramosJson(tramosJsonStr);
-            ro.setGeometry(opcion.getGeometry());
-            saved.add(rutaOpcionRepository.save(ro));
+            if (opcion.getDepositosIds() != null) ro.getDepositosIds().addAll(opcion.getDepositosIds());
+            if (opcion.getDepositosNombres() != null) ro.getDepositosNombres().addAll(opcion.getDepositosNombres());
+            if (opcion.getTramos() != null) {
+                for (TramoTentativoDTO t : opcion.getTramos()) {
+                    ro.getTramos().add(toRutaOpcionTramo(t));
+                }
+            }
+            // La geometría se guarda simplificada y compactada en binario (columna bytea)
+            ro.setGeometryCompacta(geometriaService.comprimir(opcion.getGeometry()));
+            nuevas.add(ro);
         }
-        return saved;
+        // Las filas de las tablas hijas se insertan por lotes (hibernate.jdbc.batch_size)
+        return rutaOpcionRepository.saveAll(nuevas);
     }
 
     @org.springframework.transaction.annotation.Transactional(readOnly = true)
@@ -109,6 +106,107 @@ public class RutaOpcionService {
         return rutaOpcionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Obtiene los tramos de una opción
+     * Los tramos se leen de la tabla hija (carga diferida, una sola vez por sesión);
+     * para opciones guardadas con versiones anteriores se parsea la columna JSON legacy
+     * @param opcion Opción de ruta
+     * @return Lista de tramos en orden
+     */
+    public List<TramoTentativoDTO> obtenerTramos(RutaOpcion opcion) throws Exception {
+        if (!opcion.getTramos().isEmpty() || opcion.getTramosJson() == null || opcion.getTramosJson().isBlank()) {
+            List<TramoTentativoDTO> tramos = new ArrayList<>(opcion.getTramos().size());
+            for (RutaOpcionTramo t : opcion.getTramos()) {
+                tramos.add(toTramoTentativoDTO(t));
+            }
+            return tramos;
+        }
+        return java.util.Arrays.asList(objectMapper.readValue(opcion.getTramosJson(), TramoTentativoDTO[].class));
+    }
+
+    /**
+     * Obtiene los IDs de depósitos intermedios de una opción (tabla hija o columna JSON legacy)
+     */
+    public List<Long> obtenerDepositosIds(RutaOpcion opcion) throws Exception {
+        if (!opcion.getDepositosIds().isEmpty() || opcion.getDepositosIdsJson() == null || opcion.getDepositosIdsJson().isBlank()) {
+            return new ArrayList<>(opcion.getDepositosIds());
+        }
+        return java.util.Arrays.asList(objectMapper.readValue(opcion.getDepositosIdsJson(), Long[].class));
+    }
+
+    /**
+     * Obtiene los nombres de depósitos intermedios de una opción (tabla hija o columna JSON legacy)
+     */
+    public List<String> obtenerDepositosNombres(RutaOpcion opcion) throws Exception {
+        if (!opcion.getDepositosNombres().isEmpty() || opcion.getDepositosNombresJson() == null || opcion.getDepositosNombresJson().isBlank()) {
+            return new ArrayList<>(opcion.getDepositosNombres());
+        }
+        return java.util.Arrays.asList(objectMapper.readValue(opcion.getDepositosNombresJson(), String[].class));
+    }
+
+    /**
+     * Reconstruye la ruta tentativa a partir de una opción persistida (usado al confirmar)
+     * @param opcion Opción de ruta
+     * @return RutaTentativaDTO con tramos, depósitos y geometría al nivel de almacenamiento
+     */
+    public RutaTentativaDTO toRutaTentativa(RutaOpcion opcion) throws Exception {
+        List<TramoTentativoDTO> tramos = obtenerTramos(opcion);
+        return RutaTentativaDTO.builder()
+                .depositosIds(obtenerDepositosIds(opcion))
+                .depositosNombres(obtenerDepositosNombres(opcion))
+                .distanciaTotal(opcion.getDistanciaTotal())
+                .duracionTotalHoras(opcion.getDuracionTotalHoras())
+                .numeroTramos(tramos.size())
+                .tramos(tramos)
+                .geometry(obtenerGeometria(opcion, GeometriaService.NIVEL_ALTA))
+                .exitoso(true)
+                .build();
+    }
+
+    private RutaOpcionTramo toRutaOpcionTramo(TramoTentativoDTO t) {
+        RutaOpcionTramo tramo = new RutaOpcionTramo();
+        tramo.setOrden(t.getOrden());
+        tramo.setOrigenDepositoId(t.getOrigenDepositoId());
+        tramo.setOrigenDepositoNombre(t.getOrigenDepositoNombre());
+        tramo.setDestinoDepositoId(t.getDestinoDepositoId());
+        tramo.setDestinoDepositoNombre(t.getDestinoDepositoNombre());
+        tramo.setDistanciaKm(t.getDistanciaKm());
+        tramo.setDuracionHoras(t.getDuracionHoras());
+        tramo.setCostoAproximado(t.getCostoAproximado());
+        tramo.setOrigenLat(t.getOrigenLat());
+        tramo.setOrigenLong(t.getOrigenLong());
+        tramo.setDestinoLat(t.getDestinoLat());
+        tramo.setDestinoLong(t.getDestinoLong());
+        return tramo;
+    }
+
+    private TramoTentativoDTO toTramoTentativoDTO(RutaOpcionTramo t) {
+        return TramoTentativoDTO.builder()
+                .orden(t.getOrden())
+                .origenDepositoId(t.getOrigenDepositoId())
+                .origenDepositoNombre(t.getOrigenDepositoNombre())
+                .destinoDepositoId(t.getDestinoDepositoId())
+                .destinoDepositoNombre(t.getDestinoDepositoNombre())
+                .distanciaKm(t.getDistanciaKm())
+                .duracionHoras(t.getDuracionHoras())
+                .costoAproximado(t.getCostoAproximado())
+                .origenLat(t.getOrigenLat())
+                .origenLong(t.getOrigenLong())
+                .destinoLat(t.getDestinoLat())
+                .destinoLong(t.getDestinoLong())
+                .build();
+    }
+
+    /**
+     * Obtiene la geometría de una opción simplificada al nivel de detalle pedido
+     * @param opcion Opción de ruta
+     * @param nivel Nivel de detalle (baja, media, alta)
+     * @return Polylines codificadas separadas por ";", o null si la opción no tiene geometría
+     */
+    public String obtenerGeometria(RutaOpcion opcion, String nivel) {
+        return geometriaService.resolver(opcion.getGeometryCompacta(), opcion.getGeometry(), nivel);
+    }
+
     @org.springframework.transaction.annotation.Transactional
     public void deleteBySolicitudId(Long solicitudId) {
         rutaOpcionRepository.deleteBySolicitudId(solicitudId);
@@ -130,12 +228,27 @@ public class RutaOpcionService {
         List<Tramo> tramosExistentes = tramoRepository.findByRutaId(rutaId);
         if (tramosExistentes != null && !tramosExistentes.isEmpty()) {
             tramoRepository.deleteAll(tramosExistentes);
+            programacionService.quitarTramosAlConfirmar(tramosExistentes.stream().map(Tramo::getId).toList());
         }
 
-        // Parsear tramos desde JSON
-        TramoTentativoDTO[] tramosArr = objectMapper.readValue(opcion.getTramosJson(), TramoTentativoDTO[].class);
+        // Tipo y estado por defecto: se consultan una sola vez para todos los tramos
+        com.backend.tpi.ms_rutas_transportistas.models.TipoTramo tipoPorDefecto = null;
+        try {
+            tipoPorDefecto = catalogoService.findTipoTramoPorDefecto().orElse(null);
+        } catch (Exception e) {
+            log.warn("No se pudo asignar tipoTramo por defecto: {}", e.getMessage());
+        }
+        com.backend.tpi.ms_rutas_transportistas.models.EstadoTramo estadoPendiente = null;
+        try {
+            estadoPendiente = catalogoService.findEstadoTramoByNombre("PENDIENTE").orElse(null);
+        } catch (Exception e) {
+            log.warn("No se pudo asignar estadoTramo por defecto: {}", e.getMessage());
+        }
+
+        List<TramoTentativoDTO> tramosOpcion = obtenerTramos(opcion);
+        List<Tramo> nuevosTramos = new ArrayList<>(tramosOpcion.size());
         int orden = 1;
-            for (TramoTentativoDTO t : tramosArr) {
+            for (TramoTentativoDTO t : tramosOpcion) {
             Tramo tramo = new Tramo();
             tramo.setRuta(ruta);
             tramo.setOrden(orden++);
@@ -198,20 +311,12 @@ public class RutaOpcionService {
                 } catch (Exception e) {
                     log.warn("Error asignando coordenadas al crear tramo en selectOption: {}", e.getMessage());
                 }
-            // Asignar tipoTramo por defecto si existe
-            try {
-                tipoTramoRepository.findAll().stream().findFirst().ifPresent(tramo::setTipoTramo);
-            } catch (Exception e) {
-                log.warn("No se pudo asignar tipoTramo por defecto: {}", e.getMessage());
-            }
-            // Asignar estado PENDIENTE por defecto si existe
-            try {
-                estadoTramoRepository.findByNombre("PENDIENTE").ifPresent(tramo::setEstado);
-            } catch (Exception e) {
-                log.warn("No se pudo asignar estadoTramo por defecto: {}", e.getMessage());
-            }
-            tramoRepository.save(tramo);
+            tramo.setTipoTramo(tipoPorDefecto);
+            tramo.setEstado(estadoPendiente);
+            nuevosTramos.add(tramo);
         }
+        tramoRepository.saveAll(nuevosTramos);
+        rutaRepository.recontarTramos(rutaId);
 
         // Marcar opción seleccionada en la ruta
         ruta.setOpcionSeleccionadaId(opcionId);
@@ -61,6 +61,9 @@ public class RutaService {
     @Autowired
     private DepositoService depositoService;
 
+    @Autowired
+    private ProgramacionService programacionService;
+
     
     @org.springframework.beans.factory.annotation.Value("${app.solicitudes.base-url:http://ms-solicitudes:8080}")
     private String solicitudesBaseUrl;
@@ -116,7 +119,8 @@ public class RutaService {
                     logger.info("Ruta tentativa calculada: {} km, {} tramos - creando tramos automáticamente",
                             rutaTentativa.getDistanciaTotal(), rutaTentativa.getNumeroTramos());
                     
-                    // Crear tramos basados en la ruta calculada
+                    // Crear tramos basados en la ruta calculada (se insertan juntos por lotes JDBC)
+                    List<Tramo> nuevosTramos = new java.util.ArrayList<>(rutaTentativa.getTramos().size());
                     for (TramoTentativoDTO tramoTentativo : rutaTentativa.getTramos()) {
                         Tramo tramo = new Tramo();
                         tramo.setRuta(ruta);
@@ -130,7 +134,7 @@ public class RutaService {
                         // Buscar y asignar estado PENDIENTE
                         // Por ahora dejamos estado null - debería buscarse de la BD
                         
-                        tramoService.save(tramo);
+                        nuevosTramos.add(tramo);
                         logger.debug("Tramo {} creado: {} -> {} ({} km)", 
                                 tramo.getOrden(),
                                 tramoTentativo.getOrigenDepositoNombre(),
@@ -138,6 +142,10 @@ public class RutaService {
                                 tramoTentativo.getDistanciaKm());
                     }
                     
+                    tramoRepository.saveAll(nuevosTramos);
+                    rutaRepository.recontarTramos(ruta.getId());
+                    // Ajustar las fechas estimadas a horarios de depósitos y descansos de conducción
+                    programacionService.reprogramarRutaAlConfirmar(ruta.getId());
                     logger.info("Creados {} tramos automáticamente para la ruta ID: {}", 
                             rutaTentativa.getNumeroTramos(), ruta.getId());
                 } else {
@@ -397,6 +405,7 @@ public class RutaService {
         double distanciaTotal = 0.0;
         double duracionTotal = 0.0;
         int tramosActualizados = 0;
+        List<Tramo> tramosModificados = new java.util.ArrayList<>(tramos.size());
         
         for (int i = 0; i < tramos.size(); i++) {
             Tramo tramo = tramos.get(i);
@@ -418,7 +427,7 @@ public class RutaService {
                 // Actualizar distancia y duración del tramo
                 tramo.setDistancia(rutaTramo.getDistanciaKm());
                 tramo.setDuracionHoras(rutaTramo.getDuracionHoras());
-                tramoRepository.save(tramo);
+                tramosModificados.add(tramo);
                 
                 distanciaTotal += rutaTramo.getDistanciaKm();
                 duracionTotal += rutaTramo.getDuracionHoras();
@@ -432,6 +441,9 @@ public class RutaService {
             }
         }
         
+        // Guardar todos los tramos modificados en una sola transacción (updates por lotes)
+        tramoRepository.saveAll(tramosModificados);
+
         // Preparar respuesta
         Map<String, Object> resultado = new HashMap<>();
         resultado.put("rutaId", rutaId);
@@ -595,7 +607,6 @@ public class RutaService {
 
             // Actualizar costo aproximado del tramo
             tramo.setCostoAproximado(java.math.BigDecimal.valueOf(costoTramo));
-            tramoRepository.save(tramo);
 
             Map<String, Object> infoTramo = new HashMap<>();
             infoTramo.put("tramoId", tramo.getId());
@@ -610,6 +621,9 @@ public class RutaService {
             costoTotal += costoTramo;
         }
 
+        // Los updates de costo se envían juntos al hacer flush (hibernate.order_updates + batch_size)
+        tramoRepository.saveAll(tramos);
+
         // Agregar costo de gestión total
         costoTotal += costoGestionTotal;
 
@@ -751,7 +765,7 @@ public class RutaService {
     }
 
     // Haversine formula for approximate distance in km
-    private double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
         double R = 6371; // Earth radius km
         double dLat = Math.toRadians(lat2 - lat1);
         double dLon = Math.toRadians(lon2 - lon1);
@@ -822,8 +836,9 @@ public class RutaService {
             logger.info("Fecha de inicio de primer tramo (día siguiente a creación): {}", fechaActual);
             
             int creados = 0;
+            List<Tramo> nuevosTramos = new java.util.ArrayList<>(rutaTentativa.getTramos().size());
             for (TramoTentativoDTO t : rutaTentativa.getTramos()) {
-                logger.info("  Creando tramo: orden={}, origenDepId={}, destinoDepId={}, dist={}, duracion={}h", 
+                logger.debug("  Creando tramo: orden={}, origenDepId={}, destinoDepId={}, dist={}, duracion={}h", 
                     t.getOrden(), t.getOrigenDepositoId(), t.getDestinoDepositoId(), t.getDistanciaKm(), t.getDuracionHoras());
                 
                 Tramo tramo = new Tramo();
@@ -848,7 +863,7 @@ public class RutaService {
                             if (lat instanceof Number && lon instanceof Number) {
                                 tramo.setOrigenLat(java.math.BigDecimal.valueOf(((Number) lat).doubleValue()));
                                 tramo.setOrigenLong(java.math.BigDecimal.valueOf(((Number) lon).doubleValue()));
-                                logger.info("    Coordenadas de depósito origen {}: lat={}, lon={}",
+                                logger.debug("    Coordenadas de depósito origen {}: lat={}, lon={}",
                                         t.getOrigenDepositoId(), lat, lon);
                             } else {
                                 logger.warn("Depósito {} no contiene latitud/longitud válidas: {}", t.getOrigenDepositoId(), deposito);
@@ -876,7 +891,7 @@ public class RutaService {
                             if (lat instanceof Number && lon instanceof Number) {
                                 tramo.setDestinoLat(java.math.BigDecimal.valueOf(((Number) lat).doubleValue()));
                                 tramo.setDestinoLong(java.math.BigDecimal.valueOf(((Number) lon).doubleValue()));
-                                logger.info("    Coordenadas de depósito destino {}: lat={}, lon={}",
+                                logger.debug("    Coordenadas de depósito destino {}: lat={}, lon={}",
                                         t.getDestinoDepositoId(), lat, lon);
                             } else {
                                 logger.warn("Depósito {} no contiene latitud/longitud válidas: {}", t.getDestinoDepositoId(), deposito);
@@ -903,11 +918,11 @@ public class RutaService {
                 java.time.LocalDateTime fechaFinTramo = fechaActual.plusMinutes(minutosDuracion);
                 tramo.setFechaHoraFinEstimada(fechaFinTramo);
                 
-                logger.info("    Fechas estimadas: inicio={}, fin={}", 
+                logger.debug("    Fechas estimadas: inicio={}, fin={}", 
                     tramo.getFechaHoraInicioEstimada(), tramo.getFechaHoraFinEstimada());
                 
-                // Guardar el tramo
-                tramoService.save(tramo);
+                // El tramo se guarda junto con el resto al final (inserción por lotes)
+                nuevosTramos.add(tramo);
                 creados++;
                 
                 // Actualizar fecha actual para el próximo tramo
@@ -930,6 +945,10 @@ public class RutaService {
                     logger.warn("    ===>>> Sin estadía (destino final). Próximo inicio: {}", fechaActual);
                 }
             }
+            tramoRepository.saveAll(nuevosTramos);
+            rutaRepository.recontarTramos(ruta.getId());
+            // Ajustar las fechas estimadas a horarios de depósitos y descansos de conducción
+            programacionService.reprogramarRutaAlConfirmar(ruta.getId());
             logger.info("Total tramos creados: {} con fechas estimadas calculadas", creados);
         }
 
@@ -7,6 +7,7 @@ import com.backend.tpi.ms_rutas_transportistas.dtos.osrm.RutaCalculadaDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
  
 
@@ -16,6 +17,7 @@ import java.util.*;
  * Servicio para calcular rutas tentativas considerando depósitos intermedios
  * Usa OSRM para calcular distancias reales entre depósitos
  * Puede calcular múltiples opciones y elegir la ruta más corta
+ * Al elegir depósitos intermedios relega los saturados (ver OcupacionDepositoService)
  */
 @Service
 public class RutaTentativaService {
@@ -28,6 +30,16 @@ public class RutaTentativaService {
     @Autowired
     private DepositoService depositoService;
 
+    @Autowired
+    private GeometriaService geometriaService;
+
+    @Autowired
+    private OcupacionDepositoService ocupacionDepositoService;
+
+    // Depósitos cercanos adicionales que se evalúan para reemplazar a los saturados
+    @Value("${app.depositos.candidatos-extra:2}")
+    private int candidatosExtra;
+
     /**
      * Calcula la mejor ruta entre origen y destino
      * Si depositosIntermediosIds es null, busca automáticamente depósitos intermedios
@@ -72,8 +84,11 @@ public class RutaTentativaService {
                 logger.debug("Variante directa: {} km", rutaDirecta.getDistanciaTotal());
             }
             
-            // Variante 2-N: Probar con depósitos cercanos al segmento origen-destino (k-nearest)
-            List<Long> candidatos = depositoService.getKNearestToRoute(origenDepositoId, destinoDepositoId, 3);
+            // Variante 2-N: Probar con depósitos cercanos al segmento origen-destino (k-nearest),
+            // primero los que no están saturados
+            List<Long> cercanos = cercanosAlSegmento(origenDepositoId, destinoDepositoId);
+            Set<Long> saturados = ocupacionDepositoService.saturados(cercanos);
+            List<Long> candidatos = priorizarNoSaturados(cercanos, saturados, 3);
             int maxIntermediarios = Math.min(3, candidatos.size());
             for (int i = 0; i < maxIntermediarios; i++) {
                 Long depositoIntermedio = candidatos.get(i);
@@ -97,8 +112,10 @@ public class RutaTentativaService {
                         .build();
             }
             
+            // Una variante por un depósito saturado solo gana si no hay otra
             RutaTentativaDTO mejorRuta = variantes.stream()
-                    .min(Comparator.comparing(RutaTentativaDTO::getDistanciaTotal))
+                    .min(Comparator.comparing((RutaTentativaDTO v) -> pasaPorSaturado(v, saturados))
+                            .thenComparing(RutaTentativaDTO::getDistanciaTotal))
                     .orElse(variantes.get(0));
             
             logger.info("Mejor ruta seleccionada: {} km de {} variantes calculadas", 
@@ -145,9 +162,7 @@ public class RutaTentativaService {
             
             // Rutas con depósitos intermedios
             // Obtener depósitos candidatos intermedios
-            List<Long> candidatos = depositoService.getKNearestToRoute(origenDepositoId, destinoDepositoId, 3);
-            candidatos.remove(origenDepositoId);
-            candidatos.remove(destinoDepositoId);
+            List<Long> candidatos = candidatosIntermedios(origenDepositoId, destinoDepositoId, 3);
             
             int maxIntermediarios = Math.min(3, candidatos.size());
             for (int i = 0; i < maxIntermediarios; i++) {
@@ -174,9 +189,7 @@ public class RutaTentativaService {
             // Variante directa
             RutaTentativaDTO directa = calcularRutaTentativa(origenDepositoId, destinoDepositoId, null);
             if (directa.getExitoso()) variantes.add(directa);
-            List<Long> candidatos = depositoService.getKNearestToRoute(origenDepositoId, destinoDepositoId, 3);
-            candidatos.remove(origenDepositoId);
-            candidatos.remove(destinoDepositoId);
+            List<Long> candidatos = candidatosIntermedios(origenDepositoId, destinoDepositoId, 3);
             int maxIntermediarios = Math.min(3, candidatos.size());
             for (int i = 0; i < maxIntermediarios; i++) {
                 Long depositoIntermedio = candidatos.get(i);
@@ -192,6 +205,43 @@ public class RutaTentativaService {
     
     // obtenerTodosDepositosIds moved to DepositoService
 
+    /**
+     * Depósitos intermedios candidatos: los k más cercanos al segmento origen-destino,
+     * con los saturados relegados al final
+     */
+    private List<Long> candidatosIntermedios(Long origenDepositoId, Long destinoDepositoId, int k) {
+        List<Long> cercanos = cercanosAlSegmento(origenDepositoId, destinoDepositoId);
+        return priorizarNoSaturados(cercanos, ocupacionDepositoService.saturados(cercanos), k);
+    }
+
+    /**
+     * Depósitos cercanos al segmento origen-destino (sin origen ni destino), con margen
+     * para reemplazar a los saturados
+     */
+    private List<Long> cercanosAlSegmento(Long origenDepositoId, Long destinoDepositoId) {
+        List<Long> cercanos = new ArrayList<>(depositoService.getKNearestToRoute(origenDepositoId, destinoDepositoId, 3 + candidatosExtra));
+        cercanos.remove(origenDepositoId);
+        cercanos.remove(destinoDepositoId);
+        return cercanos;
+    }
+
+    /**
+     * Ordena los candidatos dejando los saturados al final (conserva el orden por cercanía) y toma k
+     */
+    private List<Long> priorizarNoSaturados(List<Long> cercanos, Set<Long> saturados, int k) {
+        List<Long> ordenados = new ArrayList<>(cercanos);
+        if (!saturados.isEmpty()) {
+            ordenados.sort(Comparator.comparing(saturados::contains));
+            logger.info("Depósitos saturados relegados como intermedios: {}", saturados);
+        }
+        return ordenados.size() > k ? new ArrayList<>(ordenados.subList(0, k)) : ordenados;
+    }
+
+    private boolean pasaPorSaturado(RutaTentativaDTO variante, Set<Long> saturados) {
+        if (saturados.isEmpty() || variante.getDepositosIds() == null) return false;
+        return variante.getDepositosIds().stream().anyMatch(saturados::contains);
+    }
+
     /**
      * Calcula una ruta tentativa incluyendo puntos de origen/destino reales y depósitos
      * @param origenLat Latitud del punto de origen real
@@ -289,7 +339,7 @@ public class RutaTentativaService {
                     ((Number) infoDestino.get("longitud")).doubleValue()
                 );
                 
-                logger.info("Tramo {}: Depósito {} ({}) → Depósito {} ({})",
+                logger.debug("Tramo {}: Depósito {} ({}) → Depósito {} ({})",
                     orden, depOrigen, infoOrigen.get("nombre"), depDestino, infoDestino.get("nombre"));
                 
                 RutaCalculadaDTO rutaCalculada = osrmService.calcularRuta(coordOrigen, coordDestino);
@@ -363,7 +413,8 @@ public class RutaTentativaService {
                 .map(info -> (String) info.get("nombre"))
                 .toList();
             
-            String geometryCombinada = geometries.isEmpty() ? null : String.join("|", geometries);
+            // Simplificar al nivel de almacenamiento: OSRM devuelve muchos más puntos de los necesarios
+            String geometryCombinada = geometriaService.combinar(geometries, GeometriaService.NIVEL_ALTA);
             
             RutaTentativaDTO resultado = RutaTentativaDTO.builder()
                 .depositosIds(todosDepositosIds)
@@ -418,13 +469,14 @@ public class RutaTentativaService {
             
             // Obtener información de todos los depósitos (delegado a DepositoService)
             Map<Long, Map<String, Object>> depositosInfo = depositoService.getInfoForDepositos(todosDepositosIds);
-            logger.info("Depósitos obtenidos: {} de {} solicitados", depositosInfo.size(), todosDepositosIds.size());
+            logger.debug("Depósitos obtenidos: {} de {} solicitados", depositosInfo.size(), todosDepositosIds.size());
+            boolean debug = logger.isDebugEnabled();
             for (Long id : todosDepositosIds) {
-                if (depositosInfo.containsKey(id)) {
-                    Map<String, Object> info = depositosInfo.get(id);
-                    logger.info("  Depósito {}: lat={}, lon={}, nombre={}", id, info.get("latitud"), info.get("longitud"), info.get("nombre"));
-                } else {
+                Map<String, Object> info = depositosInfo.get(id);
+                if (info == null) {
                     logger.error("  Depósito {} NO ENCONTRADO en la respuesta", id);
+                } else if (debug) {
+                    logger.debug("  Depósito {}: lat={}, lon={}, nombre={}", id, info.get("latitud"), info.get("longitud"), info.get("nombre"));
                 }
             }
             
@@ -456,12 +508,12 @@ public class RutaTentativaService {
                         ((Number) infoDestino.get("longitud")).doubleValue()
                 );
                 
-                logger.info("Tramo {}: Calculando distancia desde depósito {} ({}, {}) a depósito {} ({}, {})",
+                logger.debug("Tramo {}: Calculando distancia desde depósito {} ({}, {}) a depósito {} ({}, {})",
                         i + 1, depOrigen, coordOrigen.getLatitud(), coordOrigen.getLongitud(),
                         depDestino, coordDestino.getLatitud(), coordDestino.getLongitud());
                 
                 RutaCalculadaDTO rutaCalculada = osrmService.calcularRuta(coordOrigen, coordDestino);
-                logger.info("Resultado OSRM: exitoso={}, distancia={} km, duración={} hrs",
+                logger.debug("Resultado OSRM: exitoso={}, distancia={} km, duración={} hrs",
                         rutaCalculada.isExitoso(), rutaCalculada.getDistanciaKm(), rutaCalculada.getDuracionHoras());
                 
                 // Validar que OSRM haya calculado la ruta exitosamente
@@ -507,8 +559,9 @@ public class RutaTentativaService {
                     .map(info -> (String) info.get("nombre"))
                     .toList();
             
-            // Combinar todas las geometrías en una sola (separadas por |)
-            String geometryCombinada = geometries.isEmpty() ? null : String.join("|", geometries);
+            // Combinar todas las geometrías en una sola (separadas por ;)
+            // Simplificar al nivel de almacenamiento: OSRM devuelve muchos más puntos de los necesarios
+            String geometryCombinada = geometriaService.combinar(geometries, GeometriaService.NIVEL_ALTA);
             
             RutaTentativaDTO resultado = RutaTentativaDTO.builder()
                     .depositosIds(todosDepositosIds)
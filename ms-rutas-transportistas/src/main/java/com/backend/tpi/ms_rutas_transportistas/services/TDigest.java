@@ -0,0 +1,203 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * T-digest (variante "merging") para estimar percentiles con memoria acotada
+ * Resume una distribución en a lo sumo ~compresión centroides, con más resolución en las colas,
+ * y dos digests se pueden combinar, así los agregados diarios se suman en cualquier rango.
+ * No es thread-safe: cada instancia se usa dentro de una transacción o de una consulta.
+ */
+public class TDigest {
+
+    private static final byte VERSION = 1;
+
+    private final double compresion;
+
+    // Centroides ya comprimidos, ordenados por media
+    private double[] medias;
+    private double[] pesos;
+    private int centroides;
+
+    // Valores agregados desde la última compresión
+    private double[] bufferMedias;
+    private double[] bufferPesos;
+    private int buffer;
+
+    private double pesoTotal;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest(double compresion) {
+        this.compresion = compresion;
+        int capacidad = (int) Math.ceil(compresion) * 2 + 10;
+        this.medias = new double[capacidad];
+        this.pesos = new double[capacidad];
+        this.bufferMedias = new double[capacidad * 5];
+        this.bufferPesos = new double[capacidad * 5];
+    }
+
+    /**
+     * Agrega una observación
+     */
+    public void agregar(double valor) {
+        agregar(valor, 1);
+    }
+
+    /**
+     * Agrega un valor con peso (un centroide de otro digest o una observación repetida)
+     */
+    public void agregar(double valor, double peso) {
+        if (Double.isNaN(valor) || peso <= 0) return;
+        if (buffer == bufferMedias.length) comprimir();
+        bufferMedias[buffer] = valor;
+        bufferPesos[buffer] = peso;
+        buffer++;
+        pesoTotal += peso;
+        min = Math.min(min, valor);
+        max = Math.max(max, valor);
+    }
+
+    /**
+     * Combina otro digest en este
+     */
+    public void agregar(TDigest otro) {
+        if (otro == null || otro.pesoTotal == 0) return;
+        otro.comprimir();
+        for (int i = 0; i < otro.centroides; i++) agregar(otro.medias[i], otro.pesos[i]);
+        min = Math.min(min, otro.min);
+        max = Math.max(max, otro.max);
+    }
+
+    /**
+     * Cantidad (peso total) de observaciones
+     */
+    public double cantidad() {
+        return pesoTotal;
+    }
+
+    /**
+     * Estima el cuantil q (0..1); NaN si el digest está vacío
+     */
+    public double cuantil(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("El cuantil debe estar entre 0 y 1");
+        comprimir();
+        if (centroides == 0) return Double.NaN;
+        if (centroides == 1) return medias[0];
+        double indice = q * pesoTotal;
+        // Cola izquierda: entre el mínimo y el centro del primer centroide
+        if (indice < pesos[0] / 2) {
+            return min + (medias[0] - min) * (indice / (pesos[0] / 2));
+        }
+        double acumulado = pesos[0] / 2;
+        for (int i = 0; i < centroides - 1; i++) {
+            double tramo = (pesos[i] + pesos[i + 1]) / 2;
+            if (acumulado + tramo > indice) {
+                double z = (indice - acumulado) / tramo;
+                return medias[i] + (medias[i + 1] - medias[i]) * z;
+            }
+            acumulado += tramo;
+        }
+        // Cola derecha: entre el centro del último centroide y el máximo
+        double restante = pesoTotal - acumulado;
+        if (restante <= 0) return max;
+        double z = Math.min(1, (indice - acumulado) / restante);
+        return medias[centroides - 1] + (max - medias[centroides - 1]) * z;
+    }
+
+    /**
+     * Serializa el digest comprimido (para guardarlo en una columna bytea)
+     */
+    public byte[] aBytes() {
+        comprimir();
+        ByteBuffer bb = ByteBuffer.allocate(1 + 8 * 3 + 4 + centroides * 16);
+        bb.put(VERSION);
+        bb.putDouble(compresion);
+        bb.putDouble(min);
+        bb.putDouble(max);
+        bb.putInt(centroides);
+        for (int i = 0; i < centroides; i++) {
+            bb.putDouble(medias[i]);
+            bb.putDouble(pesos[i]);
+        }
+        return bb.array();
+    }
+
+    /**
+     * Reconstruye un digest serializado; null o vacío devuelve un digest vacío
+     */
+    public static TDigest desdeBytes(byte[] datos, double compresionPorDefecto) {
+        if (datos == null || datos.length == 0) return new TDigest(compresionPorDefecto);
+        ByteBuffer bb = ByteBuffer.wrap(datos);
+        byte version = bb.get();
+        if (version != VERSION) throw new IllegalArgumentException("Versión de t-digest no soportada: " + version);
+        TDigest digest = new TDigest(bb.getDouble());
+        double min = bb.getDouble();
+        double max = bb.getDouble();
+        int n = bb.getInt();
+        for (int i = 0; i < n; i++) digest.agregar(bb.getDouble(), bb.getDouble());
+        digest.min = min;
+        digest.max = max;
+        return digest;
+    }
+
+    /**
+     * Fusiona el buffer con los centroides respetando el límite de tamaño de la función de escala k1
+     * (los centroides cerca de las colas quedan chicos, los del medio pueden ser grandes)
+     */
+    private void comprimir() {
+        if (buffer == 0) return;
+        int n = centroides + buffer;
+        double[] m = Arrays.copyOf(medias, n);
+        double[] w = Arrays.copyOf(pesos, n);
+        System.arraycopy(bufferMedias, 0, m, centroides, buffer);
+        System.arraycopy(bufferPesos, 0, w, centroides, buffer);
+        buffer = 0;
+
+        Integer[] orden = new Integer[n];
+        for (int i = 0; i < n; i++) orden[i] = i;
+        Arrays.sort(orden, (a, b) -> Double.compare(m[a], m[b]));
+
+        int salida = 0;
+        double mediaActual = m[orden[0]];
+        double pesoActual = w[orden[0]];
+        double pesoPrevio = 0;
+        double limite = pesoTotal * qInversa(k(0) + 1);
+        for (int i = 1; i < n; i++) {
+            double mi = m[orden[i]];
+            double wi = w[orden[i]];
+            if (pesoPrevio + pesoActual + wi <= limite) {
+                pesoActual += wi;
+                mediaActual += (mi - mediaActual) * wi / pesoActual;
+            } else {
+                salida = emitir(salida, mediaActual, pesoActual);
+                pesoPrevio += pesoActual;
+                limite = pesoTotal * qInversa(k(pesoPrevio / pesoTotal) + 1);
+                mediaActual = mi;
+                pesoActual = wi;
+            }
+        }
+        centroides = emitir(salida, mediaActual, pesoActual);
+    }
+
+    private int emitir(int posicion, double media, double peso) {
+        if (posicion == medias.length) {
+            medias = Arrays.copyOf(medias, medias.length * 2);
+            pesos = Arrays.copyOf(pesos, pesos.length * 2);
+        }
+        medias[posicion] = media;
+        pesos[posicion] = peso;
+        return posicion + 1;
+    }
+
+    private double k(double q) {
+        return compresion / (2 * Math.PI) * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private double qInversa(double k) {
+        double kMax = compresion / 4;
+        if (k >= kMax) return 1;
+        return (Math.sin(k * 2 * Math.PI / compresion) + 1) / 2;
+    }
+}
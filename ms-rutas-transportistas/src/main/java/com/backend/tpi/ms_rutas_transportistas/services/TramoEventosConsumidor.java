@@ -0,0 +1,40 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.eventos.ConsumidorEventos;
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
+import com.backend.tpi.ms_rutas_transportistas.models.EventoOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor de los eventos de ciclo de vida de tramos y rutas
+ * Aplica los efectos secundarios (costos, contenedor, solicitud) que antes se hacían dentro del request
+ * Corre antes que los demás consumidores: el costo real que calcula lo usan los KPIs
+ */
+@Component
+@Order(0)
+public class TramoEventosConsumidor implements ConsumidorEventos {
+
+    @Autowired
+    private TramoService tramoService;
+
+    @Override
+    public String nombre() {
+        return "tramos";
+    }
+
+    @Override
+    public boolean acepta(TipoEvento tipo) {
+        return true;
+    }
+
+    @Override
+    public void procesar(EventoOutbox evento) {
+        switch (evento.getTipo()) {
+            case TRAMO_INICIADO -> tramoService.procesarTramoIniciado(evento.getTramoId());
+            case TRAMO_FINALIZADO -> tramoService.procesarTramoFinalizado(evento.getTramoId());
+            case RUTA_COMPLETADA -> tramoService.procesarRutaCompletada(evento.getRutaId());
+        }
+    }
+}
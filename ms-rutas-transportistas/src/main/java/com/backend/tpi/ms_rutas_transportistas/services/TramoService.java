@@ -36,10 +36,7 @@ public class TramoService {
     private org.springframework.web.client.RestClient calculosClient;
     
     @Autowired
-    private com.backend.tpi.ms_rutas_transportistas.repositories.TipoTramoRepository tipoTramoRepository;
-
-    @Autowired
-    private com.backend.tpi.ms_rutas_transportistas.repositories.EstadoTramoRepository estadoTramoRepository;
+    private CatalogoService catalogoService;
     
     @Autowired
     private com.backend.tpi.ms_rutas_transportistas.repositories.CamionRepository camionRepository;
@@ -49,6 +46,21 @@ public class TramoService {
 
     // usamos `solicitudesClient` RestClient inyectado arriba para llamadas a ms-solicitudes
 
+    @Autowired
+    private com.backend.tpi.ms_rutas_transportistas.clients.SolicitudClient solicitudClient;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ProgramacionService programacionService;
+
+    @Autowired
+    private org.springframework.jdbc.core.JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private com.backend.tpi.common.metricas.RegistroMetricas registroMetricas;
+
     @org.springframework.beans.factory.annotation.Value("${app.calculos.base-url:http://ms-gestion-calculos:8081}")
     private String calculosBaseUrl;
 
@@ -127,17 +139,18 @@ public class TramoService {
             }
             // Asignar tipoTramo por defecto si existe
             try {
-                tipoTramoRepository.findAll().stream().findFirst().ifPresent(tramo::setTipoTramo);
+                catalogoService.findTipoTramoPorDefecto().ifPresent(tramo::setTipoTramo);
             } catch (Exception e) {
                 logger.warn("No se pudo asignar tipoTramo por defecto: {}", e.getMessage());
             }
             // Asignar estado PENDIENTE por defecto si existe
             try {
-                estadoTramoRepository.findByNombre("PENDIENTE").ifPresent(tramo::setEstado);
+                catalogoService.findEstadoTramoByNombre("PENDIENTE").ifPresent(tramo::setEstado);
             } catch (Exception e) {
                 logger.warn("No se pudo asignar estadoTramo por defecto: {}", e.getMessage());
             }
             Tramo saved = tramoRepository.save(tramo);
+            rutaRepository.recontarTramos(tramoRequestDTO.getIdRuta());
             logger.info("Tramo creado exitosamente con ID: {}", saved.getId());
             return toDto(saved);
         }
@@ -168,6 +181,81 @@ public class TramoService {
                 .toList();
     }
 
+    /**
+     * Actualiza las estimaciones (costo, distancia, duración) de varios tramos de una ruta en una sola pasada
+     * La pertenencia de los tramos a la ruta se valida con una única consulta y los UPDATE
+     * se envían en un solo batch JDBC, sin cargar las entidades
+     * @param rutaId ID de la ruta
+     * @param estimaciones Estimaciones por tramo
+     * @return Resultado por ítem en el mismo orden recibido, o null si la ruta no existe
+     */
+    @org.springframework.transaction.annotation.Transactional
+    public java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.ResultadoEstimacionTramoDTO> actualizarEstimaciones(
+            Long rutaId, java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.EstimacionTramoDTO> estimaciones) {
+        java.util.List<com.backend.tpi.ms_rutas_transportistas.dtos.EstimacionTramoDTO> items =
+                estimaciones != null ? estimaciones : java.util.List.of();
+        java.util.Set<Long> ids = new java.util.HashSet<>();
+        for (com.backend.tpi.ms_rutas_transportistas.dtos.EstimacionTramoDTO e : items) {
+            if (e != null && e.getTramoId() != null) ids.add(e.getTramoId());
+        }
+        java.util.Set<Long> propios = ids.isEmpty()
+                ? java.util.Set.of()
+                : new java.util.HashSet<>(tramoRepository.findIdsDeRuta(rutaId, ids));
+        if (propios.isEmpty() && !rutaRepository.existsById(rutaId)) {
+            logger.warn("No se pueden actualizar estimaciones - Ruta no encontrada con ID: {}", rutaId);
+            return null;
+        }
+
+        com.backend.tpi.ms_rutas_transportistas.dtos.ResultadoEstimacionTramoDTO[] resultados =
+                new com.backend.tpi.ms_rutas_transportistas.dtos.ResultadoEstimacionTramoDTO[items.size()];
+        java.util.List<Object[]> parametros = new java.util.ArrayList<>();
+        java.util.List<Integer> posiciones = new java.util.ArrayList<>();
+        java.util.Set<Long> vistos = new java.util.HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            com.backend.tpi.ms_rutas_transportistas.dtos.EstimacionTramoDTO e = items.get(i);
+            Long tramoId = e != null ? e.getTramoId() : null;
+            String error = null;
+            if (tramoId == null) {
+                error = "tramoId es obligatorio";
+            } else if (!propios.contains(tramoId)) {
+                error = "El tramo no pertenece a la ruta";
+            } else if (!vistos.add(tramoId)) {
+                error = "Tramo duplicado en la solicitud";
+            } else if (e.getCostoEstimado() == null && e.getDistancia() == null && e.getDuracion() == null) {
+                error = "Sin valores para actualizar";
+            } else if ((e.getCostoEstimado() != null && e.getCostoEstimado().signum() < 0)
+                    || (e.getDistancia() != null && e.getDistancia() < 0)
+                    || (e.getDuracion() != null && e.getDuracion() < 0)) {
+                error = "Los valores no pueden ser negativos";
+            }
+            if (error != null) {
+                resultados[i] = new com.backend.tpi.ms_rutas_transportistas.dtos.ResultadoEstimacionTramoDTO(tramoId, false, error);
+                continue;
+            }
+            parametros.add(new Object[] { e.getCostoEstimado(), e.getDistancia(), e.getDuracion(), tramoId });
+            posiciones.add(i);
+        }
+
+        if (!parametros.isEmpty()) {
+            int[] filas = jdbcTemplate.batchUpdate(
+                    "UPDATE tramos SET costo_aproximado = COALESCE(?, costo_aproximado), " +
+                    "distancia = COALESCE(?, distancia), duracion_horas = COALESCE(?, duracion_horas) " +
+                    "WHERE id_tramo = ?",
+                    parametros,
+                    new int[] { java.sql.Types.NUMERIC, java.sql.Types.DOUBLE, java.sql.Types.DOUBLE, java.sql.Types.BIGINT });
+            for (int j = 0; j < posiciones.size(); j++) {
+                int i = posiciones.get(j);
+                // SUCCESS_NO_INFO (-2) cuenta como aplicado
+                boolean ok = filas[j] != 0;
+                resultados[i] = new com.backend.tpi.ms_rutas_transportistas.dtos.ResultadoEstimacionTramoDTO(
+                        items.get(i).getTramoId(), ok, ok ? null : "El tramo no fue actualizado");
+            }
+        }
+
+        logger.info("Estimaciones actualizadas en ruta {}: {} de {} tramos", rutaId, parametros.size(), items.size());
+        return java.util.Arrays.asList(resultados);
+    }
+
     /**
      * Guarda o actualiza un tramo
      * @param tramo Entidad tramo a guardar
@@ -356,6 +444,9 @@ public class TramoService {
         } catch (Exception e) {
             logger.warn("No se pudo calcular costo aproximado para tramo {}: {}", tramoId, e.getMessage());
         }
+
+        // Ubicar el tramo (y los siguientes) en el calendario del camión asignado, una vez guardada la asignación
+        programacionService.reprogramarDesdeAlConfirmar(tramoId);
         
         return toDto(saved);
     }
@@ -425,69 +516,16 @@ public class TramoService {
         tramo.setFechaHoraInicioReal(fechaInicio);
         // Actualizar estado a EN_PROCESO
         try {
-            estadoTramoRepository.findByNombre("EN_PROCESO").ifPresent(tramo::setEstado);
+            catalogoService.findEstadoTramoByNombre("EN_PROCESO").ifPresent(tramo::setEstado);
         } catch (Exception e) {
             logger.warn("No se pudo actualizar estadoTramo a EN_PROCESO: {}", e.getMessage());
         }
         Tramo saved = tramoRepository.save(tramo);
         logger.info("Tramo ID: {} iniciado exitosamente a las {}", tramoId, saved.getFechaHoraInicioReal());
         
-        // Cambiar estado de solicitud a EN_TRANSITO cuando se inicia el primer tramo
-        if (tramo.getOrden() != null && tramo.getOrden() == 1) {
-            Ruta ruta = tramo.getRuta();
-            if (ruta != null && ruta.getIdSolicitud() != null) {
-                logger.info("Primer tramo iniciado de la ruta {}, cambiando estado de solicitud {} a EN_TRANSITO",
-                        ruta.getId(), ruta.getIdSolicitud());
-                try {
-                    String token = extractBearerToken();
-                    solicitudesClient.put()
-                            .uri("/api/v1/solicitudes/" + ruta.getIdSolicitud() + "/estado?nuevoEstado=EN_TRANSITO")
-                            .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                            .retrieve()
-                            .toBodilessEntity();
-                    logger.info("Estado de solicitud {} cambiado a EN_TRANSITO", ruta.getIdSolicitud());
-                    
-                    // Actualizar estado del contenedor a EN_TRANSITO
-                    updateContenedorEstado(ruta.getIdSolicitud(), "EN_TRANSITO", null, 
-                        tramo.getOrigenLat(), tramo.getOrigenLong());
-                } catch (Exception e) {
-                    logger.error("Error al cambiar estado de solicitud a EN_TRANSITO: {}", e.getMessage());
-                }
-            }
-        }
-        
-        // Actualizar estado del contenedor cuando se inicia un tramo que sale de un depósito
-        if (tramo.getOrden() != null && tramo.getOrden() > 1) {
-            Ruta ruta = tramo.getRuta();
-            if (ruta != null && ruta.getIdSolicitud() != null && tramo.getOrigenDepositoId() != null) {
-                logger.info("Tramo {} iniciado desde depósito {}, actualizando contenedor a EN_TRANSITO",
-                        tramoId, tramo.getOrigenDepositoId());
-                updateContenedorEstado(ruta.getIdSolicitud(), "EN_TRANSITO", 
-                    null, tramo.getOrigenLat(), tramo.getOrigenLong());
-            }
-        }
-        
-        // After starting this tramo, attempt to compute and persist estadía/costo for the previous tramo
-        try {
-            if (saved.getRuta() != null && saved.getOrden() != null && saved.getOrden() > 1) {
-                Long rutaIdAssociated = saved.getRuta().getId();
-                int prevOrden = saved.getOrden() - 1;
-                java.util.List<Tramo> tramosRuta = tramoRepository.findByRutaId(rutaIdAssociated);
-                for (Tramo t : tramosRuta) {
-                    if (t.getOrden() != null && t.getOrden() == prevOrden) {
-                        try {
-                            computeAndSaveCostoRealForTramo(t);
-                            logger.info("Estadía calculada y costo actualizado para tramo previo ID: {}", t.getId());
-                        } catch (Exception e) {
-                            logger.warn("No se pudo calcular estadía para tramo previo ID {}: {}", t.getId(), e.getMessage());
-                        }
-                        break;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Error intentando calcular estadía de tramo previo tras iniciar tramo {}: {}", tramoId, e.getMessage());
-        }
+        // Los efectos sobre la solicitud, el contenedor y el costo del tramo previo se aplican
+        // de forma asíncrona al procesar el evento (ver procesarTramoIniciado)
+        outboxService.registrar(com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento.TRAMO_INICIADO, saved.getRuta(), saved);
 
         return toDto(saved);
     }
@@ -539,7 +577,7 @@ public class TramoService {
         tramo.setFechaHoraFinReal(fechaFin);
         // Actualizar estado a FINALIZADO
         try {
-            estadoTramoRepository.findByNombre("FINALIZADO").ifPresent(tramo::setEstado);
+            catalogoService.findEstadoTramoByNombre("FINALIZADO").ifPresent(tramo::setEstado);
         } catch (Exception e) {
             logger.warn("No se pudo actualizar estadoTramo a FINALIZADO: {}", e.getMessage());
         }
@@ -564,93 +602,18 @@ public class TramoService {
         Tramo saved = tramoRepository.save(tramo);
         logger.info("Tramo ID: {} finalizado exitosamente a las {}", tramoId, saved.getFechaHoraFinReal());
 
-        // Calcular y persistir costo real del tramo al finalizar
-        try {
-            computeAndSaveCostoRealForTramo(saved);
-        } catch (Exception e) {
-            logger.warn("No se pudo calcular costo real para tramo ID {}: {}", tramoId, e.getMessage());
-        }
+        // Costo real, estado del contenedor y cierre de la solicitud se aplican al procesar los eventos
+        registrarEventosFinalizacion(saved, true);
 
-        // Si todos los tramos de la ruta están finalizados, calcular costo final de la ruta y notificar a solicitudes
-        try {
-            Long rutaIdAssociated = saved.getRuta() != null ? saved.getRuta().getId() : null;
-            if (rutaIdAssociated != null) {
-                java.util.List<Tramo> tramosRuta = tramoRepository.findByRutaId(rutaIdAssociated);
-                boolean todosFinalizados = tramosRuta.stream().allMatch(t -> t.getFechaHoraFinReal() != null);
-                
-                // Actualizar estado del contenedor al finalizar el tramo
-                Ruta ruta = saved.getRuta();
-                if (ruta != null && ruta.getIdSolicitud() != null) {
-                    // Si este tramo termina en un depósito, marcar contenedor como EN_DEPOSITO
-                    if (saved.getDestinoDepositoId() != null) {
-                        logger.info("Tramo {} finalizado en depósito {}, actualizando contenedor a EN_DEPOSITO",
-                                tramoId, saved.getDestinoDepositoId());
-                        updateContenedorEstado(ruta.getIdSolicitud(), "EN_DEPOSITO", 
-                            saved.getDestinoDepositoId(), saved.getDestinoLat(), saved.getDestinoLong());
-                    }
-                    // Si es el último tramo (todos finalizados), marcar contenedor como ENTREGADO
-                    else if (todosFinalizados) {
-                        logger.info("Último tramo {} finalizado, actualizando contenedor a ENTREGADO", tramoId);
-                        updateContenedorEstado(ruta.getIdSolicitud(), "ENTREGADO", 
-                            null, saved.getDestinoLat(), saved.getDestinoLong());
-                    }
-                }
-                
-                if (todosFinalizados) {
-                    double sumaTramos = 0.0;
-                    for (Tramo t : tramosRuta) {
-                        if (t.getCostoReal() != null) sumaTramos += t.getCostoReal().doubleValue();
-                        else if (t.getCostoAproximado() != null) sumaTramos += t.getCostoAproximado().doubleValue();
-                    }
-
-                    // Obtener costo base de gestion
-                    Double costoBaseGestionFijo = null;
-                    try {
-                        String token = extractBearerToken();
-                        org.springframework.http.ResponseEntity<java.util.List<java.util.Map<String, Object>>> tarifasEntity = calculosClient.get()
-                                .uri("/api/v1/tarifas")
-                                .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                                .retrieve()
-                                .toEntity(new org.springframework.core.ParameterizedTypeReference<java.util.List<java.util.Map<String, Object>>>() {});
-                        java.util.List<java.util.Map<String, Object>> tarifas = tarifasEntity != null ? tarifasEntity.getBody() : null;
-                        if (tarifas != null && !tarifas.isEmpty()) {
-                            Object costoBaseObj = tarifas.get(0).get("costoBaseGestionFijo");
-                            if (costoBaseObj instanceof Number) costoBaseGestionFijo = ((Number) costoBaseObj).doubleValue();
-                        }
-                    } catch (Exception ex) {
-                        logger.warn("No se pudo obtener tarifas para cálculo final de ruta: {}", ex.getMessage());
-                    }
-                    if (costoBaseGestionFijo == null) costoBaseGestionFijo = 0.0;
-
-                    double costoGestionTotal = costoBaseGestionFijo * tramosRuta.size();
-                    double costoFinal = Math.round((sumaTramos + costoGestionTotal) * 100.0) / 100.0;
-
-                    // Calcular tiempo real total (sumar duracionHoras si está disponible)
-                    double tiempoRealHoras = tramosRuta.stream()
-                            .mapToDouble(t -> t.getDuracionHoras() != null ? t.getDuracionHoras() : 0.0)
-                            .sum();
-
-                    // Notificar a ms-solicitudes para persistir costo final y tiempo real
-                    try {
-                        Long solicitudId = saved.getRuta() != null ? saved.getRuta().getIdSolicitud() : null;
-                        if (solicitudId != null) {
-                            String token = extractBearerToken();
-                            String uri = String.format("/api/v1/solicitudes/%d/finalizar?costoFinal=%.2f&tiempoReal=%.2f",
-                                    solicitudId, costoFinal, tiempoRealHoras);
-                            solicitudesClient.patch()
-                                    .uri(uri)
-                                    .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                                    .retrieve()
-                                    .toEntity(Object.class);
-                            logger.info("Notificada ms-solicitudes: solicitud {} finalizada con costo {} y tiempo {} horas", solicitudId, costoFinal, tiempoRealHoras);
+        // Se cuenta recién al confirmar, para no sumar finalizaciones que terminan en rollback
+        if (org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive()) {
+            org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization(
+                    new org.springframework.transaction.support.TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            registroMetricas.incrementar("tramos.finalizados", java.util.Map.of());
                         }
-                    } catch (Exception e) {
-                        logger.warn("No se pudo notificar a ms-solicitudes sobre finalización de ruta: {}", e.getMessage());
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Error comprobando finalización de ruta para tramo ID {}: {}", tramoId, e.getMessage());
+                    });
         }
 
         return toDto(saved);
@@ -783,6 +746,9 @@ public class TramoService {
         } catch (Exception e) {
             logger.warn("No se pudo calcular costo aproximado para tramo {}: {}", tramoId, e.getMessage());
         }
+
+        // Ubicar el tramo (y los siguientes) en el calendario del camión asignado, una vez guardada la asignación
+        programacionService.reprogramarDesdeAlConfirmar(tramoId);
         
         return toDto(saved);
     }
@@ -909,8 +875,16 @@ public class TramoService {
         double total = Math.round((costoKmCamion + costoCombustible + costoEstadia) * 100.0) / 100.0;
         logger.info("=== Costo total calculado: ${} (km: ${}, combustible: ${}, estadía: ${}) ===", 
             total, costoKmCamion, costoCombustible, costoEstadia);
-        tramo.setCostoReal(java.math.BigDecimal.valueOf(total));
+        // Lo que el tramo ya sumaba a la ruta: su costo real, o el aproximado si ya estaba finalizado
+        java.math.BigDecimal anterior = tramo.getCostoReal() != null ? tramo.getCostoReal()
+                : tramo.getFechaHoraFinReal() != null ? costoProvisorio(tramo) : java.math.BigDecimal.ZERO;
+        java.math.BigDecimal nuevo = java.math.BigDecimal.valueOf(total);
+        tramo.setCostoReal(nuevo);
         tramoRepository.save(tramo);
+        // Mantener el costo real acumulado de la ruta (el costo se recalcula al conocerse la estadía)
+        if (tramo.getRuta() != null && nuevo.compareTo(anterior) != 0) {
+            rutaRepository.acumularCostoReal(tramo.getRuta().getId(), nuevo.subtract(anterior));
+        }
     }
 
     /**
@@ -1072,7 +1046,15 @@ public class TramoService {
     @org.springframework.transaction.annotation.Transactional
     public void delete(Long id) {
         logger.info("Eliminando tramo con ID: {}", id);
+        Long rutaId = tramoRepository.findById(id)
+                .map(t -> t.getRuta() != null ? t.getRuta().getId() : null)
+                .orElse(null);
         tramoRepository.deleteById(id);
+        if (rutaId != null) {
+            rutaRepository.recontarTramos(rutaId);
+        }
+        // Deja de ocupar el calendario de su camión
+        programacionService.quitarTramosAlConfirmar(java.util.List.of(id));
     }
 
     /**
@@ -1088,10 +1070,11 @@ public class TramoService {
         Tramo tramo = tramoRepository.findById(tramoId)
                 .orElseThrow(() -> new RuntimeException("Tramo no encontrado con ID: " + tramoId));
         
+        boolean yaFinalizado = tramo.getFechaHoraFinReal() != null;
         tramo.setFechaHoraFinReal(fechaLlegada);
         
         // Cambiar estado del tramo a COMPLETADO
-        estadoTramoRepository.findByNombre("COMPLETADO").ifPresent(tramo::setEstado);
+        catalogoService.findEstadoTramoByNombre("COMPLETADO").ifPresent(tramo::setEstado);
         
         // Liberar el camión (marcarlo como DISPONIBLE nuevamente)
         if (tramo.getCamionDominio() != null) {
@@ -1113,43 +1096,185 @@ public class TramoService {
         tramo = tramoRepository.save(tramo);
         logger.info("Fecha de llegada actualizada para tramo ID: {} y estado cambiado a COMPLETADO", tramoId);
         
-        // Calcular y persistir costo real del tramo al completar
-        try {
-            computeAndSaveCostoRealForTramo(tramo);
-        } catch (Exception e) {
-            logger.warn("No se pudo calcular costo real para tramo ID {}: {}", tramoId, e.getMessage());
+        // Costo real del tramo y, si era el último, cambio de la solicitud a COMPLETADA: vía eventos
+        registrarEventosFinalizacion(tramo, !yaFinalizado);
+
+        return toDto(tramo);
+    }
+
+    /**
+     * Registra TRAMO_FINALIZADO y, si era el último tramo pendiente de la ruta, RUTA_COMPLETADA
+     * El avance se lleva en los agregados de la ruta con un UPDATE condicional, sin recorrer sus tramos.
+     * Ambos eventos se insertan en la misma transacción que el tramo.
+     * @param primeraFinalizacion false si el tramo ya estaba finalizado y solo se corrigió su fecha
+     */
+    private void registrarEventosFinalizacion(Tramo tramo, boolean primeraFinalizacion) {
+        Ruta ruta = tramo.getRuta();
+        if (ruta == null) return;
+        outboxService.registrar(com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento.TRAMO_FINALIZADO, ruta, tramo);
+
+        // Si los agregados no están inicializados (rutas anteriores) o la fecha se corrigió, se recalculan
+        if (!primeraFinalizacion || rutaRepository.registrarTramoFinalizado(ruta.getId(), horasReales(tramo), costoProvisorio(tramo)) == 0) {
+            rutaRepository.recontarTramos(ruta.getId());
+        }
+        Integer pendientes = rutaRepository.contarTramosPendientes(ruta.getId());
+        if (pendientes != null && pendientes == 0) {
+            logger.info("Todos los tramos de la ruta {} finalizados, registrando RUTA_COMPLETADA", ruta.getId());
+            outboxService.registrar(com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento.RUTA_COMPLETADA, ruta, null);
+        }
+    }
+
+    /**
+     * Costo que suma a la ruta un tramo que finaliza sin costo real todavía: el aproximado
+     * (el real se calcula después, al procesar TRAMO_FINALIZADO, y reemplaza a este en el acumulado)
+     */
+    private static java.math.BigDecimal costoProvisorio(Tramo tramo) {
+        if (tramo.getCostoReal() != null || tramo.getCostoAproximado() == null) return java.math.BigDecimal.ZERO;
+        return tramo.getCostoAproximado();
+    }
+
+    /**
+     * Horas reales de un tramo finalizado; si no tiene inicio real se usa la duración estimada
+     */
+    private double horasReales(Tramo tramo) {
+        if (tramo.getFechaHoraInicioReal() != null && tramo.getFechaHoraFinReal() != null) {
+            return java.time.Duration.between(tramo.getFechaHoraInicioReal(), tramo.getFechaHoraFinReal()).getSeconds() / 3600.0;
+        }
+        return tramo.getDuracionHoras() != null ? tramo.getDuracionHoras() : 0.0;
+    }
+
+    /**
+     * Efectos de TRAMO_INICIADO: solicitud y contenedor EN_TRANSITO, y costo real del tramo previo
+     * (la estadía en el depósito se conoce recién cuando arranca el tramo siguiente).
+     * Las fallas se propagan para que el relay reintente el evento.
+     * @param tramoId ID del tramo iniciado
+     */
+    @org.springframework.transaction.annotation.Transactional
+    public void procesarTramoIniciado(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getRuta() == null) {
+            logger.warn("Evento TRAMO_INICIADO para tramo {} inexistente o sin ruta, se ignora", tramoId);
+            return;
         }
-        
-        // Verificar si es el último tramo de la ruta para cambiar estado de solicitud a ENTREGADO
         Ruta ruta = tramo.getRuta();
-        if (ruta != null && ruta.getIdSolicitud() != null) {
-            java.util.List<Tramo> tramosRuta = tramoRepository.findByRutaId(ruta.getId());
-            boolean todosCompletados = tramosRuta.stream()
-                    .allMatch(t -> t.getFechaHoraFinReal() != null);
-
-            if (todosCompletados) {
-                logger.info("Todos los tramos de la ruta {} completados, cambiando estado de solicitud {} a COMPLETADA", ruta.getId(), ruta.getIdSolicitud());
-                    try {
-                        String token = extractBearerToken();
-                        solicitudesClient.put()
-                                .uri("/api/v1/solicitudes/" + ruta.getIdSolicitud() + "/estado?nuevoEstado=COMPLETADA")
-                                .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                                .retrieve()
-                                .toBodilessEntity();
-                        logger.info("Estado de solicitud {} cambiado a COMPLETADA", ruta.getIdSolicitud());
-                    } catch (Exception e) {
-                        logger.error("Error al cambiar estado de solicitud a COMPLETADA: {}", e.getMessage());
-                    }
+
+        // Cambiar estado de solicitud a EN_TRANSITO cuando se inicia el primer tramo
+        if (tramo.getOrden() != null && tramo.getOrden() == 1 && ruta.getIdSolicitud() != null) {
+            logger.info("Primer tramo iniciado de la ruta {}, cambiando estado de solicitud {} a EN_TRANSITO",
+                    ruta.getId(), ruta.getIdSolicitud());
+            // Si ms-solicitudes rechaza la transición (ya avanzó o se canceló) no se reintenta el evento
+            // ni se mueve el contenedor: una solicitud cancelada ya lo dejó LIBRE
+            if (solicitudClient.cambiarEstado(ruta.getIdSolicitud(), "EN_TRANSITO")) {
+                updateContenedorEstado(ruta.getIdSolicitud(), "EN_TRANSITO", null,
+                        tramo.getOrigenLat(), tramo.getOrigenLong());
+            } else {
+                logger.warn("La solicitud {} no pasó a EN_TRANSITO: el contenedor no se modifica", ruta.getIdSolicitud());
             }
         }
-        
-        return toDto(tramo);
+
+        // Actualizar estado del contenedor cuando se inicia un tramo que sale de un depósito
+        if (tramo.getOrden() != null && tramo.getOrden() > 1) {
+            if (ruta.getIdSolicitud() != null && tramo.getOrigenDepositoId() != null) {
+                logger.info("Tramo {} iniciado desde depósito {}, actualizando contenedor a EN_TRANSITO",
+                        tramoId, tramo.getOrigenDepositoId());
+                updateContenedorEstado(ruta.getIdSolicitud(), "EN_TRANSITO",
+                        null, tramo.getOrigenLat(), tramo.getOrigenLong());
+            }
+
+            // Calcular y persistir estadía/costo del tramo previo
+            int prevOrden = tramo.getOrden() - 1;
+            for (Tramo t : tramoRepository.findByRutaId(ruta.getId())) {
+                if (t.getOrden() != null && t.getOrden() == prevOrden) {
+                    computeAndSaveCostoRealForTramo(t);
+                    logger.debug("Estadía calculada y costo actualizado para tramo previo ID: {}", t.getId());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Efectos de TRAMO_FINALIZADO: costo real del tramo y contenedor EN_DEPOSITO si terminó en un depósito
+     * @param tramoId ID del tramo finalizado
+     */
+    @org.springframework.transaction.annotation.Transactional
+    public void procesarTramoFinalizado(Long tramoId) {
+        Tramo tramo = tramoRepository.findById(tramoId).orElse(null);
+        if (tramo == null || tramo.getRuta() == null) {
+            logger.warn("Evento TRAMO_FINALIZADO para tramo {} inexistente o sin ruta, se ignora", tramoId);
+            return;
+        }
+        computeAndSaveCostoRealForTramo(tramo);
+
+        Ruta ruta = tramo.getRuta();
+        if (ruta.getIdSolicitud() != null && tramo.getDestinoDepositoId() != null) {
+            logger.info("Tramo {} finalizado en depósito {}, actualizando contenedor a EN_DEPOSITO",
+                    tramoId, tramo.getDestinoDepositoId());
+            updateContenedorEstado(ruta.getIdSolicitud(), "EN_DEPOSITO",
+                    tramo.getDestinoDepositoId(), tramo.getDestinoLat(), tramo.getDestinoLong());
+        }
+    }
+
+    /**
+     * Efectos de RUTA_COMPLETADA: contenedor ENTREGADO, costo final y tiempo real en la solicitud,
+     * y solicitud COMPLETADA
+     * @param rutaId ID de la ruta completada
+     */
+    @org.springframework.transaction.annotation.Transactional
+    public void procesarRutaCompletada(Long rutaId) {
+        Ruta ruta = rutaRepository.findById(rutaId).orElse(null);
+        if (ruta == null || ruta.getIdSolicitud() == null) {
+            logger.warn("Evento RUTA_COMPLETADA para ruta {} inexistente o sin solicitud, se ignora", rutaId);
+            return;
+        }
+        Long solicitudId = ruta.getIdSolicitud();
+
+        // Si el último tramo no termina en un depósito, el contenedor fue entregado
+        Tramo ultimo = tramoRepository.findFirstByRutaIdOrderByOrdenDesc(rutaId).orElse(null);
+        if (ultimo != null && ultimo.getDestinoDepositoId() == null) {
+            logger.info("Ruta {} completada, actualizando contenedor a ENTREGADO", rutaId);
+            updateContenedorEstado(solicitudId, "ENTREGADO", null, ultimo.getDestinoLat(), ultimo.getDestinoLong());
+        }
+
+        // Obtener costo base de gestion (si falla, se reintenta el evento)
+        Double costoBaseGestionFijo = null;
+        String token = extractBearerToken();
+        org.springframework.http.ResponseEntity<java.util.List<java.util.Map<String, Object>>> tarifasEntity = calculosClient.get()
+                .uri("/api/v1/tarifas")
+                .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                .retrieve()
+                .toEntity(new org.springframework.core.ParameterizedTypeReference<java.util.List<java.util.Map<String, Object>>>() {});
+        java.util.List<java.util.Map<String, Object>> tarifas = tarifasEntity != null ? tarifasEntity.getBody() : null;
+        if (tarifas != null && !tarifas.isEmpty()) {
+            Object costoBaseObj = tarifas.get(0).get("costoBaseGestionFijo");
+            if (costoBaseObj instanceof Number) costoBaseGestionFijo = ((Number) costoBaseObj).doubleValue();
+        }
+        if (costoBaseGestionFijo == null) costoBaseGestionFijo = 0.0;
+
+        // Costo y tiempo salen de los agregados de la ruta, sin recorrer sus tramos
+        // (los tramos finalizados sin costo real suman su costo aproximado)
+        int tramosTotal = ruta.getTramosTotal() != null ? ruta.getTramosTotal() : 0;
+        double sumaTramos = ruta.getCostoRealAcumulado() != null ? ruta.getCostoRealAcumulado().doubleValue() : 0.0;
+        double costoGestionTotal = costoBaseGestionFijo * tramosTotal;
+        double costoFinal = Math.round((sumaTramos + costoGestionTotal) * 100.0) / 100.0;
+        double tiempoRealHoras = ruta.getHorasRealesAcumuladas() != null
+                ? Math.round(ruta.getHorasRealesAcumuladas() * 100.0) / 100.0 : 0.0;
+
+        solicitudClient.finalizarSolicitud(solicitudId, costoFinal, tiempoRealHoras);
+        logger.info("Notificada ms-solicitudes: solicitud {} finalizada con costo {} y tiempo {} horas", solicitudId, costoFinal, tiempoRealHoras);
+
+        if (solicitudClient.cambiarEstado(solicitudId, "COMPLETADA")) {
+            logger.info("Estado de solicitud {} cambiado a COMPLETADA", solicitudId);
+        } else {
+            logger.warn("La solicitud {} no pasó a COMPLETADA: transición rechazada por ms-solicitudes", solicitudId);
+        }
     }
 
     /**
      * Actualiza el estado de un contenedor asociado a una solicitud.
      * Este método consulta la solicitud para obtener el ID del contenedor,
      * y luego actualiza su estado a través del microservicio ms-solicitudes.
+     * Se usa al procesar eventos: si la llamada falla lanza la excepción para reintentar.
      * 
      * @param solicitudId ID de la solicitud asociada al contenedor
      * @param nuevoEstado Nuevo estado del contenedor (ej: "EN_TRANSITO", "EN_DEPOSITO", "ENTREGADO")
@@ -1190,9 +1315,14 @@ public class TramoService {
             logger.info("Contenedor {} actualizado a estado: {} (solicitud: {}, depósito: {}, ubicación: {}, {})", 
                 contenedorId, nuevoEstado, solicitudId, depositoId, lat, lng);
             
+        } catch (org.springframework.web.client.HttpClientErrorException.Conflict e) {
+            // ms-solicitudes rechazó la transición (el contenedor ya avanzó o se liberó): reintentar no cambia nada
+            logger.warn("Contenedor de la solicitud {} no pasó a {}: transición rechazada", solicitudId, nuevoEstado);
         } catch (Exception e) {
             logger.error("Error al actualizar estado del contenedor para solicitud {}: {}", 
                 solicitudId, e.getMessage());
+            // Se propaga para que el evento que originó la actualización se reintente
+            throw new RuntimeException("Error actualizando estado del contenedor: " + e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,38 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometriaServiceTest {
+
+    // Ejemplo de la especificación del formato polyline: (38.5,-120.2), (40.7,-120.95), (43.252,-126.453)
+    private static final String POLYLINE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+    private final GeometriaService geometriaService = new GeometriaService(500, 100, 10);
+
+    @Test
+    public void comprimir_yDescomprimir_conservaSegmentos() {
+        String combinada = POLYLINE + ";" + POLYLINE;
+
+        byte[] compacta = geometriaService.comprimir(combinada);
+
+        assertTrue(compacta.length < combinada.length());
+        assertEquals(combinada, geometriaService.descomprimir(compacta, GeometriaService.NIVEL_ALTA));
+    }
+
+    @Test
+    public void simplificar_eliminaPuntosColineales() {
+        int[] puntos = {0, 0, 50, 50, 100, 100};
+        String polyline = GeometriaService.codificarPolyline(puntos);
+
+        String simplificada = geometriaService.simplificar(polyline, GeometriaService.NIVEL_BAJA);
+
+        assertArrayEquals(new int[]{0, 0, 100, 100}, GeometriaService.decodificarPolyline(simplificada));
+    }
+
+    @Test
+    public void simplificar_nivelInvalido_lanzaExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> geometriaService.simplificar(POLYLINE, "maxima"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndiceDisponibilidadTest {
+
+    @Test
+    public void solapados_coincideConBusquedaLineal() {
+        IndiceDisponibilidad indice = new IndiceDisponibilidad();
+        List<long[]> intervalos = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            long inicio = random.nextInt(10_000);
+            long fin = inicio + 1 + random.nextInt(200);
+            indice.agregar("t" + i, inicio, fin);
+            intervalos.add(new long[] { inicio, fin });
+        }
+        for (int q = 0; q < 200; q++) {
+            long inicio = random.nextInt(10_000);
+            long fin = inicio + 1 + random.nextInt(300);
+            Set<String> esperados = new TreeSet<>();
+            for (int i = 0; i < intervalos.size(); i++) {
+                if (intervalos.get(i)[0] < fin && intervalos.get(i)[1] > inicio) esperados.add("t" + i);
+            }
+            Set<String> obtenidos = new TreeSet<>();
+            indice.solapados(inicio, fin).forEach(iv -> obtenidos.add(iv.clave()));
+            assertEquals(esperados, obtenidos);
+        }
+    }
+
+    @Test
+    public void primerHueco_saltaOcupadosEIgnoraClavesPropias() {
+        IndiceDisponibilidad indice = new IndiceDisponibilidad();
+        indice.agregar("a", 100, 200);
+        indice.agregar("b", 230, 300);
+        indice.agregar("propio", 300, 400);
+
+        assertEquals(0, indice.primerHueco(0, 100, Set.of()));
+        // Entre 200 y 230 no entran 50 minutos
+        assertEquals(400, indice.primerHueco(150, 50, Set.of()));
+        assertEquals(300, indice.primerHueco(150, 50, Set.of("propio")));
+
+        // Reemplazar el intervalo de una clave libera el anterior
+        indice.agregar("a", 500, 600);
+        assertEquals(100, indice.primerHueco(100, 100, Set.of()));
+        assertTrue(indice.quitar("b"));
+        assertEquals(2, indice.tamanio());
+    }
+
+    @Test
+    public void proximaApertura_respetaHorarioIncluidoElQueCruzaMedianoche() {
+        LocalTime[] diurno = { LocalTime.of(8, 0), LocalTime.of(18, 0) };
+        LocalTime[] nocturno = { LocalTime.of(22, 0), LocalTime.of(6, 0) };
+        LocalDateTime dia = LocalDateTime.of(2025, 3, 10, 0, 0);
+
+        assertEquals(dia.withHour(10), ProgramacionService.proximaApertura(dia.withHour(10), diurno));
+        assertEquals(dia.withHour(8), ProgramacionService.proximaApertura(dia.withHour(5), diurno));
+        assertEquals(dia.plusDays(1).withHour(8), ProgramacionService.proximaApertura(dia.withHour(19), diurno));
+        assertEquals(dia.withHour(23), ProgramacionService.proximaApertura(dia.withHour(23), nocturno));
+        assertEquals(dia.withHour(22), ProgramacionService.proximaApertura(dia.withHour(12), nocturno));
+        assertEquals(dia.withHour(12), ProgramacionService.proximaApertura(dia.withHour(12), null));
+    }
+}
@@ -0,0 +1,85 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.models.OcupacionDeposito;
+import com.backend.tpi.ms_rutas_transportistas.repositories.OcupacionDepositoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OcupacionDepositoServiceTest {
+
+    @InjectMocks
+    private OcupacionDepositoService ocupacionDepositoService;
+
+    @Mock
+    private OcupacionDepositoRepository ocupacionDepositoRepository;
+
+    @Mock
+    private DepositoService depositoService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(ocupacionDepositoService, "umbralSaturacion", 0.9);
+        ReflectionTestUtils.setField(ocupacionDepositoService, "capacidadesTtlMs", 300000L);
+        when(ocupacionDepositoRepository.findByDepositoIdIn(any()))
+                .thenReturn(List.of(ocupacion(1L, 9), ocupacion(2L, 3), ocupacion(3L, 5)));
+    }
+
+    @Test
+    public void saturados_capacidadNoCargadaNoCuentaComoSaturado() {
+        // 1: 9 de 10 (saturado); 2: 3 de 10; 3: capacidad 0 = sin dato
+        when(depositoService.getCapacidades()).thenReturn(Map.of(1L, 10, 2L, 10, 3L, 0));
+
+        assertEquals(Set.of(1L), ocupacionDepositoService.saturados(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void saturados_reusaLasCapacidadesEntreCalculos() {
+        when(depositoService.getCapacidades()).thenReturn(Map.of(1L, 10));
+
+        ocupacionDepositoService.saturados(List.of(1L, 2L, 3L));
+        ocupacionDepositoService.saturados(List.of(1L, 2L, 3L));
+
+        verify(depositoService, times(1)).getCapacidades();
+    }
+
+    @Test
+    public void saturados_siFallaLaRelecturaUsaLasAnteriores() {
+        when(depositoService.getCapacidades())
+                .thenReturn(Map.of(1L, 10))
+                .thenThrow(new RuntimeException("ms-gestion-calculos no responde"));
+        ocupacionDepositoService.saturados(List.of(1L));
+        // Vencer las capacidades cargadas
+        ReflectionTestUtils.setField(ocupacionDepositoService, "capacidadesTtlMs", 0L);
+
+        assertEquals(Set.of(1L), ocupacionDepositoService.saturados(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    public void saturados_sinCapacidadesNiConexion_noRelegaNinguno() {
+        when(depositoService.getCapacidades()).thenThrow(new RuntimeException("ms-gestion-calculos no responde"));
+
+        assertTrue(ocupacionDepositoService.saturados(List.of(1L, 2L, 3L)).isEmpty());
+    }
+
+    private static OcupacionDeposito ocupacion(Long depositoId, int contenedores) {
+        OcupacionDeposito o = new OcupacionDeposito();
+        o.setDepositoId(depositoId);
+        o.setContenedoresActuales(contenedores);
+        return o;
+    }
+}
@@ -0,0 +1,49 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import com.backend.tpi.ms_rutas_transportistas.services.PlanificadorConsolidacion.Envio;
+import com.backend.tpi.ms_rutas_transportistas.services.PlanificadorConsolidacion.Recorrido;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanificadorConsolidacionTest {
+
+    // Depósitos sobre una línea: 0 (origen), 1 a 100 km, 2 a 200 km, 3 a 300 km
+    private static double[][] lineal(int n) {
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) for (int j = 0; j < n; j++) d[i][j] = 100.0 * Math.abs(i - j);
+        return d;
+    }
+
+    @Test
+    public void resolver_destinosEnLinea_unSoloRecorridoEnOrden() {
+        PlanificadorConsolidacion planificador = new PlanificadorConsolidacion(lineal(4), 0, 30000, 100, 1000, 10, 50);
+        List<Envio> envios = List.of(new Envio(1, 3, 5000, 20), new Envio(2, 1, 5000, 20), new Envio(3, 2, 5000, 20));
+
+        List<Recorrido> recorridos = planificador.resolver(envios);
+
+        assertEquals(1, recorridos.size());
+        assertEquals(300, recorridos.get(0).distanciaKm(), 1e-9);
+        List<Integer> destinos = recorridos.get(0).envios().stream().map(Envio::destino).toList();
+        assertEquals(List.of(1, 2, 3), destinos);
+    }
+
+    @Test
+    public void resolver_respetaCapacidadYCubreTodosLosEnvios() {
+        PlanificadorConsolidacion planificador = new PlanificadorConsolidacion(lineal(6), 0, 10000, 50, 1000, 10, 50);
+        List<Envio> envios = new ArrayList<>();
+        for (int i = 0; i < 12; i++) envios.add(new Envio(i, 1 + i % 5, 3000, 10));
+
+        List<Recorrido> recorridos = planificador.resolver(envios);
+
+        assertTrue(recorridos.size() >= 4 && recorridos.size() <= 5);
+        assertEquals(12, recorridos.stream().mapToInt(r -> r.envios().size()).sum());
+        for (Recorrido r : recorridos) {
+            assertTrue(r.peso() <= 10000);
+            assertTrue(r.volumen() <= 50);
+        }
+    }
+}
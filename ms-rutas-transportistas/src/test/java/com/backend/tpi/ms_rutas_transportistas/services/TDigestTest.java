@@ -0,0 +1,46 @@
+package com.backend.tpi.ms_rutas_transportistas.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TDigestTest {
+
+    @Test
+    public void cuantil_distribucionUniforme_aproximaPercentiles() {
+        TDigest digest = new TDigest(100);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) digest.agregar(random.nextDouble() * 1000);
+
+        assertEquals(500, digest.cuantil(0.5), 10);
+        assertEquals(900, digest.cuantil(0.9), 5);
+        assertEquals(990, digest.cuantil(0.99), 2);
+        assertEquals(100_000, digest.cantidad());
+    }
+
+    @Test
+    public void combinarSerializados_equivaleADigestUnico() {
+        TDigest lunes = new TDigest(100);
+        TDigest martes = new TDigest(100);
+        for (int i = 1; i <= 1000; i++) {
+            lunes.agregar(i);
+            martes.agregar(1000 + i);
+        }
+
+        TDigest periodo = new TDigest(100);
+        periodo.agregar(TDigest.desdeBytes(lunes.aBytes(), 100));
+        periodo.agregar(TDigest.desdeBytes(martes.aBytes(), 100));
+
+        assertEquals(2000, periodo.cantidad());
+        assertEquals(1000, periodo.cuantil(0.5), 20);
+        assertEquals(1, periodo.cuantil(0), 1e-9);
+        assertEquals(2000, periodo.cuantil(1), 1e-9);
+    }
+
+    @Test
+    public void digestVacio_devuelveNaN() {
+        assertTrue(Double.isNaN(TDigest.desdeBytes(null, 100).cuantil(0.5)));
+    }
+}
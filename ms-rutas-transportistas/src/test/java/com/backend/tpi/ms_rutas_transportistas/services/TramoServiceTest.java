@@ -1,21 +1,42 @@
 package com.backend.tpi.ms_rutas_transportistas.services;
 
 import com.backend.tpi.ms_rutas_transportistas.clients.SolicitudClient;
+import com.backend.tpi.ms_rutas_transportistas.dtos.EstimacionTramoDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.ResultadoEstimacionTramoDTO;
+import com.backend.tpi.ms_rutas_transportistas.dtos.SolicitudIntegrationDTO;
+import com.backend.tpi.ms_rutas_transportistas.eventos.TipoEvento;
 import com.backend.tpi.ms_rutas_transportistas.models.Ruta;
 import com.backend.tpi.ms_rutas_transportistas.models.Tramo;
 import com.backend.tpi.ms_rutas_transportistas.models.EstadoTramo;
+import com.backend.tpi.ms_rutas_transportistas.repositories.RutaRepository;
 import com.backend.tpi.ms_rutas_transportistas.repositories.TramoRepository;
-import com.backend.tpi.ms_rutas_transportistas.repositories.EstadoTramoRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,13 +49,28 @@ public class TramoServiceTest {
     private TramoRepository tramoRepository;
 
     @Mock
-    private EstadoTramoRepository estadoTramoRepository;
+    private CatalogoService catalogoService;
+
+    @Mock
+    private RutaRepository rutaRepository;
 
     @Mock
     private SolicitudClient solicitudClient;
 
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private RestClient calculosClient;
+
+    @Mock
+    private RestClient solicitudesClient;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     @Test
-    public void updateFechaLlegada_whenAllTramosCompleted_callsSolicitudCompleta() {
+    public void updateFechaLlegada_whenAllTramosCompleted_registraRutaCompletada() {
         Long tramoId = 1L;
         Long rutaId = 10L;
         Long solicitudId = 100L;
@@ -46,22 +82,164 @@ public class TramoServiceTest {
         ruta.setIdSolicitud(solicitudId);
         tramo.setRuta(ruta);
 
-        // Simulate that after updating, all tramos for the route have fechaHoraFinReal
-        Tramo other = new Tramo();
-        other.setId(2L);
-        other.setFechaHoraFinReal(LocalDateTime.now());
+        when(tramoRepository.findById(tramoId)).thenReturn(Optional.of(tramo));
+        when(tramoRepository.save(any())).thenAnswer(i -> i.getArgument(0));
+        // El UPDATE condicional registra el tramo y los agregados indican que no quedan pendientes
+        when(rutaRepository.registrarTramoFinalizado(eq(rutaId), anyDouble(), any())).thenReturn(1);
+        when(rutaRepository.contarTramosPendientes(rutaId)).thenReturn(0);
+        when(catalogoService.findEstadoTramoByNombre("COMPLETADO")).thenReturn(Optional.of(new EstadoTramo()));
+
+        tramoService.updateFechaLlegada(tramoId, LocalDateTime.now());
 
-        Tramo thisWithFinish = new Tramo();
-        thisWithFinish.setId(tramoId);
-        thisWithFinish.setFechaHoraFinReal(LocalDateTime.now());
+        verify(outboxService, times(1)).registrar(eq(TipoEvento.TRAMO_FINALIZADO), eq(ruta), any(Tramo.class));
+        verify(outboxService, times(1)).registrar(eq(TipoEvento.RUTA_COMPLETADA), eq(ruta), isNull());
+        // Sin recorrer los tramos de la ruta
+        verify(tramoRepository, never()).findByRutaId(any());
+        // La solicitud se completa al procesar el evento, no dentro del request
+        verifyNoInteractions(solicitudClient);
+    }
+
+    @Test
+    public void updateFechaLlegada_sinCostoReal_acumulaElCostoAproximado() {
+        Long tramoId = 1L;
+        Long rutaId = 10L;
+
+        Tramo tramo = new Tramo();
+        tramo.setId(tramoId);
+        tramo.setCostoAproximado(new BigDecimal("80.00"));
+        Ruta ruta = new Ruta();
+        ruta.setId(rutaId);
+        tramo.setRuta(ruta);
 
         when(tramoRepository.findById(tramoId)).thenReturn(Optional.of(tramo));
         when(tramoRepository.save(any())).thenAnswer(i -> i.getArgument(0));
-        when(tramoRepository.findByRutaId(rutaId)).thenReturn(Arrays.asList(thisWithFinish, other));
-        when(estadoTramoRepository.findByNombre("COMPLETADO")).thenReturn(Optional.of(new EstadoTramo()));
+        when(rutaRepository.registrarTramoFinalizado(eq(rutaId), anyDouble(), any())).thenReturn(1);
+        when(rutaRepository.contarTramosPendientes(rutaId)).thenReturn(1);
+        when(catalogoService.findEstadoTramoByNombre("COMPLETADO")).thenReturn(Optional.of(new EstadoTramo()));
 
         tramoService.updateFechaLlegada(tramoId, LocalDateTime.now());
 
+        // Hasta que se calcule el costo real, la ruta suma el aproximado (como antes de los agregados)
+        verify(rutaRepository).registrarTramoFinalizado(eq(rutaId), anyDouble(), eq(new BigDecimal("80.00")));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void procesarRutaCompletada_finalizaYCompletaSolicitud() {
+        Long rutaId = 10L;
+        Long solicitudId = 100L;
+
+        Ruta ruta = new Ruta();
+        ruta.setId(rutaId);
+        ruta.setIdSolicitud(solicitudId);
+        ruta.setTramosTotal(2);
+        ruta.setTramosFinalizados(2);
+        ruta.setCostoRealAcumulado(new BigDecimal("150.00"));
+        ruta.setHorasRealesAcumuladas(3.5);
+
+        Tramo ultimo = new Tramo();
+        ultimo.setOrden(2);
+        // Termina en un depósito: no se toca el contenedor
+        ultimo.setDestinoDepositoId(5L);
+
+        when(rutaRepository.findById(rutaId)).thenReturn(Optional.of(ruta));
+        when(tramoRepository.findFirstByRutaIdOrderByOrdenDesc(rutaId)).thenReturn(Optional.of(ultimo));
+        RestClient.RequestHeadersUriSpec uriSpec = mock(RestClient.RequestHeadersUriSpec.class);
+        RestClient.RequestHeadersSpec headersSpec = mock(RestClient.RequestHeadersSpec.class);
+        RestClient.ResponseSpec responseSpec = mock(RestClient.ResponseSpec.class);
+        when(calculosClient.get()).thenReturn(uriSpec);
+        when(uriSpec.uri("/api/v1/tarifas")).thenReturn(headersSpec);
+        when(headersSpec.headers(any())).thenReturn(headersSpec);
+        when(headersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toEntity(any(ParameterizedTypeReference.class)))
+                .thenReturn(ResponseEntity.ok(List.of(Map.of("costoBaseGestionFijo", 10.0))));
+
+        when(solicitudClient.cambiarEstado(solicitudId, "COMPLETADA")).thenReturn(true);
+
+        tramoService.procesarRutaCompletada(rutaId);
+
+        // 150 acumulado de tramos + 2 * 10 de gestión
+        verify(solicitudClient, times(1)).finalizarSolicitud(solicitudId, 170.0, 3.5);
         verify(solicitudClient, times(1)).cambiarEstado(solicitudId, "COMPLETADA");
     }
+
+    @Test
+    public void procesarTramoIniciado_transicionRechazada_noTocaElContenedor() {
+        Long solicitudId = 100L;
+        when(tramoRepository.findById(1L)).thenReturn(Optional.of(primerTramo(solicitudId)));
+        // ms-solicitudes responde 409: la solicitud se canceló y su contenedor ya quedó LIBRE
+        when(solicitudClient.cambiarEstado(solicitudId, "EN_TRANSITO")).thenReturn(false);
+
+        // No lanza: el evento no se reintenta por una transición que nunca va a ser válida
+        tramoService.procesarTramoIniciado(1L);
+
+        verifyNoInteractions(solicitudesClient);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void procesarTramoIniciado_contenedorRechazaTransicion_noReintentaElEvento() {
+        Long solicitudId = 100L;
+        SolicitudIntegrationDTO solicitud = new SolicitudIntegrationDTO();
+        solicitud.setContenedorId(7L);
+
+        when(tramoRepository.findById(1L)).thenReturn(Optional.of(primerTramo(solicitudId)));
+        when(solicitudClient.cambiarEstado(solicitudId, "EN_TRANSITO")).thenReturn(true);
+        RestClient.RequestHeadersUriSpec getSpec = mock(RestClient.RequestHeadersUriSpec.class);
+        RestClient.RequestBodyUriSpec patchSpec = mock(RestClient.RequestBodyUriSpec.class);
+        RestClient.ResponseSpec getResponse = mock(RestClient.ResponseSpec.class);
+        RestClient.ResponseSpec patchResponse = mock(RestClient.ResponseSpec.class);
+        when(solicitudesClient.get()).thenReturn(getSpec);
+        when(getSpec.uri("/api/v1/solicitudes/" + solicitudId)).thenReturn(getSpec);
+        when(getSpec.headers(any())).thenReturn(getSpec);
+        when(getSpec.retrieve()).thenReturn(getResponse);
+        when(getResponse.toEntity(SolicitudIntegrationDTO.class)).thenReturn(ResponseEntity.ok(solicitud));
+        when(solicitudesClient.patch()).thenReturn(patchSpec);
+        when(patchSpec.uri("/api/v1/contenedores/7?estadoNombre=EN_TRANSITO")).thenReturn(patchSpec);
+        when(patchSpec.headers(any())).thenReturn(patchSpec);
+        when(patchSpec.retrieve()).thenReturn(patchResponse);
+        // ms-solicitudes responde 409 al PATCH del contenedor
+        when(patchResponse.toBodilessEntity()).thenThrow(
+                HttpClientErrorException.create(HttpStatus.CONFLICT, "Conflict", null, null, null));
+
+        // No lanza: el 409 del contenedor tampoco se reintenta
+        tramoService.procesarTramoIniciado(1L);
+
+        verify(patchResponse, times(1)).toBodilessEntity();
+    }
+
+    private static Tramo primerTramo(Long solicitudId) {
+        Ruta ruta = new Ruta();
+        ruta.setId(10L);
+        ruta.setIdSolicitud(solicitudId);
+        Tramo tramo = new Tramo();
+        tramo.setId(1L);
+        tramo.setOrden(1);
+        tramo.setRuta(ruta);
+        return tramo;
+    }
+
+    @Test
+    public void actualizarEstimaciones_validaPertenenciaYEnviaUnSoloBatch() {
+        Long rutaId = 10L;
+        EstimacionTramoDTO propio = new EstimacionTramoDTO();
+        propio.setTramoId(1L);
+        propio.setCostoEstimado(new BigDecimal("120.50"));
+        propio.setDistancia(80.0);
+        EstimacionTramoDTO ajeno = new EstimacionTramoDTO();
+        ajeno.setTramoId(2L);
+        ajeno.setDistancia(50.0);
+
+        when(tramoRepository.findIdsDeRuta(eq(rutaId), any())).thenReturn(List.of(1L));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class))).thenReturn(new int[] { 1 });
+
+        List<ResultadoEstimacionTramoDTO> resultados = tramoService.actualizarEstimaciones(rutaId, List.of(propio, ajeno));
+
+        assertEquals(2, resultados.size());
+        assertTrue(resultados.get(0).isActualizado());
+        assertFalse(resultados.get(1).isActualizado());
+        assertEquals(2L, resultados.get(1).getTramoId());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList(), any(int[].class));
+        verify(tramoRepository, never()).findById(any());
+    }
 }
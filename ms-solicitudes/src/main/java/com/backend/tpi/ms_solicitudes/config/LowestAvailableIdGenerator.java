@@ -20,47 +20,62 @@ public class LowestAvailableIdGenerator implements IdentifierGenerator {
         String tableName = getTableName(object);
         String idColumnName = getIdColumnName(object);
         
-        Connection connection = null;
+        // Conexión de la transacción de la sesión: el bloqueo de siguientes() se mantiene hasta
+        // que se confirma el INSERT, igual que en los batches de la importación
+        Connection connection = session.getJdbcCoordinator().getLogicalConnection().getPhysicalConnection();
+        
         try {
-            connection = session.getJdbcConnectionAccess().obtainConnection();
+            return siguientes(connection, tableName, idColumnName, 1)[0];
         } catch (SQLException e) {
-            throw new RuntimeException("Error al obtener conexión para generar ID", e);
+            throw new RuntimeException("Error al generar ID para " + tableName, e);
+        }
+    }
+    
+    /**
+     * Los próximos IDs que asignaría el generador, en orden: los libres por encima del menor ID
+     * existente (mayor o igual a 0), o desde 1 si la tabla está vacía
+     * La importación masiva los usa para numerar sus batches igual que las altas individuales.
+     * Toma un advisory lock de transacción por tabla, así dos importaciones (o una importación y un
+     * alta individual) no reciben los mismos IDs; se libera al confirmar o deshacer la transacción
+     * @param connection Conexión de la transacción que va a insertar las filas
+     * @param cantidad IDs a devolver
+     */
+    public static long[] siguientes(Connection connection, String tableName, String idColumnName, int cantidad) throws SQLException {
+        try (PreparedStatement lock = connection.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))")) {
+            lock.setString(1, tableName);
+            lock.execute();
         }
         
-        try {
-            // Buscar el ID más bajo disponible mayor a 0
-            String sql = String.format(
-                "SELECT COALESCE(MIN(t1.%s + 1), 1) AS next_id " +
-                "FROM %s t1 " +
-                "WHERE NOT EXISTS (SELECT 1 FROM %s t2 WHERE t2.%s = t1.%s + 1) " +
-                "AND t1.%s >= 0",
-                idColumnName, tableName, tableName, idColumnName, idColumnName, idColumnName
-            );
-            
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet resultSet = statement.executeQuery()) {
-                
-                if (resultSet.next()) {
-                    long nextId = resultSet.getLong("next_id");
-                    // Asegurar que el ID sea al menos 1
-                    return nextId > 0 ? nextId : 1L;
+        // Solo se recorren los huecos: cada fila es un ID seguido de uno libre y el siguiente ID ocupado
+        // (null en el último, a partir del cual todo está libre)
+        String sql = String.format(
+            "SELECT id, siguiente FROM (" +
+            "SELECT %s AS id, LEAD(%s) OVER (ORDER BY %s) AS siguiente FROM %s WHERE %s >= 0) t " +
+            "WHERE siguiente IS NULL OR siguiente > id + 1 ORDER BY id",
+            idColumnName, idColumnName, idColumnName, tableName, idColumnName
+        );
+        long[] ids = new long[cantidad];
+        int i = 0;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(64);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (i < cantidad && resultSet.next()) {
+                    long id = resultSet.getLong("id");
+                    long siguiente = resultSet.getLong("siguiente");
+                    long hasta = resultSet.wasNull() ? Long.MAX_VALUE : siguiente;
+                    for (long libre = id + 1; libre < hasta && i < cantidad; libre++) {
+                        ids[i++] = libre;
+                    }
                 }
             }
-            
-            // Si la tabla está vacía, retornar 1
-            return 1L;
-            
-        } catch (SQLException e) {
-            throw new RuntimeException("Error al generar ID para " + tableName, e);
-        } finally {
-            try {
-                session.getJdbcConnectionAccess().releaseConnection(connection);
-            } catch (SQLException e) {
-                // Log error but don't throw
-            }
         }
+        // Tabla vacía
+        for (long libre = 1; i < cantidad; libre++) {
+            ids[i++] = libre;
+        }
+        return ids;
     }
-    
+
     private String getTableName(Object object) {
         String className = object.getClass().getSimpleName();
         switch (className) {
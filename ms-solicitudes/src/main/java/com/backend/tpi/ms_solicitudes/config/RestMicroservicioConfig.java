@@ -1,5 +1,9 @@
 package com.backend.tpi.ms_solicitudes.config;
 
+import com.backend.tpi.common.metricas.ConvencionClienteHttp;
+import com.backend.tpi.common.seguridad.ConfianzaInternaInterceptor;
+import com.backend.tpi.common.seguridad.DecodificadorJwtCacheado;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,24 +15,38 @@ public class RestMicroservicioConfig {
 
     // Cliente para ms-gestion-calculos (calculos)
     @Bean
-    public RestClient calculosClient(@Value("${app.calculos.base-url:http://localhost:8081}") String baseUrl) {
+    public RestClient calculosClient(@Value("${app.calculos.base-url:http://localhost:8081}") String baseUrl,
+                                     ObservationRegistry observationRegistry,
+                                     DecodificadorJwtCacheado decodificadorJwt) {
         return RestClient.builder()
                 .baseUrl(baseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new ConvencionClienteHttp())
+                .requestInterceptor(new ConfianzaInternaInterceptor(decodificadorJwt))
                 .build();
     }
 
     // Cliente para ms-rutas-transportistas (rutas)
     @Bean
-    public RestClient rutasClient(@Value("${app.rutas.base-url:http://localhost:8082}") String baseUrl) {
+    public RestClient rutasClient(@Value("${app.rutas.base-url:http://localhost:8082}") String baseUrl,
+                                  ObservationRegistry observationRegistry,
+                                  DecodificadorJwtCacheado decodificadorJwt) {
         return RestClient.builder()
                 .baseUrl(baseUrl)
+                .observationRegistry(observationRegistry)
+                .observationConvention(new ConvencionClienteHttp())
+                .requestInterceptor(new ConfianzaInternaInterceptor(decodificadorJwt))
                 .build();
     }
 
         // Proveer un RestTemplate simple para inyección en servicios que lo requieran
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(ObservationRegistry observationRegistry, DecodificadorJwtCacheado decodificadorJwt) {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.setObservationRegistry(observationRegistry);
+        restTemplate.setObservationConvention(new ConvencionClienteHttp());
+        restTemplate.getInterceptors().add(new ConfianzaInternaInterceptor(decodificadorJwt));
+        return restTemplate;
     }
 
 }
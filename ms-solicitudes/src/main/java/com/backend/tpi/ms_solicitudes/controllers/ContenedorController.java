@@ -4,7 +4,6 @@ import com.backend.tpi.ms_solicitudes.dto.ContenedorDTO;
 import com.backend.tpi.ms_solicitudes.dtos.SeguimientoContenedorDTO;
 import com.backend.tpi.ms_solicitudes.models.Contenedor;
 import com.backend.tpi.ms_solicitudes.models.EstadoContenedor;
-import com.backend.tpi.ms_solicitudes.repositories.EstadoContenedorRepository;
 import com.backend.tpi.ms_solicitudes.services.ContenedorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -40,7 +39,7 @@ public class ContenedorController {
     private ClienteService clienteService;
 
     @Autowired
-    private EstadoContenedorRepository estadoContenedorRepository;
+    private com.backend.tpi.ms_solicitudes.services.CatalogoService catalogoService;
 
     /**
      * GET /api/v1/contenedores - Lista todos los contenedores del sistema con filtros opcionales
@@ -212,12 +211,12 @@ public class ContenedorController {
      * @param id ID del contenedor
      * @param estadoId ID del nuevo estado (opcional si se usa estadoNombre)
      * @param estadoNombre Nombre del nuevo estado (opcional si se usa estadoId)
-     * @return Contenedor con estado actualizado
+     * @return Contenedor con estado actualizado, o 409 si la transición no está permitida
      */
     @PatchMapping("/{id}")
     @PreAuthorize("hasAnyRole('OPERADOR', 'ADMIN')")
     @Operation(summary = "Actualizar estado del contenedor")
-    public ResponseEntity<Contenedor> updateEstadoContenedor(
+    public ResponseEntity<?> updateEstadoContenedor(
             @PathVariable Long id, 
             @RequestParam(required = false) Long estadoId,
             @RequestParam(required = false) String estadoNombre) {
@@ -226,7 +225,7 @@ public class ContenedorController {
         
         // Si se proporciona nombre en lugar de ID, buscar el estado
         if (estadoNombre != null && !estadoNombre.isEmpty()) {
-            EstadoContenedor estado = estadoContenedorRepository.findByNombre(estadoNombre)
+            EstadoContenedor estado = catalogoService.findEstadoContenedorByNombre(estadoNombre)
                 .orElseThrow(() -> new RuntimeException("Estado no encontrado: " + estadoNombre));
             estadoIdFinal = estado.getId();
             logger.info("PATCH /api/v1/contenedores/{} - Actualizando estado - estadoNombre: {} -> estadoId: {}", id, estadoNombre, estadoIdFinal);
@@ -236,9 +235,14 @@ public class ContenedorController {
             throw new RuntimeException("Debe proporcionar estadoId o estadoNombre");
         }
         
-        Contenedor contenedor = contenedorService.updateEstado(id, estadoIdFinal);
-        logger.info("PATCH /api/v1/contenedores/{} - Respuesta: 200 - Estado actualizado", id);
-        return ResponseEntity.ok(contenedor);
+        try {
+            Contenedor contenedor = contenedorService.updateEstado(id, estadoIdFinal);
+            logger.info("PATCH /api/v1/contenedores/{} - Respuesta: 200 - Estado actualizado", id);
+            return ResponseEntity.ok(contenedor);
+        } catch (IllegalStateException e) {
+            logger.warn("PATCH /api/v1/contenedores/{} - Respuesta: 409 - {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(java.util.Map.of("error", e.getMessage()));
+        }
     }
 
     /**
@@ -286,7 +290,7 @@ public class ContenedorController {
         
         // Si se proporciona un nombre de estado, buscarlo y asignarlo
         if (dto.getEstado() != null && !dto.getEstado().isEmpty()) {
-            EstadoContenedor estado = estadoContenedorRepository.findByNombre(dto.getEstado())
+            EstadoContenedor estado = catalogoService.findEstadoContenedorByNombre(dto.getEstado())
                 .orElseThrow(() -> new RuntimeException("Estado no encontrado: " + dto.getEstado()));
             contenedor.setEstado(estado);
         }
@@ -0,0 +1,92 @@
+package com.backend.tpi.ms_solicitudes.controllers;
+
+import com.backend.tpi.ms_solicitudes.dtos.ImportacionDTO;
+import com.backend.tpi.ms_solicitudes.services.ImportacionService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Controlador REST para la importación masiva de solicitudes
+ * Sin @RequestMapping de clase: el endpoint de importación usa la forma "recurso:acción"
+ * (/api/v1/solicitudes:import), que no se puede expresar como subruta de /api/v1/solicitudes
+ */
+@RestController
+public class ImportacionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionController.class);
+
+    @Autowired
+    private ImportacionService importacionService;
+
+    /**
+     * POST /api/v1/solicitudes:import - Importa solicitudes desde CSV (text/csv) o NDJSON (application/x-ndjson)
+     * Responde 202 en cuanto recibe el archivo; el procesamiento (por lotes, sin detenerse por filas
+     * inválidas) sigue en segundo plano y su progreso se consulta en Location
+     * Requiere rol OPERADOR o ADMIN
+     * @param request Request con el archivo en el cuerpo
+     * @return Importación en curso con su ID
+     */
+    @PostMapping("/api/v1/solicitudes:import")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public ResponseEntity<?> importar(HttpServletRequest request) throws IOException {
+        String formato = ImportacionService.formatoDe(request.getContentType());
+        if (formato == null) {
+            logger.warn("POST /api/v1/solicitudes:import - Respuesta: 415 - Content-Type no soportado: {}", request.getContentType());
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(java.util.Map.of("error", "Content-Type debe ser text/csv o application/x-ndjson"));
+        }
+        logger.info("POST /api/v1/solicitudes:import - Recibiendo archivo ({})", formato);
+        ImportacionDTO importacion;
+        try {
+            importacion = importacionService.iniciar(formato, request.getInputStream());
+        } catch (IllegalArgumentException e) {
+            logger.warn("POST /api/v1/solicitudes:import - Respuesta: 400 - {}", e.getMessage());
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("POST /api/v1/solicitudes:import - Respuesta: 503 - Cola de importaciones llena");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(java.util.Map.of("error", "Hay demasiadas importaciones en curso, reintentar más tarde"));
+        }
+        logger.info("POST /api/v1/solicitudes:import - Respuesta: 202 - Importación {}", importacion.getId());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/solicitudes/importaciones/" + importacion.getId()))
+                .body(importacion);
+    }
+
+    /**
+     * GET /api/v1/solicitudes/importaciones - Lista las importaciones recientes con su progreso
+     * Requiere rol OPERADOR o ADMIN
+     */
+    @GetMapping("/api/v1/solicitudes/importaciones")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public List<ImportacionDTO> listar() {
+        return importacionService.findAll();
+    }
+
+    /**
+     * GET /api/v1/solicitudes/importaciones/{id} - Progreso y errores por fila de una importación
+     * Requiere rol OPERADOR o ADMIN
+     * @param id ID de la importación
+     */
+    @GetMapping("/api/v1/solicitudes/importaciones/{id}")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public ResponseEntity<ImportacionDTO> getById(@PathVariable String id) {
+        return importacionService.findById(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
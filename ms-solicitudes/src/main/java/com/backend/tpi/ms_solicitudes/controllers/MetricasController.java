@@ -0,0 +1,24 @@
+package com.backend.tpi.ms_solicitudes.controllers;
+
+import com.backend.tpi.common.metricas.RegistroMetricas;
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposición de métricas para Prometheus
+ * Usa la misma ruta que Spring Boot Actuator para que el scrape no cambie si se incorpora.
+ */
+@RestController
+@Hidden
+public class MetricasController {
+
+    @Autowired
+    private RegistroMetricas registroMetricas;
+
+    @GetMapping(value = "/actuator/prometheus", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String prometheus() {
+        return registroMetricas.exportarPrometheus();
+    }
+}
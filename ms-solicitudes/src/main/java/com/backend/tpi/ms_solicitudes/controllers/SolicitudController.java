@@ -37,6 +37,9 @@ public class SolicitudController {
     @Autowired
     private com.backend.tpi.ms_solicitudes.services.ContenedorService contenedorService;
 
+    @Autowired
+    private com.backend.tpi.ms_solicitudes.services.ExportacionService exportacionService;
+
     /**
      * POST /api/v1/solicitudes - Crea una nueva solicitud de transporte
      * Requiere rol CLIENTE
@@ -479,12 +482,34 @@ public class SolicitudController {
             SolicitudDTO solicitud = solicitudService.cambiarEstado(id, nuevoEstado);
             logger.info("PUT /api/v1/solicitudes/{}/estado - Respuesta: 200 - Estado cambiado", id);
             return ResponseEntity.ok(solicitud);
+        } catch (IllegalStateException e) {
+            logger.warn("PUT /api/v1/solicitudes/{}/estado - Respuesta: 409 - {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(java.util.Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             logger.error("PUT /api/v1/solicitudes/{}/estado - Respuesta: 404 - {}", id, e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * POST /api/v1/solicitudes/estados - Valida y aplica varios cambios de estado en una sola llamada
+     * Cada cambio se evalúa por separado; los inválidos se informan en la respuesta sin aplicar
+     * Requiere rol OPERADOR o ADMIN
+     * @param cambios Lista de cambios (solicitudId, nuevoEstado)
+     * @param soloValidar true para solo verificar los cambios sin aplicarlos
+     * @return Resultado de cada cambio en el mismo orden
+     */
+    @PostMapping("/estados")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public ResponseEntity<List<com.backend.tpi.ms_solicitudes.dtos.ResultadoCambioEstadoDTO>> cambiarEstados(
+            @RequestBody List<com.backend.tpi.ms_solicitudes.dtos.CambioEstadoDTO> cambios,
+            @RequestParam(defaultValue = "false") boolean soloValidar) {
+        logger.info("POST /api/v1/solicitudes/estados - {} cambios (soloValidar={})", cambios.size(), soloValidar);
+        List<com.backend.tpi.ms_solicitudes.dtos.ResultadoCambioEstadoDTO> resultados = solicitudService.cambiarEstados(cambios, soloValidar);
+        logger.info("POST /api/v1/solicitudes/estados - Respuesta: 200 - {} resultados", resultados.size());
+        return ResponseEntity.ok(resultados);
+    }
+
     /**
      * GET /api/v1/solicitudes/contenedor/{contenedorId}/seguimiento - Obtiene el seguimiento completo de un contenedor
      * Busca la última solicitud asociada al contenedor y devuelve toda la información incluyendo tramos
@@ -506,4 +531,38 @@ public class SolicitudController {
                     .body(java.util.Map.of("error", e.getMessage()));
         }
     }
+
+    /**
+     * GET /api/v1/solicitudes/export - Exporta solicitudes en CSV o NDJSON para reportes
+     * Las filas se leen con un cursor y se escriben a medida que llegan (memoria constante)
+     * Requiere rol OPERADOR o ADMIN
+     * @param formato csv (por defecto) o ndjson
+     * @param desde Fecha de creación mínima (opcional)
+     * @param hasta Fecha de creación máxima, exclusiva (opcional)
+     * @param estado Nombre del estado (opcional)
+     * @param clienteId ID del cliente (opcional)
+     * @return Stream con las solicitudes
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('OPERADOR','ADMIN')")
+    public ResponseEntity<?> exportar(
+            @RequestParam(required = false) String formato,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime desde,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime hasta,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Long clienteId) {
+        String f = com.backend.tpi.common.exportacion.ExportadorFilas.formatoDe(formato);
+        if (f == null) {
+            logger.warn("GET /api/v1/solicitudes/export - Respuesta: 400 - Formato no soportado: {}", formato);
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", "Formato no soportado, use csv o ndjson"));
+        }
+        logger.info("GET /api/v1/solicitudes/export - Respuesta: 200 - Exportando solicitudes en {}", f);
+        org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody cuerpo =
+                salida -> exportacionService.exportarSolicitudes(desde, hasta, estado, clienteId, f, salida);
+        return ResponseEntity.ok()
+                .contentType(org.springframework.http.MediaType.parseMediaType(
+                        f.equals("csv") ? "text/csv;charset=UTF-8" : "application/x-ndjson"))
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"solicitudes." + f + "\"")
+                .body(cuerpo);
+    }
 }
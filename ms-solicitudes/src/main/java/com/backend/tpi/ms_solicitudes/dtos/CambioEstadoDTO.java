@@ -0,0 +1,16 @@
+package com.backend.tpi.ms_solicitudes.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para pedir un cambio de estado dentro de una operación masiva
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CambioEstadoDTO {
+    private Long solicitudId;
+    private String nuevoEstado;
+}
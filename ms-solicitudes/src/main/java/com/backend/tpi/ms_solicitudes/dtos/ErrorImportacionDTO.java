@@ -0,0 +1,16 @@
+package com.backend.tpi.ms_solicitudes.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Error de una fila de la importación (fila 1 = primer registro de datos)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErrorImportacionDTO {
+    private long fila;
+    private String error;
+}
@@ -0,0 +1,26 @@
+package com.backend.tpi.ms_solicitudes.dtos;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Estado y resultado de una importación masiva de solicitudes
+ */
+@Data
+public class ImportacionDTO {
+    private String id;
+    private String formato;
+    // EN_CURSO, COMPLETADA o FALLIDA
+    private String estado;
+    private LocalDateTime fechaInicio;
+    private LocalDateTime fechaFin;
+    private long filasLeidas;
+    private long creadas;
+    private long conError;
+    private List<ErrorImportacionDTO> errores;
+    // Errores no incluidos en la lista por superar el máximo configurado
+    private long erroresOmitidos;
+    private String mensaje;
+}
@@ -0,0 +1,16 @@
+package com.backend.tpi.ms_solicitudes.dtos;
+
+import lombok.Data;
+
+/**
+ * DTO con el resultado de un cambio de estado dentro de una operación masiva
+ */
+@Data
+public class ResultadoCambioEstadoDTO {
+    private Long solicitudId;
+    private String estadoAnterior;
+    private String estadoNuevo;
+    // true si la transición se aplicó (o, al solo validar, si se podría aplicar)
+    private boolean valido;
+    private String error;
+}
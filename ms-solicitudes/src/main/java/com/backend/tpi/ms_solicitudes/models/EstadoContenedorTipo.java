@@ -0,0 +1,12 @@
+package com.backend.tpi.ms_solicitudes.models;
+
+/**
+ * Estados posibles de un contenedor (enum)
+ */
+public enum EstadoContenedorTipo {
+    LIBRE,
+    OCUPADO,
+    EN_TRANSITO,
+    EN_DEPOSITO,
+    ENTREGADO
+}
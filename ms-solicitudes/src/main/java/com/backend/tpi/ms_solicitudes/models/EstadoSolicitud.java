@@ -1,5 +1,6 @@
 package com.backend.tpi.ms_solicitudes.models;
 
+import com.backend.tpi.common.catalogo.CatalogoListener;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -10,6 +11,7 @@ import lombok.Data;
 @Entity
 @Data
 @Table(name = "estado_solicitud")
+@EntityListeners(CatalogoListener.class)
 public class EstadoSolicitud {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,4 +16,11 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
 	 */
 	java.util.Optional<Cliente> findByEmail(String email);
 	java.util.Optional<Cliente> findByKeycloakUserId(String keycloakUserId);
+
+	/**
+	 * Busca todos los clientes con alguno de los emails indicados (una sola consulta)
+	 * @param emails Emails a buscar
+	 * @return Clientes encontrados
+	 */
+	java.util.List<Cliente> findByEmailIn(java.util.Collection<String> emails);
 }
@@ -0,0 +1,82 @@
+package com.backend.tpi.ms_solicitudes.services;
+
+import com.backend.tpi.common.catalogo.Catalogo;
+import com.backend.tpi.common.catalogo.TablaReferencia;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedor;
+import com.backend.tpi.ms_solicitudes.models.EstadoSolicitud;
+import com.backend.tpi.ms_solicitudes.repositories.EstadoContenedorRepository;
+import com.backend.tpi.ms_solicitudes.repositories.EstadoSolicitudRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Catálogo en memoria de las tablas de referencia (EstadoSolicitud, EstadoContenedor)
+ * Se carga al iniciar (después de que DataInitializer siembra los estados) y se sirve desde
+ * instantáneas inmutables con lectura a través (TablaReferencia). Las escrituras en esas tablas
+ * lo invalidan solas (CatalogoListener).
+ */
+@Service
+public class CatalogoService implements Catalogo {
+
+    @Autowired
+    private EstadoSolicitudRepository estadoSolicitudRepository;
+
+    @Autowired
+    private EstadoContenedorRepository estadoContenedorRepository;
+
+    // Cuánto se recuerda un nombre o ID que no existe antes de volver a consultar la base
+    @Value("${app.catalogo.ausentes-ttl-ms:60000}")
+    private long ausentesTtlMs;
+
+    private TablaReferencia<EstadoSolicitud> estadosSolicitud;
+    private TablaReferencia<EstadoContenedor> estadosContenedor;
+
+    @PostConstruct
+    public void crearTablas() {
+        Duration ausentesTtl = Duration.ofMillis(ausentesTtlMs);
+        estadosSolicitud = new TablaReferencia<>("estado_solicitud", estadoSolicitudRepository::findAll,
+                EstadoSolicitud::getId, EstadoSolicitud::getNombre,
+                estadoSolicitudRepository::findByNombre, estadoSolicitudRepository::findById, false, ausentesTtl);
+        estadosContenedor = new TablaReferencia<>("estados_contenedor", estadoContenedorRepository::findAll,
+                EstadoContenedor::getId, EstadoContenedor::getNombre,
+                estadoContenedorRepository::findByNombre, estadoContenedorRepository::findById, false, ausentesTtl);
+    }
+
+    /**
+     * Carga el catálogo completo cuando la aplicación terminó de iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refrescar() {
+        estadosSolicitud.cargar();
+        estadosContenedor.cargar();
+    }
+
+    @Override
+    public void invalidar() {
+        estadosSolicitud.invalidar();
+        estadosContenedor.invalidar();
+    }
+
+    public Optional<EstadoSolicitud> findEstadoSolicitudByNombre(String nombre) {
+        return estadosSolicitud.porNombre(nombre);
+    }
+
+    public Optional<EstadoSolicitud> findEstadoSolicitudById(Long id) {
+        return estadosSolicitud.porId(id);
+    }
+
+    public Optional<EstadoContenedor> findEstadoContenedorByNombre(String nombre) {
+        return estadosContenedor.porNombre(nombre);
+    }
+
+    public Optional<EstadoContenedor> findEstadoContenedorById(Long id) {
+        return estadosContenedor.porId(id);
+    }
+}
@@ -2,11 +2,12 @@ package com.backend.tpi.ms_solicitudes.services;
 
 import com.backend.tpi.ms_solicitudes.dtos.SeguimientoContenedorDTO;
 import com.backend.tpi.ms_solicitudes.models.Contenedor;
+import com.backend.tpi.ms_solicitudes.models.Estado;
 import com.backend.tpi.ms_solicitudes.models.EstadoContenedor;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedorTipo;
 import com.backend.tpi.ms_solicitudes.models.Solicitud;
 import com.backend.tpi.ms_solicitudes.repositories.ContenedorRepository;
 import com.backend.tpi.ms_solicitudes.repositories.SolicitudRepository;
-import com.backend.tpi.ms_solicitudes.repositories.EstadoContenedorRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -30,14 +31,11 @@ public class ContenedorService {
     private SolicitudRepository solicitudRepository;
     
     @Autowired
-    private EstadoContenedorRepository estadoContenedorRepository;
+    private CatalogoService catalogoService;
     
     @Autowired
     private EstadoTransicionService estadoTransicionService;
     
-    @Autowired
-    private com.backend.tpi.ms_solicitudes.repositories.EstadoSolicitudRepository estadoSolicitudRepository;
-
     /**
      * Obtiene todos los contenedores del sistema
      * @return Lista con todos los contenedores
@@ -53,7 +51,7 @@ public class ContenedorService {
      * @return Lista de contenedores con ese estado
      */
     public List<Contenedor> findByEstado(Long estadoId) {
-        EstadoContenedor estado = estadoContenedorRepository.findById(estadoId)
+        EstadoContenedor estado = catalogoService.findEstadoContenedorById(estadoId)
             .orElseThrow(() -> new RuntimeException("Estado no encontrado con ID: " + estadoId));
         return contenedorRepository.findByEstado(estado);
     }
@@ -64,7 +62,7 @@ public class ContenedorService {
      * @return Lista de contenedores con ese estado
      */
     public List<Contenedor> findByEstadoNombre(String estadoNombre) {
-        EstadoContenedor estado = estadoContenedorRepository.findByNombre(estadoNombre)
+        EstadoContenedor estado = catalogoService.findEstadoContenedorByNombre(estadoNombre)
             .orElseThrow(() -> new RuntimeException("Estado no encontrado: " + estadoNombre));
         return contenedorRepository.findByEstado(estado);
     }
@@ -122,8 +120,8 @@ public class ContenedorService {
         log.info("Guardando contenedor para cliente ID: {}", contenedor.getClienteId());
         // Asignar estado por defecto LIBRE si no se proporcionó
         try {
-            if (contenedor.getEstado() == null && estadoContenedorRepository != null) {
-                estadoContenedorRepository.findByNombre("LIBRE").ifPresent(contenedor::setEstado);
+            if (contenedor.getEstado() == null && catalogoService != null) {
+                catalogoService.findEstadoContenedorByNombre("LIBRE").ifPresent(contenedor::setEstado);
             }
         } catch (Exception e) {
             log.warn("No se pudo asignar estado por defecto al contenedor: {}", e.getMessage());
@@ -182,7 +180,7 @@ public class ContenedorService {
         Contenedor contenedor = findById(id);
         
         // Obtener el estado destino
-        EstadoContenedor estadoDestino = estadoContenedorRepository.findById(estadoId)
+        EstadoContenedor estadoDestino = catalogoService.findEstadoContenedorById(estadoId)
             .orElseThrow(() -> {
                 log.error("Estado de contenedor no encontrado con ID: {}", estadoId);
                 return new IllegalArgumentException("Estado de contenedor no encontrado con ID: " + estadoId);
@@ -190,17 +188,22 @@ public class ContenedorService {
         
         // Validar transición si hay estado actual
         if (contenedor.getEstado() != null) {
-            String estadoOrigenNombre = contenedor.getEstado().getNombre();
-            String estadoDestinoNombre = estadoDestino.getNombre();
-            
-            if (!estadoTransicionService.esTransicionContenedorValida(estadoOrigenNombre, estadoDestinoNombre)) {
+            EstadoContenedorTipo origen = estadoTransicionService.estadoDe(contenedor.getEstado());
+            EstadoContenedorTipo destino = estadoTransicionService.estadoDe(estadoDestino);
+            boolean valida = origen != null && destino != null
+                    ? estadoTransicionService.esTransicionContenedorValida(origen, destino)
+                    : estadoTransicionService.esTransicionContenedorValida(contenedor.getEstado().getNombre(), estadoDestino.getNombre());
+
+            if (!valida) {
+                String estadoOrigenNombre = contenedor.getEstado().getNombre();
+                String estadoDestinoNombre = estadoDestino.getNombre();
                 log.error("Transición de estado inválida de {} a {}", estadoOrigenNombre, estadoDestinoNombre);
                 throw new IllegalStateException(
                     String.format("No se puede cambiar el estado de '%s' a '%s'. Transición no permitida.", 
                         estadoOrigenNombre, estadoDestinoNombre)
                 );
             }
-            log.debug("Transición válida de {} a {}", estadoOrigenNombre, estadoDestinoNombre);
+            log.debug("Transición válida de {} a {}", origen, destino);
         }
         
         contenedor.setEstado(estadoDestino);
@@ -208,28 +211,19 @@ public class ContenedorService {
         Contenedor contenedorActualizado = contenedorRepository.save(contenedor);
         
         // Si el contenedor cambió a ENTREGADO, cambiar la solicitud activa a COMPLETADA
-        if ("ENTREGADO".equals(estadoDestino.getNombre())) {
+        if (estadoTransicionService.estadoDe(estadoDestino) == EstadoContenedorTipo.ENTREGADO) {
             try {
                 // Buscar la solicitud activa del contenedor
                 Optional<Solicitud> solicitudOpt = solicitudRepository.findByContenedor_Id(contenedor.getId())
                     .stream()
-                    .filter(s -> s.getEstado() != null && "EN_TRANSITO".equals(s.getEstado().getNombre()))
+                    .filter(s -> estadoTransicionService.estadoDe(s.getEstado()) == Estado.EN_TRANSITO)
                     .findFirst();
                 
                 if (solicitudOpt.isPresent()) {
                     Solicitud solicitud = solicitudOpt.get();
-                    
-                    // Buscar el estado COMPLETADA
-                    Optional<com.backend.tpi.ms_solicitudes.models.EstadoSolicitud> estadoCompletadaOpt = 
-                        estadoSolicitudRepository.findByNombre("COMPLETADA");
-                    
-                    if (estadoCompletadaOpt.isPresent()) {
-                        solicitud.setEstado(estadoCompletadaOpt.get());
-                        solicitudRepository.save(solicitud);
-                        log.info("Solicitud ID: {} cambiada automáticamente a COMPLETADA por contenedor ENTREGADO", solicitud.getId());
-                    } else {
-                        log.warn("No se encontró el estado COMPLETADA para actualizar la solicitud");
-                    }
+                    estadoTransicionService.aplicarTransicion(solicitud, Estado.COMPLETADA);
+                    solicitudRepository.save(solicitud);
+                    log.info("Solicitud ID: {} cambiada automáticamente a COMPLETADA por contenedor ENTREGADO", solicitud.getId());
                 } else {
                     log.debug("No se encontró solicitud EN_TRANSITO para el contenedor ID: {}", contenedor.getId());
                 }
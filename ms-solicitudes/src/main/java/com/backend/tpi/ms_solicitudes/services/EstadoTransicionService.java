@@ -1,9 +1,12 @@
 package com.backend.tpi.ms_solicitudes.services;
 
+import com.backend.tpi.ms_solicitudes.models.Contenedor;
+import com.backend.tpi.ms_solicitudes.models.Estado;
 import com.backend.tpi.ms_solicitudes.models.EstadoContenedor;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedorTipo;
 import com.backend.tpi.ms_solicitudes.models.EstadoSolicitud;
-import com.backend.tpi.ms_solicitudes.repositories.EstadoContenedorRepository;
-import com.backend.tpi.ms_solicitudes.repositories.EstadoSolicitudRepository;
+import com.backend.tpi.ms_solicitudes.models.Solicitud;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,41 +15,96 @@ import java.util.*;
 
 /**
  * Servicio para gestionar transiciones válidas de estados de Solicitudes y Contenedores
- * Implementa validación de transiciones para evitar cambios inválidos de estado
+ * Implementa validación de transiciones para evitar cambios inválidos de estado.
+ * Las tablas de transición están compiladas como máscaras de bits indexadas por el ordinal
+ * de los enums Estado y EstadoContenedorTipo: validar una transición es una operación AND,
+ * y resolver un nombre no crea Strings intermedios.
  */
 @Service
 @Slf4j
 public class EstadoTransicionService {
 
     @Autowired
-    private EstadoSolicitudRepository estadoSolicitudRepository;
+    private CatalogoService catalogoService;
 
-    @Autowired
-    private EstadoContenedorRepository estadoContenedorRepository;
+    /**
+     * Condición adicional que debe cumplir una solicitud para entrar a un estado destino
+     */
+    @FunctionalInterface
+    public interface GuardaTransicion {
+        boolean permite(Solicitud solicitud, Estado origen, Estado destino);
+    }
+
+    /**
+     * Efecto secundario que se ejecuta después de aplicar una transición de solicitud
+     */
+    @FunctionalInterface
+    public interface AccionTransicion {
+        void ejecutar(Solicitud solicitud, Estado origen, Estado destino);
+    }
+
+    // Transiciones válidas para Solicitudes
+    // Estados oficiales: PENDIENTE, PROGRAMADA, EN_TRANSITO, COMPLETADA, CANCELADA
+    private static final Maquina<Estado> TRANSICIONES_SOLICITUD = new Maquina<>(Estado.values());
 
-    // Mapa de transiciones válidas para Solicitudes
-    // Key: estado origen, Value: lista de estados destino permitidos
-    private static final Map<String, List<String>> TRANSICIONES_SOLICITUD = new HashMap<>();
-    
-    // Mapa de transiciones válidas para Contenedores
-    private static final Map<String, List<String>> TRANSICIONES_CONTENEDOR = new HashMap<>();
+    // Transiciones válidas para Contenedores
+    // Estados oficiales: LIBRE, OCUPADO, EN_TRANSITO, EN_DEPOSITO, ENTREGADO
+    private static final Maquina<EstadoContenedorTipo> TRANSICIONES_CONTENEDOR = new Maquina<>(EstadoContenedorTipo.values());
 
     static {
-        // Configurar transiciones válidas de Solicitud
-        // Estados oficiales: PENDIENTE, PROGRAMADA, EN_TRANSITO, COMPLETADA, CANCELADA
-        TRANSICIONES_SOLICITUD.put("PENDIENTE", Arrays.asList("PROGRAMADA", "CANCELADA"));
-        TRANSICIONES_SOLICITUD.put("PROGRAMADA", Arrays.asList("EN_TRANSITO", "CANCELADA"));
-        TRANSICIONES_SOLICITUD.put("EN_TRANSITO", Arrays.asList("COMPLETADA", "PROGRAMADA"));
-        TRANSICIONES_SOLICITUD.put("COMPLETADA", Arrays.asList()); // Estado final
-        TRANSICIONES_SOLICITUD.put("CANCELADA", Arrays.asList()); // Estado final
+        TRANSICIONES_SOLICITUD.permitir(Estado.PENDIENTE, Estado.PROGRAMADA, Estado.CANCELADA);
+        TRANSICIONES_SOLICITUD.permitir(Estado.PROGRAMADA, Estado.EN_TRANSITO, Estado.CANCELADA);
+        TRANSICIONES_SOLICITUD.permitir(Estado.EN_TRANSITO, Estado.COMPLETADA, Estado.PROGRAMADA);
+        TRANSICIONES_SOLICITUD.permitir(Estado.COMPLETADA); // Estado final
+        TRANSICIONES_SOLICITUD.permitir(Estado.CANCELADA); // Estado final
+
+        TRANSICIONES_CONTENEDOR.permitir(EstadoContenedorTipo.LIBRE, EstadoContenedorTipo.OCUPADO);
+        TRANSICIONES_CONTENEDOR.permitir(EstadoContenedorTipo.OCUPADO, EstadoContenedorTipo.EN_TRANSITO, EstadoContenedorTipo.LIBRE);
+        TRANSICIONES_CONTENEDOR.permitir(EstadoContenedorTipo.EN_TRANSITO, EstadoContenedorTipo.EN_DEPOSITO, EstadoContenedorTipo.ENTREGADO);
+        TRANSICIONES_CONTENEDOR.permitir(EstadoContenedorTipo.EN_DEPOSITO, EstadoContenedorTipo.EN_TRANSITO);
+        TRANSICIONES_CONTENEDOR.permitir(EstadoContenedorTipo.ENTREGADO, EstadoContenedorTipo.LIBRE);
+    }
+
+    // Guardas y acciones por estado destino de la solicitud (índice = ordinal)
+    // Se reemplazan completas al registrar (copy-on-write), la lectura no sincroniza
+    private volatile GuardaTransicion[][] guardas = new GuardaTransicion[Estado.values().length][0];
+    private volatile AccionTransicion[][] acciones = new AccionTransicion[Estado.values().length][0];
+
+    /**
+     * Registra las reglas propias del dominio:
+     * no se cancela una solicitud con el contenedor en viaje, y el contenedor acompaña
+     * los cambios de estado de su solicitud
+     */
+    @PostConstruct
+    void registrarReglas() {
+        registrarGuarda(Estado.CANCELADA, (solicitud, origen, destino) -> {
+            EstadoContenedorTipo contenedor = estadoDe(solicitud.getContenedor());
+            return contenedor != EstadoContenedorTipo.EN_TRANSITO && contenedor != EstadoContenedorTipo.EN_DEPOSITO;
+        });
+        registrarAccion(Estado.EN_TRANSITO, (solicitud, origen, destino) ->
+                acompanarContenedor(solicitud, EstadoContenedorTipo.EN_TRANSITO));
+        registrarAccion(Estado.COMPLETADA, (solicitud, origen, destino) ->
+                acompanarContenedor(solicitud, EstadoContenedorTipo.ENTREGADO));
+        registrarAccion(Estado.CANCELADA, (solicitud, origen, destino) ->
+                acompanarContenedor(solicitud, EstadoContenedorTipo.LIBRE));
+    }
 
-        // Configurar transiciones válidas de Contenedor
-        // Estados oficiales: LIBRE, OCUPADO, EN_TRANSITO, EN_DEPOSITO, ENTREGADO
-        TRANSICIONES_CONTENEDOR.put("LIBRE", Arrays.asList("OCUPADO"));
-        TRANSICIONES_CONTENEDOR.put("OCUPADO", Arrays.asList("EN_TRANSITO", "LIBRE"));
-        TRANSICIONES_CONTENEDOR.put("EN_TRANSITO", Arrays.asList("EN_DEPOSITO", "ENTREGADO"));
-        TRANSICIONES_CONTENEDOR.put("EN_DEPOSITO", Arrays.asList("EN_TRANSITO"));
-        TRANSICIONES_CONTENEDOR.put("ENTREGADO", Arrays.asList("LIBRE"));
+    /**
+     * Agrega una guarda que se evalúa antes de entrar al estado destino
+     */
+    public synchronized void registrarGuarda(Estado destino, GuardaTransicion guarda) {
+        GuardaTransicion[][] nuevas = guardas.clone();
+        nuevas[destino.ordinal()] = agregar(nuevas[destino.ordinal()], guarda);
+        guardas = nuevas;
+    }
+
+    /**
+     * Agrega una acción que se ejecuta después de entrar al estado destino
+     */
+    public synchronized void registrarAccion(Estado destino, AccionTransicion accion) {
+        AccionTransicion[][] nuevas = acciones.clone();
+        nuevas[destino.ordinal()] = agregar(nuevas[destino.ordinal()], accion);
+        acciones = nuevas;
     }
 
     /**
@@ -66,25 +124,32 @@ public class EstadoTransicionService {
             return true;
         }
 
-        String origenKey = estadoOrigenNombre.toUpperCase().replace(" ", "_");
-        String destinoKey = estadoDestinoNombre.toUpperCase().replace(" ", "_");
-
-        List<String> destinosPermitidos = TRANSICIONES_SOLICITUD.get(origenKey);
-        
-        if (destinosPermitidos == null) {
-            log.warn("Estado origen desconocido para solicitud: {}", origenKey);
+        Estado origen = TRANSICIONES_SOLICITUD.resolver(estadoOrigenNombre);
+        if (origen == null) {
+            log.warn("Estado origen desconocido para solicitud: {}", estadoOrigenNombre);
             return false;
         }
 
-        boolean valido = destinosPermitidos.contains(destinoKey);
-        
+        Estado destino = TRANSICIONES_SOLICITUD.resolver(estadoDestinoNombre);
+        boolean valido = destino != null && TRANSICIONES_SOLICITUD.permite(origen, destino);
+
         if (!valido) {
-            log.warn("Transición de solicitud no válida: {} -> {}", origenKey, destinoKey);
+            log.warn("Transición de solicitud no válida: {} -> {}", origen, estadoDestinoNombre);
         }
-        
+
         return valido;
     }
 
+    /**
+     * Valida si una transición de estado de solicitud es válida
+     * @param origen Estado origen (actual), null si la solicitud todavía no tiene estado
+     * @param destino Estado destino (nuevo)
+     * @return true si la transición es válida, false en caso contrario
+     */
+    public boolean esTransicionSolicitudValida(Estado origen, Estado destino) {
+        return destino != null && (origen == null || origen == destino || TRANSICIONES_SOLICITUD.permite(origen, destino));
+    }
+
     /**
      * Valida si una transición de estado de contenedor es válida
      * @param estadoOrigenNombre Nombre del estado origen (actual)
@@ -102,55 +167,127 @@ public class EstadoTransicionService {
             return true;
         }
 
-        String origenKey = estadoOrigenNombre.toUpperCase().replace(" ", "_");
-        String destinoKey = estadoDestinoNombre.toUpperCase().replace(" ", "_");
-
-        List<String> destinosPermitidos = TRANSICIONES_CONTENEDOR.get(origenKey);
-        
-        if (destinosPermitidos == null) {
-            log.warn("Estado origen desconocido para contenedor: {}", origenKey);
+        EstadoContenedorTipo origen = TRANSICIONES_CONTENEDOR.resolver(estadoOrigenNombre);
+        if (origen == null) {
+            log.warn("Estado origen desconocido para contenedor: {}", estadoOrigenNombre);
             return false;
         }
 
-        boolean valido = destinosPermitidos.contains(destinoKey);
-        
+        EstadoContenedorTipo destino = TRANSICIONES_CONTENEDOR.resolver(estadoDestinoNombre);
+        boolean valido = destino != null && TRANSICIONES_CONTENEDOR.permite(origen, destino);
+
         if (!valido) {
-            log.warn("Transición de contenedor no válida: {} -> {}", origenKey, destinoKey);
+            log.warn("Transición de contenedor no válida: {} -> {}", origen, estadoDestinoNombre);
         }
-        
+
         return valido;
     }
 
+    /**
+     * Valida si una transición de estado de contenedor es válida
+     * @param origen Estado origen (actual), null si el contenedor todavía no tiene estado
+     * @param destino Estado destino (nuevo)
+     * @return true si la transición es válida, false en caso contrario
+     */
+    public boolean esTransicionContenedorValida(EstadoContenedorTipo origen, EstadoContenedorTipo destino) {
+        return destino != null && (origen == null || origen == destino || TRANSICIONES_CONTENEDOR.permite(origen, destino));
+    }
+
+    /**
+     * Verifica si una solicitud puede pasar al estado destino: transición permitida y guardas cumplidas
+     * No modifica la solicitud
+     * @return null si puede, o el motivo por el que no puede
+     */
+    public String verificarTransicion(Solicitud solicitud, Estado destino) {
+        if (destino == null) {
+            return "Estado destino desconocido";
+        }
+        Estado origen = estadoDe(solicitud.getEstado());
+        if (origen == destino) {
+            return null;
+        }
+        if (solicitud.getEstado() != null && origen == null) {
+            return "Estado origen desconocido: " + solicitud.getEstado().getNombre();
+        }
+        if (!esTransicionSolicitudValida(origen, destino)) {
+            return String.format("No se puede cambiar el estado de '%s' a '%s'. Transición no permitida.", origen, destino);
+        }
+        for (GuardaTransicion guarda : guardas[destino.ordinal()]) {
+            if (!guarda.permite(solicitud, origen, destino)) {
+                return String.format("No se puede cambiar el estado de '%s' a '%s' en la situación actual de la solicitud.", origen, destino);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Aplica una transición sobre la solicitud: valida, asigna el estado y ejecuta las acciones asociadas
+     * No persiste: la solicitud (y su contenedor) se guardan en la transacción del llamador
+     * @throws IllegalStateException si la transición no es válida o una guarda la rechaza
+     */
+    public void aplicarTransicion(Solicitud solicitud, Estado destino) {
+        String motivo = verificarTransicion(solicitud, destino);
+        if (motivo != null) {
+            log.error("Transición rechazada para solicitud {}: {}", solicitud.getId(), motivo);
+            throw new IllegalStateException(motivo);
+        }
+        Estado origen = estadoDe(solicitud.getEstado());
+        if (origen == destino) {
+            return;
+        }
+        solicitud.setEstado(getEstadoSolicitud(destino));
+        for (AccionTransicion accion : acciones[destino.ordinal()]) {
+            accion.ejecutar(solicitud, origen, destino);
+        }
+        log.debug("Transición aplicada en solicitud {}: {} -> {}", solicitud.getId(), origen, destino);
+    }
+
+    /**
+     * Resuelve el nombre de un estado de solicitud (sin distinguir mayúsculas, espacio equivale a '_')
+     * @return el estado o null si el nombre no corresponde a ninguno
+     */
+    public Estado resolverEstadoSolicitud(String nombre) {
+        return TRANSICIONES_SOLICITUD.resolver(nombre);
+    }
+
+    /**
+     * Resuelve el nombre de un estado de contenedor (sin distinguir mayúsculas, espacio equivale a '_')
+     * @return el estado o null si el nombre no corresponde a ninguno
+     */
+    public EstadoContenedorTipo resolverEstadoContenedor(String nombre) {
+        return TRANSICIONES_CONTENEDOR.resolver(nombre);
+    }
+
+    public Estado estadoDe(EstadoSolicitud estado) {
+        return estado != null ? TRANSICIONES_SOLICITUD.resolver(estado.getNombre()) : null;
+    }
+
+    public EstadoContenedorTipo estadoDe(EstadoContenedor estado) {
+        return estado != null ? TRANSICIONES_CONTENEDOR.resolver(estado.getNombre()) : null;
+    }
+
+    private EstadoContenedorTipo estadoDe(Contenedor contenedor) {
+        return contenedor != null ? estadoDe(contenedor.getEstado()) : null;
+    }
+
     /**
      * Obtiene los estados permitidos desde un estado de solicitud dado
      * @param estadoOrigenNombre Nombre del estado origen
-     * @return Lista de nombres de estados permitidos
+     * @return Lista (inmutable) de nombres de estados permitidos
      */
     public List<String> getEstadosPermitidosSolicitud(String estadoOrigenNombre) {
-        if (estadoOrigenNombre == null) {
-            return Collections.emptyList();
-        }
-        
-        String origenKey = estadoOrigenNombre.toUpperCase().replace(" ", "_");
-        List<String> permitidos = TRANSICIONES_SOLICITUD.get(origenKey);
-        
-        return permitidos != null ? new ArrayList<>(permitidos) : Collections.emptyList();
+        Estado origen = TRANSICIONES_SOLICITUD.resolver(estadoOrigenNombre);
+        return origen != null ? TRANSICIONES_SOLICITUD.destinos(origen) : Collections.emptyList();
     }
 
     /**
      * Obtiene los estados permitidos desde un estado de contenedor dado
      * @param estadoOrigenNombre Nombre del estado origen
-     * @return Lista de nombres de estados permitidos
+     * @return Lista (inmutable) de nombres de estados permitidos
      */
     public List<String> getEstadosPermitidosContenedor(String estadoOrigenNombre) {
-        if (estadoOrigenNombre == null) {
-            return Collections.emptyList();
-        }
-        
-        String origenKey = estadoOrigenNombre.toUpperCase().replace(" ", "_");
-        List<String> permitidos = TRANSICIONES_CONTENEDOR.get(origenKey);
-        
-        return permitidos != null ? new ArrayList<>(permitidos) : Collections.emptyList();
+        EstadoContenedorTipo origen = TRANSICIONES_CONTENEDOR.resolver(estadoOrigenNombre);
+        return origen != null ? TRANSICIONES_CONTENEDOR.destinos(origen) : Collections.emptyList();
     }
 
     /**
@@ -160,7 +297,11 @@ public class EstadoTransicionService {
      * @throws IllegalArgumentException si no existe el estado
      */
     public EstadoSolicitud getEstadoSolicitudByNombre(String nombre) {
-        return estadoSolicitudRepository.findByNombre(nombre)
+        Estado estado = TRANSICIONES_SOLICITUD.resolver(nombre);
+        if (estado != null) {
+            return getEstadoSolicitud(estado);
+        }
+        return catalogoService.findEstadoSolicitudByNombre(nombre)
                 .orElseThrow(() -> {
                     log.error("Estado de solicitud no encontrado: {}", nombre);
                     return new IllegalArgumentException("Estado de solicitud no encontrado: " + nombre);
@@ -174,10 +315,133 @@ public class EstadoTransicionService {
      * @throws IllegalArgumentException si no existe el estado
      */
     public EstadoContenedor getEstadoContenedorByNombre(String nombre) {
-        return estadoContenedorRepository.findByNombre(nombre)
+        EstadoContenedorTipo estado = TRANSICIONES_CONTENEDOR.resolver(nombre);
+        if (estado != null) {
+            return getEstadoContenedor(estado);
+        }
+        return catalogoService.findEstadoContenedorByNombre(nombre)
                 .orElseThrow(() -> {
                     log.error("Estado de contenedor no encontrado: {}", nombre);
                     return new IllegalArgumentException("Estado de contenedor no encontrado: " + nombre);
                 });
     }
+
+    /**
+     * Entidad de un estado de solicitud, tomada del catálogo (que se invalida cuando cambia la tabla)
+     * @throws IllegalArgumentException si el estado no existe en la base
+     */
+    public EstadoSolicitud getEstadoSolicitud(Estado estado) {
+        return catalogoService.findEstadoSolicitudByNombre(estado.name())
+                .orElseThrow(() -> {
+                    log.error("Estado de solicitud no encontrado: {}", estado);
+                    return new IllegalArgumentException("Estado de solicitud no encontrado: " + estado);
+                });
+    }
+
+    /**
+     * Entidad de un estado de contenedor, tomada del catálogo (que se invalida cuando cambia la tabla)
+     * @throws IllegalArgumentException si el estado no existe en la base
+     */
+    public EstadoContenedor getEstadoContenedor(EstadoContenedorTipo estado) {
+        return catalogoService.findEstadoContenedorByNombre(estado.name())
+                .orElseThrow(() -> {
+                    log.error("Estado de contenedor no encontrado: {}", estado);
+                    return new IllegalArgumentException("Estado de contenedor no encontrado: " + estado);
+                });
+    }
+
+    /**
+     * Hace que el contenedor de la solicitud acompañe el cambio de estado, si su propia transición es válida
+     * El contenedor está administrado por JPA, se persiste al confirmar la transacción
+     */
+    private void acompanarContenedor(Solicitud solicitud, EstadoContenedorTipo destino) {
+        Contenedor contenedor = solicitud.getContenedor();
+        if (contenedor == null) {
+            return;
+        }
+        EstadoContenedorTipo origen = estadoDe(contenedor.getEstado());
+        if (origen == destino) {
+            return;
+        }
+        if (contenedor.getEstado() != null && (origen == null || !TRANSICIONES_CONTENEDOR.permite(origen, destino))) {
+            log.debug("Contenedor {} se mantiene en {}: no puede pasar a {}", contenedor.getId(), origen, destino);
+            return;
+        }
+        contenedor.setEstado(getEstadoContenedor(destino));
+        log.info("Contenedor {} cambiado a {} junto con la solicitud {}", contenedor.getId(), destino, solicitud.getId());
+    }
+
+    private static <T> T[] agregar(T[] actuales, T nuevo) {
+        T[] resultado = Arrays.copyOf(actuales, actuales.length + 1);
+        resultado[actuales.length] = nuevo;
+        return resultado;
+    }
+
+    /**
+     * Tabla de transiciones compilada: una máscara de bits de destinos por cada estado origen
+     */
+    private static final class Maquina<E extends Enum<E>> {
+        private final E[] valores;
+        private final int[] destinos;
+        private final List<String>[] nombresDestinos;
+
+        @SuppressWarnings("unchecked")
+        Maquina(E[] valores) {
+            this.valores = valores;
+            this.destinos = new int[valores.length];
+            this.nombresDestinos = new List[valores.length];
+            Arrays.fill(nombresDestinos, List.of());
+        }
+
+        @SafeVarargs
+        final void permitir(E origen, E... permitidos) {
+            int mascara = 0;
+            List<String> nombres = new ArrayList<>(permitidos.length);
+            for (E destino : permitidos) {
+                mascara |= 1 << destino.ordinal();
+                nombres.add(destino.name());
+            }
+            destinos[origen.ordinal()] = mascara;
+            nombresDestinos[origen.ordinal()] = List.copyOf(nombres);
+        }
+
+        boolean permite(E origen, E destino) {
+            return (destinos[origen.ordinal()] & (1 << destino.ordinal())) != 0;
+        }
+
+        List<String> destinos(E origen) {
+            return nombresDestinos[origen.ordinal()];
+        }
+
+        /**
+         * Compara el nombre contra cada constante carácter a carácter, sin mayúsculas ni espacios
+         */
+        E resolver(String nombre) {
+            if (nombre == null) {
+                return null;
+            }
+            for (E valor : valores) {
+                if (coincide(nombre, valor.name())) {
+                    return valor;
+                }
+            }
+            return null;
+        }
+
+        private static boolean coincide(String nombre, String constante) {
+            if (nombre.length() != constante.length()) {
+                return false;
+            }
+            for (int i = 0; i < nombre.length(); i++) {
+                char c = nombre.charAt(i);
+                if (c == ' ') {
+                    c = '_';
+                }
+                if (Character.toUpperCase(c) != constante.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package com.backend.tpi.ms_solicitudes.services;
+
+import com.backend.tpi.common.exportacion.ExportadorFilas;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Servicio de exportación de solicitudes para reportes
+ * Las filas se escriben en CSV o NDJSON a medida que se leen (ExportadorFilas)
+ */
+@Service
+public class ExportacionService {
+
+    private static final String SQL_SOLICITUDES =
+            "SELECT s.id_solicitud AS \"id\", s.cliente_id AS \"clienteId\", s.contenedor_id AS \"contenedorId\", " +
+            "e.nombre AS \"estado\", s.fecha_creacion AS \"fechaCreacion\", s.fecha_modificacion AS \"fechaModificacion\", " +
+            "s.direccion_origen AS \"direccionOrigen\", s.origen_lat AS \"origenLat\", s.origen_long AS \"origenLong\", " +
+            "s.direccion_destino AS \"direccionDestino\", s.destino_lat AS \"destinoLat\", s.destino_long AS \"destinoLong\", " +
+            "s.costo_estimado AS \"costoEstimado\", s.costo_final AS \"costoFinal\", s.tiempo_estimado AS \"tiempoEstimado\", " +
+            "s.tiempo_real AS \"tiempoReal\", s.ruta_id AS \"rutaId\", s.tarifa_id AS \"tarifaId\" " +
+            "FROM solicitudes s LEFT JOIN estado_solicitud e ON e.id = s.estado_solicitud_id WHERE 1 = 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Filas que el driver trae por viaje al servidor (con autocommit off PostgreSQL usa un cursor)
+    @Value("${app.exportacion.fetch-size:1000}")
+    private int fetchSize;
+
+    private ExportadorFilas exportador;
+
+    @PostConstruct
+    public void crearExportador() {
+        exportador = new ExportadorFilas(jdbcTemplate, transactionManager, objectMapper, fetchSize);
+    }
+
+    /**
+     * Exporta solicitudes con el nombre de su estado
+     * @param desde Fecha de creación mínima (opcional)
+     * @param hasta Fecha de creación máxima, exclusiva (opcional)
+     * @param estado Nombre del estado de la solicitud (opcional)
+     * @param clienteId Cliente (opcional)
+     * @param formato csv o ndjson
+     * @param salida Stream de la respuesta
+     * @return Filas exportadas
+     */
+    public long exportarSolicitudes(LocalDateTime desde, LocalDateTime hasta, String estado, Long clienteId, String formato, OutputStream salida) {
+        StringBuilder sql = new StringBuilder(SQL_SOLICITUDES);
+        List<Object> params = new ArrayList<>();
+        if (desde != null) { sql.append(" AND s.fecha_creacion >= ?"); params.add(Timestamp.valueOf(desde)); }
+        if (hasta != null) { sql.append(" AND s.fecha_creacion < ?"); params.add(Timestamp.valueOf(hasta)); }
+        if (estado != null && !estado.isBlank()) { sql.append(" AND UPPER(e.nombre) = ?"); params.add(estado.trim().toUpperCase()); }
+        if (clienteId != null) { sql.append(" AND s.cliente_id = ?"); params.add(clienteId); }
+        sql.append(" ORDER BY s.id_solicitud");
+        return exportador.exportar("solicitudes", sql.toString(), params, formato, salida);
+    }
+}
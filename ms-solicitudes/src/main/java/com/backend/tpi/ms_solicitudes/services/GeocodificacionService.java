@@ -1,9 +1,11 @@
 package com.backend.tpi.ms_solicitudes.services;
 
+import com.backend.tpi.common.concurrencia.LlamadasCompartidas;
 import com.backend.tpi.ms_solicitudes.dtos.CoordenadaDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
@@ -24,6 +26,24 @@ public class GeocodificacionService {
     @Autowired
     private RestClient calculosClient;
 
+    // Base de Nominatim para el fallback directo (configurable para apuntar a un servidor simulado en pruebas de carga)
+    @Value("${app.nominatim.base-url:https://nominatim.openstreetmap.org}")
+    private String nominatimBaseUrl;
+
+    @Autowired
+    private io.micrometer.observation.ObservationRegistry observationRegistry;
+
+    @Autowired
+    private com.backend.tpi.common.metricas.RegistroMetricas registroMetricas;
+
+    // Geocodificaciones simultáneas de la misma dirección comparten la llamada a ms-gestion-calculos
+    private LlamadasCompartidas<String, CoordenadaDTO> geocodificacionesEnCurso;
+
+    @jakarta.annotation.PostConstruct
+    void iniciarLlamadasCompartidas() {
+        geocodificacionesEnCurso = new LlamadasCompartidas<>("calculos.geocode", registroMetricas);
+    }
+
     /**
      * Geocodifica una dirección convirtiéndola a coordenadas
      * Soporta:
@@ -98,6 +118,10 @@ public class GeocodificacionService {
      * @return Coordenadas obtenidas del servicio
      */
     private CoordenadaDTO geocodificarViaCalculos(String direccion) {
+        return geocodificacionesEnCurso.ejecutar(direccion, () -> consultarCalculos(direccion));
+    }
+
+    private CoordenadaDTO consultarCalculos(String direccion) {
         try {
             String token = extractBearerToken();
             logger.debug("Consultando geocodificación vía ms-gestion-calculos para dirección: {}", direccion);
@@ -117,7 +141,7 @@ public class GeocodificacionService {
                 if (latObj instanceof Number) lat = ((Number) latObj).doubleValue();
                 if (lonObj instanceof Number) lon = ((Number) lonObj).doubleValue();
                 if (lat != null && lon != null) {
-                    logger.info("Coordenadas obtenidas vía calculos para '{}': lat={}, lon={}", direccion, lat, lon);
+                    logger.debug("Coordenadas obtenidas vía calculos para '{}': lat={}, lon={}", direccion, lat, lon);
                     return new CoordenadaDTO(lat, lon);
                 }
             }
@@ -125,14 +149,15 @@ public class GeocodificacionService {
             // Fallback directo desde este servicio hacia Nominatim
             try {
                 String q = java.net.URLEncoder.encode(direccion, java.nio.charset.StandardCharsets.UTF_8);
-                String url = "https://nominatim.openstreetmap.org/search?q=" + q + "&format=json&limit=1&addressdetails=0";
+                String url = nominatimBaseUrl + "/search?q=" + q + "&format=json&limit=1&addressdetails=0";
                 java.net.http.HttpClient http = java.net.http.HttpClient.newBuilder().build();
                 java.net.http.HttpRequest req = java.net.http.HttpRequest.newBuilder()
                         .uri(java.net.URI.create(url))
                         .header("User-Agent", "TPI-Backend-Geocoder/1.0 (contacto@dominio.example)")
                         .GET()
                         .build();
-                java.net.http.HttpResponse<String> resp = http.send(req, java.net.http.HttpResponse.BodyHandlers.ofString());
+                java.net.http.HttpResponse<String> resp = com.backend.tpi.common.trazas.HttpObservado.enviar(
+                        http, req, java.net.http.HttpResponse.BodyHandlers.ofString(), observationRegistry);
                 if (resp.statusCode() == 200) {
                     String body = resp.body();
                     java.util.regex.Pattern pLat = java.util.regex.Pattern.compile("\\\"lat\\\"\\s*:\\s*\\\"([0-9+\\-\\.]+)\\\"");
@@ -142,7 +167,7 @@ public class GeocodificacionService {
                     if (mLat.find() && mLon.find()) {
                         double lat = Double.parseDouble(mLat.group(1));
                         double lon = Double.parseDouble(mLon.group(1));
-                        logger.info("Geocodificación externa exitosa para '{}': lat={}, lon={}", direccion, lat, lon);
+                        logger.debug("Geocodificación externa exitosa para '{}': lat={}, lon={}", direccion, lat, lon);
                         return new CoordenadaDTO(lat, lon);
                     }
                 } else {
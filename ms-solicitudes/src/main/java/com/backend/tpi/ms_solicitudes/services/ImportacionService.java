@@ -0,0 +1,710 @@
+package com.backend.tpi.ms_solicitudes.services;
+
+import com.backend.tpi.common.trazas.ManejadorTrazas;
+import com.backend.tpi.ms_solicitudes.dtos.CoordenadaDTO;
+import com.backend.tpi.ms_solicitudes.dtos.CreateSolicitudDTO;
+import com.backend.tpi.ms_solicitudes.dtos.ErrorImportacionDTO;
+import com.backend.tpi.ms_solicitudes.dtos.ImportacionDTO;
+import com.backend.tpi.ms_solicitudes.models.Cliente;
+import com.backend.tpi.ms_solicitudes.models.Contenedor;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedor;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedorTipo;
+import com.backend.tpi.ms_solicitudes.models.EstadoSolicitud;
+import com.backend.tpi.ms_solicitudes.repositories.ClienteRepository;
+import com.backend.tpi.ms_solicitudes.repositories.ContenedorRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servicio de importación masiva de solicitudes desde CSV o NDJSON
+ * El cuerpo se lee en forma incremental y se procesa por lotes: en cada lote las direcciones
+ * repetidas se geocodifican una sola vez (en paralelo), los clientes se resuelven por email con
+ * una consulta y clientes, contenedores y solicitudes se insertan con batches JDBC.
+ * La request solo copia el cuerpo a un archivo temporal: el procesamiento corre en segundo plano y
+ * cada importación queda registrada en memoria con su progreso y el detalle de errores por fila.
+ */
+@Service
+public class ImportacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionService.class);
+
+    public static final String FORMATO_CSV = "CSV";
+    public static final String FORMATO_NDJSON = "NDJSON";
+
+    // Columnas aceptadas en CSV (mismos nombres que CreateSolicitudDTO, sin distinguir mayúsculas)
+    private static final List<String> COLUMNAS = List.of(
+            "direccionOrigen", "direccionDestino", "contenedorId", "clienteEmail",
+            "clienteNombre", "clienteTelefono", "contenedorPeso", "contenedorVolumen");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private jakarta.validation.Validator validator;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private ContenedorRepository contenedorRepository;
+
+    @Autowired
+    private GeocodificacionService geocodificacionService;
+
+    @Autowired
+    private CatalogoService catalogoService;
+
+    @Autowired
+    private EstadoTransicionService estadoTransicionService;
+
+    @Autowired
+    private com.backend.tpi.common.metricas.RegistroMetricas registroMetricas;
+
+    @Autowired
+    private io.micrometer.observation.ObservationRegistry observationRegistry;
+
+    // Filas por lote (una transacción y un batch por tabla por lote)
+    @Value("${app.importacion.lote:500}")
+    private int tamanioLote;
+
+    // Geocodificaciones simultáneas por lote
+    @Value("${app.importacion.geocodificacion-paralelismo:8}")
+    private int paralelismoGeocodificacion;
+
+    // Errores por fila que se conservan en el reporte
+    @Value("${app.importacion.max-errores:1000}")
+    private int maxErrores;
+
+    // Importaciones que se conservan en memoria para consulta
+    @Value("${app.importacion.historial:50}")
+    private int historial;
+
+    // Importaciones procesándose a la vez; las demás esperan en una cola acotada
+    @Value("${app.importacion.concurrentes:2}")
+    private int concurrentes;
+
+    @Value("${app.importacion.cola:10}")
+    private int cola;
+
+    private ExecutorService ejecutor;
+
+    private final Map<String, Importacion> importaciones = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void iniciarEjecutor() {
+        int hilos = Math.max(1, concurrentes);
+        AtomicLong numero = new AtomicLong();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cola)), r -> {
+                    Thread hilo = new Thread(r, "importacion-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        // Las tareas corren con la autenticación del request que las inició (la geocodificación la reenvía)
+        ejecutor = new DelegatingSecurityContextExecutorService(pool);
+    }
+
+    @PreDestroy
+    void detenerEjecutor() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Inicia una importación en segundo plano y devuelve enseguida
+     * El cuerpo se copia a un archivo temporal a medida que llega (no se almacena completo en memoria);
+     * el procesamiento por lotes corre después en el ejecutor de importaciones
+     * @param formato CSV o NDJSON
+     * @param cuerpo Stream del cuerpo del request
+     * @return Importación registrada (EN_CURSO) para consultar su progreso
+     * @throws IllegalArgumentException si el cuerpo está vacío o el encabezado CSV no es válido
+     * @throws RejectedExecutionException si ya hay app.importacion.cola importaciones en espera
+     */
+    public ImportacionDTO iniciar(String formato, InputStream cuerpo) throws IOException {
+        Path archivo = Files.createTempFile("importacion-", FORMATO_CSV.equals(formato) ? ".csv" : ".ndjson");
+        try {
+            if (Files.copy(cuerpo, archivo, StandardCopyOption.REPLACE_EXISTING) == 0) {
+                throw new IllegalArgumentException("El archivo está vacío");
+            }
+            if (FORMATO_CSV.equals(formato)) {
+                try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+                    columnasCsv(leerRegistroCsv(lector));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(archivo);
+            throw e;
+        }
+
+        Importacion importacion = registrar(formato);
+        try {
+            ejecutor.execute(ManejadorTrazas.enContexto(observationRegistry, () -> importar(importacion, archivo)));
+        } catch (RejectedExecutionException e) {
+            importacion.finalizar("FALLIDA", "Demasiadas importaciones en curso");
+            Files.deleteIfExists(archivo);
+            throw e;
+        }
+        logger.info("Importación {} encolada (formato {})", importacion.id, formato);
+        return importacion.toDto(false);
+    }
+
+    /**
+     * Procesa el archivo de una importación en forma incremental y lo borra al terminar
+     */
+    private void importar(Importacion importacion, Path archivo) {
+        String formato = importacion.formato;
+        logger.info("Importación {} iniciada (formato {})", importacion.id, formato);
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            if (FORMATO_CSV.equals(formato)) {
+                leerCsv(lector, importacion);
+            } else {
+                leerNdjson(lector, importacion);
+            }
+            importacion.finalizar("COMPLETADA", null);
+            logger.info("Importación {} completada - filas: {}, creadas: {}, con error: {}",
+                    importacion.id, importacion.filasLeidas.get(), importacion.creadas.get(), importacion.conError.get());
+        } catch (Exception e) {
+            importacion.finalizar("FALLIDA", e.getMessage());
+            logger.error("Importación {} fallida tras {} filas: {}", importacion.id, importacion.filasLeidas.get(), e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(archivo);
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el archivo temporal {}: {}", archivo, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Consulta el progreso o el resultado de una importación
+     * @param id ID de la importación
+     * @return Importación con errores por fila, si existe
+     */
+    public Optional<ImportacionDTO> findById(String id) {
+        Importacion importacion = importaciones.get(id);
+        return importacion != null ? Optional.of(importacion.toDto(true)) : Optional.empty();
+    }
+
+    /**
+     * Lista las importaciones recientes (sin el detalle de errores), más nuevas primero
+     */
+    public List<ImportacionDTO> findAll() {
+        return importaciones.values().stream()
+                .sorted((a, b) -> b.fechaInicio.compareTo(a.fechaInicio))
+                .map(i -> i.toDto(false))
+                .toList();
+    }
+
+    private Importacion registrar(String formato) {
+        Importacion importacion = new Importacion(UUID.randomUUID().toString(), formato);
+        importaciones.put(importacion.id, importacion);
+        // Descartar las importaciones terminadas más viejas
+        if (importaciones.size() > historial) {
+            importaciones.values().stream()
+                    .filter(i -> i.fechaFin != null)
+                    .sorted((a, b) -> a.fechaInicio.compareTo(b.fechaInicio))
+                    .limit(importaciones.size() - historial)
+                    .toList()
+                    .forEach(i -> importaciones.remove(i.id));
+        }
+        return importacion;
+    }
+
+    private void leerNdjson(BufferedReader lector, Importacion importacion) throws IOException {
+        List<Fila> lote = new ArrayList<>(tamanioLote);
+        Map<String, Optional<CoordenadaDTO>> geocodificadas = new HashMap<>();
+        String linea;
+        long numero = 0;
+        while ((linea = lector.readLine()) != null) {
+            if (linea.isBlank()) continue;
+            Fila fila = new Fila(++numero);
+            try {
+                fila.dto = objectMapper.readValue(linea, CreateSolicitudDTO.class);
+            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+                fila.error = "JSON inválido: " + e.getOriginalMessage();
+            }
+            lote.add(fila);
+            if (lote.size() >= tamanioLote) {
+                procesarLote(lote, importacion, geocodificadas);
+                lote = new ArrayList<>(tamanioLote);
+            }
+        }
+        if (!lote.isEmpty()) procesarLote(lote, importacion, geocodificadas);
+    }
+
+    private void leerCsv(BufferedReader lector, Importacion importacion) throws IOException {
+        int[] columnas = columnasCsv(leerRegistroCsv(lector));
+        List<Fila> lote = new ArrayList<>(tamanioLote);
+        Map<String, Optional<CoordenadaDTO>> geocodificadas = new HashMap<>();
+        List<String> registro;
+        long numero = 0;
+        while ((registro = leerRegistroCsv(lector)) != null) {
+            if (registro.size() == 1 && registro.get(0).isBlank()) continue;
+            Fila fila = new Fila(++numero);
+            try {
+                fila.dto = aDto(registro, columnas);
+            } catch (Exception e) {
+                fila.error = e.getMessage();
+            }
+            lote.add(fila);
+            if (lote.size() >= tamanioLote) {
+                procesarLote(lote, importacion, geocodificadas);
+                lote = new ArrayList<>(tamanioLote);
+            }
+        }
+        if (!lote.isEmpty()) procesarLote(lote, importacion, geocodificadas);
+    }
+
+    /**
+     * Índice en COLUMNAS de cada columna del encabezado (-1 si se ignora)
+     * @throws IllegalArgumentException si no hay encabezado o le faltan las direcciones
+     */
+    static int[] columnasCsv(List<String> encabezado) {
+        if (encabezado == null) throw new IllegalArgumentException("El CSV está vacío");
+        int[] columnas = new int[encabezado.size()];
+        Set<String> presentes = new HashSet<>();
+        for (int c = 0; c < columnas.length; c++) {
+            columnas[c] = indiceColumna(encabezado.get(c).trim());
+            if (columnas[c] >= 0) presentes.add(COLUMNAS.get(columnas[c]));
+        }
+        if (!presentes.contains("direccionOrigen") || !presentes.contains("direccionDestino")) {
+            throw new IllegalArgumentException("El encabezado CSV debe incluir direccionOrigen y direccionDestino");
+        }
+        return columnas;
+    }
+
+    private static int indiceColumna(String nombre) {
+        for (int i = 0; i < COLUMNAS.size(); i++) {
+            if (COLUMNAS.get(i).equalsIgnoreCase(nombre)) return i;
+        }
+        return -1;
+    }
+
+    private static CreateSolicitudDTO aDto(List<String> registro, int[] columnas) {
+        CreateSolicitudDTO dto = new CreateSolicitudDTO();
+        for (int c = 0; c < columnas.length && c < registro.size(); c++) {
+            String valor = registro.get(c).trim();
+            if (columnas[c] < 0 || valor.isEmpty()) continue;
+            String columna = COLUMNAS.get(columnas[c]);
+            try {
+                switch (columna) {
+                    case "direccionOrigen" -> dto.setDireccionOrigen(valor);
+                    case "direccionDestino" -> dto.setDireccionDestino(valor);
+                    case "contenedorId" -> dto.setContenedorId(Long.valueOf(valor));
+                    case "clienteEmail" -> dto.setClienteEmail(valor);
+                    case "clienteNombre" -> dto.setClienteNombre(valor);
+                    case "clienteTelefono" -> dto.setClienteTelefono(valor);
+                    case "contenedorPeso" -> dto.setContenedorPeso(new BigDecimal(valor));
+                    case "contenedorVolumen" -> dto.setContenedorVolumen(new BigDecimal(valor));
+                    default -> { }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valor numérico inválido en " + columna + ": " + valor);
+            }
+        }
+        return dto;
+    }
+
+    /**
+     * Lee un registro CSV (RFC 4180): separador coma, campos entre comillas con "" como escape
+     * y saltos de línea dentro de comillas
+     * @return Campos del registro, o null al final del stream
+     */
+    static List<String> leerRegistroCsv(BufferedReader lector) throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        boolean leido = false;
+        int c;
+        while ((c = lector.read()) != -1) {
+            leido = true;
+            char ch = (char) c;
+            if (entreComillas) {
+                if (ch == '"') {
+                    lector.mark(1);
+                    int siguiente = lector.read();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        if (siguiente != -1) lector.reset();
+                    }
+                } else {
+                    campo.append(ch);
+                }
+            } else if (ch == '"') {
+                entreComillas = true;
+            } else if (ch == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (ch == '\n') {
+                break;
+            } else if (ch != '\r') {
+                campo.append(ch);
+            }
+        }
+        if (!leido) return null;
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private void procesarLote(List<Fila> lote, Importacion importacion, Map<String, Optional<CoordenadaDTO>> geocodificadas) {
+        importacion.filasLeidas.addAndGet(lote.size());
+        for (Fila fila : lote) {
+            if (fila.error == null) fila.error = validar(fila.dto);
+        }
+
+        geocodificar(lote, geocodificadas);
+
+        List<Fila> validas = lote.stream().filter(f -> f.error == null).toList();
+        if (!validas.isEmpty()) {
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(tx -> persistir(validas));
+            } catch (Exception e) {
+                // El lote se revierte completo: todas sus filas válidas quedan con el error
+                logger.error("Importación {}: error persistiendo lote de {} filas: {}", importacion.id, validas.size(), e.getMessage());
+                String mensaje = "Error al guardar el lote: " + e.getMessage();
+                for (Fila fila : validas) {
+                    if (fila.error == null) fila.error = mensaje;
+                }
+            }
+        }
+
+        for (Fila fila : lote) {
+            if (fila.error != null) {
+                importacion.registrarError(fila.numero, fila.error, maxErrores);
+            } else {
+                importacion.creadas.incrementAndGet();
+            }
+        }
+        logger.debug("Importación {}: {} filas procesadas", importacion.id, importacion.filasLeidas.get());
+    }
+
+    /**
+     * Mismas reglas que la creación individual (bean validation + reglas del controlador y del servicio)
+     * @return Mensaje de error, o null si la fila es válida
+     */
+    private String validar(CreateSolicitudDTO dto) {
+        if (dto == null) return "Fila vacía";
+        var violaciones = validator.validate(dto);
+        if (!violaciones.isEmpty()) {
+            return violaciones.stream()
+                    .map(v -> v.getMessage())
+                    .sorted()
+                    .reduce((a, b) -> a + "; " + b)
+                    .orElse("Datos inválidos");
+        }
+        if (dto.getDireccionOrigen().trim().equals(dto.getDireccionDestino().trim())) {
+            return "La dirección de origen y destino deben ser diferentes";
+        }
+        if (geocodificacionService.isDireccionDeposito(dto.getDireccionOrigen().trim())
+                || geocodificacionService.isDireccionDeposito(dto.getDireccionDestino().trim())) {
+            return "No pasar IDs de depósito en las solicitudes. Enviar dirección de texto o coordenadas.";
+        }
+        if (dto.getContenedorId() == null
+                && (dto.getContenedorPeso() == null || dto.getContenedorVolumen() == null)) {
+            return "Si no se provee contenedorId, contenedorPeso y contenedorVolumen son obligatorios";
+        }
+        return null;
+    }
+
+    /**
+     * Geocodifica una sola vez cada dirección distinta del lote que no se haya resuelto en lotes anteriores
+     * Las consultas corren en hilos virtuales con paralelismo acotado; como en la creación individual,
+     * una dirección que no se puede geocodificar no invalida la fila (queda sin coordenadas)
+     */
+    private void geocodificar(List<Fila> lote, Map<String, Optional<CoordenadaDTO>> geocodificadas) {
+        Set<String> nuevas = new java.util.LinkedHashSet<>();
+        long consultas = 0;
+        for (Fila fila : lote) {
+            if (fila.error != null) continue;
+            String origen = fila.dto.getDireccionOrigen().trim();
+            String destino = fila.dto.getDireccionDestino().trim();
+            if (!geocodificadas.containsKey(origen)) nuevas.add(origen);
+            if (!geocodificadas.containsKey(destino)) nuevas.add(destino);
+            consultas += 2;
+        }
+        // Las repetidas dentro del lote también cuentan como acierto: se geocodifican una sola vez
+        registroMetricas.registrarCache("importacion.geocodificacion", true, consultas - nuevas.size());
+        registroMetricas.registrarCache("importacion.geocodificacion", false, nuevas.size());
+        if (!nuevas.isEmpty()) {
+            Map<String, java.util.concurrent.Future<CoordenadaDTO>> tareas = new LinkedHashMap<>();
+            java.util.concurrent.Semaphore permisos = new java.util.concurrent.Semaphore(Math.max(1, paralelismoGeocodificacion));
+            try (java.util.concurrent.ExecutorService ambito = new org.springframework.security.concurrent.DelegatingSecurityContextExecutorService(
+                    java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor())) {
+                for (String direccion : nuevas) {
+                    tareas.put(direccion, ambito.submit(com.backend.tpi.common.trazas.ManejadorTrazas.enContexto(observationRegistry, () -> {
+                        permisos.acquire();
+                        try {
+                            return geocodificacionService.geocodificar(direccion);
+                        } finally {
+                            permisos.release();
+                        }
+                    })));
+                }
+            }
+            for (Map.Entry<String, java.util.concurrent.Future<CoordenadaDTO>> tarea : tareas.entrySet()) {
+                CoordenadaDTO coord = null;
+                try {
+                    coord = tarea.getValue().get();
+                } catch (Exception e) {
+                    logger.warn("No se pudo geocodificar '{}': {}", tarea.getKey(), e.getMessage());
+                }
+                geocodificadas.put(tarea.getKey(), Optional.ofNullable(coord));
+            }
+            logger.debug("Importación: {} direcciones nuevas geocodificadas ({} en caché)", nuevas.size(), geocodificadas.size());
+        }
+        for (Fila fila : lote) {
+            if (fila.error != null) continue;
+            fila.origen = geocodificadas.get(fila.dto.getDireccionOrigen().trim()).orElse(null);
+            fila.destino = geocodificadas.get(fila.dto.getDireccionDestino().trim()).orElse(null);
+        }
+    }
+
+    /**
+     * Persiste las filas válidas de un lote dentro de la transacción actual
+     * Clientes por email en una consulta, contenedores existentes en otra y luego un batch por tabla
+     */
+    private void persistir(List<Fila> filas) {
+        // 1) Clientes: resolver todos los emails del lote de una vez y crear los faltantes
+        Map<String, Long> clientes = new HashMap<>();
+        Set<String> emails = new HashSet<>();
+        for (Fila f : filas) emails.add(f.dto.getClienteEmail().trim());
+        for (Cliente c : clienteRepository.findByEmailIn(emails)) {
+            clientes.putIfAbsent(c.getEmail(), c.getId());
+        }
+        Map<String, Fila> clientesNuevos = new LinkedHashMap<>();
+        for (Fila f : filas) {
+            String email = f.dto.getClienteEmail().trim();
+            if (!clientes.containsKey(email)) clientesNuevos.putIfAbsent(email, f);
+        }
+        if (!clientesNuevos.isEmpty()) {
+            long[] ids = reservarIds("clientes", "id_cliente", clientesNuevos.size());
+            int i = 0;
+            List<Object[]> params = new ArrayList<>(clientesNuevos.size());
+            for (Map.Entry<String, Fila> e : clientesNuevos.entrySet()) {
+                CreateSolicitudDTO dto = e.getValue().dto;
+                long id = ids[i++];
+                clientes.put(e.getKey(), id);
+                params.add(new Object[] { id, dto.getClienteNombre() != null ? dto.getClienteNombre() : "Cliente",
+                        e.getKey(), dto.getClienteTelefono() });
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO clientes (id_cliente, nombre, email, telefono) VALUES (?, ?, ?, ?)", params);
+        }
+        for (Fila f : filas) f.clienteId = clientes.get(f.dto.getClienteEmail().trim());
+
+        // 2) Contenedores existentes: validar existencia, pertenencia y que puedan pasar a OCUPADO
+        EstadoContenedor ocupado = catalogoService.findEstadoContenedorByNombre("OCUPADO").orElse(null);
+        Set<Long> idsContenedor = new HashSet<>();
+        for (Fila f : filas) if (f.dto.getContenedorId() != null) idsContenedor.add(f.dto.getContenedorId());
+        Map<Long, Contenedor> existentes = new HashMap<>();
+        if (!idsContenedor.isEmpty()) {
+            for (Contenedor c : contenedorRepository.findAllById(idsContenedor)) existentes.put(c.getId(), c);
+        }
+        Set<Long> usados = new HashSet<>();
+        List<Object[]> ocupar = new ArrayList<>();
+        for (Fila f : filas) {
+            Long contenedorId = f.dto.getContenedorId();
+            if (contenedorId == null) continue;
+            Contenedor cont = existentes.get(contenedorId);
+            if (cont == null) {
+                f.error = "Contenedor no encontrado: " + contenedorId;
+            } else if (cont.getClienteId() != null && !cont.getClienteId().equals(f.clienteId)) {
+                f.error = "El contenedor no pertenece al cliente de la solicitud";
+            } else if (!estadoTransicionService.esTransicionContenedorValida(
+                    estadoTransicionService.estadoDe(cont.getEstado()), EstadoContenedorTipo.OCUPADO)) {
+                f.error = "El contenedor está " + cont.getEstado().getNombre() + " y no puede pasar a OCUPADO";
+            } else if (!usados.add(contenedorId)) {
+                f.error = "El contenedor ya está asignado a otra fila de la importación";
+            } else {
+                f.contenedorId = contenedorId;
+                if (ocupado != null && estadoTransicionService.estadoDe(cont.getEstado()) != EstadoContenedorTipo.OCUPADO) {
+                    ocupar.add(new Object[] { ocupado.getId(), contenedorId });
+                }
+            }
+        }
+        if (!ocupar.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE contenedores SET estado_id = ? WHERE id_contenedor = ?", ocupar);
+        }
+
+        // 3) Contenedores inline (peso/volumen), creados directamente en estado OCUPADO
+        List<Fila> inline = filas.stream().filter(f -> f.error == null && f.dto.getContenedorId() == null).toList();
+        if (!inline.isEmpty()) {
+            long[] ids = reservarIds("contenedores", "id_contenedor", inline.size());
+            int i = 0;
+            List<Object[]> params = new ArrayList<>(inline.size());
+            for (Fila f : inline) {
+                f.contenedorId = ids[i++];
+                params.add(new Object[] { f.contenedorId, f.dto.getContenedorPeso(), f.dto.getContenedorVolumen(),
+                        ocupado != null ? ocupado.getId() : null, f.clienteId });
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO contenedores (id_contenedor, peso, volumen, estado_id, cliente_id) VALUES (?, ?, ?, ?, ?)",
+                    params, new int[] { java.sql.Types.BIGINT, java.sql.Types.NUMERIC, java.sql.Types.NUMERIC, java.sql.Types.BIGINT, java.sql.Types.BIGINT });
+        }
+
+        // 4) Solicitudes en estado PENDIENTE
+        List<Fila> aInsertar = filas.stream().filter(f -> f.error == null).toList();
+        if (aInsertar.isEmpty()) return;
+        EstadoSolicitud pendiente = catalogoService.findEstadoSolicitudByNombre("PENDIENTE").orElse(null);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        long[] ids = reservarIds("solicitudes", "id_solicitud", aInsertar.size());
+        int i = 0;
+        List<Object[]> params = new ArrayList<>(aInsertar.size());
+        for (Fila f : aInsertar) {
+            params.add(new Object[] { ids[i++], f.contenedorId, f.clienteId, ahora, ahora,
+                    f.origen != null ? geocodificacionService.toBigDecimal(f.origen.getLatitud()) : null,
+                    f.origen != null ? geocodificacionService.toBigDecimal(f.origen.getLongitud()) : null,
+                    f.destino != null ? geocodificacionService.toBigDecimal(f.destino.getLatitud()) : null,
+                    f.destino != null ? geocodificacionService.toBigDecimal(f.destino.getLongitud()) : null,
+                    f.dto.getDireccionOrigen().trim(), f.dto.getDireccionDestino().trim(),
+                    pendiente != null ? pendiente.getId() : null });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO solicitudes (id_solicitud, contenedor_id, cliente_id, fecha_creacion, fecha_modificacion, "
+                        + "origen_lat, origen_long, destino_lat, destino_long, direccion_origen, direccion_destino, estado_solicitud_id) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                params, new int[] { java.sql.Types.BIGINT, java.sql.Types.BIGINT, java.sql.Types.BIGINT, java.sql.Types.TIMESTAMP,
+                        java.sql.Types.TIMESTAMP, java.sql.Types.NUMERIC, java.sql.Types.NUMERIC, java.sql.Types.NUMERIC,
+                        java.sql.Types.NUMERIC, java.sql.Types.VARCHAR, java.sql.Types.VARCHAR, java.sql.Types.BIGINT });
+    }
+
+    /**
+     * IDs para las filas del batch, con el mismo criterio que LowestAvailableIdGenerator en las altas
+     * individuales (los libres más bajos), pedidos en una sola consulta. El bloqueo por tabla que toma
+     * el generador dura hasta el commit del lote, así otra importación o un alta individual esperan
+     */
+    private long[] reservarIds(String tabla, String columna, int cantidad) {
+        return jdbcTemplate.execute((org.springframework.jdbc.core.ConnectionCallback<long[]>) conexion ->
+                com.backend.tpi.ms_solicitudes.config.LowestAvailableIdGenerator.siguientes(conexion, tabla, columna, cantidad));
+    }
+
+    /**
+     * Fila leída del archivo con su estado durante el procesamiento del lote
+     */
+    private static final class Fila {
+        final long numero;
+        CreateSolicitudDTO dto;
+        String error;
+        CoordenadaDTO origen;
+        CoordenadaDTO destino;
+        Long clienteId;
+        Long contenedorId;
+
+        Fila(long numero) {
+            this.numero = numero;
+        }
+    }
+
+    /**
+     * Progreso de una importación; los contadores se leen desde otros requests mientras avanza
+     */
+    private static final class Importacion {
+        final String id;
+        final String formato;
+        final LocalDateTime fechaInicio = LocalDateTime.now();
+        volatile LocalDateTime fechaFin;
+        volatile String estado = "EN_CURSO";
+        volatile String mensaje;
+        final AtomicLong filasLeidas = new AtomicLong();
+        final AtomicLong creadas = new AtomicLong();
+        final AtomicLong conError = new AtomicLong();
+        final AtomicLong erroresOmitidos = new AtomicLong();
+        final List<ErrorImportacionDTO> errores = new ArrayList<>();
+
+        Importacion(String id, String formato) {
+            this.id = id;
+            this.formato = formato;
+        }
+
+        void registrarError(long fila, String error, int maxErrores) {
+            conError.incrementAndGet();
+            synchronized (errores) {
+                if (errores.size() < maxErrores) {
+                    errores.add(new ErrorImportacionDTO(fila, error));
+                    return;
+                }
+            }
+            erroresOmitidos.incrementAndGet();
+        }
+
+        void finalizar(String estadoFinal, String mensajeFinal) {
+            this.mensaje = mensajeFinal;
+            this.estado = estadoFinal;
+            this.fechaFin = LocalDateTime.now();
+        }
+
+        ImportacionDTO toDto(boolean conErrores) {
+            ImportacionDTO dto = new ImportacionDTO();
+            dto.setId(id);
+            dto.setFormato(formato);
+            dto.setEstado(estado);
+            dto.setFechaInicio(fechaInicio);
+            dto.setFechaFin(fechaFin);
+            dto.setFilasLeidas(filasLeidas.get());
+            dto.setCreadas(creadas.get());
+            dto.setConError(conError.get());
+            dto.setErroresOmitidos(erroresOmitidos.get());
+            dto.setMensaje(mensaje);
+            if (conErrores) {
+                synchronized (errores) {
+                    dto.setErrores(List.copyOf(errores));
+                }
+            }
+            return dto;
+        }
+    }
+
+    /**
+     * Determina el formato a partir del Content-Type del request
+     * @return CSV, NDJSON o null si no es un formato soportado
+     */
+    public static String formatoDe(String contentType) {
+        if (contentType == null) return null;
+        String tipo = contentType.toLowerCase(Locale.ROOT);
+        if (tipo.contains("csv")) return FORMATO_CSV;
+        if (tipo.contains("ndjson") || tipo.contains("jsonl") || tipo.contains("json-seq")) return FORMATO_NDJSON;
+        return null;
+    }
+}
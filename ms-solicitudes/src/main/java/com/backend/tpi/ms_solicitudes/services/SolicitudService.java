@@ -4,7 +4,6 @@ import com.backend.tpi.ms_solicitudes.dtos.CreateSolicitudDTO;
 import com.backend.tpi.ms_solicitudes.dtos.SolicitudDTO;
 import com.backend.tpi.ms_solicitudes.models.Solicitud;
 import com.backend.tpi.ms_solicitudes.repositories.SolicitudRepository;
-import com.backend.tpi.ms_solicitudes.repositories.EstadoSolicitudRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,10 +43,7 @@ public class SolicitudService {
     private EstadoTransicionService estadoTransicionService;
     
     @Autowired
-    private EstadoSolicitudRepository estadoSolicitudRepository;
-    
-    @Autowired
-    private com.backend.tpi.ms_solicitudes.repositories.EstadoContenedorRepository estadoContenedorRepository;
+    private CatalogoService catalogoService;
     
     @Autowired
     private GeocodificacionService geocodificacionService;
@@ -58,6 +54,12 @@ public class SolicitudService {
     @Autowired
     private com.backend.tpi.ms_solicitudes.services.ClienteService clienteService;
 
+    @Autowired
+    private com.backend.tpi.common.metricas.RegistroMetricas registroMetricas;
+
+    @Autowired
+    private io.micrometer.observation.ObservationRegistry observationRegistry;
+
     
 
     // Base URLs for other microservices (provide defaults for local/docker environment)
@@ -67,6 +69,10 @@ public class SolicitudService {
     @Value("${app.rutas.base-url:http://ms-rutas-transportistas:8082}")
     private String rutasBaseUrl;
 
+    // Plazo común para todas las llamadas paralelas de estimación de una ruta
+    @Value("${app.rutas.estimacion-timeout-ms:10000}")
+    private long estimacionTimeoutMs;
+
     // Manual mapping - removed ModelMapper dependency
 
     /**
@@ -181,7 +187,7 @@ public class SolicitudService {
                     // Cambiar estado del contenedor a OCUPADO cuando se asigna a una solicitud
                     try {
                         java.util.Optional<com.backend.tpi.ms_solicitudes.models.EstadoContenedor> estadoOcupado = 
-                            estadoContenedorRepository.findByNombre("OCUPADO");
+                            catalogoService.findEstadoContenedorByNombre("OCUPADO");
                         if (estadoOcupado.isPresent()) {
                             contenedorService.updateEstado(cont.getId(), estadoOcupado.get().getId());
                             logger.info("Estado del contenedor {} cambiado a OCUPADO", cont.getId());
@@ -199,7 +205,7 @@ public class SolicitudService {
                     // Asignar estado OCUPADO al nuevo contenedor
                     try {
                         java.util.Optional<com.backend.tpi.ms_solicitudes.models.EstadoContenedor> estadoOcupado = 
-                            estadoContenedorRepository.findByNombre("OCUPADO");
+                            catalogoService.findEstadoContenedorByNombre("OCUPADO");
                         if (estadoOcupado.isPresent()) {
                             nuevoCont.setEstado(estadoOcupado.get());
                         }
@@ -218,9 +224,9 @@ public class SolicitudService {
 
             // Asignar estado por defecto PENDIENTE (estado inicial de toda solicitud)
             try {
-                if (estadoSolicitudRepository != null) {
+                if (catalogoService != null) {
                     java.util.Optional<com.backend.tpi.ms_solicitudes.models.EstadoSolicitud> estadoPendiente = 
-                            estadoSolicitudRepository.findByNombre("PENDIENTE");
+                            catalogoService.findEstadoSolicitudByNombre("PENDIENTE");
                     if (estadoPendiente.isPresent()) {
                         solicitud.setEstado(estadoPendiente.get());
                         logger.info("Estado PENDIENTE asignado a la nueva solicitud - ID Estado: {}", estadoPendiente.get().getId());
@@ -236,6 +242,7 @@ public class SolicitudService {
             logger.info("Solicitud creada exitosamente con ID: {} - Estado: {}", 
                 solicitud.getId(), 
                 solicitud.getEstado() != null ? solicitud.getEstado().getNombre() : "null");
+            registroMetricas.incrementar("solicitudes.creadas", java.util.Map.of());
             return toDto(solicitud);
         }
 
@@ -439,7 +446,7 @@ public class SolicitudService {
             
             // Cambiar estado a PROGRAMADA cuando se asocia una ruta
             java.util.Optional<com.backend.tpi.ms_solicitudes.models.EstadoSolicitud> estadoProgramadaOpt =
-                    estadoSolicitudRepository.findByNombre("PROGRAMADA");
+                    catalogoService.findEstadoSolicitudByNombre("PROGRAMADA");
             if (estadoProgramadaOpt.isPresent()) {
                 solicitud.setEstado(estadoProgramadaOpt.get());
                 logger.info("Estado de solicitud cambiado a PROGRAMADA");
@@ -465,17 +472,75 @@ public class SolicitudService {
                         return new RuntimeException("Solicitud no encontrada con ID: " + solicitudId);
                     });
             
-            java.util.Optional<com.backend.tpi.ms_solicitudes.models.EstadoSolicitud> estadoOpt =
-                    estadoSolicitudRepository.findByNombre(nuevoEstado);
-            if (estadoOpt.isPresent()) {
-                solicitud.setEstado(estadoOpt.get());
-                logger.info("Estado cambiado a {}", estadoOpt.get().getNombre());
+            com.backend.tpi.ms_solicitudes.models.Estado destino = estadoTransicionService.resolverEstadoSolicitud(nuevoEstado);
+            if (destino != null) {
+                // Valida la transición y hace que el contenedor acompañe el cambio
+                estadoTransicionService.aplicarTransicion(solicitud, destino);
+                logger.info("Estado cambiado a {}", destino);
+            } else {
+                logger.warn("Estado desconocido '{}' - la solicitud {} mantiene su estado", nuevoEstado, solicitudId);
             }
-            
+
             solicitud = solicitudRepository.save(solicitud);
             return toDto(solicitud);
         }
 
+        /**
+         * Valida y aplica varios cambios de estado en una sola transacción
+         * Cada cambio se evalúa por separado: los inválidos se informan y no impiden aplicar el resto
+         * @param cambios Lista de (solicitudId, nuevoEstado)
+         * @param soloValidar true para solo informar qué cambios serían válidos, sin aplicarlos
+         * @return Resultado de cada cambio, en el mismo orden recibido
+         */
+        @org.springframework.transaction.annotation.Transactional
+        public List<com.backend.tpi.ms_solicitudes.dtos.ResultadoCambioEstadoDTO> cambiarEstados(
+                List<com.backend.tpi.ms_solicitudes.dtos.CambioEstadoDTO> cambios, boolean soloValidar) {
+            logger.info("Cambiando estado de {} solicitudes (soloValidar={})", cambios.size(), soloValidar);
+            java.util.Set<Long> ids = new java.util.HashSet<>();
+            for (com.backend.tpi.ms_solicitudes.dtos.CambioEstadoDTO cambio : cambios) {
+                if (cambio.getSolicitudId() != null) ids.add(cambio.getSolicitudId());
+            }
+            Map<Long, Solicitud> solicitudes = new HashMap<>();
+            for (Solicitud s : solicitudRepository.findAllById(ids)) {
+                solicitudes.put(s.getId(), s);
+            }
+
+            List<com.backend.tpi.ms_solicitudes.dtos.ResultadoCambioEstadoDTO> resultados = new java.util.ArrayList<>(cambios.size());
+            java.util.Set<Solicitud> modificadas = new java.util.LinkedHashSet<>();
+            int aplicados = 0;
+            for (com.backend.tpi.ms_solicitudes.dtos.CambioEstadoDTO cambio : cambios) {
+                com.backend.tpi.ms_solicitudes.dtos.ResultadoCambioEstadoDTO resultado = new com.backend.tpi.ms_solicitudes.dtos.ResultadoCambioEstadoDTO();
+                resultado.setSolicitudId(cambio.getSolicitudId());
+                Solicitud solicitud = solicitudes.get(cambio.getSolicitudId());
+                if (solicitud == null) {
+                    resultado.setError("Solicitud no encontrada con ID: " + cambio.getSolicitudId());
+                    resultados.add(resultado);
+                    continue;
+                }
+                resultado.setEstadoAnterior(solicitud.getEstado() != null ? solicitud.getEstado().getNombre() : null);
+                com.backend.tpi.ms_solicitudes.models.Estado destino = estadoTransicionService.resolverEstadoSolicitud(cambio.getNuevoEstado());
+                String motivo = estadoTransicionService.verificarTransicion(solicitud, destino);
+                if (motivo != null) {
+                    resultado.setError(destino == null ? "Estado desconocido: " + cambio.getNuevoEstado() : motivo);
+                } else {
+                    resultado.setValido(true);
+                    resultado.setEstadoNuevo(destino.name());
+                    if (!soloValidar) {
+                        estadoTransicionService.aplicarTransicion(solicitud, destino);
+                        modificadas.add(solicitud);
+                        aplicados++;
+                    }
+                }
+                resultados.add(resultado);
+            }
+
+            if (!modificadas.isEmpty()) {
+                solicitudRepository.saveAll(modificadas);
+            }
+            logger.info("Cambio masivo de estado: {} aplicados de {} pedidos", aplicados, cambios.size());
+            return resultados;
+        }
+
         // ----- Integration points (basic implementations) -----
         /**
          * Solicita una ruta al microservicio ms-rutas-transportistas para la solicitud indicada
@@ -506,110 +571,14 @@ public class SolicitudService {
                 logger.info("Ruta solicitada exitosamente para solicitud ID: {}", solicitudId);
 
                 Map<String, Object> rutaBody = rutasResp != null ? rutasResp.getBody() : null;
-                // Adjuntar estimaciones de costo/tiempo si es posible
-                try {
-                    Object estimacion = calculatePrice(solicitudId);
-                    if (estimacion != null && rutaBody != null) {
-                        if (estimacion instanceof com.backend.tpi.ms_solicitudes.dtos.CostoResponseDTO) {
-                            com.backend.tpi.ms_solicitudes.dtos.CostoResponseDTO c = (com.backend.tpi.ms_solicitudes.dtos.CostoResponseDTO) estimacion;
-                            rutaBody.put("costoEstimado", c.getCostoTotal());
-                            rutaBody.put("tiempoEstimado", c.getTiempoEstimado());
-                        } else if (estimacion instanceof java.util.Map) {
-                            @SuppressWarnings("unchecked")
-                            java.util.Map<String, Object> m = (java.util.Map<String, Object>) estimacion;
-                            if (m.get("precio") != null) rutaBody.put("costoEstimado", m.get("precio"));
-                            if (m.get("tiempo") != null) rutaBody.put("tiempoEstimado", m.get("tiempo"));
-                            // También soportar claves alternativas
-                            if (m.get("costo") != null) rutaBody.putIfAbsent("costoEstimado", m.get("costo"));
-                            if (m.get("tiempoEstimado") != null) rutaBody.putIfAbsent("tiempoEstimado", m.get("tiempoEstimado"));
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.warn("No se pudo obtener estimación de costo/tiempo para solicitud {}: {}", solicitudId, e.getMessage());
-                }
-
-                // Si la ruta contiene tramos, intentar estimar costo/distancia por cada tramo
-                try {
-                    if (rutaBody != null && rutaBody.get("tramos") instanceof java.util.List) {
-                        @SuppressWarnings("unchecked")
-                        java.util.List<java.util.Map<String, Object>> tramos = (java.util.List<java.util.Map<String, Object>>) rutaBody.get("tramos");
-                        for (java.util.Map<String, Object> tramo : tramos) {
-                            try {
-                                // Intentar extraer origen/destino del tramo en varias formas
-                                String origenStr = null;
-                                String destinoStr = null;
-
-                                // 1) claves lat/lon
-                                if (tramo.get("origenLat") != null && tramo.get("origenLong") != null && tramo.get("destinoLat") != null && tramo.get("destinoLong") != null) {
-                                    origenStr = tramo.get("origenLat").toString() + "," + tramo.get("origenLong").toString();
-                                    destinoStr = tramo.get("destinoLat").toString() + "," + tramo.get("destinoLong").toString();
-                                }
-                                // 2) claves 'origen'/'destino' como strings
-                                if ((origenStr == null || destinoStr == null) && tramo.get("origen") != null && tramo.get("destino") != null) {
-                                    origenStr = tramo.get("origen").toString();
-                                    destinoStr = tramo.get("destino").toString();
-                                }
-                                // 3) keys start/end
-                                if ((origenStr == null || destinoStr == null) && tramo.get("start") != null && tramo.get("end") != null) {
-                                    origenStr = tramo.get("start").toString();
-                                    destinoStr = tramo.get("end").toString();
-                                }
-
-                                if (origenStr != null && destinoStr != null) {
-                                    java.util.Map<String, Object> estimTramo = calculatePriceBetween(origenStr, destinoStr);
-                                    if (estimTramo != null) {
-                                        // adjuntar valores al tramo (respuesta transitoria)
-                                        if (estimTramo.get("precio") != null) tramo.put("costoEstimadoTramo", estimTramo.get("precio"));
-                                        if (estimTramo.get("distancia") != null) tramo.put("distanciaTramo", estimTramo.get("distancia"));
-
-                                        // Persistir en ms-rutas solo si se pidió explícitamente
-                                        if (persistEstimates) {
-                                            try {
-                                                // Intentar persistir usando PATCH /api/v1/tramos/{id}
-                                                Object idObj = tramo.get("id");
-                                                if (idObj != null) {
-                                                    Long tramoId;
-                                                    if (idObj instanceof Number) tramoId = ((Number) idObj).longValue();
-                                                    else tramoId = Long.valueOf(idObj.toString());
-
-                                                    java.util.Map<String, Object> persistBody = new java.util.HashMap<>();
-                                                    if (estimTramo.get("precio") != null) persistBody.put("costoEstimado", estimTramo.get("precio"));
-                                                    if (estimTramo.get("distancia") != null) persistBody.put("distancia", estimTramo.get("distancia"));
-
-                                                    try {
-                                                        rutasClient.patch()
-                                                            .uri("/api/v1/tramos/" + tramoId)
-                                                            .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                                                            .body(persistBody)
-                                                            .retrieve()
-                                                            .toEntity(Object.class);
-                                                    } catch (Exception patchEx) {
-                                                        // Fallback: intentar POST /api/v1/tramos/{id}/estimaciones
-                                                        try {
-                                                            rutasClient.post()
-                                                                .uri("/api/v1/tramos/" + tramoId + "/estimaciones")
-                                                                .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                                                                .body(persistBody)
-                                                                .retrieve()
-                                                                .toEntity(Object.class);
-                                                        } catch (Exception postEx) {
-                                                            logger.warn("No se pudo persistir estimaciones para tramo {} en ms-rutas: {} / {}", tramoId, patchEx.getMessage(), postEx.getMessage());
-                                                        }
-                                                    }
-                                                }
-                                            } catch (Exception persistEx) {
-                                                logger.warn("Error persistiendo estimación de tramo para solicitud {}: {}", solicitudId, persistEx.getMessage());
-                                            }
-                                        }
-                                    }
-                                }
-                            } catch (Exception exTramo) {
-                                logger.warn("No se pudo estimar tramo en ruta solicitud {}: {}", solicitudId, exTramo.getMessage());
-                            }
-                        }
+                // Estimaciones globales y por tramo en paralelo sobre hilos virtuales:
+                // la latencia total queda acotada por el tramo más lento, no por la suma de todos
+                if (rutaBody != null) {
+                    try {
+                        estimarRutaEnParalelo(solicitudId, rutaBody, token, persistEstimates);
+                    } catch (Exception e) {
+                        logger.warn("Error calculando estimaciones por tramo para solicitud {}: {}", solicitudId, e.getMessage());
                     }
-                } catch (Exception e) {
-                    logger.warn("Error calculando estimaciones por tramo para solicitud {}: {}", solicitudId, e.getMessage());
                 }
 
                 return rutaBody;
@@ -830,29 +799,33 @@ public class SolicitudService {
                     });
         
             // Obtener el estado destino
-            com.backend.tpi.ms_solicitudes.models.EstadoSolicitud estadoDestino = estadoSolicitudRepository.findById(estadoId)
+            com.backend.tpi.ms_solicitudes.models.EstadoSolicitud estadoDestino = catalogoService.findEstadoSolicitudById(estadoId)
                 .orElseThrow(() -> {
                     logger.error("Estado no encontrado con ID: {}", estadoId);
                     return new IllegalArgumentException("Estado no encontrado con ID: " + estadoId);
                 });
             
-            // Validar transición si hay estado actual
-            if (solicitud.getEstado() != null) {
-                String estadoOrigenNombre = solicitud.getEstado().getNombre();
-                String estadoDestinoNombre = estadoDestino.getNombre();
-                
-                if (!estadoTransicionService.esTransicionSolicitudValida(estadoOrigenNombre, estadoDestinoNombre)) {
-                    logger.error("Transición de estado inválida de {} a {}", estadoOrigenNombre, estadoDestinoNombre);
-                    throw new IllegalStateException(
-                        String.format("No se puede cambiar el estado de '%s' a '%s'. Transición no permitida.", 
-                            estadoOrigenNombre, estadoDestinoNombre)
-                    );
+            com.backend.tpi.ms_solicitudes.models.Estado destino = estadoTransicionService.estadoDe(estadoDestino);
+            if (destino != null) {
+                // Valida la transición (tabla compilada + guardas) y ejecuta las acciones asociadas
+                estadoTransicionService.aplicarTransicion(solicitud, destino);
+            } else {
+                // Estado fuera de la máquina de estados: validar por nombre si hay estado actual
+                if (solicitud.getEstado() != null) {
+                    String estadoOrigenNombre = solicitud.getEstado().getNombre();
+                    String estadoDestinoNombre = estadoDestino.getNombre();
+
+                    if (!estadoTransicionService.esTransicionSolicitudValida(estadoOrigenNombre, estadoDestinoNombre)) {
+                        logger.error("Transición de estado inválida de {} a {}", estadoOrigenNombre, estadoDestinoNombre);
+                        throw new IllegalStateException(
+                            String.format("No se puede cambiar el estado de '%s' a '%s'. Transición no permitida.",
+                                estadoOrigenNombre, estadoDestinoNombre)
+                        );
+                    }
                 }
-                logger.debug("Transición válida de {} a {}", estadoOrigenNombre, estadoDestinoNombre);
+                solicitud.setEstado(estadoDestino);
             }
-            
-            solicitud.setEstado(estadoDestino);
-        
+
             solicitud = solicitudRepository.save(solicitud);
             logger.info("Estado de solicitud ID: {} actualizado exitosamente", id);
             return toDto(solicitud);
@@ -980,57 +953,241 @@ public class SolicitudService {
     }
 
     /**
-     * Calcula precio y distancia entre dos puntos (origen,destino) usando ms-gestion-calculos
+     * Calcula las estimaciones de una ruta recién creada con todas las llamadas remotas en paralelo.
+     * Cada tarea corre en su propio hilo virtual dentro de un ámbito acotado por el try-with-resources:
+     * ninguna sobrevive al método y las que exceden el plazo se cancelan.
+     * La tarifa se consulta una sola vez y se comparte entre todos los tramos; si se pidió persistir,
+     * las estimaciones se envían a ms-rutas en un único PATCH por ruta (o uno por tramo si ms-rutas no lo acepta).
+     * @param solicitudId ID de la solicitud
+     * @param rutaBody Respuesta de ms-rutas; se le adjuntan las estimaciones
+     * @param token Token del usuario (los hilos virtuales reciben además el contexto de seguridad)
+     * @param persistEstimates Si true, guarda las estimaciones por tramo en ms-rutas
+     */
+    private void estimarRutaEnParalelo(Long solicitudId, Map<String, Object> rutaBody, String token, boolean persistEstimates) {
+        List<Map<String, Object>> tramos = new java.util.ArrayList<>();
+        if (rutaBody.get("tramos") instanceof List<?> lista) {
+            for (Object t : lista) {
+                if (t instanceof Map<?, ?>) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> tramo = (Map<String, Object>) t;
+                    tramos.add(tramo);
+                }
+            }
+        }
+
+        long limite = System.nanoTime() + java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(estimacionTimeoutMs);
+        List<Map<String, Object>> estimaciones = new java.util.ArrayList<>();
+        try (java.util.concurrent.ExecutorService ambito = new org.springframework.security.concurrent.DelegatingSecurityContextExecutorService(
+                java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor())) {
+            try {
+                java.util.concurrent.Future<Object> estimacionGlobal = ambito.submit(enTraza(() -> calculatePrice(solicitudId)));
+                java.util.concurrent.Future<Double> tarifa = ambito.submit(enTraza(() -> obtenerPrecioPorKm(token)));
+                List<java.util.concurrent.Future<Map<String, Object>>> distancias = new java.util.ArrayList<>(tramos.size());
+                for (Map<String, Object> tramo : tramos) {
+                    String[] extremos = extremosTramo(tramo);
+                    distancias.add(extremos == null ? null : ambito.submit(enTraza(() -> calcularDistancia(extremos[0], extremos[1], token))));
+                }
+
+                adjuntarEstimacionGlobal(rutaBody, esperar(estimacionGlobal, limite, "estimación de la solicitud " + solicitudId));
+                Double precioPorKm = esperar(tarifa, limite, "tarifas");
+
+                for (int i = 0; i < tramos.size(); i++) {
+                    Map<String, Object> tramo = tramos.get(i);
+                    Map<String, Object> distanciaResp = esperar(distancias.get(i), limite, "distancia de tramo " + tramo.get("id"));
+                    if (distanciaResp == null) continue;
+                    Double distancia = numero(distanciaResp.get("distancia"));
+                    Double duracionMin = numero(distanciaResp.get("duracion"));
+                    Double precio = distancia != null && precioPorKm != null ? distancia * precioPorKm : null;
+                    // adjuntar valores al tramo (respuesta transitoria)
+                    if (precio != null) tramo.put("costoEstimadoTramo", precio);
+                    if (distancia != null) tramo.put("distanciaTramo", distancia);
+
+                    Double tramoId = numero(tramo.get("id"));
+                    if (persistEstimates && tramoId != null && (precio != null || distancia != null)) {
+                        Map<String, Object> item = new HashMap<>();
+                        item.put("tramoId", tramoId.longValue());
+                        item.put("costoEstimado", precio);
+                        item.put("distancia", distancia);
+                        // ms-gestion-calculos devuelve minutos; ms-rutas guarda horas
+                        item.put("duracion", duracionMin != null ? duracionMin / 60.0 : null);
+                        estimaciones.add(item);
+                    }
+                }
+            } finally {
+                // Cancelar lo que haya quedado pendiente por exceder el plazo
+                ambito.shutdownNow();
+            }
+        }
+
+        Double rutaId = numero(rutaBody.get("id"));
+        if (!estimaciones.isEmpty() && rutaId != null) {
+            persistirEstimaciones(rutaId.longValue(), estimaciones, token);
+        }
+    }
+
+    /**
+     * Ejecuta la tarea dentro de la traza de la request actual (las llamadas en paralelo se ven como hijas)
+     */
+    private <T> java.util.concurrent.Callable<T> enTraza(java.util.concurrent.Callable<T> tarea) {
+        return com.backend.tpi.common.trazas.ManejadorTrazas.enContexto(observationRegistry, tarea);
+    }
+
+    /**
+     * Espera el resultado de una tarea hasta el plazo común del ámbito
+     * @return Resultado de la tarea, o null si falló, se canceló o venció el plazo
+     */
+    private <T> T esperar(java.util.concurrent.Future<T> tarea, long limiteNanos, String descripcion) {
+        if (tarea == null) return null;
+        try {
+            return tarea.get(Math.max(0L, limiteNanos - System.nanoTime()), java.util.concurrent.TimeUnit.NANOSECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            tarea.cancel(true);
+            logger.warn("Plazo de {} ms excedido esperando {}", estimacionTimeoutMs, descripcion);
+        } catch (java.util.concurrent.ExecutionException e) {
+            Throwable causa = e.getCause() != null ? e.getCause() : e;
+            logger.warn("No se pudo obtener {}: {}", descripcion, causa.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tarea.cancel(true);
+        }
+        return null;
+    }
+
+    /**
+     * Adjunta costoEstimado/tiempoEstimado de la solicitud completa a la respuesta de la ruta
+     */
+    private void adjuntarEstimacionGlobal(Map<String, Object> rutaBody, Object estimacion) {
+        if (estimacion instanceof com.backend.tpi.ms_solicitudes.dtos.CostoResponseDTO c) {
+            rutaBody.put("costoEstimado", c.getCostoTotal());
+            rutaBody.put("tiempoEstimado", c.getTiempoEstimado());
+        } else if (estimacion instanceof Map<?, ?> m) {
+            if (m.get("precio") != null) rutaBody.put("costoEstimado", m.get("precio"));
+            if (m.get("tiempo") != null) rutaBody.put("tiempoEstimado", m.get("tiempo"));
+            // También soportar claves alternativas
+            if (m.get("costo") != null) rutaBody.putIfAbsent("costoEstimado", m.get("costo"));
+            if (m.get("tiempoEstimado") != null) rutaBody.putIfAbsent("tiempoEstimado", m.get("tiempoEstimado"));
+        }
+    }
+
+    /**
+     * Extrae origen y destino de un tramo en cualquiera de los formatos que devuelve ms-rutas
+     * @return {origen, destino} o null si el tramo no los informa
+     */
+    private String[] extremosTramo(Map<String, Object> tramo) {
+        // 1) claves lat/lon
+        if (tramo.get("origenLat") != null && tramo.get("origenLong") != null && tramo.get("destinoLat") != null && tramo.get("destinoLong") != null) {
+            return new String[] {
+                tramo.get("origenLat") + "," + tramo.get("origenLong"),
+                tramo.get("destinoLat") + "," + tramo.get("destinoLong")
+            };
+        }
+        // 2) claves 'origen'/'destino' como strings
+        if (tramo.get("origen") != null && tramo.get("destino") != null) {
+            return new String[] { tramo.get("origen").toString(), tramo.get("destino").toString() };
+        }
+        // 3) keys start/end
+        if (tramo.get("start") != null && tramo.get("end") != null) {
+            return new String[] { tramo.get("start").toString(), tramo.get("end").toString() };
+        }
+        return null;
+    }
+
+    private static Double numero(Object valor) {
+        if (valor instanceof Number n) return n.doubleValue();
+        if (valor == null) return null;
+        try {
+            return Double.valueOf(valor.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calcula la distancia entre dos puntos usando ms-gestion-calculos
      * @param origen formato "lat,lon" o dirección de texto
      * @param destino formato "lat,lon" o dirección de texto
-     * @return mapa con keys: distancia (Double), precio (Double), precioPorKm (Double) o null si falla
+     * @return respuesta con keys distancia (km) y duracion (minutos)
      */
-    private java.util.Map<String, Object> calculatePriceBetween(String origen, String destino) {
-        try {
-            if (origen == null || destino == null) return null;
-            Map<String, String> distanciaReq = new HashMap<>();
-            distanciaReq.put("origen", origen);
-            distanciaReq.put("destino", destino);
+    private Map<String, Object> calcularDistancia(String origen, String destino, String token) {
+        Map<String, String> distanciaReq = new HashMap<>();
+        distanciaReq.put("origen", origen);
+        distanciaReq.put("destino", destino);
+        ResponseEntity<Map<String, Object>> distanciaEntity = calculosClient.post()
+            .uri("/api/v1/gestion/distancia")
+            .headers(h -> { if (token != null) h.setBearerAuth(token); })
+            .body(distanciaReq)
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<Map<String, Object>>() {});
+        return distanciaEntity != null ? distanciaEntity.getBody() : null;
+    }
 
-            String token = extractBearerToken();
-            ResponseEntity<Map<String, Object>> distanciaEntity = calculosClient.post()
-                .uri("/api/v1/gestion/distancia")
-                .headers(h -> { if (token != null) h.setBearerAuth(token); })
-                .body(distanciaReq)
-                .retrieve()
-                .toEntity(new ParameterizedTypeReference<Map<String, Object>>() {});
-            Map<String, Object> distanciaResp = distanciaEntity != null ? distanciaEntity.getBody() : null;
-            Double distancia = null;
-            if (distanciaResp != null && distanciaResp.get("distancia") instanceof Number) {
-                distancia = ((Number) distanciaResp.get("distancia")).doubleValue();
-            }
+    /**
+     * Obtiene el precio por km vigente (primera tarifa) de ms-gestion-calculos
+     * @return precio por km, o null si no hay tarifas
+     */
+    private Double obtenerPrecioPorKm(String token) {
+        ResponseEntity<List<Map<String, Object>>> tarifasEntity = calculosClient.get()
+            .uri("/api/v1/tarifas")
+            .headers(h -> { if (token != null) h.setBearerAuth(token); })
+            .retrieve()
+            .toEntity(new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+        List<Map<String, Object>> tarifas = tarifasEntity != null ? tarifasEntity.getBody() : null;
+        if (tarifas == null || tarifas.isEmpty()) return null;
+        Object maybePrecio = tarifas.get(0).get("precioPorKm");
+        return maybePrecio instanceof Number ? ((Number) maybePrecio).doubleValue() : null;
+    }
 
-            ResponseEntity<java.util.List<java.util.Map<String, Object>>> tarifasEntity = calculosClient.get()
-                .uri("/api/v1/tarifas")
+    /**
+     * Persiste las estimaciones de todos los tramos de una ruta en un único PATCH a ms-rutas
+     * @param rutaId ID de la ruta
+     * @param estimaciones Items {tramoId, costoEstimado, distancia, duracion}
+     */
+    private void persistirEstimaciones(Long rutaId, List<Map<String, Object>> estimaciones, String token) {
+        try {
+            ResponseEntity<List<Map<String, Object>>> resp = rutasClient.patch()
+                .uri("/api/v1/rutas/" + rutaId + "/tramos")
                 .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                .body(estimaciones)
                 .retrieve()
-                .toEntity(new ParameterizedTypeReference<java.util.List<java.util.Map<String, Object>>>() {});
-            java.util.List<java.util.Map<String, Object>> tarifas = tarifasEntity != null ? tarifasEntity.getBody() : null;
-
-            Double precioPorKm = null;
-            if (tarifas != null && !tarifas.isEmpty()) {
-                Object maybePrecio = tarifas.get(0).get("precioPorKm");
-                if (maybePrecio instanceof Number) precioPorKm = ((Number) maybePrecio).doubleValue();
-            }
-
-            java.util.Map<String, Object> result = new java.util.HashMap<>();
-            result.put("distancia", distancia);
-            if (distancia != null && precioPorKm != null) {
-                result.put("precio", distancia * precioPorKm);
-                result.put("precioPorKm", precioPorKm);
+                .toEntity(new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+            List<Map<String, Object>> resultados = resp != null ? resp.getBody() : null;
+            long rechazados = resultados == null ? 0 : resultados.stream()
+                .filter(r -> !Boolean.TRUE.equals(r.get("actualizado")))
+                .count();
+            if (rechazados > 0) {
+                logger.warn("ms-rutas rechazó {} de {} estimaciones de la ruta {}", rechazados, estimaciones.size(), rutaId);
             } else {
-                result.put("precio", null);
-                result.put("precioPorKm", precioPorKm);
+                logger.info("Estimaciones de {} tramos persistidas en la ruta {}", estimaciones.size(), rutaId);
             }
-            return result;
+        } catch (org.springframework.web.client.HttpClientErrorException.NotFound
+                 | org.springframework.web.client.HttpClientErrorException.MethodNotAllowed e) {
+            // ms-rutas sin PATCH /rutas/{id}/tramos (versión anterior durante un despliegue): un PATCH por tramo
+            logger.info("ms-rutas no acepta estimaciones por ruta ({}); se envían por tramo", e.getStatusCode());
+            persistirEstimacionesPorTramo(estimaciones, token);
         } catch (Exception e) {
-            logger.warn("Error al calcular precio entre {} y {}: {}", origen, destino, e.getMessage());
-            return null;
+            logger.warn("No se pudieron persistir las estimaciones de la ruta {} en ms-rutas: {}", rutaId, e.getMessage());
+        }
+    }
+
+    /**
+     * Persiste las estimaciones con un PATCH /api/v1/tramos/{id} por tramo (ms-rutas sin el PATCH por ruta)
+     */
+    private void persistirEstimacionesPorTramo(List<Map<String, Object>> estimaciones, String token) {
+        for (Map<String, Object> item : estimaciones) {
+            Object tramoId = item.get("tramoId");
+            Map<String, Object> persistBody = new HashMap<>();
+            if (item.get("costoEstimado") != null) persistBody.put("costoEstimado", item.get("costoEstimado"));
+            if (item.get("distancia") != null) persistBody.put("distancia", item.get("distancia"));
+            try {
+                rutasClient.patch()
+                    .uri("/api/v1/tramos/" + tramoId)
+                    .headers(h -> { if (token != null) h.setBearerAuth(token); })
+                    .body(persistBody)
+                    .retrieve()
+                    .toEntity(Object.class);
+            } catch (Exception e) {
+                logger.warn("No se pudo persistir estimaciones para tramo {} en ms-rutas: {}", tramoId, e.getMessage());
+            }
         }
     }
 
@@ -0,0 +1,171 @@
+package com.backend.tpi.ms_solicitudes.services;
+
+import com.backend.tpi.ms_solicitudes.models.Contenedor;
+import com.backend.tpi.ms_solicitudes.models.Estado;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedor;
+import com.backend.tpi.ms_solicitudes.models.EstadoContenedorTipo;
+import com.backend.tpi.ms_solicitudes.models.EstadoSolicitud;
+import com.backend.tpi.ms_solicitudes.models.Solicitud;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class EstadoTransicionServiceTest {
+
+    @InjectMocks
+    private EstadoTransicionService estadoTransicionService;
+
+    @Mock
+    private CatalogoService catalogoService;
+
+    @BeforeEach
+    public void setUp() {
+        estadoTransicionService.registrarReglas();
+        lenient().when(catalogoService.findEstadoSolicitudByNombre(anyString())).thenAnswer(i -> {
+            EstadoSolicitud estado = new EstadoSolicitud();
+            estado.setNombre(i.getArgument(0));
+            return Optional.of(estado);
+        });
+        lenient().when(catalogoService.findEstadoContenedorByNombre(anyString())).thenAnswer(i -> {
+            EstadoContenedor estado = new EstadoContenedor();
+            estado.setNombre(i.getArgument(0));
+            return Optional.of(estado);
+        });
+    }
+
+    @Test
+    public void tablaSolicitud_soloPermiteLasTransicionesDefinidas() {
+        assertTabla(Estado.PENDIENTE, EnumSet.of(Estado.PROGRAMADA, Estado.CANCELADA));
+        assertTabla(Estado.PROGRAMADA, EnumSet.of(Estado.EN_TRANSITO, Estado.CANCELADA));
+        assertTabla(Estado.EN_TRANSITO, EnumSet.of(Estado.COMPLETADA, Estado.PROGRAMADA));
+        // Estados finales
+        assertTabla(Estado.COMPLETADA, EnumSet.noneOf(Estado.class));
+        assertTabla(Estado.CANCELADA, EnumSet.noneOf(Estado.class));
+    }
+
+    @Test
+    public void tablaContenedor_soloPermiteLasTransicionesDefinidas() {
+        assertTablaContenedor(EstadoContenedorTipo.LIBRE, EnumSet.of(EstadoContenedorTipo.OCUPADO));
+        assertTablaContenedor(EstadoContenedorTipo.OCUPADO, EnumSet.of(EstadoContenedorTipo.EN_TRANSITO, EstadoContenedorTipo.LIBRE));
+        assertTablaContenedor(EstadoContenedorTipo.EN_TRANSITO, EnumSet.of(EstadoContenedorTipo.EN_DEPOSITO, EstadoContenedorTipo.ENTREGADO));
+        assertTablaContenedor(EstadoContenedorTipo.EN_DEPOSITO, EnumSet.of(EstadoContenedorTipo.EN_TRANSITO));
+        assertTablaContenedor(EstadoContenedorTipo.ENTREGADO, EnumSet.of(EstadoContenedorTipo.LIBRE));
+    }
+
+    @Test
+    public void transicionPorNombre_ignoraMayusculasYEspacios() {
+        assertTrue(estadoTransicionService.esTransicionSolicitudValida("programada", "en transito"));
+        assertTrue(estadoTransicionService.esTransicionContenedorValida("En Transito", "EN_DEPOSITO"));
+        // Mismo estado: no hay cambio
+        assertTrue(estadoTransicionService.esTransicionSolicitudValida("COMPLETADA", "completada"));
+        assertFalse(estadoTransicionService.esTransicionSolicitudValida("PENDIENTE", "EN_TRANSITO"));
+        assertFalse(estadoTransicionService.esTransicionSolicitudValida("DESCONOCIDO", "PROGRAMADA"));
+        assertFalse(estadoTransicionService.esTransicionSolicitudValida(null, "PROGRAMADA"));
+        assertEquals(Estado.EN_TRANSITO, estadoTransicionService.resolverEstadoSolicitud("en transito"));
+        assertNull(estadoTransicionService.resolverEstadoContenedor("EN-DEPOSITO"));
+    }
+
+    @Test
+    public void estadosPermitidos_devuelveLosDestinosDeLaTabla() {
+        assertEquals(List.of("PROGRAMADA", "CANCELADA"), estadoTransicionService.getEstadosPermitidosSolicitud("pendiente"));
+        assertEquals(List.of(), estadoTransicionService.getEstadosPermitidosSolicitud("CANCELADA"));
+        assertEquals(List.of("EN_TRANSITO", "LIBRE"), estadoTransicionService.getEstadosPermitidosContenedor("OCUPADO"));
+        assertEquals(List.of(), estadoTransicionService.getEstadosPermitidosContenedor("INEXISTENTE"));
+    }
+
+    @Test
+    public void aplicarTransicion_mismoEstado_noHaceNada() {
+        Solicitud solicitud = solicitud(Estado.EN_TRANSITO, EstadoContenedorTipo.EN_TRANSITO);
+        EstadoSolicitud antes = solicitud.getEstado();
+
+        estadoTransicionService.aplicarTransicion(solicitud, Estado.EN_TRANSITO);
+
+        assertEquals(antes, solicitud.getEstado());
+    }
+
+    @Test
+    public void aplicarTransicion_noPermitida_lanzaIllegalState() {
+        Solicitud solicitud = solicitud(Estado.COMPLETADA, EstadoContenedorTipo.ENTREGADO);
+
+        assertThrows(IllegalStateException.class, () -> estadoTransicionService.aplicarTransicion(solicitud, Estado.EN_TRANSITO));
+        assertEquals("COMPLETADA", solicitud.getEstado().getNombre());
+    }
+
+    @Test
+    public void cancelar_conContenedorEnViaje_esRechazadoPorLaGuarda() {
+        Solicitud solicitud = solicitud(Estado.PROGRAMADA, EstadoContenedorTipo.EN_TRANSITO);
+
+        assertNotNull(estadoTransicionService.verificarTransicion(solicitud, Estado.CANCELADA));
+        assertThrows(IllegalStateException.class, () -> estadoTransicionService.aplicarTransicion(solicitud, Estado.CANCELADA));
+        assertEquals("PROGRAMADA", solicitud.getEstado().getNombre());
+    }
+
+    @Test
+    public void aplicarTransicion_elContenedorAcompanaALaSolicitud() {
+        Solicitud solicitud = solicitud(Estado.PROGRAMADA, EstadoContenedorTipo.OCUPADO);
+
+        estadoTransicionService.aplicarTransicion(solicitud, Estado.EN_TRANSITO);
+
+        assertEquals("EN_TRANSITO", solicitud.getEstado().getNombre());
+        assertEquals("EN_TRANSITO", solicitud.getContenedor().getEstado().getNombre());
+    }
+
+    @Test
+    public void aplicarTransicion_contenedorSinTransicionValida_seMantiene() {
+        // Un contenedor LIBRE no puede pasar directo a ENTREGADO: la solicitud se completa igual
+        Solicitud solicitud = solicitud(Estado.EN_TRANSITO, EstadoContenedorTipo.LIBRE);
+
+        estadoTransicionService.aplicarTransicion(solicitud, Estado.COMPLETADA);
+
+        assertEquals("COMPLETADA", solicitud.getEstado().getNombre());
+        assertEquals("LIBRE", solicitud.getContenedor().getEstado().getNombre());
+    }
+
+    private void assertTabla(Estado origen, Set<Estado> permitidos) {
+        for (Estado destino : Estado.values()) {
+            boolean esperado = destino == origen || permitidos.contains(destino);
+            assertEquals(esperado, estadoTransicionService.esTransicionSolicitudValida(origen, destino), origen + " -> " + destino);
+            assertEquals(esperado, estadoTransicionService.esTransicionSolicitudValida(origen.name(), destino.name()), origen + " -> " + destino);
+        }
+    }
+
+    private void assertTablaContenedor(EstadoContenedorTipo origen, Set<EstadoContenedorTipo> permitidos) {
+        for (EstadoContenedorTipo destino : EstadoContenedorTipo.values()) {
+            boolean esperado = destino == origen || permitidos.contains(destino);
+            assertEquals(esperado, estadoTransicionService.esTransicionContenedorValida(origen, destino), origen + " -> " + destino);
+            assertEquals(esperado, estadoTransicionService.esTransicionContenedorValida(origen.name(), destino.name()), origen + " -> " + destino);
+        }
+    }
+
+    private static Solicitud solicitud(Estado estado, EstadoContenedorTipo estadoContenedor) {
+        EstadoSolicitud estadoSolicitud = new EstadoSolicitud();
+        estadoSolicitud.setNombre(estado.name());
+        EstadoContenedor estadoDelContenedor = new EstadoContenedor();
+        estadoDelContenedor.setNombre(estadoContenedor.name());
+        Contenedor contenedor = new Contenedor();
+        contenedor.setEstado(estadoDelContenedor);
+        Solicitud solicitud = new Solicitud();
+        solicitud.setId(1L);
+        solicitud.setEstado(estadoSolicitud);
+        solicitud.setContenedor(contenedor);
+        return solicitud;
+    }
+}
@@ -0,0 +1,71 @@
+package com.backend.tpi.ms_solicitudes.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ImportacionServiceTest {
+
+    private static BufferedReader lector(String csv) {
+        return new BufferedReader(new StringReader(csv));
+    }
+
+    @Test
+    public void leerRegistroCsv_camposSimples() throws IOException {
+        BufferedReader lector = lector("a,b,c\r\nd,,f\n");
+
+        assertEquals(List.of("a", "b", "c"), ImportacionService.leerRegistroCsv(lector));
+        assertEquals(List.of("d", "", "f"), ImportacionService.leerRegistroCsv(lector));
+        assertNull(ImportacionService.leerRegistroCsv(lector));
+    }
+
+    @Test
+    public void leerRegistroCsv_comillasConComaEscapeYSaltoDeLinea() throws IOException {
+        BufferedReader lector = lector("\"Av. Colón 123, Córdoba\",\"dijo \"\"hola\"\"\",\"línea 1\nlínea 2\"\nx,y");
+
+        assertEquals(List.of("Av. Colón 123, Córdoba", "dijo \"hola\"", "línea 1\nlínea 2"),
+                ImportacionService.leerRegistroCsv(lector));
+        assertEquals(List.of("x", "y"), ImportacionService.leerRegistroCsv(lector));
+        assertNull(ImportacionService.leerRegistroCsv(lector));
+    }
+
+    @Test
+    public void leerRegistroCsv_comillaAlFinalDelArchivo() throws IOException {
+        BufferedReader lector = lector("\"a\",\"b\"");
+
+        assertEquals(List.of("a", "b"), ImportacionService.leerRegistroCsv(lector));
+        assertNull(ImportacionService.leerRegistroCsv(lector));
+    }
+
+    @Test
+    public void leerRegistroCsv_archivoVacio() throws IOException {
+        assertNull(ImportacionService.leerRegistroCsv(lector("")));
+    }
+
+    @Test
+    public void columnasCsv_ordenLibreSinDistinguirMayusculasEIgnorandoDesconocidas() {
+        int[] columnas = ImportacionService.columnasCsv(
+                List.of("clienteEmail", " DIRECCIONDESTINO ", "notas", "direccionOrigen", "contenedorPeso"));
+
+        assertArrayEquals(new int[] { 3, 1, -1, 0, 6 }, columnas);
+    }
+
+    @Test
+    public void columnasCsv_sinDireccionDestino_lanzaExcepcion() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ImportacionService.columnasCsv(List.of("direccionOrigen", "clienteEmail")));
+    }
+
+    @Test
+    public void columnasCsv_sinEncabezado_lanzaExcepcion() {
+        assertThrows(IllegalArgumentException.class, () -> ImportacionService.columnasCsv(null));
+    }
+}
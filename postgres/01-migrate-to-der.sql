@@ -167,6 +167,9 @@ INSERT INTO estado_contenedor (nombre) VALUES ('LIBRE'), ('ASIGNADO'), ('EN_DEPO
 INSERT INTO estado_camion (nombre) VALUES ('DISPONIBLE'), ('ASIGNADO'), ('MANTENIMIENTO') ON CONFLICT DO NOTHING;
 INSERT INTO estado_tramo (nombre) VALUES ('PENDIENTE'), ('EN_PROCESO'), ('FINALIZADO') ON CONFLICT DO NOTHING;
 
+-- 7) The outbox no longer stores the user's bearer token (the relay uses its own service credential)
+ALTER TABLE IF EXISTS eventos_outbox DROP COLUMN IF EXISTS token;
+
 COMMIT;
 
 -- Post-migration checks (non-destructive suggestions):
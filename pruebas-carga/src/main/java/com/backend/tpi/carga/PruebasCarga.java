@@ -0,0 +1,52 @@
+package com.backend.tpi.carga;
+
+import com.backend.tpi.carga.escenario.ColeccionPostman;
+import com.backend.tpi.carga.escenario.EjecutorEscenario;
+import com.backend.tpi.carga.simuladores.ServidorSimulado;
+import com.backend.tpi.carga.simuladores.SimuladorKeycloak;
+import com.backend.tpi.carga.simuladores.SimuladorNominatim;
+import com.backend.tpi.carga.simuladores.SimuladorOsrm;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Punto de entrada del jar de pruebas de carga
+ *
+ * simuladores: levanta OSRM, Nominatim y Keycloak simulados hasta que se corta el proceso.
+ *   Puertos: carga.osrm.puerto (5000), carga.nominatim.puerto (8088), carga.keycloak.puerto (8089).
+ *   Para usarlos, los servicios se levantan con APP_OSRM_BASE_URL, APP_NOMINATIM_BASE_URL y
+ *   SPRING_SECURITY_OAUTH2_RESOURCESERVER_JWT_JWK_SET_URI apuntando a estos puertos.
+ *
+ * escenario [colección] [entorno]: reproduce la colección de Postman (por defecto los flujos de
+ *   requerimientos funcionales con el entorno local) a la tasa configurada y reporta latencias por endpoint.
+ */
+public class PruebasCarga {
+
+    public static void main(String[] args) throws Exception {
+        String comando = args.length > 0 ? args[0] : "";
+        switch (comando) {
+            case "simuladores" -> simuladores();
+            case "escenario" -> {
+                Path coleccion = Path.of(args.length > 1 ? args[1] : "postman/TPI-Backend-Requerimientos-Funcionales.postman_collection.json");
+                Path entorno = Path.of(args.length > 2 ? args[2] : "postman/env.local.postman_environment.json");
+                Path resultado = Path.of(System.getProperty("carga.resultado", "target/carga-resultados.json"));
+                new EjecutorEscenario(ColeccionPostman.cargar(coleccion, entorno)).ejecutar(resultado);
+            }
+            default -> {
+                System.err.println("Uso: java -jar pruebas-carga.jar simuladores | escenario [colección] [entorno]");
+                System.exit(2);
+            }
+        }
+    }
+
+    private static void simuladores() throws Exception {
+        List<ServidorSimulado> servidores = List.of(
+                new SimuladorOsrm(Integer.getInteger("carga.osrm.puerto", 5000)),
+                new SimuladorNominatim(Integer.getInteger("carga.nominatim.puerto", 8088)),
+                new SimuladorKeycloak(Integer.getInteger("carga.keycloak.puerto", 8089)));
+        for (ServidorSimulado s : servidores) s.iniciar();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> servidores.forEach(ServidorSimulado::detener)));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,175 @@
+package com.backend.tpi.carga.escenario;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Colección de Postman (v2.1) aplanada en el orden en que la corre el Runner
+ * Además de las peticiones interpreta, de los scripts de test, las asignaciones de variables que
+ * encadenan el flujo (pm.environment.set / pm.collectionVariables.set con expresiones sobre
+ * pm.response.json(), por ejemplo response.tramos[0].id). El resto de los scripts (logs) se ignora.
+ */
+public class ColeccionPostman {
+
+    /**
+     * Variable a capturar de la respuesta
+     * @param camino Campos (o índices de arreglo) desde la raíz del JSON de respuesta
+     */
+    public record Captura(String variable, List<String> camino) {}
+
+    /**
+     * Petición de la colección
+     * @param nombre Carpeta / nombre, para filtrar con carga.incluir / carga.excluir
+     * @param formulario Cuerpo urlencoded (clave -> valor), o null
+     */
+    public record Peticion(String nombre, String metodo, String url, Map<String, String> cabeceras,
+                           String cuerpo, Map<String, String> formulario, List<Captura> capturas) {
+
+        /**
+         * Endpoint para agrupar latencias: método y URL sin query ni variable de host
+         */
+        public String endpoint() {
+            String sinQuery = url.contains("?") ? url.substring(0, url.indexOf('?')) : url;
+            return metodo + " " + sinQuery.replaceFirst("^\\{\\{\\w+}}", "");
+        }
+    }
+
+    private static final Pattern ASIGNACION = Pattern.compile("(?:var|let|const)\\s+(\\w+)\\s*=\\s*([^;\\n]+);?");
+    private static final Pattern SET = Pattern.compile("pm\\.(?:environment|collectionVariables|globals)\\.set\\(\\s*['\"](\\w+)['\"]\\s*,\\s*([^)]+?)\\s*\\)");
+    private static final Pattern EXPRESION = Pattern.compile("^(pm\\.response\\.json\\(\\)|\\w+)((?:\\.\\w+|\\[\\d+])*)$");
+    private static final Pattern SEGMENTO = Pattern.compile("\\.(\\w+)|\\[(\\d+)]");
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{([\\w.-]+)}}");
+
+    private final List<Peticion> peticiones = new ArrayList<>();
+    private final Map<String, String> variables = new LinkedHashMap<>();
+
+    public static ColeccionPostman cargar(Path coleccion, Path entorno) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ColeccionPostman resultado = new ColeccionPostman();
+        JsonNode raiz = objectMapper.readTree(coleccion.toFile());
+        for (JsonNode v : raiz.path("variable")) {
+            resultado.variables.put(v.path("key").asText(), v.path("value").asText(""));
+        }
+        // Las variables de entorno tienen prioridad sobre las de la colección, como en Postman
+        if (entorno != null && entorno.toFile().exists()) {
+            for (JsonNode v : objectMapper.readTree(entorno.toFile()).path("values")) {
+                if (v.path("enabled").asBoolean(true) && !v.path("value").asText("").isEmpty()) {
+                    resultado.variables.put(v.path("key").asText(), v.path("value").asText());
+                }
+            }
+        }
+        resultado.aplanar(raiz.path("item"), "");
+        return resultado;
+    }
+
+    public List<Peticion> getPeticiones() {
+        return peticiones;
+    }
+
+    /**
+     * Variables iniciales (colección + entorno); cada usuario virtual trabaja sobre una copia
+     */
+    public Map<String, String> getVariables() {
+        return variables;
+    }
+
+    private void aplanar(JsonNode items, String carpeta) {
+        for (JsonNode item : items) {
+            String nombre = carpeta.isEmpty() ? item.path("name").asText() : carpeta + " / " + item.path("name").asText();
+            if (item.has("item")) {
+                aplanar(item.path("item"), nombre);
+                continue;
+            }
+            JsonNode request = item.path("request");
+            String url = request.path("url").isTextual() ? request.path("url").asText() : request.path("url").path("raw").asText();
+
+            Map<String, String> cabeceras = new LinkedHashMap<>();
+            for (JsonNode h : request.path("header")) {
+                if (!h.path("disabled").asBoolean(false)) cabeceras.put(h.path("key").asText(), h.path("value").asText());
+            }
+            if ("noauth".equals(request.path("auth").path("type").asText())) cabeceras.remove("Authorization");
+
+            JsonNode body = request.path("body");
+            String cuerpo = null;
+            Map<String, String> formulario = null;
+            if ("raw".equals(body.path("mode").asText())) {
+                cuerpo = body.path("raw").asText();
+            } else if ("urlencoded".equals(body.path("mode").asText())) {
+                formulario = new LinkedHashMap<>();
+                for (JsonNode p : body.path("urlencoded")) {
+                    if (!p.path("disabled").asBoolean(false)) formulario.put(p.path("key").asText(), p.path("value").asText());
+                }
+            }
+
+            List<Captura> capturas = new ArrayList<>();
+            for (JsonNode evento : item.path("event")) {
+                if (!"test".equals(evento.path("listen").asText())) continue;
+                StringBuilder script = new StringBuilder();
+                for (JsonNode linea : evento.path("script").path("exec")) script.append(linea.asText()).append('\n');
+                capturas.addAll(capturas(script.toString()));
+            }
+            peticiones.add(new Peticion(nombre, request.path("method").asText("GET"), url, cabeceras, cuerpo, formulario, capturas));
+        }
+    }
+
+    /**
+     * Traduce los pm.*.set(variable, expresión) del script a caminos sobre el JSON de respuesta
+     */
+    static List<Captura> capturas(String script) {
+        Map<String, String> asignaciones = new HashMap<>();
+        Matcher m = ASIGNACION.matcher(script);
+        while (m.find()) asignaciones.put(m.group(1), m.group(2).trim());
+
+        List<Captura> resultado = new ArrayList<>();
+        Matcher set = SET.matcher(script);
+        while (set.find()) {
+            List<String> camino = camino(set.group(2).trim(), asignaciones, 0);
+            if (camino != null && resultado.stream().noneMatch(c -> c.variable().equals(set.group(1)))) {
+                resultado.add(new Captura(set.group(1), camino));
+            }
+        }
+        return resultado;
+    }
+
+    private static List<String> camino(String expresion, Map<String, String> asignaciones, int profundidad) {
+        Matcher m = EXPRESION.matcher(expresion);
+        if (!m.matches() || profundidad > 10) return null;
+        List<String> base;
+        if (m.group(1).startsWith("pm.")) {
+            base = new ArrayList<>();
+        } else if (asignaciones.containsKey(m.group(1))) {
+            base = camino(asignaciones.get(m.group(1)), asignaciones, profundidad + 1);
+            if (base == null) return null;
+        } else {
+            return null;
+        }
+        Matcher s = SEGMENTO.matcher(m.group(2));
+        while (s.find()) base.add(s.group(1) != null ? s.group(1) : s.group(2));
+        return base;
+    }
+
+    /**
+     * Reemplaza {{variable}}; las que no están definidas quedan como están
+     */
+    static String resolver(String texto, Map<String, String> variables) {
+        if (texto == null || !texto.contains("{{")) return texto;
+        Matcher m = VARIABLE.matcher(texto);
+        StringBuilder resultado = new StringBuilder();
+        while (m.find()) {
+            String valor = variables.get(m.group(1));
+            m.appendReplacement(resultado, Matcher.quoteReplacement(valor != null ? valor : m.group()));
+        }
+        m.appendTail(resultado);
+        return resultado.toString();
+    }
+}
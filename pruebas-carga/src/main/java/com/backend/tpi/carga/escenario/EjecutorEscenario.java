@@ -0,0 +1,265 @@
+package com.backend.tpi.carga.escenario;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Reproduce los flujos de una colección de Postman a una tasa objetivo de requests por segundo
+ * Cada usuario virtual recorre la colección en orden con sus propias variables (los IDs que capturan
+ * los scripts encadenan el flujo) y vuelve a empezar hasta que termina la prueba.
+ * Los envíos se reparten en turnos fijos de 1/rps: la latencia se mide desde el turno asignado y no
+ * desde el envío real, así las demoras por saturación de los usuarios también cuentan (sin omisión coordinada).
+ *
+ * Propiedades:
+ * - carga.rps: requests por segundo objetivo (20)
+ * - carga.duracion-s: duración de la medición (60)
+ * - carga.calentamiento-s: segundos iniciales que no se registran (5)
+ * - carga.usuarios: usuarios virtuales concurrentes (32)
+ * - carga.timeout-ms: timeout por request (10000)
+ * - carga.incluir / carga.excluir: regex sobre "carpeta / nombre" de las peticiones
+ * - carga.var.{nombre}: sobrescribe una variable de la colección o del entorno (por ejemplo carga.var.baseUrl)
+ * - carga.resultado: archivo JSON de salida (target/carga-resultados.json)
+ */
+public class EjecutorEscenario {
+
+    private static final Logger logger = LoggerFactory.getLogger(EjecutorEscenario.class);
+
+    /**
+     * Latencias y resultados de un endpoint
+     */
+    static class Estadisticas {
+        final HistogramaLatencias latencias = new HistogramaLatencias();
+        final Map<Integer, LongAdder> codigos = new ConcurrentHashMap<>();
+        final LongAdder errores = new LongAdder();
+
+        void registrar(long micros, int codigo) {
+            latencias.registrar(micros);
+            codigos.computeIfAbsent(codigo, c -> new LongAdder()).increment();
+            // 0 = error de conexión o timeout
+            if (codigo == 0 || codigo >= 400) errores.increment();
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ColeccionPostman coleccion;
+    private final List<ColeccionPostman.Peticion> peticiones;
+    private final HttpClient http;
+    private final Duration timeout = Duration.ofMillis(Long.getLong("carga.timeout-ms", 10000));
+    private final double rps = Double.parseDouble(System.getProperty("carga.rps", "20"));
+    private final long duracionSeg = Long.getLong("carga.duracion-s", 60);
+    private final long calentamientoSeg = Long.getLong("carga.calentamiento-s", 5);
+    private final int usuarios = Integer.getInteger("carga.usuarios", 32);
+    private final Map<String, Estadisticas> porEndpoint = new ConcurrentHashMap<>();
+    private final AtomicLong turnos = new AtomicLong();
+    private long inicioNanos;
+    private long inicioMedicionNanos;
+    private long finNanos;
+
+    public EjecutorEscenario(ColeccionPostman coleccion) {
+        this.coleccion = coleccion;
+        Pattern incluir = Pattern.compile(System.getProperty("carga.incluir", ".*"));
+        String excluir = System.getProperty("carga.excluir");
+        Pattern patronExcluir = excluir != null ? Pattern.compile(excluir) : null;
+        this.peticiones = coleccion.getPeticiones().stream()
+                .filter(p -> incluir.matcher(p.nombre()).find())
+                .filter(p -> patronExcluir == null || !patronExcluir.matcher(p.nombre()).find())
+                .toList();
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(k -> k.startsWith("carga.var."))
+                .forEach(k -> coleccion.getVariables().put(k.substring("carga.var.".length()), System.getProperty(k)));
+    }
+
+    /**
+     * Corre la prueba y publica el reporte
+     * @return Cantidad total de requests medidos
+     */
+    public long ejecutar(Path resultado) throws Exception {
+        if (peticiones.isEmpty()) throw new IllegalArgumentException("Ningún request de la colección coincide con los filtros");
+        logger.info("Escenario: {} requests por flujo, {} usuarios, {} rps, {}s (+{}s de calentamiento)",
+                peticiones.size(), usuarios, rps, duracionSeg, calentamientoSeg);
+        inicioNanos = System.nanoTime();
+        inicioMedicionNanos = inicioNanos + TimeUnit.SECONDS.toNanos(calentamientoSeg);
+        finNanos = inicioMedicionNanos + TimeUnit.SECONDS.toNanos(duracionSeg);
+
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < usuarios; u++) ejecutor.submit(this::usuarioVirtual);
+        }
+
+        Map<String, Object> reporte = reporte(duracionSeg);
+        imprimir(reporte);
+        Files.createDirectories(resultado.toAbsolutePath().getParent());
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultado.toFile(), reporte);
+        System.out.println("Resultados publicados en " + resultado.toAbsolutePath());
+        return porEndpoint.values().stream().mapToLong(e -> e.latencias.total()).sum();
+    }
+
+    private void usuarioVirtual() {
+        long intervaloNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        while (true) {
+            Map<String, String> variables = new HashMap<>(coleccion.getVariables());
+            for (ColeccionPostman.Peticion peticion : peticiones) {
+                long turno = inicioNanos + turnos.getAndIncrement() * intervaloNanos;
+                if (turno >= finNanos) return;
+                long espera = turno - System.nanoTime();
+                if (espera > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(espera);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                int codigo = enviar(peticion, variables);
+                if (turno >= inicioMedicionNanos) {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - turno);
+                    porEndpoint.computeIfAbsent(peticion.endpoint(), e -> new Estadisticas()).registrar(micros, codigo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Envía la petición con las variables del usuario y aplica las capturas si la respuesta es 2xx
+     * @return Código HTTP, o 0 si falló la conexión
+     */
+    private int enviar(ColeccionPostman.Peticion peticion, Map<String, String> variables) {
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri(ColeccionPostman.resolver(peticion.url(), variables)))
+                    .timeout(timeout);
+            peticion.cabeceras().forEach((k, v) -> request.header(k, ColeccionPostman.resolver(v, variables)));
+            HttpRequest.BodyPublisher cuerpo = HttpRequest.BodyPublishers.noBody();
+            if (peticion.formulario() != null) {
+                StringBuilder formulario = new StringBuilder();
+                peticion.formulario().forEach((k, v) -> {
+                    if (formulario.length() > 0) formulario.append('&');
+                    formulario.append(URLEncoder.encode(k, StandardCharsets.UTF_8)).append('=')
+                            .append(URLEncoder.encode(ColeccionPostman.resolver(v, variables), StandardCharsets.UTF_8));
+                });
+                request.header("Content-Type", "application/x-www-form-urlencoded");
+                cuerpo = HttpRequest.BodyPublishers.ofString(formulario.toString());
+            } else if (peticion.cuerpo() != null && !peticion.cuerpo().isEmpty()) {
+                cuerpo = HttpRequest.BodyPublishers.ofString(ColeccionPostman.resolver(peticion.cuerpo(), variables));
+            }
+            request.method(peticion.metodo(), cuerpo);
+
+            HttpResponse<byte[]> respuesta = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (respuesta.statusCode() / 100 == 2 && !peticion.capturas().isEmpty() && respuesta.body().length > 0) {
+                capturar(peticion.capturas(), objectMapper.readTree(respuesta.body()), variables);
+            }
+            return respuesta.statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            logger.debug("Error en {}: {}", peticion.nombre(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void capturar(List<ColeccionPostman.Captura> capturas, JsonNode json, Map<String, String> variables) {
+        for (ColeccionPostman.Captura captura : capturas) {
+            JsonNode valor = json;
+            for (String paso : captura.camino()) {
+                valor = valor.isArray() && paso.chars().allMatch(Character::isDigit) ? valor.path(Integer.parseInt(paso)) : valor.path(paso);
+            }
+            if (!valor.isMissingNode() && !valor.isNull()) variables.put(captura.variable(), valor.asText());
+        }
+    }
+
+    /**
+     * Arma la URI escapando lo que Postman acepta sin codificar (espacios y acentos en la query)
+     */
+    static URI uri(String url) throws Exception {
+        int esquema = url.indexOf("://");
+        int inicioPath = url.indexOf('/', esquema + 3);
+        int inicioQuery = url.indexOf('?');
+        String autoridad = url.substring(esquema + 3, inicioPath >= 0 ? inicioPath : url.length());
+        String path = inicioPath >= 0 ? url.substring(inicioPath, inicioQuery >= 0 ? inicioQuery : url.length()) : "";
+        String query = inicioQuery >= 0 ? url.substring(inicioQuery + 1) : null;
+        return new URI(new URI(url.substring(0, esquema), autoridad, path, query, null).toASCIIString());
+    }
+
+    private Map<String, Object> reporte(double segundos) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        HistogramaLatencias global = new HistogramaLatencias();
+        long erroresTotales = 0;
+        for (Map.Entry<String, Estadisticas> e : new TreeMap<>(porEndpoint).entrySet()) {
+            Estadisticas est = e.getValue();
+            global.combinar(est.latencias);
+            erroresTotales += est.errores.sum();
+            Map<String, Object> fila = resumen(est.latencias, est.errores.sum(), segundos);
+            Map<String, Long> codigos = new TreeMap<>();
+            est.codigos.forEach((c, n) -> codigos.put(String.valueOf(c), n.sum()));
+            fila.put("codigos", codigos);
+            fila.put("cubetasUs", est.latencias.cubetas());
+            endpoints.put(e.getKey(), fila);
+        }
+        Map<String, Object> reporte = new LinkedHashMap<>();
+        reporte.put("rpsObjetivo", rps);
+        reporte.put("duracionSeg", duracionSeg);
+        reporte.put("usuarios", usuarios);
+        reporte.put("total", resumen(global, erroresTotales, segundos));
+        reporte.put("endpoints", endpoints);
+        return reporte;
+    }
+
+    private static Map<String, Object> resumen(HistogramaLatencias h, long errores, double segundos) {
+        Map<String, Object> fila = new LinkedHashMap<>();
+        fila.put("requests", h.total());
+        fila.put("errores", errores);
+        fila.put("rps", Math.round(h.total() / segundos * 10) / 10.0);
+        fila.put("promedioMs", h.promedio() / 1000.0);
+        fila.put("p50Ms", h.percentil(50) / 1000.0);
+        fila.put("p90Ms", h.percentil(90) / 1000.0);
+        fila.put("p99Ms", h.percentil(99) / 1000.0);
+        fila.put("p999Ms", h.percentil(99.9) / 1000.0);
+        fila.put("maxMs", h.maximo() / 1000.0);
+        return fila;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void imprimir(Map<String, Object> reporte) {
+        String formato = "%-70s %8s %7s %8s %9s %9s %9s %9s %9s%n";
+        System.out.printf(formato, "Endpoint", "Requests", "Errores", "RPS", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        List<Map.Entry<String, Object>> filas = new ArrayList<>(((Map<String, Object>) reporte.get("endpoints")).entrySet());
+        filas.add(Map.entry("TOTAL", reporte.get("total")));
+        for (Map.Entry<String, Object> e : filas) {
+            Map<String, Object> f = (Map<String, Object>) e.getValue();
+            String nombre = e.getKey().length() > 70 ? e.getKey().substring(0, 67) + "..." : e.getKey();
+            System.out.printf(formato, nombre, f.get("requests"), f.get("errores"), f.get("rps"),
+                    String.format("%.1f", (double) f.get("p50Ms")), String.format("%.1f", (double) f.get("p90Ms")),
+                    String.format("%.1f", (double) f.get("p99Ms")), String.format("%.1f", (double) f.get("p999Ms")),
+                    String.format("%.1f", (double) f.get("maxMs")));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.backend.tpi.carga.escenario;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histograma de latencias en microsegundos con cubetas log-lineales: cada potencia de 2 se divide
+ * en 16 cubetas iguales, así el error relativo de los percentiles es menor a 1/16 (~6%) en todo
+ * el rango sin guardar las muestras. Se registra sin bloqueos desde varios hilos.
+ */
+public class HistogramaLatencias {
+
+    private static final int SUBCUBETAS = 16;
+    private static final int BITS_SUB = 4;
+    // Hasta 2^40 us (~12 días), de sobra para cualquier timeout
+    private static final int CUBETAS = SUBCUBETAS + (40 - BITS_SUB) * SUBCUBETAS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong suma = new AtomicLong();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    public void registrar(long micros) {
+        long v = Math.max(0, micros);
+        cuentas.incrementAndGet(Math.min(indice(v), CUBETAS - 1));
+        total.incrementAndGet();
+        suma.addAndGet(v);
+        maximo.accumulate(v);
+    }
+
+    /**
+     * Suma las muestras de otro histograma (para el total de todos los endpoints)
+     */
+    public void combinar(HistogramaLatencias otro) {
+        for (int i = 0; i < CUBETAS; i++) {
+            long c = otro.cuentas.get(i);
+            if (c > 0) cuentas.addAndGet(i, c);
+        }
+        total.addAndGet(otro.total.get());
+        suma.addAndGet(otro.suma.get());
+        maximo.accumulate(otro.maximo.get());
+    }
+
+    public long total() {
+        return total.get();
+    }
+
+    public long maximo() {
+        return maximo.get();
+    }
+
+    public double promedio() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) suma.get() / n;
+    }
+
+    /**
+     * Percentil (0-100) en microsegundos: límite superior de la cubeta que lo contiene, acotado al máximo
+     */
+    public long percentil(double p) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(n * p / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo.get());
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Cubetas no vacías (límite inferior en us -> cantidad), para poder combinar o comparar corridas
+     */
+    public Map<Long, Long> cubetas() {
+        Map<Long, Long> resultado = new LinkedHashMap<>();
+        for (int i = 0; i < CUBETAS; i++) {
+            long c = cuentas.get(i);
+            if (c > 0) resultado.put(limiteInferior(i), c);
+        }
+        return resultado;
+    }
+
+    static int indice(long v) {
+        if (v < SUBCUBETAS) return (int) v;
+        int exponente = 63 - Long.numberOfLeadingZeros(v);
+        int desplazamiento = exponente - BITS_SUB;
+        int sub = (int) (v >>> desplazamiento) - SUBCUBETAS;
+        return SUBCUBETAS + desplazamiento * SUBCUBETAS + sub;
+    }
+
+    static long limiteInferior(int i) {
+        if (i < SUBCUBETAS) return i;
+        int desplazamiento = (i - SUBCUBETAS) / SUBCUBETAS;
+        int sub = (i - SUBCUBETAS) % SUBCUBETAS;
+        return (long) (SUBCUBETAS + sub) << desplazamiento;
+    }
+
+    static long limiteSuperior(int i) {
+        if (i < SUBCUBETAS) return i;
+        int desplazamiento = (i - SUBCUBETAS) / SUBCUBETAS;
+        return limiteInferior(i) + (1L << desplazamiento) - 1;
+    }
+}
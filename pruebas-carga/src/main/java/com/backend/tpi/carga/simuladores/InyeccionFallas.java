@@ -0,0 +1,42 @@
+package com.backend.tpi.carga.simuladores;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latencia y errores que un servidor simulado agrega a cada respuesta
+ * Se configura por propiedades del sistema con el prefijo del simulador, por ejemplo:
+ * - carga.osrm.latencia-ms: demora fija por respuesta (0)
+ * - carga.osrm.jitter-ms: demora aleatoria adicional uniforme en [0, jitter] (0)
+ * - carga.osrm.tasa-error: probabilidad de responder con error (0.0)
+ * - carga.osrm.codigo-error: código HTTP del error inyectado (503)
+ */
+public record InyeccionFallas(long latenciaMs, long jitterMs, double tasaError, int codigoError) {
+
+    public static InyeccionFallas desdePropiedades(String simulador) {
+        String prefijo = "carga." + simulador + ".";
+        return new InyeccionFallas(
+                Long.getLong(prefijo + "latencia-ms", 0),
+                Long.getLong(prefijo + "jitter-ms", 0),
+                Double.parseDouble(System.getProperty(prefijo + "tasa-error", "0")),
+                Integer.getInteger(prefijo + "codigo-error", 503));
+    }
+
+    /**
+     * Demora a aplicar a la respuesta actual
+     */
+    public long demoraMs() {
+        return latenciaMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+    }
+
+    /**
+     * Si la respuesta actual debe fallar
+     */
+    public boolean fallar() {
+        return tasaError > 0 && ThreadLocalRandom.current().nextDouble() < tasaError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("latencia=%dms jitter=%dms tasaError=%.3f codigo=%d", latenciaMs, jitterMs, tasaError, codigoError);
+    }
+}
@@ -0,0 +1,116 @@
+package com.backend.tpi.carga.simuladores;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Base de los servidores simulados: servidor HTTP del JDK con un hilo virtual por request
+ * (la latencia inyectada no consume hilos de plataforma) y aplicación de la inyección de fallas
+ * antes de delegar en el simulador concreto.
+ */
+public abstract class ServidorSimulado {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServidorSimulado.class);
+
+    protected static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String nombre;
+    private final int puerto;
+    private final InyeccionFallas fallas;
+    private HttpServer servidor;
+
+    protected ServidorSimulado(String nombre, int puerto, InyeccionFallas fallas) {
+        this.nombre = nombre;
+        this.puerto = puerto;
+        this.fallas = fallas;
+    }
+
+    /**
+     * Atiende un request que ya pasó por la inyección de fallas
+     * @param ruta Path del request (sin query)
+     * @param parametros Parámetros de query y, en POST de formulario, del cuerpo
+     */
+    protected abstract void atender(HttpExchange exchange, String ruta, Map<String, String> parametros) throws IOException;
+
+    public void iniciar() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress(puerto), 1024);
+        servidor.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        servidor.createContext("/", this::manejar);
+        servidor.start();
+        logger.info("Simulador {} escuchando en puerto {} ({})", nombre, puerto, fallas);
+    }
+
+    public void detener() {
+        if (servidor != null) servidor.stop(0);
+    }
+
+    public int getPuerto() {
+        return servidor != null ? servidor.getAddress().getPort() : puerto;
+    }
+
+    private void manejar(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long demora = fallas.demoraMs();
+            if (demora > 0) Thread.sleep(demora);
+            if (fallas.fallar()) {
+                responderJson(exchange, fallas.codigoError(), Map.of("error", "Falla inyectada por el simulador " + nombre));
+                return;
+            }
+            Map<String, String> parametros = parametros(exchange.getRequestURI().getRawQuery());
+            String tipo = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (tipo != null && tipo.startsWith("application/x-www-form-urlencoded")) {
+                parametros.putAll(parametros(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)));
+            }
+            atender(exchange, exchange.getRequestURI().getPath(), parametros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Error en simulador {} atendiendo {}: {}", nombre, exchange.getRequestURI(), e.getMessage());
+            responderJson(exchange, 500, Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    protected static void responderJson(HttpExchange exchange, int codigo, Object cuerpo) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(cuerpo);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(codigo, json.length);
+        try (OutputStream salida = exchange.getResponseBody()) {
+            salida.write(json);
+        }
+    }
+
+    private static Map<String, String> parametros(String crudo) {
+        Map<String, String> resultado = new LinkedHashMap<>();
+        if (crudo == null || crudo.isEmpty()) return resultado;
+        for (String par : crudo.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = URLDecoder.decode(igual >= 0 ? par.substring(0, igual) : par, StandardCharsets.UTF_8);
+            String valor = igual >= 0 ? URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8) : "";
+            resultado.put(clave, valor);
+        }
+        return resultado;
+    }
+
+    /**
+     * Distancia Haversine en km
+     */
+    protected static double distanciaKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
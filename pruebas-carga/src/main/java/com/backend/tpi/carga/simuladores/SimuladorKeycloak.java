@@ -0,0 +1,192 @@
+package com.backend.tpi.carga.simuladores;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Simulador del realm de Keycloak para los flujos de autenticación:
+ * - /realms/{realm}/.well-known/openid-configuration
+ * - /realms/{realm}/protocol/openid-connect/certs (JWKS con una clave RSA generada al iniciar)
+ * - /realms/{realm}/protocol/openid-connect/token (grant_type password y client_credentials)
+ * Los usuarios, contraseñas, roles y clientes se leen del export del realm (keycloak/realm-tpi-backend.json),
+ * y los tokens llevan los roles en realm_access.roles como los emite Keycloak.
+ * La API de administración no se simula: los flujos de registro de usuarios quedan fuera del escenario.
+ *
+ * Propiedades (además de las de InyeccionFallas con prefijo carga.keycloak):
+ * - carga.keycloak.realm-json: export del realm (keycloak/realm-tpi-backend.json)
+ * - carga.keycloak.issuer: issuer de los tokens; por defecto el que validan los servicios
+ *   (http://keycloak:8080/realms/{realm}), así basta con apuntar su jwk-set-uri al simulador
+ */
+public class SimuladorKeycloak extends ServidorSimulado {
+
+    private record Usuario(String username, String password, String email, List<String> roles) {}
+
+    private final String realm;
+    private final String issuer;
+    private final long duracionTokenSeg;
+    private final Map<String, Usuario> usuarios = new HashMap<>();
+    private final Map<String, String> clientes = new HashMap<>();
+    private final KeyPair claves;
+    private final String kid = UUID.randomUUID().toString();
+
+    public SimuladorKeycloak(int puerto) throws IOException {
+        super("keycloak", puerto, InyeccionFallas.desdePropiedades("keycloak"));
+        JsonNode export = objectMapper.readTree(Path.of(System.getProperty("carga.keycloak.realm-json", "keycloak/realm-tpi-backend.json")).toFile());
+        this.realm = export.path("realm").asText("tpi-backend");
+        this.issuer = System.getProperty("carga.keycloak.issuer", "http://keycloak:8080/realms/" + realm);
+        this.duracionTokenSeg = export.path("accessTokenLifespan").asLong(300);
+        for (JsonNode u : export.path("users")) {
+            String password = null;
+            for (JsonNode c : u.path("credentials")) {
+                if ("password".equals(c.path("type").asText())) password = c.path("value").asText();
+            }
+            List<String> roles = new ArrayList<>();
+            u.path("realmRoles").forEach(r -> roles.add(r.asText()));
+            String username = u.path("username").asText();
+            usuarios.put(username, new Usuario(username, password, u.path("email").asText(null), roles));
+        }
+        for (JsonNode c : export.path("clients")) {
+            clientes.put(c.path("clientId").asText(), c.path("secret").asText(null));
+        }
+        try {
+            KeyPairGenerator generador = KeyPairGenerator.getInstance("RSA");
+            generador.initialize(2048);
+            this.claves = generador.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected void atender(HttpExchange exchange, String ruta, Map<String, String> parametros) throws IOException {
+        String base = "/realms/" + realm;
+        if (ruta.equals(base + "/.well-known/openid-configuration")) {
+            responderJson(exchange, 200, configuracion());
+        } else if (ruta.equals(base + "/protocol/openid-connect/certs")) {
+            responderJson(exchange, 200, jwks());
+        } else if (ruta.equals(base + "/protocol/openid-connect/token") && "POST".equals(exchange.getRequestMethod())) {
+            token(exchange, parametros);
+        } else {
+            responderJson(exchange, 404, Map.of("error", "Endpoint no soportado por el simulador: " + ruta));
+        }
+    }
+
+    private Map<String, Object> configuracion() {
+        Map<String, Object> configuracion = new LinkedHashMap<>();
+        configuracion.put("issuer", issuer);
+        configuracion.put("token_endpoint", issuer + "/protocol/openid-connect/token");
+        configuracion.put("jwks_uri", issuer + "/protocol/openid-connect/certs");
+        configuracion.put("grant_types_supported", List.of("password", "client_credentials"));
+        configuracion.put("id_token_signing_alg_values_supported", List.of("RS256"));
+        return configuracion;
+    }
+
+    private Map<String, Object> jwks() {
+        RSAPublicKey publica = (RSAPublicKey) claves.getPublic();
+        Map<String, Object> clave = new LinkedHashMap<>();
+        clave.put("kid", kid);
+        clave.put("kty", "RSA");
+        clave.put("alg", "RS256");
+        clave.put("use", "sig");
+        clave.put("n", base64Url(sinSigno(publica.getModulus())));
+        clave.put("e", base64Url(sinSigno(publica.getPublicExponent())));
+        return Map.of("keys", List.of(clave));
+    }
+
+    private void token(HttpExchange exchange, Map<String, String> parametros) throws IOException {
+        String clientId = parametros.get("client_id");
+        if (clientId == null || !clientes.containsKey(clientId)
+                || (clientes.get(clientId) != null && !clientes.get(clientId).equals(parametros.get("client_secret")))) {
+            responderJson(exchange, 401, Map.of("error", "unauthorized_client", "error_description", "Invalid client or Invalid client credentials"));
+            return;
+        }
+        String grant = parametros.getOrDefault("grant_type", "");
+        Usuario usuario;
+        switch (grant) {
+            case "password" -> {
+                usuario = usuarios.get(parametros.get("username"));
+                if (usuario == null || usuario.password() == null || !usuario.password().equals(parametros.get("password"))) {
+                    responderJson(exchange, 401, Map.of("error", "invalid_grant", "error_description", "Invalid user credentials"));
+                    return;
+                }
+            }
+            case "client_credentials" -> usuario = new Usuario("service-account-" + clientId, null, null, List.of());
+            default -> {
+                responderJson(exchange, 400, Map.of("error", "unsupported_grant_type", "error_description", "Unsupported grant_type"));
+                return;
+            }
+        }
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("access_token", firmar(usuario, clientId));
+        respuesta.put("expires_in", duracionTokenSeg);
+        respuesta.put("refresh_expires_in", 0);
+        respuesta.put("token_type", "Bearer");
+        respuesta.put("not-before-policy", 0);
+        respuesta.put("scope", "openid profile email");
+        responderJson(exchange, 200, respuesta);
+    }
+
+    private String firmar(Usuario usuario, String clientId) throws IOException {
+        long ahora = Instant.now().getEpochSecond();
+        Map<String, Object> cabecera = new LinkedHashMap<>();
+        cabecera.put("alg", "RS256");
+        cabecera.put("typ", "JWT");
+        cabecera.put("kid", kid);
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("exp", ahora + duracionTokenSeg);
+        claims.put("iat", ahora);
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("iss", issuer);
+        claims.put("aud", "account");
+        claims.put("sub", UUID.nameUUIDFromBytes(usuario.username().getBytes(StandardCharsets.UTF_8)).toString());
+        claims.put("typ", "Bearer");
+        claims.put("azp", clientId);
+        claims.put("scope", "openid profile email");
+        claims.put("realm_access", Map.of("roles", usuario.roles()));
+        claims.put("preferred_username", usuario.username());
+        if (usuario.email() != null) claims.put("email", usuario.email());
+
+        String contenido = base64Url(objectMapper.writeValueAsBytes(cabecera)) + "." + base64Url(objectMapper.writeValueAsBytes(claims));
+        try {
+            Signature firma = Signature.getInstance("SHA256withRSA");
+            firma.initSign(claves.getPrivate());
+            firma.update(contenido.getBytes(StandardCharsets.US_ASCII));
+            return contenido + "." + base64Url(firma.sign());
+        } catch (java.security.GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar el token", e);
+        }
+    }
+
+    private static byte[] sinSigno(BigInteger valor) {
+        byte[] bytes = valor.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] recortado = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, recortado, 0, recortado.length);
+            return recortado;
+        }
+        return bytes;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
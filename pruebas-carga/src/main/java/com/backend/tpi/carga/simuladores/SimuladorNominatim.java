@@ -0,0 +1,118 @@
+package com.backend.tpi.carga.simuladores;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Simulador de Nominatim (/search y /reverse con format=json)
+ * La búsqueda es determinista: si la dirección menciona una localidad conocida se ubica cerca de ella
+ * (con un corrimiento derivado del texto para que direcciones distintas no coincidan), si no, en un
+ * punto del territorio argentino derivado del hash de la dirección. El reverso devuelve la localidad
+ * conocida más cercana. Configurable con las propiedades de InyeccionFallas con prefijo carga.nominatim.
+ */
+public class SimuladorNominatim extends ServidorSimulado {
+
+    private record Localidad(String clave, String ciudad, String provincia, double lat, double lon) {}
+
+    private static final List<Localidad> LOCALIDADES = List.of(
+            new Localidad("caba", "Buenos Aires", "Ciudad Autónoma de Buenos Aires", -34.6037, -58.3816),
+            new Localidad("buenos aires", "Buenos Aires", "Ciudad Autónoma de Buenos Aires", -34.6037, -58.3816),
+            new Localidad("avellaneda", "Avellaneda", "Buenos Aires", -34.6625, -58.3653),
+            new Localidad("la plata", "La Plata", "Buenos Aires", -34.9214, -57.9545),
+            new Localidad("mar del plata", "Mar del Plata", "Buenos Aires", -38.0055, -57.5426),
+            new Localidad("rosario", "Rosario", "Santa Fe", -32.9468, -60.6393),
+            new Localidad("santa fe", "Santa Fe", "Santa Fe", -31.6107, -60.6973),
+            new Localidad("cordoba", "Córdoba", "Córdoba", -31.4201, -64.1888),
+            new Localidad("mendoza", "Mendoza", "Mendoza", -32.8895, -68.8458),
+            new Localidad("tucuman", "San Miguel de Tucumán", "Tucumán", -26.8083, -65.2176),
+            new Localidad("salta", "Salta", "Salta", -24.7821, -65.4232),
+            new Localidad("neuquen", "Neuquén", "Neuquén", -38.9516, -68.0591),
+            new Localidad("bahia blanca", "Bahía Blanca", "Buenos Aires", -38.7196, -62.2724));
+
+    private static final double LAT_MIN = -55.0, LAT_MAX = -22.0, LON_MIN = -73.0, LON_MAX = -53.0;
+
+    public SimuladorNominatim(int puerto) {
+        super("nominatim", puerto, InyeccionFallas.desdePropiedades("nominatim"));
+    }
+
+    @Override
+    protected void atender(HttpExchange exchange, String ruta, Map<String, String> parametros) throws IOException {
+        switch (ruta) {
+            case "/search" -> buscar(exchange, parametros.getOrDefault("q", ""));
+            case "/reverse" -> reverso(exchange, parametros);
+            default -> responderJson(exchange, 404, Map.of("error", "Endpoint no soportado: " + ruta));
+        }
+    }
+
+    private void buscar(HttpExchange exchange, String consulta) throws IOException {
+        if (consulta.isBlank()) {
+            responderJson(exchange, 200, List.of());
+            return;
+        }
+        String normalizada = normalizar(consulta);
+        int hash = normalizada.hashCode();
+        double lat, lon;
+        Localidad localidad = LOCALIDADES.stream().filter(l -> normalizada.contains(l.clave())).findFirst().orElse(null);
+        if (localidad != null) {
+            // Hasta ~5 km alrededor del centro de la localidad
+            lat = localidad.lat() + ((hash & 0xFFFF) / 65535.0 - 0.5) * 0.09;
+            lon = localidad.lon() + (((hash >>> 16) & 0xFFFF) / 65535.0 - 0.5) * 0.09;
+        } else {
+            lat = LAT_MIN + (hash & 0xFFFF) / 65535.0 * (LAT_MAX - LAT_MIN);
+            lon = LON_MIN + ((hash >>> 16) & 0xFFFF) / 65535.0 * (LON_MAX - LON_MIN);
+        }
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("place_id", Integer.toUnsignedLong(hash));
+        // Nominatim devuelve lat/lon como strings
+        resultado.put("lat", String.format(Locale.ROOT, "%.7f", lat));
+        resultado.put("lon", String.format(Locale.ROOT, "%.7f", lon));
+        resultado.put("display_name", consulta);
+        resultado.put("type", "house");
+        responderJson(exchange, 200, List.of(resultado));
+    }
+
+    private void reverso(HttpExchange exchange, Map<String, String> parametros) throws IOException {
+        double lat, lon;
+        try {
+            lat = Double.parseDouble(parametros.get("lat"));
+            lon = Double.parseDouble(parametros.get("lon"));
+        } catch (RuntimeException e) {
+            responderJson(exchange, 400, Map.of("error", "Parámetros lat/lon inválidos"));
+            return;
+        }
+        Localidad cercana = LOCALIDADES.get(0);
+        double mejor = Double.MAX_VALUE;
+        for (Localidad l : LOCALIDADES) {
+            double d = distanciaKm(lat, lon, l.lat(), l.lon());
+            if (d < mejor) {
+                mejor = d;
+                cercana = l;
+            }
+        }
+        Map<String, Object> direccion = new LinkedHashMap<>();
+        direccion.put("city", cercana.ciudad());
+        direccion.put("state", cercana.provincia());
+        direccion.put("country", "Argentina");
+        direccion.put("country_code", "ar");
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("place_id", (long) Math.abs(Double.hashCode(lat) * 31L + Double.hashCode(lon)));
+        resultado.put("lat", String.format(Locale.ROOT, "%.7f", lat));
+        resultado.put("lon", String.format(Locale.ROOT, "%.7f", lon));
+        resultado.put("display_name", cercana.ciudad() + ", " + cercana.provincia() + ", Argentina");
+        resultado.put("address", direccion);
+        responderJson(exchange, 200, resultado);
+    }
+
+    private static String normalizar(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,188 @@
+package com.backend.tpi.carga.simuladores;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulador de OSRM con los endpoints que usan los microservicios:
+ * - /route/v1/{perfil}/{lon,lat;lon,lat;...}
+ * - /table/v1/{perfil}/{lon,lat;...}?sources=...&destinations=...
+ * Las distancias son Haversine por un factor de desvío (las rutas reales no son rectas) y las
+ * duraciones salen de una velocidad media, así los resultados son deterministas y con forma realista.
+ *
+ * Propiedades (además de las de InyeccionFallas con prefijo carga.osrm):
+ * - carga.osrm.factor-desvio: relación ruta / línea recta (1.3)
+ * - carga.osrm.velocidad-kmh: velocidad media para las duraciones (70)
+ * - carga.osrm.max-table-size: coordenadas máximas por /table, como el max-table-size de osrm-routed (100)
+ */
+public class SimuladorOsrm extends ServidorSimulado {
+
+    private final double factorDesvio = Double.parseDouble(System.getProperty("carga.osrm.factor-desvio", "1.3"));
+    private final double velocidadKmh = Double.parseDouble(System.getProperty("carga.osrm.velocidad-kmh", "70"));
+    private final int maxTableSize = Integer.getInteger("carga.osrm.max-table-size", 100);
+
+    public SimuladorOsrm(int puerto) {
+        super("osrm", puerto, InyeccionFallas.desdePropiedades("osrm"));
+    }
+
+    @Override
+    protected void atender(HttpExchange exchange, String ruta, Map<String, String> parametros) throws IOException {
+        String[] partes = ruta.split("/");
+        // ["", servicio, "v1", perfil, coordenadas]
+        if (partes.length < 5) {
+            responderJson(exchange, 400, Map.of("code", "InvalidUrl", "message", "URL inválida: " + ruta));
+            return;
+        }
+        double[][] coordenadas;
+        try {
+            coordenadas = coordenadas(partes[4]);
+        } catch (RuntimeException e) {
+            responderJson(exchange, 400, Map.of("code", "InvalidQuery", "message", "Coordenadas inválidas"));
+            return;
+        }
+        switch (partes[1]) {
+            case "route" -> {
+                if (coordenadas.length < 2) {
+                    responderJson(exchange, 400, Map.of("code", "InvalidQuery", "message", "Se necesitan al menos dos coordenadas"));
+                } else {
+                    responderJson(exchange, 200, ruta(coordenadas));
+                }
+            }
+            case "table" -> tabla(exchange, coordenadas, parametros);
+            default -> responderJson(exchange, 400, Map.of("code", "InvalidService", "message", "Servicio no soportado: " + partes[1]));
+        }
+    }
+
+    private Map<String, Object> ruta(double[][] coordenadas) {
+        List<Map<String, Object>> legs = new ArrayList<>();
+        double distanciaTotal = 0;
+        for (int i = 1; i < coordenadas.length; i++) {
+            double metros = metros(coordenadas[i - 1], coordenadas[i]);
+            distanciaTotal += metros;
+            Map<String, Object> leg = new LinkedHashMap<>();
+            leg.put("distance", metros);
+            leg.put("duration", segundos(metros));
+            leg.put("summary", "");
+            leg.put("steps", List.of());
+            legs.add(leg);
+        }
+        Map<String, Object> route = new LinkedHashMap<>();
+        route.put("distance", distanciaTotal);
+        route.put("duration", segundos(distanciaTotal));
+        route.put("geometry", polyline(coordenadas));
+        route.put("weight", segundos(distanciaTotal));
+        route.put("legs", legs);
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("code", "Ok");
+        respuesta.put("routes", List.of(route));
+        respuesta.put("waypoints", waypoints(coordenadas, null));
+        return respuesta;
+    }
+
+    private void tabla(HttpExchange exchange, double[][] coordenadas, Map<String, String> parametros) throws IOException {
+        if (coordenadas.length > maxTableSize) {
+            responderJson(exchange, 400, Map.of("code", "TooBig", "message",
+                    "Too many table coordinates (" + coordenadas.length + " > " + maxTableSize + ")"));
+            return;
+        }
+        int[] origenes = indices(parametros.get("sources"), coordenadas.length);
+        int[] destinos = indices(parametros.get("destinations"), coordenadas.length);
+        List<List<Double>> distancias = new ArrayList<>(origenes.length);
+        List<List<Double>> duraciones = new ArrayList<>(origenes.length);
+        for (int o : origenes) {
+            List<Double> filaDistancias = new ArrayList<>(destinos.length);
+            List<Double> filaDuraciones = new ArrayList<>(destinos.length);
+            for (int d : destinos) {
+                double metros = metros(coordenadas[o], coordenadas[d]);
+                filaDistancias.add(metros);
+                filaDuraciones.add(segundos(metros));
+            }
+            distancias.add(filaDistancias);
+            duraciones.add(filaDuraciones);
+        }
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("code", "Ok");
+        respuesta.put("distances", distancias);
+        respuesta.put("durations", duraciones);
+        respuesta.put("sources", waypoints(coordenadas, origenes));
+        respuesta.put("destinations", waypoints(coordenadas, destinos));
+        responderJson(exchange, 200, respuesta);
+    }
+
+    private double metros(double[] a, double[] b) {
+        // coordenadas en formato OSRM: [lon, lat]
+        return Math.round(distanciaKm(a[1], a[0], b[1], b[0]) * factorDesvio * 10000.0) / 10.0;
+    }
+
+    private double segundos(double metros) {
+        return Math.round(metros / 1000.0 / velocidadKmh * 36000.0) / 10.0;
+    }
+
+    private static List<Map<String, Object>> waypoints(double[][] coordenadas, int[] indices) {
+        List<Map<String, Object>> resultado = new ArrayList<>();
+        int n = indices != null ? indices.length : coordenadas.length;
+        for (int i = 0; i < n; i++) {
+            double[] c = coordenadas[indices != null ? indices[i] : i];
+            Map<String, Object> waypoint = new LinkedHashMap<>();
+            waypoint.put("name", "");
+            waypoint.put("location", List.of(c[0], c[1]));
+            waypoint.put("distance", 0.0);
+            resultado.add(waypoint);
+        }
+        return resultado;
+    }
+
+    private static double[][] coordenadas(String texto) {
+        String[] pares = texto.split(";");
+        double[][] resultado = new double[pares.length][];
+        for (int i = 0; i < pares.length; i++) {
+            String[] lonLat = pares[i].split(",");
+            resultado[i] = new double[] { Double.parseDouble(lonLat[0]), Double.parseDouble(lonLat[1]) };
+        }
+        return resultado;
+    }
+
+    private static int[] indices(String texto, int total) {
+        if (texto == null || texto.isEmpty() || texto.equals("all")) {
+            int[] todos = new int[total];
+            for (int i = 0; i < total; i++) todos[i] = i;
+            return todos;
+        }
+        String[] partes = texto.split(";");
+        int[] resultado = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) resultado[i] = Integer.parseInt(partes[i]);
+        return resultado;
+    }
+
+    /**
+     * Codifica las coordenadas como polyline de Google (precisión 5), el formato geometries=polyline de OSRM
+     */
+    static String polyline(double[][] coordenadas) {
+        StringBuilder resultado = new StringBuilder();
+        long latAnterior = 0, lonAnterior = 0;
+        for (double[] c : coordenadas) {
+            long lat = Math.round(c[1] * 1e5);
+            long lon = Math.round(c[0] * 1e5);
+            codificar(lat - latAnterior, resultado);
+            codificar(lon - lonAnterior, resultado);
+            latAnterior = lat;
+            lonAnterior = lon;
+        }
+        return resultado.toString();
+    }
+
+    private static void codificar(long valor, StringBuilder salida) {
+        long v = valor < 0 ? ~(valor << 1) : valor << 1;
+        while (v >= 0x20) {
+            salida.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        salida.append((char) (v + 63));
+    }
+}